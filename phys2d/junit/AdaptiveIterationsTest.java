@@ -0,0 +1,245 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.ArbiterList;
+import net.phys2d.raw.BasicJoint;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.ClassicSolver;
+import net.phys2d.raw.ConstraintSolver;
+import net.phys2d.raw.JointList;
+import net.phys2d.raw.PackedSolver;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.StepStats;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class AdaptiveIterationsTest extends TestCase {
+	/** The number of iterations each world is created with */
+	private static final int ITERATIONS = 10;
+	/** The number of steps for the piles to settle */
+	private static final int SETTLE = 300;
+	
+	/**
+	 * A solver recording the number of iterations run by each solve
+	 */
+	private static class RecordingSolver implements ConstraintSolver {
+		/** The solver doing the work */
+		private ConstraintSolver solver;
+		/** The number of solves run */
+		private int solves;
+		/** The total number of iterations run */
+		private int total;
+		/** The fewest iterations run by a solve */
+		private int fewest = Integer.MAX_VALUE;
+		/** The most iterations run by a solve */
+		private int most;
+		
+		public RecordingSolver(ConstraintSolver solver) {
+			this.solver = solver;
+		}
+		
+		public int solve(ArbiterList arbiters, JointList joints, float dt, float damping, int minIterations, int maxIterations, float tolerance, boolean biased, boolean restingBodyDetection, StepStats stats) {
+			int count = solver.solve(arbiters, joints, dt, damping, minIterations, maxIterations, tolerance, biased, restingBodyDetection, stats);
+			assertTrue(count >= minIterations);
+			assertTrue(count <= maxIterations);
+			
+			solves++;
+			total += count;
+			fewest = Math.min(fewest, count);
+			most = Math.max(most, count);
+			return count;
+		}
+		
+		public void reset() {
+			solves = 0;
+			total = 0;
+			fewest = Integer.MAX_VALUE;
+			most = 0;
+		}
+	}
+	
+	/**
+	 * Create a world holding a few piles of boxes and a jointed chain
+	 * 
+	 * @param solver The solver the world should use
+	 * @return The world created
+	 */
+	private World createWorld(ConstraintSolver solver) {
+		World world = new World(new Vector2f(0, 10), ITERATIONS);
+		world.setSolver(solver);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		
+		for ( int p = 0; p < 3; p++ ) {
+			for ( int y = 0; y < 6; y++ ) {
+				for ( int x = 0; x < 6 - y; x++ ) {
+					Body box = new Body(new Box(20, 20), 1);
+					box.setPosition(100 + p * 250 + x * 21 + y * 10.5f, 480 - y * 21);
+					world.add(box);
+				}
+			}
+		}
+		
+		Body last = ground;
+		for ( int i = 0; i < 5; i++ ) {
+			Body link = new Body(new Box(20, 5), 1);
+			link.setPosition(900 + i * 20, 300);
+			world.add(link);
+			world.add(new BasicJoint(last, link, new Vector2f(890 + i * 20, 300)));
+			last = link;
+		}
+		
+		return world;
+	}
+	
+	/**
+	 * Step a world a number of times
+	 * 
+	 * @param world The world to step
+	 * @param steps The number of steps to run
+	 */
+	private void step(World world, int steps) {
+		for ( int i = 0; i < steps; i++ )
+			world.step();
+	}
+	
+	/**
+	 * Check every body of two worlds is within a given distance of each other
+	 * 
+	 * @param expected The world holding the expected state
+	 * @param actual The world to check
+	 * @param delta The distance allowed between the bodies
+	 */
+	private void assertSamePositions(World expected, World actual, float delta) {
+		BodyList a = expected.getBodies();
+		BodyList b = actual.getBodies();
+		for ( int i = 0; i < a.size(); i++ ) {
+			assertEquals(a.get(i).getPosition().getX(), b.get(i).getPosition().getX(), delta);
+			assertEquals(a.get(i).getPosition().getY(), b.get(i).getPosition().getY(), delta);
+			assertEquals(a.get(i).getRotation(), b.get(i).getRotation(), delta);
+		}
+	}
+	
+	public void testFixedByDefault() {
+		RecordingSolver solver = new RecordingSolver(new ClassicSolver());
+		World world = createWorld(solver);
+		step(world, 50);
+		
+		assertEquals(ITERATIONS, solver.fewest);
+		assertEquals(ITERATIONS, solver.most);
+		assertEquals(50, solver.solves);
+	}
+	
+	public void testSameRangeIsFixed() {
+		World fixed = createWorld(new ClassicSolver());
+		World adaptive = createWorld(new ClassicSolver());
+		adaptive.enableAdaptiveIterations(1000, ITERATIONS, ITERATIONS);
+		step(fixed, SETTLE);
+		step(adaptive, SETTLE);
+		
+		assertSamePositions(fixed, adaptive, 0);
+	}
+	
+	public void testSettledStopsEarly() {
+		RecordingSolver solver = new RecordingSolver(new ClassicSolver());
+		World fixed = createWorld(new ClassicSolver());
+		World adaptive = createWorld(solver);
+		adaptive.enableAdaptiveIterations(0.01f, 2, ITERATIONS);
+		step(fixed, SETTLE);
+		step(adaptive, SETTLE);
+		
+		solver.reset();
+		step(fixed, 100);
+		step(adaptive, 100);
+		
+		// the swinging chain never settles, but the piles should
+		assertTrue(solver.total < (solver.solves * ITERATIONS) / 2);
+		assertSamePositions(fixed, adaptive, 0.5f);
+	}
+	
+	public void testImpactIteratesMore() {
+		RecordingSolver solver = new RecordingSolver(new ClassicSolver());
+		World world = createWorld(solver);
+		world.enableAdaptiveIterations(0.01f, 3, ITERATIONS);
+		step(world, SETTLE);
+		
+		Body box = new Body(new Box(20, 20), 10);
+		box.setPosition(152, 320);
+		box.adjustVelocity(new Vector2f(0, 500));
+		world.add(box);
+		
+		solver.reset();
+		step(world, 20);
+		
+		assertEquals(3, solver.fewest);
+		assertEquals(ITERATIONS, solver.most);
+	}
+	
+	public void testPackedMatchesClassic() {
+		World classic = createWorld(new ClassicSolver());
+		World packed = createWorld(new PackedSolver());
+		classic.enableAdaptiveIterations(0.01f, 2, ITERATIONS);
+		packed.enableAdaptiveIterations(0.01f, 2, ITERATIONS);
+		step(classic, SETTLE);
+		step(packed, SETTLE);
+		
+		assertSamePositions(classic, packed, 0);
+	}
+	
+	public void testInvalidRange() {
+		World world = createWorld(new ClassicSolver());
+		try {
+			world.enableAdaptiveIterations(0.01f, 0, ITERATIONS);
+			fail("A minimum of no iterations was accepted");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+		try {
+			world.enableAdaptiveIterations(0.01f, 5, 4);
+			fail("A maximum below the minimum was accepted");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import net.phys2d.raw.Arbiter;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.Contact;
+import net.phys2d.raw.collide.FeaturePair;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class ArbiterFeatureTest extends TestCase {
+	/** The arbiter being tested */
+	private Arbiter arb;
+	/** The method resetting an arbiter to new contacts */
+	private Method reset;
+	/** The method merging new contacts into an arbiter */
+	private Method update;
+	/** The normal impulse accumulated at a contact */
+	private Field impulse;
+	
+	protected void setUp() throws Exception {
+		// arbiters are only updated from inside the engine
+		Constructor ctor = Arbiter.class.getDeclaredConstructor(new Class[] {Body.class, Body.class});
+		ctor.setAccessible(true);
+		arb = (Arbiter) ctor.newInstance(new Object[] {new Body(new Box(20, 20), 1), new Body(new Box(20, 20), 1)});
+		
+		reset = Arbiter.class.getDeclaredMethod("reset", new Class[] {Contact[].class, Integer.TYPE});
+		reset.setAccessible(true);
+		update = Arbiter.class.getDeclaredMethod("update", new Class[] {Contact[].class, Integer.TYPE});
+		update.setAccessible(true);
+		impulse = Contact.class.getDeclaredField("accumulatedNormalImpulse");
+		impulse.setAccessible(true);
+	}
+	
+	/**
+	 * Create the contacts a collider might find, each on the edge given
+	 * 
+	 * @param edges The edge each contact is found on
+	 * @return The contacts created
+	 */
+	private Contact[] createContacts(int[] edges) {
+		Contact[] contacts = new Contact[edges.length];
+		for ( int i = 0; i < edges.length; i++ ) {
+			contacts[i] = new Contact();
+			contacts[i].getFeature().set(edges[i], 0, 0, 0);
+		}
+		return contacts;
+	}
+	
+	/**
+	 * Check the arbiter holds a contact on each of the given edges, each
+	 * with a feature of its own
+	 * 
+	 * @param edges The edge each contact should be on
+	 */
+	private void assertFeatures(int[] edges) {
+		assertEquals(edges.length, arb.getNumContacts());
+		
+		Contact[] contacts = arb.getContacts();
+		for ( int i = 0; i < edges.length; i++ ) {
+			assertEquals(new FeaturePair(edges[i], 0, 0, 0), contacts[i].getFeature());
+			for ( int j = 0; j < i; j++ )
+				assertTrue("Contacts " + j + " and " + i + " share a feature", contacts[i].getFeature() != contacts[j].getFeature());
+		}
+	}
+	
+	public void testReset() throws Exception {
+		Contact[] found = createContacts(new int[] {1, 2});
+		reset.invoke(arb, new Object[] {found, new Integer(2)});
+		assertFeatures(new int[] {1, 2});
+		
+		// the collider's contacts are reused, the arbiter must have its own
+		found[0].getFeature().set(7, 0, 0, 0);
+		found[1].getFeature().set(8, 0, 0, 0);
+		assertFeatures(new int[] {1, 2});
+	}
+	
+	public void testSharedFeature() throws Exception {
+		// a collider may hand both points of a pair the same feature
+		Contact[] found = createContacts(new int[] {3, 3});
+		found[1].setFeature(found[0].getFeature());
+		reset.invoke(arb, new Object[] {found, new Integer(2)});
+		
+		Contact[] contacts = arb.getContacts();
+		assertTrue(contacts[0].getFeature() != contacts[1].getFeature());
+		
+		// so writing one contact's feature mustn't change the other's
+		update.invoke(arb, new Object[] {createContacts(new int[] {1, 2}), new Integer(2)});
+		assertFeatures(new int[] {1, 2});
+	}
+	
+	public void testUpdate() throws Exception {
+		reset.invoke(arb, new Object[] {createContacts(new int[] {1, 2}), new Integer(2)});
+		impulse.setFloat(arb.getContacts()[0], 1);
+		impulse.setFloat(arb.getContacts()[1], 2);
+		
+		// the contact on edge 2 is kept, so warm starts from its impulse
+		Contact[] found = createContacts(new int[] {2, 3});
+		update.invoke(arb, new Object[] {found, new Integer(2)});
+		assertFeatures(new int[] {2, 3});
+		assertEquals(2, impulse.getFloat(arb.getContacts()[0]), 0);
+		assertEquals(0, impulse.getFloat(arb.getContacts()[1]), 0);
+		
+		// and the features survive the buffers being swapped back and forth
+		for ( int i = 0; i < 4; i++ ) {
+			found = createContacts(new int[] {3 + i, 4 + i});
+			update.invoke(arb, new Object[] {found, new Integer(2)});
+			found[0].getFeature().set(9, 0, 0, 0);
+			assertFeatures(new int[] {3 + i, 4 + i});
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Arbiter;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class BlockSolverTest extends TestCase {
+	/** Half the number of iterations the demos run with */
+	private static final int ITERATIONS = 5;
+	/** The number of steps for the stacks to settle */
+	private static final int SETTLE = 900;
+	/** The number of steps over which the stacks are checked for movement */
+	private static final int CHECK = 300;
+	/** The fastest a settled box may still be moving */
+	private static final float MAX_VELOCITY = 0.01f;
+	
+	/**
+	 * Create a world holding a ground
+	 * 
+	 * @return The world created
+	 */
+	private World createWorld() {
+		World world = new World(new Vector2f(0, 10), ITERATIONS);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		
+		return world;
+	}
+	
+	/**
+	 * Let a world settle, then check nothing in it is still moving
+	 * 
+	 * @param world The world to check
+	 */
+	private void assertSettles(World world) {
+		for ( int i = 0; i < SETTLE; i++ )
+			world.step();
+		
+		for ( int i = 0; i < CHECK; i++ ) {
+			world.step();
+			for ( int b = 1; b < world.getBodies().size(); b++ ) {
+				Body body = world.getBodies().get(b);
+				assertTrue("Box " + b + " still moving at " + body.getVelocity().length(), 
+						body.getVelocity().length() < MAX_VELOCITY);
+			}
+		}
+	}
+	
+	public void testColumn() {
+		World world = createWorld();
+		for ( int y = 0; y < 20; y++ ) {
+			Body box = new Body(new Box(20, 20), 1);
+			box.setPosition(100, 480 - y * 21);
+			world.add(box);
+		}
+		
+		assertSettles(world);
+		for ( int b = 1; b < world.getBodies().size(); b++ ) {
+			assertEquals(100, world.getBodies().get(b).getPosition().getX(), 0.01f);
+			assertEquals(0, world.getBodies().get(b).getRotation(), 0.001f);
+		}
+	}
+	
+	/**
+	 * Check whether the contacts between a box resting on the ground are
+	 * resolved together as a block
+	 * 
+	 * @param width The width of the resting box
+	 * @return True if the contacts are resolved as a block
+	 */
+	private boolean isBlockSolved(float width) throws Exception {
+		Body ground = new StaticBody(new Box(200, 20));
+		Body box = new Body(new Box(width, 20), 1);
+		ground.setPosition(0, 0);
+		box.setPosition(0, -19.5f);
+		
+		// the solver is only reachable from inside the engine
+		Constructor ctor = Arbiter.class.getDeclaredConstructor(new Class[] {Body.class, Body.class});
+		ctor.setAccessible(true);
+		Arbiter arb = (Arbiter) ctor.newInstance(new Object[] {ground, box});
+		arb.collide(0.01f);
+		arb.init();
+		assertEquals(2, arb.getNumContacts());
+		
+		Method preStep = Arbiter.class.getDeclaredMethod("preStep", new Class[] {Float.TYPE, Float.TYPE, Float.TYPE});
+		preStep.setAccessible(true);
+		preStep.invoke(arb, new Object[] {new Float(100), new Float(0.01f), new Float(1)});
+		
+		Field block = Arbiter.class.getDeclaredField("blockSolve");
+		block.setAccessible(true);
+		return block.getBoolean(arb);
+	}
+	
+	/**
+	 * Count the arbiters in a world that resolved their contacts as a 
+	 * block at the last step
+	 * 
+	 * @param world The world to check
+	 * @return The number of arbiters that used the block solver
+	 * @throws Exception Indicates the arbiters couldn't be read
+	 */
+	private int countBlockSolved(World world) throws Exception {
+		Field block = Arbiter.class.getDeclaredField("blockSolve");
+		block.setAccessible(true);
+		
+		int count = 0;
+		for ( int i = 0; i < world.getArbiters().size(); i++ ) {
+			if ( block.getBoolean(world.getArbiters().get(i)) )
+				count++;
+		}
+		return count;
+	}
+	
+	public void testDisabled() throws Exception {
+		World world = createWorld();
+		for ( int y = 0; y < 5; y++ ) {
+			Body box = new Body(new Box(20, 20), 1);
+			box.setPosition(100, 480 - y * 21);
+			world.add(box);
+		}
+		for ( int i = 0; i < 60; i++ )
+			world.step();
+		assertTrue(countBlockSolved(world) > 0);
+		
+		// the arbiters already held stop using the block straight away
+		world.disableBlockSolver();
+		for ( int i = 0; i < 60; i++ ) {
+			world.step();
+			assertEquals(0, countBlockSolved(world));
+		}
+		
+		world.enableBlockSolver();
+		world.step();
+		assertTrue(countBlockSolved(world) > 0);
+	}
+	
+	public void testBlockUsed() throws Exception {
+		assertTrue(isBlockSolved(20));
+	}
+	
+	public void testIllConditionedFallsBack() throws Exception {
+		assertFalse(isBlockSolved(0.001f));
+	}
+}
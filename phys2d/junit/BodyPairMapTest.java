@@ -0,0 +1,161 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyPairMap;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class BodyPairMapTest extends TestCase {
+	/** The number of bodies the pairs are made from */
+	private static final int BODIES = 60;
+	
+	/** The bodies the pairs are made from */
+	private Body[] bodies;
+	
+	protected void setUp() {
+		bodies = new Body[BODIES];
+		for ( int i = 0; i < BODIES; i++ )
+			bodies[i] = new Body(new Box(10, 10), 1);
+	}
+	
+	/**
+	 * Check that a map holds exactly the entries of another map
+	 * 
+	 * @param expected The entries expected, keyed on the pair's key
+	 * @param map The map to check
+	 */
+	private void assertSameEntries(HashMap expected, BodyPairMap map) {
+		assertEquals(expected.size(), map.size());
+		
+		Iterator keys = expected.keySet().iterator();
+		while ( keys.hasNext() ) {
+			Long key = (Long) keys.next();
+			assertSame(expected.get(key), map.get(key.longValue()));
+			
+			int index = map.indexOf(key.longValue());
+			assertEquals(key.longValue(), map.getKey(index));
+			assertSame(expected.get(key), map.getValue(index));
+			assertEquals(key.longValue(), BodyPairMap.getKey(map.getBody1(index), map.getBody2(index)));
+			assertTrue(map.getBody1(index).getID() < map.getBody2(index).getID());
+		}
+	}
+	
+	public void testKey() {
+		assertEquals(BodyPairMap.getKey(bodies[0], bodies[1]), BodyPairMap.getKey(bodies[1], bodies[0]));
+		assertFalse(BodyPairMap.getKey(bodies[0], bodies[1]) == BodyPairMap.getKey(bodies[0], bodies[2]));
+		
+		BodyPairMap map = new BodyPairMap();
+		Object value = new Object();
+		map.put(bodies[3], bodies[2], value);
+		assertSame(value, map.get(bodies[2], bodies[3]));
+		assertSame(bodies[2], map.getBody1(0));
+		assertSame(bodies[3], map.getBody2(0));
+		
+		// a second put replaces the value rather than adding an entry
+		Object other = new Object();
+		map.put(bodies[2], bodies[3], other);
+		assertEquals(1, map.size());
+		assertSame(other, map.get(bodies[3], bodies[2]));
+	}
+	
+	public void testGrowth() {
+		BodyPairMap map = new BodyPairMap();
+		HashMap expected = new HashMap();
+		
+		// well past the initial capacity of the table
+		for ( int i = 0; i < BODIES; i++ ) {
+			for ( int j = i + 1; j < BODIES; j += 3 ) {
+				Object value = new Object();
+				map.put(bodies[i], bodies[j], value);
+				expected.put(new Long(BodyPairMap.getKey(bodies[i], bodies[j])), value);
+			}
+		}
+		assertTrue(map.size() > 500);
+		assertSameEntries(expected, map);
+		assertNull(map.get(bodies[0], bodies[2]));
+		
+		map.clear();
+		assertEquals(0, map.size());
+		assertNull(map.get(bodies[0], bodies[1]));
+	}
+	
+	public void testRemoval() {
+		Random random = new Random(1234);
+		BodyPairMap map = new BodyPairMap();
+		HashMap expected = new HashMap();
+		
+		// removal shifts entries back along their probe sequence, so mixing 
+		// it with insertion checks every entry can still be found
+		for ( int i = 0; i < 5000; i++ ) {
+			Body a = bodies[random.nextInt(BODIES)];
+			Body b = bodies[random.nextInt(BODIES)];
+			if ( a == b )
+				continue;
+			
+			Long key = new Long(BodyPairMap.getKey(a, b));
+			if ( random.nextInt(3) == 0 ) {
+				assertSame(expected.remove(key), map.remove(a, b));
+			} else {
+				Object value = new Object();
+				map.put(a, b, value);
+				expected.put(key, value);
+			}
+			
+			if ( i % 100 == 0 )
+				assertSameEntries(expected, map);
+		}
+		assertSameEntries(expected, map);
+		
+		// removing by index while iterating moves the last entry into the hole
+		for ( int i = 0; i < map.size(); i++ ) {
+			if ( map.getBody1(i).getID() % 2 == 0 ) {
+				expected.remove(new Long(map.getKey(i)));
+				map.removeAt(i);
+				i--;
+			}
+		}
+		assertSameEntries(expected, map);
+		assertNull(map.remove(bodies[0], bodies[0]));
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.lang.reflect.Method;
+
+import net.phys2d.math.Matrix2f;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.shapes.Circle;
+import net.phys2d.raw.shapes.Line;
+import net.phys2d.raw.shapes.Polygon;
+import junit.framework.TestCase;
+
+public class BodyTransformCacheTest extends TestCase {
+	/** The tolerance used when comparing vertices and matrices */
+	private static final float EPSILON = 0.0001f;
+	
+	/** The body being moved around */
+	private Body body;
+	/** The box the body starts with */
+	private Box box;
+	
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() {
+		box = new Box(20, 10);
+		body = new Body(box, 1);
+		body.setPosition(5, -3);
+		body.setRotation(0.3f);
+	}
+	
+	/**
+	 * Check the cached transform is reused while the body stays put
+	 */
+	public void testUnchanged() {
+		int version = body.getTransformVersion();
+		Vector2f[] verts = body.getWorldVertices();
+		Matrix2f matrix = body.getRotationMatrix();
+		Vector2f first = verts[0];
+		
+		assertSame(verts, body.getWorldVertices());
+		assertSame(first, body.getWorldVertices()[0]);
+		assertSame(matrix, body.getRotationMatrix());
+		assertEquals(version, body.getTransformVersion());
+		assertTransform();
+	}
+	
+	/**
+	 * Check setting the position invalidates the vertices
+	 */
+	public void testSetPosition() {
+		prime();
+		int version = body.getTransformVersion();
+		body.setPosition(-40, 12);
+		assertChanged(version);
+	}
+	
+	/**
+	 * Check moving the body invalidates the vertices
+	 */
+	public void testMove() {
+		prime();
+		int version = body.getTransformVersion();
+		body.move(7, 8);
+		assertChanged(version);
+	}
+	
+	/**
+	 * Check a scaled position adjustment invalidates the vertices
+	 */
+	public void testAdjustPositionScaled() {
+		prime();
+		int version = body.getTransformVersion();
+		body.adjustPosition(new Vector2f(3, -2), 0.5f);
+		assertChanged(version);
+	}
+	
+	/**
+	 * Check a position adjustment invalidates the vertices
+	 */
+	public void testAdjustPosition() {
+		prime();
+		int version = body.getTransformVersion();
+		body.adjustPosition(new Vector2f(-1, 4));
+		assertChanged(version);
+	}
+	
+	/**
+	 * Check setting the rotation invalidates the vertices and matrix
+	 */
+	public void testSetRotation() {
+		prime();
+		int version = body.getTransformVersion();
+		body.setRotation(-1.2f);
+		assertChanged(version);
+	}
+	
+	/**
+	 * Check adjusting the rotation invalidates the vertices and matrix
+	 */
+	public void testAdjustRotation() {
+		prime();
+		int version = body.getTransformVersion();
+		body.adjustRotation(0.7f);
+		assertChanged(version);
+	}
+	
+	/**
+	 * Check the position correction used by the solver invalidates the
+	 * vertices and matrix
+	 * 
+	 * @throws Exception Indicates a failure to reach the correction
+	 */
+	public void testCorrectPosition() throws Exception {
+		prime();
+		int version = body.getTransformVersion();
+		Method correct = Body.class.getDeclaredMethod("correctPosition", 
+				new Class[] {Float.TYPE, Float.TYPE, Float.TYPE});
+		correct.setAccessible(true);
+		correct.invoke(body, new Object[] {new Float(0.5f), new Float(-0.25f), new Float(0.1f)});
+		assertChanged(version);
+	}
+	
+	/**
+	 * Check swapping the shape recalculates the vertices for the new shape,
+	 * resizing the cached array when the vertex count changes
+	 */
+	public void testSetShape() {
+		prime();
+		int version = body.getTransformVersion();
+		Vector2f[] verts = body.getWorldVertices();
+		
+		body.setShape(new Box(4, 40));
+		assertChanged(version);
+		assertSame(verts, body.getWorldVertices());
+		
+		version = body.getTransformVersion();
+		body.setShape(new Polygon(new Vector2f[] {new Vector2f(0, 0), 
+				new Vector2f(10, 0), new Vector2f(0, 10)}));
+		assertChanged(version);
+		assertEquals(3, body.getWorldVertices().length);
+		
+		version = body.getTransformVersion();
+		body.setShape(new Line(10, 5));
+		assertChanged(version);
+		assertEquals(2, body.getWorldVertices().length);
+		
+		version = body.getTransformVersion();
+		body.setShape(new Circle(5));
+		assertTrue(body.getTransformVersion() != version);
+		assertNull(body.getWorldVertices());
+		
+		body.setShape(box);
+		assertTransform();
+	}
+	
+	/**
+	 * Check reconfiguring the body resets the cached transform
+	 */
+	public void testSet() {
+		prime();
+		int version = body.getTransformVersion();
+		body.set(new Box(6, 6), 2);
+		assertChanged(version);
+		assertEquals(0, body.getPosition().getX(), EPSILON);
+		assertEquals(0, body.getRotationMatrix().col1.y, EPSILON);
+	}
+	
+	/**
+	 * Check a run of changes between reads only recalculates once, picking
+	 * up the latest transform
+	 */
+	public void testSeveralChanges() {
+		prime();
+		body.setPosition(1, 1);
+		body.adjustRotation(0.4f);
+		body.move(2, 9);
+		body.adjustPosition(new Vector2f(1, 1));
+		assertTransform();
+	}
+	
+	/**
+	 * Read the cached transform so a later change has something stale
+	 * to invalidate
+	 */
+	private void prime() {
+		body.getWorldVertices();
+		body.getRotationMatrix();
+	}
+	
+	/**
+	 * Check the transform version moved on and the cached transform 
+	 * matches the body
+	 * 
+	 * @param version The transform version before the change
+	 */
+	private void assertChanged(int version) {
+		assertTrue(body.getTransformVersion() != version);
+		assertTransform();
+	}
+	
+	/**
+	 * Check the cached vertices and matrix match ones calculated fresh 
+	 * from the current shape, position and rotation of the body
+	 */
+	private void assertTransform() {
+		float rotation = body.getRotation();
+		Matrix2f expectedMatrix = new Matrix2f(rotation);
+		Matrix2f matrix = body.getRotationMatrix();
+		assertEquals(expectedMatrix.col1.x, matrix.col1.x, EPSILON);
+		assertEquals(expectedMatrix.col1.y, matrix.col1.y, EPSILON);
+		assertEquals(expectedMatrix.col2.x, matrix.col2.x, EPSILON);
+		assertEquals(expectedMatrix.col2.y, matrix.col2.y, EPSILON);
+		
+		Vector2f[] expected;
+		if (body.getShape() instanceof Box) {
+			expected = ((Box) body.getShape()).getPoints(body.getPosition(), rotation);
+		} else if (body.getShape() instanceof Polygon) {
+			expected = ((Polygon) body.getShape()).getVertices(body.getPosition(), rotation);
+		} else {
+			expected = ((Line) body.getShape()).getVertices(body.getPosition(), rotation);
+		}
+		
+		Vector2f[] verts = body.getWorldVertices();
+		assertEquals(expected.length, verts.length);
+		for ( int i = 0; i < expected.length; i++ ) {
+			assertEquals(expected[i].x, verts[i].x, EPSILON);
+			assertEquals(expected[i].y, verts[i].y, EPSILON);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.Collide;
+import net.phys2d.raw.Contact;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.shapes.Circle;
+import net.phys2d.raw.shapes.ConvexPolygon;
+import net.phys2d.raw.shapes.DynamicShape;
+import net.phys2d.raw.shapes.Line;
+import net.phys2d.raw.shapes.Polygon;
+import net.phys2d.util.AllocationCounter;
+import junit.framework.TestCase;
+
+public class ColliderAllocationTest extends TestCase {
+	/** The number of collisions to warm up with before measuring */
+	private static final int WARM_UP = 1000;
+	/** The number of collisions to measure */
+	private static final int COLLISIONS = 1000;
+	/** The number of times the measurement is repeated */
+	private static final int RUNS = 5;
+	
+	/** The counter of the bytes allocated, null if allocations can't be measured */
+	private AllocationCounter allocations;
+	/** The contacts the colliders write to */
+	private Contact[] contacts;
+	
+	protected void setUp() throws Exception {
+		contacts = new Contact[10];
+		for ( int i = 0; i < contacts.length; i++ )
+			contacts[i] = new Contact();
+		
+		allocations = AllocationCounter.create();
+	}
+	
+	/**
+	 * Create the shapes to collide, one of each type
+	 * 
+	 * @return The shapes to collide
+	 */
+	private DynamicShape[] createShapes() {
+		Vector2f[] convex = {new Vector2f(-10,-10), new Vector2f(10,-10), new Vector2f(12,5), new Vector2f(0,14), new Vector2f(-12,5)};
+		Vector2f[] concave = {new Vector2f(-15,-10), new Vector2f(15,-10), new Vector2f(15,10), new Vector2f(0,0), new Vector2f(-15,10)};
+		
+		return new DynamicShape[] {
+			new Circle(10),
+			new Box(20,20),
+			new Line(-20,0,20,5),
+			new Polygon(concave),
+			new ConvexPolygon(convex)
+		};
+	}
+	
+	/**
+	 * Check that colliding two overlapping shapes allocates nothing once 
+	 * the collision has been warmed up
+	 * 
+	 * @param a The first shape
+	 * @param b The second shape
+	 * @throws Exception Indicates the measurement failed
+	 */
+	private void assertNoAllocation(DynamicShape a, DynamicShape b) throws Exception {
+		Body bodyA = new Body(a, 1);
+		Body bodyB = new Body(b, 1);
+		bodyA.setPosition(0, 0);
+		bodyB.setPosition(8, 3);
+		bodyB.setRotation(0.3f);
+		
+		for ( int i = 0; i < WARM_UP; i++ )
+			Collide.collide(contacts, bodyA, bodyB, 0.01f);
+		
+		// take the best of a few runs so that a one-off allocation by the
+		// VM itself, e.g. while compiling, isn't counted against the collider
+		long allocated = Long.MAX_VALUE;
+		for ( int run = 0; run < RUNS; run++ ) {
+			long overhead = allocations.measureOverhead();
+			long start = allocations.getAllocatedBytes();
+			for ( int i = 0; i < COLLISIONS; i++ )
+				Collide.collide(contacts, bodyA, bodyB, 0.01f);
+			allocated = Math.min(allocated, allocations.getAllocatedBytes() - start - overhead);
+		}
+		
+		assertTrue(a.getClass().getName() + " against " + b.getClass().getName() + 
+				" allocated " + allocated + " bytes", allocated <= 0);
+	}
+	
+	/**
+	 * Check every pair of shapes, with the given shape first
+	 * 
+	 * @param index The index of the first shape
+	 * @throws Exception Indicates the measurement failed
+	 */
+	private void assertNoAllocation(int index) throws Exception {
+		if ( allocations == null )
+			return;
+		
+		DynamicShape[] first = createShapes();
+		DynamicShape[] second = createShapes();
+		for ( int i = 0; i < second.length; i++ )
+			assertNoAllocation(first[index], second[i]);
+	}
+	
+	public void testCircle() throws Exception {
+		assertNoAllocation(0);
+	}
+	
+	public void testBox() throws Exception {
+		assertNoAllocation(1);
+	}
+	
+	public void testLine() throws Exception {
+		assertNoAllocation(2);
+	}
+	
+	public void testPolygon() throws Exception {
+		assertNoAllocation(3);
+	}
+	
+	public void testConvexPolygon() throws Exception {
+		assertNoAllocation(4);
+	}
+}
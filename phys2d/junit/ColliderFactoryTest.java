@@ -0,0 +1,251 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.Contact;
+import net.phys2d.raw.collide.BoxCircleCollider;
+import net.phys2d.raw.collide.Collider;
+import net.phys2d.raw.collide.ColliderFactory;
+import net.phys2d.raw.collide.ColliderUnavailableException;
+import net.phys2d.raw.collide.SwapCollider;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.shapes.Circle;
+import net.phys2d.raw.shapes.Shape;
+import junit.framework.TestCase;
+
+public class ColliderFactoryTest extends TestCase {
+	/** The type ID of the custom shape, away from the standard types so the table has to grow */
+	private static final int CUSTOM_TYPE = Shape.FIRST_CUSTOM_TYPE + 3;
+	/** The tolerance used when comparing contacts */
+	private static final float EPSILON = 0.0001f;
+	
+	/** The factory being tested */
+	private ColliderFactory factory;
+	
+	/**
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp() {
+		factory = new ColliderFactory();
+	}
+	
+	/**
+	 * Check the standard colliders are found in both orders, the reverse 
+	 * order through a swap
+	 * 
+	 * @throws Exception Indicates a failure to find a collider
+	 */
+	public void testStandardColliders() throws Exception {
+		Box box = new Box(20, 20);
+		Circle circle = new Circle(5);
+		
+		assertTrue(factory.getCollider(box, circle) instanceof BoxCircleCollider);
+		assertTrue(factory.getCollider(circle, box) instanceof SwapCollider);
+		assertSame(factory.getCollider(box, circle), factory.getCollider(box, circle));
+		assertSame(factory.getCollider(circle, box), factory.getCollider(circle, box));
+	}
+	
+	/**
+	 * Check a swapped collider finds the same contacts as the one it wraps
+	 * with the normals reversed
+	 * 
+	 * @throws Exception Indicates a failure to find a collider
+	 */
+	public void testSwapResults() throws Exception {
+		Body box = new Body(new Box(20, 20), 1);
+		Body circle = new Body(new Circle(5), 1);
+		circle.setPosition(2, 12);
+		
+		Contact[] forward = createContacts();
+		Contact[] reverse = createContacts();
+		int count = factory.createCollider(box, circle).collide(forward, box, circle);
+		int swapped = factory.createCollider(circle, box).collide(reverse, circle, box);
+		
+		assertTrue(count > 0);
+		assertEquals(count, swapped);
+		for ( int i = 0; i < count; i++ ) {
+			assertEquals(forward[i].getPosition().getX(), reverse[i].getPosition().getX(), EPSILON);
+			assertEquals(forward[i].getPosition().getY(), reverse[i].getPosition().getY(), EPSILON);
+			assertEquals(forward[i].getSeparation(), reverse[i].getSeparation(), EPSILON);
+			assertEquals(-forward[i].getNormal().getX(), reverse[i].getNormal().getX(), EPSILON);
+			assertEquals(-forward[i].getNormal().getY(), reverse[i].getNormal().getY(), EPSILON);
+		}
+	}
+	
+	/**
+	 * Check a collider registered for a custom type is used for it and 
+	 * swapped for the reverse order
+	 * 
+	 * @throws Exception Indicates a failure to find a collider
+	 */
+	public void testCustomType() throws Exception {
+		Body custom = new Body(new CustomShape(), 1);
+		Body circle = new Body(new Circle(5), 1);
+		
+		try {
+			factory.createCollider(custom, circle);
+			fail();
+		} catch ( ColliderUnavailableException e ) {
+			// expected
+		}
+		
+		RecordingCollider recorder = new RecordingCollider();
+		factory.register(CUSTOM_TYPE, Shape.CIRCLE_TYPE, recorder);
+		
+		assertSame(recorder, factory.createCollider(custom, circle));
+		Collider swap = factory.createCollider(circle, custom);
+		assertTrue(swap instanceof SwapCollider);
+		
+		Contact[] contacts = createContacts();
+		assertEquals(1, factory.createCollider(custom, circle).collide(contacts, custom, circle));
+		assertSame(custom, recorder.bodyA);
+		assertSame(circle, recorder.bodyB);
+		assertEquals(1, contacts[0].getNormal().getX(), EPSILON);
+		
+		contacts = createContacts();
+		assertEquals(1, swap.collide(contacts, circle, custom));
+		assertSame(custom, recorder.bodyA);
+		assertSame(circle, recorder.bodyB);
+		assertEquals(-1, contacts[0].getNormal().getX(), EPSILON);
+		assertEquals(0, contacts[0].getNormal().getY(), EPSILON);
+		
+		// nothing was registered against boxes
+		try {
+			factory.getCollider(new CustomShape(), new Box(1, 1));
+			fail();
+		} catch ( ColliderUnavailableException e ) {
+			// expected
+		}
+	}
+	
+	/**
+	 * Check growing the table for a custom type keeps the standard colliders
+	 * 
+	 * @throws Exception Indicates a failure to find a collider
+	 */
+	public void testGrowKeepsColliders() throws Exception {
+		Box box = new Box(20, 20);
+		Circle circle = new Circle(5);
+		Collider boxCircle = factory.getCollider(box, circle);
+		Collider circleBox = factory.getCollider(circle, box);
+		
+		factory.register(CUSTOM_TYPE, CUSTOM_TYPE, new RecordingCollider());
+		
+		assertSame(boxCircle, factory.getCollider(box, circle));
+		assertSame(circleBox, factory.getCollider(circle, box));
+		assertNotNull(factory.getCollider(new CustomShape(), new CustomShape()));
+	}
+	
+	/**
+	 * Check a registered collider is never replaced by a swap, whichever
+	 * order the two combinations are registered in
+	 * 
+	 * @throws Exception Indicates a failure to find a collider
+	 */
+	public void testRegisteredNotSwapped() throws Exception {
+		CustomShape custom = new CustomShape();
+		Circle circle = new Circle(5);
+		Collider first = new RecordingCollider();
+		Collider second = new RecordingCollider();
+		Collider third = new RecordingCollider();
+		
+		factory.register(CUSTOM_TYPE, Shape.CIRCLE_TYPE, first);
+		factory.register(Shape.CIRCLE_TYPE, CUSTOM_TYPE, second);
+		assertSame(first, factory.getCollider(custom, circle));
+		assertSame(second, factory.getCollider(circle, custom));
+		
+		factory.register(CUSTOM_TYPE, Shape.CIRCLE_TYPE, third);
+		assertSame(third, factory.getCollider(custom, circle));
+		assertSame(second, factory.getCollider(circle, custom));
+	}
+	
+	/**
+	 * Create an array of contacts to collect collision results in
+	 * 
+	 * @return The new array of contacts
+	 */
+	private Contact[] createContacts() {
+		Contact[] contacts = new Contact[10];
+		for ( int i = 0; i < contacts.length; i++ ) {
+			contacts[i] = new Contact();
+		}
+		return contacts;
+	}
+	
+	/**
+	 * A shape with a custom type ID
+	 */
+	private static class CustomShape extends Circle {
+		/**
+		 * Create a new custom shape
+		 */
+		public CustomShape() {
+			super(5);
+		}
+		
+		/**
+		 * @see net.phys2d.raw.shapes.Shape#getTypeID()
+		 */
+		public int getTypeID() {
+			return CUSTOM_TYPE;
+		}
+	}
+	
+	/**
+	 * A collider that records the bodies it was given and reports a 
+	 * single contact with a normal along the x axis
+	 */
+	private static class RecordingCollider implements Collider {
+		/** The first body the collider was last given */
+		private Body bodyA;
+		/** The second body the collider was last given */
+		private Body bodyB;
+		
+		/**
+		 * @see net.phys2d.raw.collide.Collider#collide(net.phys2d.raw.Contact[], net.phys2d.raw.Body, net.phys2d.raw.Body)
+		 */
+		public int collide(Contact[] contacts, Body bodyA, Body bodyB) {
+			this.bodyA = bodyA;
+			this.bodyB = bodyB;
+			contacts[0].setNormal(new Vector2f(1, 0));
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Arbiter;
+import net.phys2d.raw.ArbiterList;
+import net.phys2d.raw.BasicJoint;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.ColoredSolver;
+import net.phys2d.raw.Joint;
+import net.phys2d.raw.JointList;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.WorkerPool;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class ColoredSolverTest extends TestCase {
+	/** The number of steps each world is run for */
+	private static final int STEPS = 150;
+	/** The number of rows in the pyramid */
+	private static final int ROWS = 20;
+	/** The colour given to constraints resolved after all the others */
+	private static final int OVERFLOW = 64;
+	
+	/** The pool the coloured solver resolves on */
+	private WorkerPool pool;
+	
+	protected void setUp() {
+		pool = new WorkerPool(3);
+	}
+	
+	protected void tearDown() {
+		pool.shutdown();
+	}
+	
+	/**
+	 * Create a world holding a single pyramid and a jointed chain
+	 * 
+	 * @return The world created
+	 */
+	private World createWorld() {
+		World world = new World(new Vector2f(0, 10), 10);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		
+		for ( int y = 0; y < ROWS; y++ ) {
+			for ( int x = 0; x < ROWS - y; x++ ) {
+				Body box = new Body(new Box(20, 20), 1);
+				box.setPosition(100 + x * 21 + y * 10.5f, 480 - y * 21);
+				world.add(box);
+			}
+		}
+		
+		Body last = ground;
+		for ( int i = 0; i < 5; i++ ) {
+			Body link = new Body(new Box(20, 5), 1);
+			link.setPosition(800 + i * 20, 300);
+			world.add(link);
+			world.add(new BasicJoint(last, link, new Vector2f(790 + i * 20, 300)));
+			last = link;
+		}
+		
+		return world;
+	}
+	
+	/**
+	 * Step two worlds the same number of times
+	 * 
+	 * @param a The first world to step
+	 * @param b The second world to step
+	 */
+	private void step(World a, World b) {
+		for ( int i = 0; i < STEPS; i++ ) {
+			a.step();
+			b.step();
+		}
+	}
+	
+	/**
+	 * Check every body of two worlds ended up in exactly the same state
+	 * 
+	 * @param expected The world holding the expected state
+	 * @param actual The world to check
+	 */
+	private void assertSameBodies(World expected, World actual) {
+		BodyList a = expected.getBodies();
+		BodyList b = actual.getBodies();
+		for ( int i = 0; i < a.size(); i++ ) {
+			assertEquals(a.get(i).getPosition().getX(), b.get(i).getPosition().getX(), 0);
+			assertEquals(a.get(i).getPosition().getY(), b.get(i).getPosition().getY(), 0);
+			assertEquals(a.get(i).getRotation(), b.get(i).getRotation(), 0);
+			assertEquals(a.get(i).getVelocity().getX(), b.get(i).getVelocity().getX(), 0);
+			assertEquals(a.get(i).getVelocity().getY(), b.get(i).getVelocity().getY(), 0);
+			assertEquals(a.get(i).getAngularVelocity(), b.get(i).getAngularVelocity(), 0);
+		}
+	}
+	
+	/**
+	 * Colour the constraints of a world as the coloured solver would
+	 * 
+	 * @param world The world whose arbiters and joints should be coloured
+	 * @return The colouring built
+	 */
+	private Object color(World world) throws Exception {
+		Class type = Class.forName("net.phys2d.raw.ColoredSolver$Coloring");
+		Constructor ctor = type.getDeclaredConstructor(new Class[0]);
+		ctor.setAccessible(true);
+		Object coloring = ctor.newInstance(new Object[0]);
+		
+		Method color = type.getDeclaredMethod("color", new Class[] {ArbiterList.class, JointList.class, boolean.class});
+		color.setAccessible(true);
+		color.invoke(coloring, new Object[] {world.getArbiters(), world.getJoints(), Boolean.FALSE});
+		
+		return coloring;
+	}
+	
+	/**
+	 * Get the constraints given a colour
+	 * 
+	 * @param coloring The colouring to read
+	 * @param color The colour to retrieve
+	 * @return The arbiters and joints of the colour
+	 */
+	private Object[] getConstraints(Object coloring, int color) throws Exception {
+		Method method = coloring.getClass().getDeclaredMethod("getConstraints", new Class[] {int.class});
+		method.setAccessible(true);
+		return (Object[]) method.invoke(coloring, new Object[] {new Integer(color)});
+	}
+	
+	/**
+	 * Get the number of colours used by a colouring
+	 * 
+	 * @param coloring The colouring to read
+	 * @return The number of colours used
+	 */
+	private int getColorCount(Object coloring) throws Exception {
+		Method method = coloring.getClass().getDeclaredMethod("getColorCount", new Class[0]);
+		method.setAccessible(true);
+		return ((Integer) method.invoke(coloring, new Object[0])).intValue();
+	}
+	
+	/**
+	 * Check no two constraints of the same colour share a body that can move,
+	 * and that every constraint of the world was given exactly one colour
+	 * 
+	 * @param world The world to colour
+	 * @return The colouring checked
+	 */
+	private Object assertValidColoring(World world) throws Exception {
+		Object coloring = color(world);
+		
+		Set seen = new HashSet();
+		for ( int c = 0; c < getColorCount(coloring); c++ ) {
+			Set used = new HashSet();
+			Object[] constraints = getConstraints(coloring, c);
+			assertTrue("Empty colour " + c, constraints.length > 0);
+			
+			for ( int i = 0; i < constraints.length; i++ ) {
+				Body[] bodies = getBodies(constraints[i]);
+				for ( int k = 0; k < bodies.length; k++ ) {
+					if ( bodies[k].isMoveable() || bodies[k].isRotatable() )
+						assertTrue("Body shared within colour " + c, used.add(bodies[k]));
+				}
+				assertTrue(seen.add(constraints[i]));
+			}
+		}
+		Object[] overflow = getConstraints(coloring, OVERFLOW);
+		for ( int i = 0; i < overflow.length; i++ )
+			assertTrue(seen.add(overflow[i]));
+		
+		assertEquals(world.getArbiters().size() + world.getJoints().size(), seen.size());
+		for ( int i = 0; i < world.getBodies().size(); i++ ) {
+			Method index = Body.class.getDeclaredMethod("getSolverIndex", new Class[0]);
+			index.setAccessible(true);
+			assertEquals(-1, ((Integer) index.invoke(world.getBodies().get(i), new Object[0])).intValue());
+		}
+		
+		return coloring;
+	}
+	
+	/**
+	 * Get the bodies a constraint acts on
+	 * 
+	 * @param constraint The arbiter or joint
+	 * @return The bodies it acts on
+	 */
+	private Body[] getBodies(Object constraint) {
+		if ( constraint instanceof Arbiter )
+			return new Body[] {((Arbiter) constraint).getBody1(), ((Arbiter) constraint).getBody2()};
+		return new Body[] {((Joint) constraint).getBody1(), ((Joint) constraint).getBody2()};
+	}
+	
+	public void testColoring() throws Exception {
+		World world = createWorld();
+		for ( int i = 0; i < STEPS; i++ )
+			world.step();
+		
+		Object coloring = assertValidColoring(world);
+		assertTrue(getColorCount(coloring) > 1);
+		assertEquals(0, getConstraints(coloring, OVERFLOW).length);
+	}
+	
+	public void testOverflow() throws Exception {
+		World world = new World(new Vector2f(0, 10), 10);
+		Body hub = new Body(new Box(20, 20), 1);
+		hub.setPosition(100, 100);
+		world.add(hub);
+		for ( int i = 0; i < 70; i++ ) {
+			Body spoke = new Body(new Box(5, 5), 1);
+			spoke.setPosition(100, 120 + i * 10);
+			world.add(spoke);
+			world.add(new BasicJoint(hub, spoke, new Vector2f(100, 110)));
+		}
+		
+		Object coloring = assertValidColoring(world);
+		assertEquals(64, getColorCount(coloring));
+		assertEquals(6, getConstraints(coloring, OVERFLOW).length);
+		
+		World serial = new World(new Vector2f(0, 10), 10);
+		serial.setSolver(new ColoredSolver(new WorkerPool(1)));
+		world.setSolver(new ColoredSolver(pool));
+		for ( int i = 0; i < world.getBodies().size(); i++ ) {
+			Body body = world.getBodies().get(i);
+			Body copy = new Body(new Box(i == 0 ? 20 : 5, i == 0 ? 20 : 5), 1);
+			copy.setPosition(body.getPosition().getX(), body.getPosition().getY());
+			serial.add(copy);
+		}
+		for ( int i = 1; i < serial.getBodies().size(); i++ )
+			serial.add(new BasicJoint(serial.getBodies().get(0), serial.getBodies().get(i), new Vector2f(100, 110)));
+		
+		step(serial, world);
+		assertSameBodies(serial, world);
+		((ColoredSolver) serial.getSolver()).getWorkerPool().shutdown();
+	}
+	
+	public void testSameResultsAnyThreads() {
+		WorkerPool single = new WorkerPool(1);
+		World serial = createWorld();
+		World parallel = createWorld();
+		serial.setSolver(new ColoredSolver(single));
+		parallel.setSolver(new ColoredSolver(pool));
+		
+		step(serial, parallel);
+		assertSameBodies(serial, parallel);
+		single.shutdown();
+	}
+	
+	public void testWithinIslandStep() {
+		World serial = createWorld();
+		World parallel = createWorld();
+		ColoredSolver solver = new ColoredSolver(pool);
+		serial.setSolver(solver);
+		parallel.setSolver(solver);
+		parallel.setWorkerPool(pool);
+		
+		step(serial, parallel);
+		assertSameBodies(serial, parallel);
+	}
+	
+	public void testPyramidStands() {
+		World classic = createWorld();
+		World colored = createWorld();
+		colored.setSolver(new ColoredSolver(pool));
+		
+		step(classic, colored);
+		
+		BodyList expected = classic.getBodies();
+		BodyList actual = colored.getBodies();
+		for ( int i = 1; i <= (ROWS * (ROWS + 1)) / 2; i++ ) {
+			assertEquals(expected.get(i).getPosition().getX(), actual.get(i).getPosition().getX(), 2);
+			assertEquals(expected.get(i).getPosition().getY(), actual.get(i).getPosition().getY(), 2);
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.util.ArrayList;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.WorldCommand;
+import net.phys2d.raw.WorldCommands;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class CommandQueueTest extends TestCase {
+	/** The number of threads posting at once */
+	private static final int PRODUCERS = 4;
+	/** The number of commands each thread posts */
+	private static final int COMMANDS = 2000;
+	
+	/**
+	 * A command counting the times it's run
+	 */
+	private static class CountingCommand implements WorldCommand {
+		/** The number of times the command has run */
+		private int count;
+		/** The order the commands were run in, shared between commands */
+		private ArrayList order;
+		
+		/**
+		 * Create a new command
+		 * 
+		 * @param order The list to record the command in each time it's run
+		 */
+		CountingCommand(ArrayList order) {
+			this.order = order;
+		}
+		
+		/**
+		 * @see net.phys2d.raw.WorldCommand#execute(net.phys2d.raw.World)
+		 */
+		public void execute(World world) {
+			count++;
+			if (order != null) {
+				order.add(this);
+			}
+		}
+	}
+	
+	/**
+	 * Create a world holding a ground
+	 * 
+	 * @return The world created
+	 */
+	private World createWorld() {
+		World world = new World(new Vector2f(0, 10), 10);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		
+		return world;
+	}
+	
+	public void testRunOnStep() {
+		World world = createWorld();
+		Body box = new Body(new Box(20, 20), 1);
+		world.post(WorldCommands.add(box));
+		world.post(WorldCommands.setPosition(box, 100, 300));
+		world.post(WorldCommands.applyImpulse(box, 10, 0));
+		assertEquals(3, world.getPendingCommandCount());
+		assertEquals(1, world.getBodies().size());
+		
+		world.step();
+		assertEquals(0, world.getPendingCommandCount());
+		assertEquals(2, world.getBodies().size());
+		assertTrue(box.getPosition().getX() > 100);
+		assertEquals(10, box.getVelocity().getX(), 0.0001f);
+		
+		world.post(WorldCommands.remove(box));
+		world.step();
+		assertEquals(1, world.getBodies().size());
+	}
+	
+	public void testOrder() {
+		World world = createWorld();
+		final ArrayList order = new ArrayList();
+		final CountingCommand first = new CountingCommand(order);
+		final CountingCommand second = new CountingCommand(order);
+		final CountingCommand later = new CountingCommand(order);
+		
+		world.post(first);
+		world.post(new WorldCommand() {
+			public void execute(World world) {
+				// posted while running, so waits for the next step
+				world.post(later);
+			}
+		});
+		world.post(second);
+		world.step();
+		
+		assertEquals(2, order.size());
+		assertTrue(order.get(0) == first);
+		assertTrue(order.get(1) == second);
+		assertEquals(0, later.count);
+		
+		world.step();
+		assertEquals(1, later.count);
+		world.step();
+		assertEquals(1, later.count);
+	}
+	
+	public void testFailingCommand() {
+		World world = createWorld();
+		ArrayList order = new ArrayList();
+		CountingCommand first = new CountingCommand(order);
+		CountingCommand second = new CountingCommand(order);
+		CountingCommand third = new CountingCommand(order);
+		CountingCommand later = new CountingCommand(order);
+		
+		world.post(first);
+		world.post(new WorldCommand() {
+			public void execute(World world) {
+				throw new IllegalStateException("Failed");
+			}
+		});
+		world.post(second);
+		world.post(third);
+		try {
+			world.step();
+			fail("Command failure not passed on");
+		} catch ( IllegalStateException e ) {
+			// expected
+		}
+		assertEquals(1, order.size());
+		assertEquals(2, world.getPendingCommandCount());
+		
+		// the commands after the failure run before any posted since
+		world.post(later);
+		world.step();
+		assertEquals(4, order.size());
+		assertTrue(order.get(1) == second);
+		assertTrue(order.get(2) == third);
+		assertTrue(order.get(3) == later);
+		assertEquals(0, world.getPendingCommandCount());
+	}
+	
+	public void testManyProducers() throws Exception {
+		final World world = createWorld();
+		final CountingCommand command = new CountingCommand(null);
+		
+		Thread[] producers = new Thread[PRODUCERS];
+		for ( int i = 0; i < PRODUCERS; i++ ) {
+			producers[i] = new Thread() {
+				public void run() {
+					for ( int j = 0; j < COMMANDS; j++ ) {
+						world.post(command);
+						if ( j % 100 == 0 )
+							Thread.yield();
+					}
+				}
+			};
+			producers[i].start();
+		}
+		
+		boolean running = true;
+		while ( running ) {
+			world.step();
+			
+			running = false;
+			for ( int i = 0; i < PRODUCERS; i++ )
+				running |= producers[i].isAlive();
+		}
+		world.step();
+		
+		assertEquals(PRODUCERS * COMMANDS, command.count);
+	}
+	
+	public void testNullRejected() {
+		try {
+			createWorld().post(null);
+			fail("Null command accepted");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.Contact;
+import net.phys2d.raw.collide.ConvexPolygonCollider;
+import net.phys2d.raw.collide.SeparatingAxis;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.shapes.ConvexPolygon;
+import junit.framework.TestCase;
+
+public class ConvexPolygonColliderTest extends TestCase {
+	/** The collider under test */
+	private ConvexPolygonCollider collider = new ConvexPolygonCollider();
+	/** The contacts the collider writes to */
+	private Contact[] contacts;
+	
+	protected void setUp() {
+		contacts = new Contact[10];
+		for ( int i = 0; i < contacts.length; i++ )
+			contacts[i] = new Contact();
+	}
+	
+	/**
+	 * Create a body holding a square convex polygon
+	 * 
+	 * @param size The length of the sides of the square
+	 * @param x The x position of the body
+	 * @param y The y position of the body
+	 * @return The body created
+	 */
+	private Body createSquare(float size, float x, float y) {
+		float h = size / 2;
+		Vector2f[] verts = {new Vector2f(-h,-h), new Vector2f(h,-h), new Vector2f(h,h), new Vector2f(-h,h)};
+		Body body = new Body(new ConvexPolygon(verts), 1);
+		body.setPosition(x, y);
+		
+		return body;
+	}
+	
+	public void testSeparated() {
+		Body a = createSquare(2, 0, 0);
+		Body b = createSquare(2, 2.5f, 0);
+		assertEquals(0, collider.collide(contacts, a, b));
+		
+		// overlapping bounds but separated along a diagonal
+		b.setPosition(2.2f, 2.2f);
+		b.setRotation((float) Math.PI / 4);
+		assertEquals(0, collider.collide(contacts, a, b));
+	}
+	
+	public void testResting() {
+		//   +---+
+		//   | b |
+		// +-x---x-+
+		// |   a   |
+		// +-------+
+		Body a = createSquare(4, 0, 0);
+		Body b = createSquare(2, 0.5f, 2.9f);
+		assertEquals(2, collider.collide(contacts, a, b));
+		
+		for ( int i = 0; i < 2; i++ ) {
+			assertEquals(0f, contacts[i].getNormal().getX(), 0.0001f);
+			assertEquals(1f, contacts[i].getNormal().getY(), 0.0001f);
+			assertEquals(-0.1f, contacts[i].getSeparation(), 0.0001f);
+			assertEquals(2f, contacts[i].getPosition().getY(), 0.0001f);
+		}
+		assertEquals(2f, Math.abs(contacts[0].getPosition().getX() - contacts[1].getPosition().getX()), 0.0001f);
+		assertEquals(0f, contacts[0].getPosition().getX() + contacts[1].getPosition().getX() - 1f, 0.0001f);
+		
+		// the normal points from the first body to the second either way round
+		assertEquals(2, collider.collide(contacts, b, a));
+		assertEquals(-1f, contacts[0].getNormal().getY(), 0.0001f);
+	}
+	
+	public void testStableFeatures() {
+		Body a = createSquare(4, 0, 0);
+		Body b = createSquare(2, 0.5f, 2.9f);
+		collider.collide(contacts, a, b);
+		String first = contacts[0].getFeature().toString();
+		String second = contacts[1].getFeature().toString();
+		assertFalse(first.equals(second));
+		
+		b.setPosition(0.6f, 2.95f);
+		b.setRotation(0.01f);
+		assertEquals(2, collider.collide(contacts, a, b));
+		assertEquals(first, contacts[0].getFeature().toString());
+		assertEquals(second, contacts[1].getFeature().toString());
+	}
+	
+	public void testSeparatingAxis() {
+		SeparatingAxis axis = new SeparatingAxis();
+		Body a = createSquare(2, 0, 0);
+		Body b = createSquare(2, 2.5f, 0.5f);
+		assertEquals(0, collider.collide(contacts, a, b, axis));
+		assertTrue(axis.isSet());
+		assertFalse(axis.wasHit());
+		
+		// still separated by the same edge
+		b.setPosition(2.2f, 0.4f);
+		assertEquals(0, collider.collide(contacts, a, b, axis));
+		assertTrue(axis.wasHit());
+		
+		// touching, the edge is forgotten
+		b.setPosition(1.9f, 0.4f);
+		assertEquals(2, collider.collide(contacts, a, b, axis));
+		assertFalse(axis.isSet());
+		assertFalse(axis.wasHit());
+	}
+	
+	public void testBox() {
+		Body a = new Body(new Box(4, 4), 1);
+		Body b = createSquare(2, 0.5f, 2.9f);
+		assertEquals(2, collider.collide(contacts, a, b));
+		assertEquals(1f, contacts[0].getNormal().getY(), 0.0001f);
+		assertEquals(-0.1f, contacts[0].getSeparation(), 0.0001f);
+	}
+}
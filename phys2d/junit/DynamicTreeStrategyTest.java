@@ -0,0 +1,360 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Random;
+
+import net.phys2d.math.MathUtil;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.BodyPairMap;
+import net.phys2d.raw.CollisionContext;
+import net.phys2d.raw.CollisionSpace;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.shapes.AABox;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.strategies.DynamicTreeStrategy;
+import junit.framework.TestCase;
+
+public class DynamicTreeStrategyTest extends TestCase {
+	/** The time step used */
+	private static final float DT = 1 / 60.0f;
+	/** The number of steps the moving scenes are run for */
+	private static final int STEPS = 60;
+	
+	/**
+	 * A context recording each pair passed to it whose bounds overlap
+	 */
+	private static class PairRecorder implements CollisionContext {
+		/** The keys of the pairs recorded */
+		private HashSet pairs = new HashSet();
+		
+		/**
+		 * @see net.phys2d.raw.CollisionContext#resolve(net.phys2d.raw.BodyList, float)
+		 */
+		public void resolve(BodyList bodies, float dt) {
+			for ( int i = 0; i < bodies.size(); i++ ) {
+				for ( int j = i + 1; j < bodies.size(); j++ ) {
+					Body a = bodies.get(i);
+					Body b = bodies.get(j);
+					if ( touches(a, b) )
+						pairs.add(new Long(BodyPairMap.getKey(a, b)));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Check if the bounds of two bodies overlap and at least one of 
+	 * them can move
+	 * 
+	 * @param a The first body
+	 * @param b The second body
+	 * @return True if the pair should collide
+	 */
+	private static boolean touches(Body a, Body b) {
+		if ( a.isStatic() && b.isStatic() )
+			return false;
+		
+		float[] ba = getBounds(a);
+		float[] bb = getBounds(b);
+		return overlaps(ba, bb[0], bb[1], bb[2], bb[3]);
+	}
+	
+	/**
+	 * Get the bounds of a body
+	 * 
+	 * @param body The body whose bounds should be found
+	 * @return The lowest x and y, then the highest x and y, of the bounds
+	 */
+	private static float[] getBounds(Body body) {
+		AABox bounds = body.getShape().getBounds();
+		float cx = body.getPosition().getX() + bounds.getOffsetX();
+		float cy = body.getPosition().getY() + bounds.getOffsetY();
+		float hw = bounds.getWidth() / 2;
+		float hh = bounds.getHeight() / 2;
+		
+		return new float[] {cx - hw, cy - hh, cx + hw, cy + hh};
+	}
+	
+	/**
+	 * Check if some bounds overlap a region
+	 * 
+	 * @param bounds The bounds to check
+	 * @param minx The lowest x coordinate of the region
+	 * @param miny The lowest y coordinate of the region
+	 * @param maxx The highest x coordinate of the region
+	 * @param maxy The highest y coordinate of the region
+	 * @return True if the bounds overlap the region
+	 */
+	private static boolean overlaps(float[] bounds, float minx, float miny, float maxx, float maxy) {
+		return (bounds[0] < maxx) && (minx < bounds[2]) && (bounds[1] < maxy) && (miny < bounds[3]);
+	}
+	
+	/**
+	 * Get the fraction along a segment at which it enters the bounds of a body
+	 * 
+	 * @param body The body to check
+	 * @param start The start of the segment
+	 * @param end The end of the segment
+	 * @return The fraction along the segment or -1 if it misses the body
+	 */
+	private static float getFraction(Body body, Vector2f start, Vector2f end) {
+		float[] bounds = getBounds(body);
+		return MathUtil.intersectBounds(start.getX(), start.getY(), end.getX(), end.getY(), 
+										bounds[0], bounds[1], bounds[2], bounds[3]);
+	}
+	
+	/**
+	 * Find every pair of bodies that should collide by checking them all
+	 * 
+	 * @param bodies The bodies to check
+	 * @return The keys of the pairs found
+	 */
+	private HashSet getBrutePairs(BodyList bodies) {
+		PairRecorder brute = new PairRecorder();
+		brute.resolve(bodies, DT);
+		
+		return brute.pairs;
+	}
+	
+	/**
+	 * Create a set of boxes scattered over an area, every fourth one static
+	 * 
+	 * @param random The source of positions and sizes
+	 * @param count The number of boxes to create
+	 * @return The list of boxes created
+	 */
+	private BodyList createBoxes(Random random, int count) {
+		BodyList bodies = new BodyList();
+		for ( int i = 0; i < count; i++ ) {
+			Box box = new Box(5 + random.nextInt(30), 5 + random.nextInt(30));
+			Body body = (i % 4 == 0) ? new StaticBody(box) : new Body(box, 1);
+			body.setPosition(random.nextInt(500), random.nextInt(500));
+			body.setAdded(true);
+			bodies.add(body);
+		}
+		
+		return bodies;
+	}
+	
+	/**
+	 * Get the fat bounds the tree holds for a body
+	 * 
+	 * @param tree The tree holding the body
+	 * @param body The body whose fat bounds should be found
+	 * @return The lowest x and y, then the highest x and y, of the fat bounds
+	 * @throws Exception Indicates the tree couldn't be read
+	 */
+	private float[] getFatBounds(DynamicTreeStrategy tree, Body body) throws Exception {
+		Field leaves = DynamicTreeStrategy.class.getDeclaredField("leaves");
+		leaves.setAccessible(true);
+		Object leaf = ((IdentityHashMap) leaves.get(tree)).get(body);
+		
+		String[] names = new String[] {"minX", "minY", "maxX", "maxY"};
+		float[] bounds = new float[names.length];
+		for ( int i = 0; i < names.length; i++ ) {
+			Field field = leaf.getClass().getDeclaredField(names[i]);
+			field.setAccessible(true);
+			bounds[i] = field.getFloat(leaf);
+		}
+		
+		return bounds;
+	}
+	
+	public void testInsertAndRemove() {
+		DynamicTreeStrategy tree = new DynamicTreeStrategy();
+		PairRecorder recorder = new PairRecorder();
+		
+		// a sorted row is the worst case for a tree that doesn't rotate
+		BodyList bodies = new BodyList();
+		for ( int i = 0; i < 256; i++ ) {
+			Body body = new Body(new Box(10, 10), 1);
+			body.setPosition(i * 8, 0);
+			bodies.add(body);
+		}
+		tree.collideBodies(recorder, bodies, DT);
+		assertTrue("Height " + tree.getHeight(), tree.getHeight() <= 16);
+		assertEquals(getBrutePairs(bodies), recorder.pairs);
+		
+		// leave every other body
+		for ( int i = bodies.size() - 1; i >= 0; i -= 2 )
+			bodies.remove(bodies.get(i));
+		recorder.pairs.clear();
+		tree.collideBodies(recorder, bodies, DT);
+		assertTrue("Height " + tree.getHeight(), tree.getHeight() <= 14);
+		assertEquals(getBrutePairs(bodies), recorder.pairs);
+		assertEquals(bodies.size() - 1, tree.getPairCount());
+		
+		bodies.clear();
+		tree.collideBodies(recorder, bodies, DT);
+		assertEquals(0, tree.getHeight());
+		assertEquals(0, tree.getPairCount());
+	}
+	
+	public void testFatBoundsReinsertion() throws Exception {
+		DynamicTreeStrategy tree = new DynamicTreeStrategy(5);
+		PairRecorder recorder = new PairRecorder();
+		
+		Body body = new Body(new Box(10, 10), 1);
+		body.setPosition(100, 100);
+		BodyList bodies = new BodyList();
+		bodies.add(body);
+		tree.collideBodies(recorder, bodies, DT);
+		float[] bounds = getBounds(body);
+		float[] fat = getFatBounds(tree, body);
+		assertEquals(bounds[0] - 5, fat[0], 0.001f);
+		assertEquals(bounds[3] + 5, fat[3], 0.001f);
+		
+		// moving inside the margin leaves the leaf where it is
+		body.setPosition(104, 97);
+		tree.collideBodies(recorder, bodies, DT);
+		float[] same = getFatBounds(tree, body);
+		for ( int i = 0; i < fat.length; i++ )
+			assertEquals(fat[i], same[i], 0);
+		
+		// leaving it reinserts the leaf around the new bounds
+		body.setPosition(106, 100);
+		tree.collideBodies(recorder, bodies, DT);
+		bounds = getBounds(body);
+		float[] moved = getFatBounds(tree, body);
+		for ( int i = 0; i < 2; i++ ) {
+			assertEquals(bounds[i] - 5, moved[i], 0.001f);
+			assertEquals(bounds[i + 2] + 5, moved[i + 2], 0.001f);
+		}
+	}
+	
+	public void testPairsMatchBruteForce() {
+		Random random = new Random(1234);
+		BodyList bodies = createBoxes(random, 200);
+		DynamicTreeStrategy tree = new DynamicTreeStrategy();
+		
+		for ( int step = 0; step < STEPS; step++ ) {
+			// most bodies drift a little, a few jump across the area
+			for ( int i = 0; i < bodies.size(); i++ ) {
+				Body body = bodies.get(i);
+				if ( body.isStatic() )
+					continue;
+				if ( random.nextInt(20) == 0 )
+					body.setPosition(random.nextInt(500), random.nextInt(500));
+				else
+					body.adjustPosition(new Vector2f(random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2));
+			}
+			
+			PairRecorder recorder = new PairRecorder();
+			tree.collideBodies(recorder, bodies, DT);
+			assertEquals(getBrutePairs(bodies), recorder.pairs);
+		}
+	}
+	
+	public void testQueriesMatchBruteForce() {
+		Random random = new Random(4321);
+		DynamicTreeStrategy tree = new DynamicTreeStrategy();
+		CollisionSpace space = new CollisionSpace(tree);
+		BodyList bodies = createBoxes(random, 200);
+		for ( int i = 0; i < bodies.size(); i++ )
+			space.add(bodies.get(i));
+		space.collide(DT);
+		
+		BodyList result = new BodyList();
+		for ( int q = 0; q < 100; q++ ) {
+			float x = random.nextInt(500);
+			float y = random.nextInt(500);
+			float width = random.nextInt(100);
+			float height = random.nextInt(100);
+			
+			result.clear();
+			space.getBodiesInRegion(x, y, width, height, result);
+			int expected = 0;
+			for ( int i = 0; i < bodies.size(); i++ ) {
+				if ( overlaps(getBounds(bodies.get(i)), x, y, x + width, y + height) ) {
+					assertTrue(result.contains(bodies.get(i)));
+					expected++;
+				}
+			}
+			assertEquals(expected, result.size());
+			
+			Vector2f start = new Vector2f(x, y);
+			Vector2f end = new Vector2f(random.nextInt(500), random.nextInt(500));
+			result.clear();
+			space.getBodiesOnRay(start, end, result);
+			
+			// the same bodies as checking every one, nearest first
+			expected = 0;
+			for ( int i = 0; i < bodies.size(); i++ ) {
+				if ( getFraction(bodies.get(i), start, end) >= 0 ) {
+					assertTrue(result.contains(bodies.get(i)));
+					expected++;
+				}
+			}
+			assertEquals(expected, result.size());
+			for ( int i = 1; i < result.size(); i++ )
+				assertTrue(getFraction(result.get(i - 1), start, end) <= getFraction(result.get(i), start, end));
+		}
+	}
+	
+	public void testQueriesDontUpdateTree() {
+		DynamicTreeStrategy tree = new DynamicTreeStrategy();
+		CollisionSpace space = new CollisionSpace(tree);
+		Body body = new Body(new Box(10, 10), 1);
+		body.setPosition(100, 100);
+		space.add(body);
+		
+		// nothing is in the tree until the space has stepped
+		assertEquals(0, space.getBodiesInRegion(90, 90, 20, 20).size());
+		space.collide(DT);
+		assertEquals(1, space.getBodiesInRegion(90, 90, 20, 20).size());
+		
+		// a body moved since is found where it was left
+		body.setPosition(300, 300);
+		assertEquals(0, space.getBodiesInRegion(290, 290, 20, 20).size());
+		assertEquals(0, space.getBodiesOnRay(new Vector2f(250, 300), new Vector2f(350, 300)).size());
+		space.collide(DT);
+		assertEquals(1, space.getBodiesInRegion(290, 290, 20, 20).size());
+		assertEquals(1, space.getBodiesOnRay(new Vector2f(250, 300), new Vector2f(350, 300)).size());
+		
+		// and a removed body is never found
+		space.remove(body);
+		assertEquals(0, space.getBodiesInRegion(290, 290, 20, 20).size());
+		assertEquals(0, space.getBodiesOnRay(new Vector2f(250, 300), new Vector2f(350, 300)).size());
+	}
+}
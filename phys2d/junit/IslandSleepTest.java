@@ -0,0 +1,181 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class IslandSleepTest extends TestCase {
+	/** The number of steps given for the piles to settle */
+	private static final int SETTLE = 300;
+	/** The number of rows in each pile */
+	private static final int ROWS = 5;
+	
+	/** The world under test */
+	private World world;
+	/** The bodies in the first pile */
+	private BodyList first;
+	/** The bodies in the second pile */
+	private BodyList second;
+	
+	protected void setUp() {
+		world = new World(new Vector2f(0, 10), 10);
+		world.enableSleeping(0.5f, 0.02f, 0.5f);
+		
+		Body ground = new StaticBody(new Box(1000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		
+		first = createPile(100);
+		second = createPile(500);
+	}
+	
+	/**
+	 * Create a pyramid of boxes resting on the ground
+	 * 
+	 * @param left The x position of the bottom left box
+	 * @return The bodies in the pile
+	 */
+	private BodyList createPile(float left) {
+		BodyList pile = new BodyList();
+		
+		for ( int y = 0; y < ROWS; y++ ) {
+			for ( int x = 0; x < ROWS - y; x++ ) {
+				Body box = new Body(new Box(20, 20), 1);
+				box.setPosition(left + x * 21 + y * 10.5f, 480 - y * 21);
+				world.add(box);
+				pile.add(box);
+			}
+		}
+		
+		return pile;
+	}
+	
+	/**
+	 * Step the world a given number of times
+	 * 
+	 * @param steps The number of steps to take
+	 */
+	private void step(int steps) {
+		for ( int i = 0; i < steps; i++ )
+			world.step();
+	}
+	
+	/**
+	 * Check whether every body in a pile is asleep or awake
+	 * 
+	 * @param pile The bodies to check
+	 * @param sleeping True if the bodies should all be asleep
+	 */
+	private void assertSleeping(BodyList pile, boolean sleeping) {
+		for ( int i = 0; i < pile.size(); i++ )
+			assertEquals(sleeping, pile.get(i).isSleeping());
+	}
+	
+	public void testPilesSleep() {
+		step(SETTLE);
+		assertSleeping(first, true);
+		assertSleeping(second, true);
+		
+		float[] positions = new float[first.size() * 3];
+		for ( int i = 0; i < first.size(); i++ ) {
+			positions[i * 3] = first.get(i).getPosition().getX();
+			positions[i * 3 + 1] = first.get(i).getPosition().getY();
+			positions[i * 3 + 2] = first.get(i).getRotation();
+		}
+		
+		step(100);
+		for ( int i = 0; i < first.size(); i++ ) {
+			assertEquals(positions[i * 3], first.get(i).getPosition().getX(), 0);
+			assertEquals(positions[i * 3 + 1], first.get(i).getPosition().getY(), 0);
+			assertEquals(positions[i * 3 + 2], first.get(i).getRotation(), 0);
+		}
+	}
+	
+	public void testWakeOnlyDisturbedIsland() {
+		step(SETTLE);
+		
+		first.get(first.size() - 1).adjustVelocity(new Vector2f(50, 0));
+		step(1);
+		assertSleeping(first, false);
+		assertSleeping(second, true);
+	}
+	
+	public void testDroppedBodyWakesPile() {
+		step(SETTLE);
+		
+		Body box = new Body(new Box(20, 20), 1);
+		Body top = first.get(first.size() - 1);
+		box.setPosition(top.getPosition().getX(), top.getPosition().getY() - 40);
+		world.add(box);
+		
+		boolean woken = false;
+		for ( int i = 0; i < SETTLE && !woken; i++ ) {
+			world.step();
+			woken = !first.get(0).isSleeping();
+		}
+		assertTrue(woken);
+		assertSleeping(first, false);
+		assertSleeping(second, true);
+	}
+	
+	public void testRemovingBodyWakesPile() {
+		step(SETTLE);
+		
+		world.remove(second.get(0));
+		second.remove(second.get(0));
+		step(1);
+		assertSleeping(first, true);
+		assertSleeping(second, false);
+	}
+	
+	public void testDisableSleeping() {
+		step(SETTLE);
+		
+		world.disableSleeping();
+		assertSleeping(first, false);
+		assertSleeping(second, false);
+		step(10);
+		assertSleeping(first, false);
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.BasicJoint;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.ClassicSolver;
+import net.phys2d.raw.ConstraintSolver;
+import net.phys2d.raw.PackedSolver;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.shapes.Circle;
+import junit.framework.TestCase;
+
+public class PackedSolverTest extends TestCase {
+	/** The number of steps each world is run for */
+	private static final int STEPS = 400;
+	
+	/**
+	 * Create a world holding a pyramid of boxes with a few circles
+	 * dropped on it
+	 * 
+	 * @param solver The solver the world should use
+	 * @return The world created
+	 */
+	private World createWorld(ConstraintSolver solver) {
+		World world = new World(new Vector2f(0, 10), 10);
+		world.setSolver(solver);
+		
+		Body ground = new StaticBody(new Box(800, 20));
+		ground.setPosition(400, 500);
+		world.add(ground);
+		
+		for ( int y = 0; y < 6; y++ ) {
+			for ( int x = 0; x < 6 - y; x++ ) {
+				Body box = new Body(new Box(20, 20), 1);
+				box.setPosition(300 + x * 21 + y * 10, 480 - y * 21);
+				box.setFriction(0.5f);
+				world.add(box);
+			}
+		}
+		for ( int i = 0; i < 4; i++ ) {
+			Body circle = new Body(new Circle(8), 2);
+			circle.setPosition(320 + i * 25, 300 - i * 20);
+			circle.setRestitution(0.5f);
+			world.add(circle);
+		}
+		
+		return world;
+	}
+	
+	/**
+	 * Run the same world with both solvers and check every body ends up in 
+	 * exactly the same state
+	 * 
+	 * @param classic The world using the classic solver
+	 * @param packed The world using the packed solver
+	 */
+	private void assertSameSimulation(World classic, World packed) {
+		for ( int i = 0; i < STEPS; i++ ) {
+			classic.step();
+			packed.step();
+		}
+		
+		BodyList expected = classic.getBodies();
+		BodyList actual = packed.getBodies();
+		assertEquals(expected.size(), actual.size());
+		for ( int i = 0; i < expected.size(); i++ ) {
+			Body a = expected.get(i);
+			Body b = actual.get(i);
+			
+			assertEquals(a.getPosition().getX(), b.getPosition().getX(), 0);
+			assertEquals(a.getPosition().getY(), b.getPosition().getY(), 0);
+			assertEquals(a.getRotation(), b.getRotation(), 0);
+			assertEquals(a.getVelocity().getX(), b.getVelocity().getX(), 0);
+			assertEquals(a.getVelocity().getY(), b.getVelocity().getY(), 0);
+			assertEquals(a.getAngularVelocity(), b.getAngularVelocity(), 0);
+			assertEquals(a.getLastVelocity().getX(), b.getLastVelocity().getX(), 0);
+			assertEquals(a.getLastVelocity().getY(), b.getLastVelocity().getY(), 0);
+			assertEquals(a.getLastAngularVelocity(), b.getLastAngularVelocity(), 0);
+			assertEquals(a.isResting(), b.isResting());
+		}
+	}
+	
+	public void testPyramid() {
+		assertSameSimulation(createWorld(new ClassicSolver()), createWorld(new PackedSolver()));
+	}
+	
+	public void testBlockSolverDisabled() {
+		World classic = createWorld(new ClassicSolver());
+		World packed = createWorld(new PackedSolver());
+		classic.disableBlockSolver();
+		packed.disableBlockSolver();
+		
+		assertSameSimulation(classic, packed);
+	}
+	
+	public void testRestingBodyDetection() {
+		World classic = createWorld(new ClassicSolver());
+		World packed = createWorld(new PackedSolver());
+		classic.enableRestingBodyDetection(0.01f, 0.000001f, 0.01f);
+		packed.enableRestingBodyDetection(0.01f, 0.000001f, 0.01f);
+		
+		assertSameSimulation(classic, packed);
+	}
+	
+	public void testMaxVelocity() {
+		World classic = createWorld(new ClassicSolver());
+		World packed = createWorld(new PackedSolver());
+		for ( int i = 0; i < classic.getBodies().size(); i++ ) {
+			classic.getBodies().get(i).setMaxVelocity(20, 20);
+			packed.getBodies().get(i).setMaxVelocity(20, 20);
+		}
+		
+		assertSameSimulation(classic, packed);
+	}
+	
+	public void testJoints() {
+		World[] worlds = {createWorld(new ClassicSolver()), createWorld(new PackedSolver())};
+		
+		for ( int w = 0; w < worlds.length; w++ ) {
+			Body anchor = new StaticBody(new Box(10, 10));
+			anchor.setPosition(250, 200);
+			worlds[w].add(anchor);
+			
+			Body last = anchor;
+			for ( int i = 0; i < 5; i++ ) {
+				Body link = new Body(new Box(20, 5), 1);
+				link.setPosition(270 + i * 20, 200);
+				worlds[w].add(link);
+				worlds[w].add(new BasicJoint(last, link, new Vector2f(260 + i * 20, 200)));
+				last = link;
+			}
+		}
+		
+		assertSameSimulation(worlds[0], worlds[1]);
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.BasicJoint;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.PackedSolver;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.WorkerPool;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class ParallelStepTest extends TestCase {
+	/** The number of steps each world is run for */
+	private static final int STEPS = 300;
+	
+	/** The pool the parallel worlds step on */
+	private WorkerPool pool;
+	
+	protected void setUp() {
+		pool = new WorkerPool(3);
+	}
+	
+	protected void tearDown() {
+		pool.shutdown();
+	}
+	
+	/**
+	 * Create a world holding a row of separate piles and a jointed chain
+	 * 
+	 * @return The world created
+	 */
+	private World createWorld() {
+		World world = new World(new Vector2f(0, 10), 10);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(1000, 500);
+		world.add(ground);
+		
+		for ( int p = 0; p < 8; p++ ) {
+			for ( int y = 0; y < 4; y++ ) {
+				for ( int x = 0; x < 4 - y; x++ ) {
+					Body box = new Body(new Box(20, 20), 1);
+					box.setPosition(100 + p * 150 + x * 21 + y * 10.5f, 480 - y * 21);
+					world.add(box);
+				}
+			}
+		}
+		
+		Body last = ground;
+		for ( int i = 0; i < 5; i++ ) {
+			Body link = new Body(new Box(20, 5), 1);
+			link.setPosition(1500 + i * 20, 300);
+			world.add(link);
+			if ( i > 0 )
+				world.add(new BasicJoint(last, link, new Vector2f(1490 + i * 20, 300)));
+			last = link;
+		}
+		
+		return world;
+	}
+	
+	/**
+	 * Create a world holding many small piles resting on a ground that is
+	 * an ordinary body of infinite mass, rather than a static body
+	 * 
+	 * @return The world created
+	 */
+	private World createPiles() {
+		World world = new World(new Vector2f(0, 10), 10);
+		
+		Body ground = new Body(new Box(8000, 20), Body.INFINITE_MASS);
+		ground.setPosition(4000, 500);
+		world.add(ground);
+		
+		for ( int p = 0; p < 60; p++ ) {
+			for ( int y = 0; y < 2; y++ ) {
+				for ( int x = 0; x < 2 - y; x++ ) {
+					Body box = new Body(new Box(20, 20), 1);
+					box.setPosition(100 + p * 60 + x * 21 + y * 10.5f, 480 - y * 21);
+					world.add(box);
+				}
+			}
+		}
+		
+		return world;
+	}
+	
+	/**
+	 * Step a world on the calling thread and the same world on the pool,
+	 * checking every body ends up in exactly the same state
+	 * 
+	 * @param serial The world stepped on the calling thread
+	 * @param parallel The world stepped on the pool
+	 */
+	private void assertSameSimulation(World serial, World parallel) {
+		parallel.setWorkerPool(pool);
+		for ( int i = 0; i < STEPS; i++ ) {
+			serial.step();
+			parallel.step();
+		}
+		
+		BodyList expected = serial.getBodies();
+		BodyList actual = parallel.getBodies();
+		for ( int i = 0; i < expected.size(); i++ ) {
+			Body a = expected.get(i);
+			Body b = actual.get(i);
+			
+			assertEquals(a.getPosition().getX(), b.getPosition().getX(), 0);
+			assertEquals(a.getPosition().getY(), b.getPosition().getY(), 0);
+			assertEquals(a.getRotation(), b.getRotation(), 0);
+			assertEquals(a.getVelocity().getX(), b.getVelocity().getX(), 0);
+			assertEquals(a.getVelocity().getY(), b.getVelocity().getY(), 0);
+			assertEquals(a.getAngularVelocity(), b.getAngularVelocity(), 0);
+			assertEquals(a.isSleeping(), b.isSleeping());
+		}
+	}
+	
+	public void testSameResults() {
+		assertSameSimulation(createWorld(), createWorld());
+	}
+	
+	public void testSameResultsSleeping() {
+		World serial = createWorld();
+		World parallel = createWorld();
+		serial.enableSleeping(0.5f, 0.02f, 0.5f);
+		parallel.enableSleeping(0.5f, 0.02f, 0.5f);
+		
+		assertSameSimulation(serial, parallel);
+	}
+	
+	public void testSameResultsPacked() {
+		World serial = createWorld();
+		World parallel = createWorld();
+		PackedSolver solver = new PackedSolver();
+		serial.setSolver(solver);
+		parallel.setSolver(solver);
+		
+		assertSameSimulation(serial, parallel);
+	}
+	
+	public void testSameResultsSharedGround() {
+		World serial = createPiles();
+		World parallel = createPiles();
+		PackedSolver solver = new PackedSolver();
+		serial.setSolver(solver);
+		parallel.setSolver(solver);
+		
+		// many more islands than threads, all resting on the same ground
+		pool.shutdown();
+		pool = new WorkerPool(4);
+		assertSameSimulation(serial, parallel);
+	}
+	
+	public void testSharedGroundUntouched() {
+		World serial = createPiles();
+		World parallel = createPiles();
+		serial.enablePositionProjection(4);
+		parallel.enablePositionProjection(4);
+		Body ground = parallel.getBodies().get(0);
+		int version = ground.getTransformVersion();
+		
+		// every island's contacts with the ground only read it, so no
+		// thread writes to it while the islands are stepped
+		assertSameSimulation(serial, parallel);
+		assertEquals(version, ground.getTransformVersion());
+		assertEquals(0, ground.getVelocity().getX(), 0);
+		assertEquals(0, ground.getVelocity().getY(), 0);
+		assertEquals(0, ground.getAngularVelocity(), 0);
+	}
+	
+	public void testTaskFailure() {
+		final int[] run = new int[1];
+		Runnable[] tasks = new Runnable[10];
+		for ( int i = 0; i < tasks.length; i++ ) {
+			final boolean fail = (i == 5);
+			tasks[i] = new Runnable() {
+				public void run() {
+					synchronized ( run ) {
+						run[0]++;
+					}
+					if ( fail )
+						throw new IllegalStateException("task failed");
+				}
+			};
+		}
+		
+		try {
+			pool.invokeAll(tasks, tasks.length);
+			fail("The task failure wasn't reported");
+		} catch ( IllegalStateException e ) {
+			assertEquals("task failed", e.getMessage());
+		}
+		assertEquals(tasks.length, run[0]);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Arbiter;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.ConstraintSolver;
+import net.phys2d.raw.PackedSolver;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class PositionProjectionTest extends TestCase {
+	/** The number of iterations, fewer than a pyramid normally needs to sit still */
+	private static final int ITERATIONS = 3;
+	/** The most iterations of the position pass */
+	private static final int POSITION_ITERATIONS = 3;
+	/** The number of steps for the stacks to settle */
+	private static final int SETTLE = 900;
+	/** The number of steps over which the stacks are checked for movement */
+	private static final int CHECK = 300;
+	
+	/**
+	 * Create a world holding a ground with positions projected
+	 * 
+	 * @param solver The solver to use, or null for the default
+	 * @return The world created
+	 */
+	private World createWorld(ConstraintSolver solver) {
+		World world = new World(new Vector2f(0, 10), ITERATIONS);
+		world.enablePositionProjection(POSITION_ITERATIONS);
+		if ( solver != null )
+			world.setSolver(solver);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		
+		return world;
+	}
+	
+	/**
+	 * Add a pyramid of boxes to a world
+	 * 
+	 * @param world The world to add to
+	 * @param rows The number of rows in the pyramid
+	 */
+	private void addPyramid(World world, int rows) {
+		for ( int y = 0; y < rows; y++ ) {
+			for ( int x = 0; x < rows - y; x++ ) {
+				Body box = new Body(new Box(20, 20), 1);
+				box.setPosition(300 + x * 21 + y * 10.5f, 480 - y * 21);
+				world.add(box);
+			}
+		}
+	}
+	
+	public void testPyramidSettles() {
+		World world = createWorld(null);
+		addPyramid(world, 15);
+		
+		for ( int i = 0; i < SETTLE; i++ )
+			world.step();
+		
+		for ( int i = 0; i < CHECK; i++ ) {
+			world.step();
+			for ( int b = 1; b < world.getBodies().size(); b++ ) {
+				Body body = world.getBodies().get(b);
+				assertTrue("Box " + b + " still moving at " + body.getVelocity().length(), 
+						body.getVelocity().length() < 0.01f);
+			}
+		}
+	}
+	
+	public void testPenetrationRemoved() {
+		World world = createWorld(null);
+		Body box = new Body(new Box(20, 20), 1);
+		box.setPosition(100, 485);
+		world.add(box);
+		
+		for ( int i = 0; i < 60; i++ )
+			world.step();
+		
+		assertEquals(1, world.getArbiters().size());
+		Arbiter arb = world.getArbiters().get(0);
+		for ( int i = 0; i < arb.getNumContacts(); i++ )
+			assertTrue(arb.getContacts()[i].getSeparation() > -0.03f);
+		assertEquals(0, box.getRotation(), 0.0001f);
+	}
+	
+	public void testPackedMatchesClassic() {
+		World classic = createWorld(null);
+		World packed = createWorld(new PackedSolver());
+		addPyramid(classic, 5);
+		addPyramid(packed, 5);
+		
+		for ( int i = 0; i < 300; i++ ) {
+			classic.step();
+			packed.step();
+		}
+		
+		for ( int b = 0; b < classic.getBodies().size(); b++ ) {
+			Body expected = classic.getBodies().get(b);
+			Body actual = packed.getBodies().get(b);
+			assertEquals(expected.getPosition().getX(), actual.getPosition().getX(), 0.001f);
+			assertEquals(expected.getPosition().getY(), actual.getPosition().getY(), 0.001f);
+			assertEquals(expected.getRotation(), actual.getRotation(), 0.0001f);
+		}
+	}
+	
+	public void testInvalidIterations() {
+		World world = new World(new Vector2f(0, 10), ITERATIONS);
+		try {
+			world.enablePositionProjection(0);
+			fail("A position pass of no iterations was accepted");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+	}
+}
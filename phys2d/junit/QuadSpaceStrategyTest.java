@@ -0,0 +1,161 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.BodyPairMap;
+import net.phys2d.raw.CollisionContext;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.strategies.QuadSpaceStrategy;
+import junit.framework.TestCase;
+
+public class QuadSpaceStrategyTest extends TestCase {
+	/** The time step used */
+	private static final float DT = 1 / 60.0f;
+	
+	/**
+	 * A context counting the times each pair is passed to it
+	 */
+	private static class PairRecorder implements CollisionContext {
+		/** The number of times each pair was passed, keyed on the pair */
+		private HashMap counts = new HashMap();
+		/** The number of pairs passed as part of a whole space */
+		private int inSpaces;
+		
+		/**
+		 * @see net.phys2d.raw.CollisionContext#resolve(net.phys2d.raw.BodyList, float)
+		 */
+		public void resolve(BodyList bodies, float dt) {
+			for ( int i = 0; i < bodies.size(); i++ ) {
+				for ( int j = i + 1; j < bodies.size(); j++ ) {
+					Body a = bodies.get(i);
+					Body b = bodies.get(j);
+					if ( a.isStatic() && b.isStatic() )
+						continue;
+					
+					Long key = new Long(BodyPairMap.getKey(a, b));
+					Integer count = (Integer) counts.get(key);
+					counts.put(key, new Integer(count == null ? 1 : count.intValue() + 1));
+					if ( bodies.size() > 2 )
+						inSpaces++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Create a scene of boxes, some large enough to cross several 
+	 * spaces, resting on a static floor that crosses them all
+	 * 
+	 * @param random The source of positions and sizes
+	 * @return The list of bodies created
+	 */
+	private BodyList createScene(Random random) {
+		BodyList bodies = new BodyList();
+		Body floor = new StaticBody(new Box(1000, 20));
+		floor.setPosition(500, 600);
+		bodies.add(floor);
+		
+		for ( int i = 0; i < 200; i++ ) {
+			int size = (i % 10 == 0) ? 60 : 20;
+			Body body = new Body(new Box(size, size), 1);
+			body.setPosition(random.nextInt(1000), random.nextInt(600));
+			bodies.add(body);
+		}
+		
+		return bodies;
+	}
+	
+	public void testPairsCollidedOnce() {
+		QuadSpaceStrategy quad = new QuadSpaceStrategy(10, 5);
+		BodyList bodies = createScene(new Random(1234));
+		PairRecorder recorder = new PairRecorder();
+		quad.collideBodies(recorder, bodies, DT);
+		
+		// every pair sharing a space is passed on, but only once
+		HashSet expected = new HashSet();
+		int occurrences = 0;
+		for ( int s = 0; s < quad.getSpaces().size(); s++ ) {
+			BodyList space = (BodyList) quad.getSpaces().get(s);
+			for ( int i = 0; i < space.size(); i++ ) {
+				for ( int j = i + 1; j < space.size(); j++ ) {
+					if ( space.get(i).isStatic() && space.get(j).isStatic() )
+						continue;
+					expected.add(new Long(BodyPairMap.getKey(space.get(i), space.get(j))));
+					occurrences++;
+				}
+			}
+		}
+		assertTrue(quad.getSpaces().size() > 1);
+		assertEquals(expected, new HashSet(recorder.counts.keySet()));
+		Iterator counts = recorder.counts.values().iterator();
+		while ( counts.hasNext() )
+			assertEquals(1, ((Integer) counts.next()).intValue());
+		
+		// and every repeat is counted as avoided
+		assertTrue(quad.getDuplicatesAvoided() > 0);
+		assertEquals(occurrences - expected.size(), quad.getDuplicatesAvoided());
+		
+		// most pairs are passed on a whole space at a time
+		assertTrue(recorder.inSpaces + " of " + expected.size(), recorder.inSpaces > expected.size() / 2);
+	}
+	
+	public void testNoDuplicatesInOneSpace() {
+		QuadSpaceStrategy quad = new QuadSpaceStrategy(10, 5);
+		BodyList bodies = new BodyList();
+		for ( int i = 0; i < 5; i++ ) {
+			Body body = new Body(new Box(20, 20), 1);
+			body.setPosition(i * 10, 0);
+			bodies.add(body);
+		}
+		
+		PairRecorder recorder = new PairRecorder();
+		quad.collideBodies(recorder, bodies, DT);
+		assertEquals(1, quad.getSpaces().size());
+		assertEquals(10, recorder.inSpaces);
+		assertEquals(10, recorder.counts.size());
+		assertEquals(0, quad.getDuplicatesAvoided());
+	}
+}
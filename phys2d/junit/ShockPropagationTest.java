@@ -0,0 +1,162 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class ShockPropagationTest extends TestCase {
+	/** The number of iterations, far fewer than a tall stack normally needs */
+	private static final int ITERATIONS = 2;
+	/** The number of steps for the stacks to settle */
+	private static final int SETTLE = 900;
+	/** The number of steps over which the stacks are checked for movement */
+	private static final int CHECK = 300;
+	
+	/**
+	 * Create a world holding a ground
+	 * 
+	 * @param iterations The number of iterations to solve with
+	 * @return The world created
+	 */
+	private World createWorld(int iterations) {
+		World world = new World(new Vector2f(0, 10), iterations);
+		world.enableShockPropagation();
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		
+		return world;
+	}
+	
+	/**
+	 * Let a world settle, then check nothing in it is moving faster than
+	 * a given velocity
+	 * 
+	 * @param world The world to check
+	 * @param maxVelocity The fastest a settled box may still be moving
+	 */
+	private void assertSettles(World world, float maxVelocity) {
+		for ( int i = 0; i < SETTLE; i++ )
+			world.step();
+		
+		for ( int i = 0; i < CHECK; i++ ) {
+			world.step();
+			for ( int b = 1; b < world.getBodies().size(); b++ ) {
+				Body body = world.getBodies().get(b);
+				assertTrue("Box " + b + " still moving at " + body.getVelocity().length(), 
+						body.getVelocity().length() < maxVelocity);
+			}
+		}
+	}
+	
+	public void testTallColumn() {
+		World world = createWorld(ITERATIONS);
+		for ( int y = 0; y < 40; y++ ) {
+			Body box = new Body(new Box(20, 20), 1);
+			box.setPosition(100, 480 - y * 21);
+			world.add(box);
+		}
+		
+		assertSettles(world, 0.5f);
+		for ( int b = 1; b < world.getBodies().size(); b++ ) {
+			assertEquals(100, world.getBodies().get(b).getPosition().getX(), 0.01f);
+			assertEquals(0, world.getBodies().get(b).getRotation(), 0.001f);
+		}
+	}
+	
+	public void testPyramid() {
+		World world = createWorld(3);
+		for ( int y = 0; y < 15; y++ ) {
+			for ( int x = 0; x < 15 - y; x++ ) {
+				Body box = new Body(new Box(20, 20), 1);
+				box.setPosition(300 + x * 21 + y * 10.5f, 480 - y * 21);
+				world.add(box);
+			}
+		}
+		
+		assertSettles(world, 0.01f);
+	}
+	
+	/**
+	 * Create a world without gravity in which two boxes collide
+	 * 
+	 * @param shock True if shock propagation should be enabled
+	 * @return The world created
+	 */
+	private World createWeightless(boolean shock) {
+		World world = new World(new Vector2f(0, 0), ITERATIONS);
+		if (shock) {
+			world.enableShockPropagation();
+		}
+		
+		Body left = new Body(new Box(20, 20), 1);
+		left.setPosition(0, 0);
+		left.adjustVelocity(new Vector2f(50, 5));
+		world.add(left);
+		Body right = new Body(new Box(20, 20), 2);
+		right.setPosition(100, 0);
+		right.adjustVelocity(new Vector2f(-50, 0));
+		world.add(right);
+		
+		return world;
+	}
+	
+	public void testNoEffectWithoutGravity() {
+		World plain = createWeightless(false);
+		World shock = createWeightless(true);
+		
+		for ( int i = 0; i < 200; i++ ) {
+			plain.step();
+			shock.step();
+		}
+		
+		for ( int b = 0; b < 2; b++ ) {
+			Body expected = plain.getBodies().get(b);
+			Body actual = shock.getBodies().get(b);
+			assertEquals(expected.getPosition().getX(), actual.getPosition().getX(), 0);
+			assertEquals(expected.getPosition().getY(), actual.getPosition().getY(), 0);
+			assertEquals(expected.getRotation(), actual.getRotation(), 0);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.PackedSolver;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.shapes.Circle;
+import net.phys2d.raw.shapes.DynamicShape;
+import net.phys2d.util.AllocationCounter;
+import junit.framework.TestCase;
+
+public class SolverAllocationTest extends TestCase {
+	/** The number of steps to settle the stack and warm up with before measuring */
+	private static final int WARM_UP = 2000;
+	/** The number of steps to measure */
+	private static final int STEPS = 500;
+	/** The number of times the measurement is repeated */
+	private static final int RUNS = 5;
+	/** The number of bodies in the stack */
+	private static final int HEIGHT = 8;
+	
+	/** The counter of the bytes allocated, null if allocations can't be measured */
+	private AllocationCounter allocations;
+	
+	protected void setUp() throws Exception {
+		allocations = AllocationCounter.create();
+	}
+	
+	/**
+	 * Create a world holding a stack of bodies resting on the ground
+	 * 
+	 * @param shape The shape of the bodies in the stack
+	 * @param size The height of each body in the stack
+	 * @return The world created
+	 */
+	private World createStack(DynamicShape shape, float size) {
+		World world = new World(new Vector2f(0, 10), 10);
+		
+		Body ground = new StaticBody(new Box(400, 20));
+		ground.setPosition(0, 10);
+		world.add(ground);
+		for ( int i = 0; i < HEIGHT; i++ ) {
+			Body body = new Body(shape, 1);
+			body.setPosition(0, -(size / 2) - (i * size));
+			world.add(body);
+		}
+		
+		return world;
+	}
+	
+	/**
+	 * Check that stepping a settled world allocates nothing once it has 
+	 * been warmed up
+	 * 
+	 * @param world The world to step
+	 */
+	private void assertNoAllocation(World world) {
+		if ( allocations == null )
+			return;
+		
+		for ( int i = 0; i < WARM_UP; i++ )
+			world.step();
+		assertTrue(world.getArbiters().size() >= HEIGHT);
+		
+		// take the best of a few runs so that a one-off allocation by the
+		// VM itself, e.g. while compiling, isn't counted against the step
+		long allocated = Long.MAX_VALUE;
+		for ( int run = 0; run < RUNS; run++ ) {
+			long overhead = allocations.measureOverhead();
+			long start = allocations.getAllocatedBytes();
+			for ( int i = 0; i < STEPS; i++ )
+				world.step();
+			allocated = Math.min(allocated, allocations.getAllocatedBytes() - start - overhead);
+		}
+		
+		assertTrue("Stepping allocated " + ((float) allocated / STEPS) + " bytes per step", allocated <= 0);
+	}
+	
+	public void testBoxStack() throws Exception {
+		assertNoAllocation(createStack(new Box(20, 20), 20));
+	}
+	
+	public void testCircleStack() throws Exception {
+		assertNoAllocation(createStack(new Circle(10), 20));
+	}
+	
+	public void testBlockSolverDisabled() throws Exception {
+		World world = createStack(new Box(20, 20), 20);
+		world.disableBlockSolver();
+		assertNoAllocation(world);
+	}
+	
+	public void testPackedSolver() throws Exception {
+		World world = createStack(new Box(20, 20), 20);
+		world.setSolver(new PackedSolver());
+		assertNoAllocation(world);
+	}
+}
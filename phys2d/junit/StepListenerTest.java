@@ -0,0 +1,179 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.util.ArrayList;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.StepListener;
+import net.phys2d.raw.StepStats;
+import net.phys2d.raw.World;
+import net.phys2d.raw.WorkerPool;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class StepListenerTest extends TestCase {
+	/** The number of steps the worlds are run for */
+	private static final int STEPS = 60;
+	
+	/**
+	 * A listener checking each phase is ended in the order it was started
+	 */
+	private static class RecordingListener implements StepListener {
+		/** The phases started and not yet ended, by thread */
+		private ThreadLocal open = new ThreadLocal() {
+			protected Object initialValue() {
+				return new ArrayList();
+			}
+		};
+		/** The number of times each phase was started */
+		private int[] started = new int[StepStats.METRICS];
+		/** The number of steps started */
+		private int steps;
+		/** The number of steps ended */
+		private int stepsEnded;
+		/** The first problem found, or null if there's been none */
+		private String problem;
+		
+		/**
+		 * @see net.phys2d.raw.StepListener#stepStarted(net.phys2d.raw.World)
+		 */
+		public void stepStarted(World world) {
+			if (steps != stepsEnded) {
+				problem = "Step started before the last ended";
+			}
+			steps++;
+		}
+		
+		/**
+		 * @see net.phys2d.raw.StepListener#phaseStarted(net.phys2d.raw.World, int)
+		 */
+		public synchronized void phaseStarted(World world, int phase) {
+			((ArrayList) open.get()).add(new Integer(phase));
+			started[phase]++;
+		}
+		
+		/**
+		 * @see net.phys2d.raw.StepListener#phaseEnded(net.phys2d.raw.World, int)
+		 */
+		public synchronized void phaseEnded(World world, int phase) {
+			ArrayList phases = (ArrayList) open.get();
+			if (phases.isEmpty() || (((Integer) phases.remove(phases.size() - 1)).intValue() != phase)) {
+				problem = "Phase "+StepStats.getName(phase)+" ended out of order";
+			}
+		}
+		
+		/**
+		 * @see net.phys2d.raw.StepListener#stepEnded(net.phys2d.raw.World)
+		 */
+		public void stepEnded(World world) {
+			if (!((ArrayList) open.get()).isEmpty()) {
+				problem = "Step ended with phases still open";
+			}
+			stepsEnded++;
+		}
+	}
+	
+	/**
+	 * Create a world with a column of boxes resting on the ground
+	 * 
+	 * @return The world created
+	 */
+	private World createWorld() {
+		World world = new World(new Vector2f(0, 10), 10);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		for ( int i = 0; i < 5; i++ ) {
+			Body box = new Body(new Box(20, 20), 1);
+			box.setPosition(100, 480 - (i * 21));
+			world.add(box);
+		}
+		
+		return world;
+	}
+	
+	/**
+	 * Step a world with a listener, checking the phases it was told of
+	 * 
+	 * @param world The world to step
+	 */
+	private void assertPhasesReported(World world) {
+		RecordingListener listener = new RecordingListener();
+		world.addStepListener(listener);
+		for ( int i = 0; i < STEPS; i++ )
+			world.step();
+		
+		assertTrue(listener.problem, listener.problem == null);
+		assertEquals(STEPS, listener.steps);
+		assertEquals(STEPS, listener.stepsEnded);
+		assertEquals(STEPS, listener.started[StepStats.FORCES]);
+		assertEquals(STEPS, listener.started[StepStats.BROAD_PHASE]);
+		assertTrue(listener.started[StepStats.SOLVER] > 0);
+		assertTrue(listener.started[StepStats.INTEGRATION] > 0);
+		
+		world.removeStepListener(listener);
+		world.step();
+		assertEquals(STEPS, listener.steps);
+	}
+	
+	public void testPhasesReported() {
+		assertPhasesReported(createWorld());
+	}
+	
+	public void testPhasesReportedWithIslands() {
+		World world = createWorld();
+		world.enableSleeping(0.01f, 0.01f, 0.5f);
+		world.enablePositionProjection(3);
+		assertPhasesReported(world);
+	}
+	
+	public void testPhasesReportedInParallel() {
+		WorkerPool pool = new WorkerPool(2);
+		try {
+			World world = createWorld();
+			world.setWorkerPool(pool);
+			assertPhasesReported(world);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
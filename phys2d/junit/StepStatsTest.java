@@ -0,0 +1,278 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.lang.reflect.Method;
+
+import net.phys2d.math.ROVector2f;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.StepClock;
+import net.phys2d.raw.StepStats;
+import net.phys2d.raw.WorkerPool;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.util.AllocationCounter;
+import junit.framework.TestCase;
+
+public class StepStatsTest extends TestCase {
+	/** The number of steps the worlds are run for */
+	private static final int STEPS = 120;
+	/** The number of steps to warm up with before measuring allocation */
+	private static final int WARM_UP = 2000;
+	/** The number of times the allocation measurement is repeated */
+	private static final int RUNS = 5;
+	
+	/** The method finishing a step, which only the world calls */
+	private Method endStep;
+	
+	protected void setUp() throws Exception {
+		endStep = StepStats.class.getDeclaredMethod("endStep", new Class[0]);
+		endStep.setAccessible(true);
+	}
+	
+	/**
+	 * A clock that moves on by a microsecond each time it's read, so the
+	 * timings are the same every run
+	 */
+	private static class CountingClock implements StepClock {
+		/** The current time */
+		private long time;
+		
+		/**
+		 * @see net.phys2d.raw.StepClock#getNanoTime()
+		 */
+		public long getNanoTime() {
+			time += 1000;
+			return time;
+		}
+	}
+	
+	/**
+	 * Record a single step with the given total time
+	 * 
+	 * @param stats The stats to record to
+	 * @param time The time of the step
+	 * @throws Exception Indicates the step couldn't be finished
+	 */
+	private void record(StepStats stats, long time) throws Exception {
+		stats.addTime(StepStats.STEP, time);
+		endStep.invoke(stats, null);
+	}
+	
+	/**
+	 * Create a world with a few boxes falling onto the ground
+	 * 
+	 * @return The world created
+	 */
+	private World createWorld() {
+		World world = new World(new Vector2f(0, 10), 10);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		for ( int i = 0; i < 5; i++ ) {
+			Body box = new Body(new Box(20, 20), 1);
+			box.setPosition(100 + (i * 15), 470 - (i * 25));
+			world.add(box);
+		}
+		
+		return world;
+	}
+	
+	public void testDefaultClock() throws Exception {
+		// every VM the tests run on has System.nanoTime()
+		assertNotNull(StepClock.NANOSECONDS);
+		assertSame(StepClock.NANOSECONDS, StepClock.DEFAULT);
+		
+		// timings well under a millisecond must still register
+		long start = StepClock.DEFAULT.getNanoTime();
+		long end = start;
+		while ( end == start )
+			end = StepClock.DEFAULT.getNanoTime();
+		assertTrue("Clock moved on by " + (end - start) + "ns", end - start < 1000000L);
+	}
+	
+	public void testRollingWindow() throws Exception {
+		StepStats stats = new StepStats(4, new CountingClock());
+		for ( int i = 1; i <= 5; i++ )
+			record(stats, i * 10);
+		
+		// the first step has dropped out of the window
+		assertEquals(4, stats.getSampleCount());
+		assertEquals(50, (int) stats.getLast(StepStats.STEP));
+		assertEquals(20, (int) stats.getMin(StepStats.STEP));
+		assertEquals(50, (int) stats.getMax(StepStats.STEP));
+		assertEquals(35, stats.getAverage(StepStats.STEP), 0.0001f);
+		assertEquals(50, (int) stats.get99thPercentile(StepStats.STEP));
+		
+		stats.reset();
+		assertEquals(0, stats.getSampleCount());
+		assertEquals(0, (int) stats.getMax(StepStats.STEP));
+	}
+	
+	public void testPercentile() throws Exception {
+		StepStats stats = new StepStats(200, new CountingClock());
+		for ( int i = 200; i > 0; i-- )
+			record(stats, i);
+		
+		assertEquals(198, (int) stats.get99thPercentile(StepStats.STEP));
+		assertEquals(1, (int) stats.getMin(StepStats.STEP));
+		assertEquals(100.5f, stats.getAverage(StepStats.STEP), 0.0001f);
+	}
+	
+	public void testDisabledByDefault() {
+		World world = createWorld();
+		assertTrue(world.getStepStats() == null);
+		
+		StepStats stats = new StepStats(10);
+		world.enableProfiling(stats);
+		assertTrue(world.getStepStats() == stats);
+		world.disableProfiling();
+		assertTrue(world.getStepStats() == null);
+	}
+	
+	public void testWorldRecords() {
+		World world = createWorld();
+		StepStats stats = new StepStats(STEPS, new CountingClock());
+		world.enableProfiling(stats);
+		
+		for ( int i = 0; i < STEPS; i++ )
+			world.step();
+		
+		assertEquals(STEPS, stats.getSampleCount());
+		assertTrue("No contacts recorded", stats.getLast(StepStats.CONTACTS) > 0);
+		assertTrue("No narrow phase recorded", stats.getLast(StepStats.NARROW_PHASE_CALLS) > 0);
+		assertTrue(stats.getLast(StepStats.CANDIDATE_PAIRS) >= stats.getLast(StepStats.NARROW_PHASE_CALLS));
+		assertTrue("No arbiters created", stats.getMax(StepStats.ARBITERS_CREATED) > 0);
+		
+		long phases = 0;
+		for ( int i = 0; i < StepStats.STEP; i++ )
+			phases += stats.getLast(i);
+		assertTrue("Solver not timed", stats.getLast(StepStats.SOLVER) > 0);
+		assertTrue("Phases exceed the step", phases <= stats.getLast(StepStats.STEP));
+		assertTrue(phases > 0);
+	}
+	
+	public void testSameResults() {
+		World plain = createWorld();
+		World profiled = createWorld();
+		profiled.enableProfiling(new StepStats(10));
+		
+		for ( int i = 0; i < STEPS; i++ ) {
+			plain.step();
+			profiled.step();
+		}
+		
+		for ( int i = 0; i < plain.getBodies().size(); i++ ) {
+			ROVector2f expected = plain.getBodies().get(i).getPosition();
+			ROVector2f actual = profiled.getBodies().get(i).getPosition();
+			assertEquals(expected.getX(), actual.getX(), 0);
+			assertEquals(expected.getY(), actual.getY(), 0);
+		}
+	}
+	
+	public void testNoAllocation() {
+		AllocationCounter allocations = AllocationCounter.create();
+		if ( allocations == null )
+			return;
+		
+		World world = createWorld();
+		StepStats stats = new StepStats(STEPS);
+		world.enableProfiling(stats);
+		for ( int i = 0; i < WARM_UP; i++ )
+			world.step();
+		
+		// take the best of a few runs so that a one-off allocation by the
+		// VM itself, e.g. while compiling, isn't counted against the profiler
+		long allocated = Long.MAX_VALUE;
+		for ( int run = 0; run < RUNS; run++ ) {
+			long overhead = allocations.measureOverhead();
+			long start = allocations.getAllocatedBytes();
+			for ( int i = 0; i < STEPS; i++ )
+				world.step();
+			allocated = Math.min(allocated, allocations.getAllocatedBytes() - start - overhead);
+		}
+		
+		assertTrue("Profiling allocated " + ((float) allocated / STEPS) + " bytes per step", allocated <= 0);
+		assertTrue(stats.getLast(StepStats.SOLVER) > 0);
+	}
+	
+	public void testWorkerPoolRecords() {
+		World serial = createWorld();
+		World parallel = createWorld();
+		StepStats serialStats = new StepStats(STEPS);
+		StepStats parallelStats = new StepStats(STEPS);
+		serial.enableProfiling(serialStats);
+		parallel.enableProfiling(parallelStats);
+		
+		WorkerPool workers = new WorkerPool(4);
+		try {
+			parallel.setWorkerPool(workers);
+			for ( int i = 0; i < STEPS; i++ ) {
+				serial.step();
+				parallel.step();
+			}
+		} finally {
+			workers.shutdown();
+		}
+		
+		// the islands record to stats of their own which are added in once
+		// every island is done, so nothing is lost or counted twice
+		for ( int i = StepStats.CANDIDATE_PAIRS; i < StepStats.METRICS; i++ )
+			assertEquals(StepStats.getName(i), serialStats.getLast(i), parallelStats.getLast(i));
+		assertTrue("Solver not timed", parallelStats.getLast(StepStats.SOLVER) > 0);
+		assertTrue("Integration not timed", parallelStats.getLast(StepStats.INTEGRATION) > 0);
+	}
+	
+	public void testInvalidArguments() {
+		try {
+			new StepStats(0);
+			fail("Empty window accepted");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+		try {
+			createWorld().enableProfiling(null);
+			fail("Null stats accepted");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.BasicJoint;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class SubstepTest extends TestCase {
+	/** The number of links in the hanging chain */
+	private static final int LINKS = 20;
+	/** The distance between the links of the chain */
+	private static final float SPACING = 10;
+	/** The number of steps to let the chain hang for */
+	private static final int STEPS = 600;
+	
+	/**
+	 * Hang a chain of boxes from a fixed point and let it settle
+	 * 
+	 * @param iterations The number of iterations the world solves with
+	 * @param substeps The number of sub-steps to split each step into
+	 * @return The amount the chain has stretched
+	 */
+	private float getStretch(int iterations, int substeps) {
+		World world = new World(new Vector2f(0, 10), iterations);
+		Body top = new StaticBody(new Box(10, 10));
+		top.setPosition(0, 0);
+		world.add(top);
+		
+		Body last = top;
+		for ( int i = 0; i < LINKS; i++ ) {
+			Body link = new Body(new Box(5, 5), 1);
+			link.setPosition(0, (i + 1) * SPACING);
+			world.add(link);
+			
+			BasicJoint joint = new BasicJoint(last, link, new Vector2f(0, (i + 0.5f) * SPACING));
+			joint.setRelaxation(0.9f);
+			world.add(joint);
+			last = link;
+		}
+		
+		for ( int i = 0; i < STEPS; i++ )
+			world.step(1 / 60.0f, substeps);
+		
+		return last.getPosition().getY() - (LINKS * SPACING);
+	}
+	
+	public void testChainStiffer() {
+		float iterated = getStretch(8, 1);
+		float substepped = getStretch(1, 8);
+		
+		assertTrue("Stretched " + substepped + " against " + iterated, 
+				Math.abs(substepped) * 4 < Math.abs(iterated));
+	}
+	
+	public void testStackRests() {
+		World world = new World(new Vector2f(0, 10), 1);
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		for ( int y = 0; y < 10; y++ ) {
+			Body box = new Body(new Box(20, 20), 1);
+			box.setPosition(100, 480 - y * 21);
+			world.add(box);
+		}
+		
+		for ( int i = 0; i < 600; i++ )
+			world.step(1 / 60.0f, 4);
+		
+		for ( int b = 1; b < world.getBodies().size(); b++ ) {
+			Body box = world.getBodies().get(b);
+			assertTrue(box.getVelocity().length() < 0.01f);
+			assertEquals(100, box.getPosition().getX(), 0.01f);
+			assertEquals(480 - (b - 1) * 20, box.getPosition().getY(), 0.5f);
+		}
+	}
+	
+	public void testInvalidSubsteps() {
+		World world = new World(new Vector2f(0, 10), 10);
+		try {
+			world.step(1 / 60.0f, 0);
+			fail("Stepped with no sub-steps");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.BodyPairMap;
+import net.phys2d.raw.CollisionContext;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.shapes.AABox;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.strategies.BruteCollisionStrategy;
+import net.phys2d.raw.strategies.SweepAndPruneStrategy;
+import junit.framework.TestCase;
+
+public class SweepAndPruneStrategyTest extends TestCase {
+	/** The time step used */
+	private static final float DT = 1 / 60.0f;
+	/** The number of steps the moving scene is run for */
+	private static final int STEPS = 120;
+	
+	/**
+	 * A context counting the times each pair is passed to it, and which
+	 * of those pairs have overlapping bounds
+	 */
+	private static class PairRecorder implements CollisionContext {
+		/** The number of times each pair was passed, keyed on the pair */
+		private HashMap counts = new HashMap();
+		/** The pairs passed whose bounds overlap, keyed on the pair */
+		private HashMap touching = new HashMap();
+		
+		/**
+		 * @see net.phys2d.raw.CollisionContext#resolve(net.phys2d.raw.BodyList, float)
+		 */
+		public void resolve(BodyList bodies, float dt) {
+			for ( int i = 0; i < bodies.size(); i++ ) {
+				for ( int j = i + 1; j < bodies.size(); j++ ) {
+					Body a = bodies.get(i);
+					Body b = bodies.get(j);
+					if ( a.isStatic() && b.isStatic() )
+						continue;
+					
+					Long key = new Long(BodyPairMap.getKey(a, b));
+					Integer count = (Integer) counts.get(key);
+					counts.put(key, new Integer(count == null ? 1 : count.intValue() + 1));
+					if ( touches(a, b) )
+						touching.put(key, key);
+				}
+			}
+		}
+		
+		/**
+		 * Forget the pairs recorded so far
+		 */
+		public void clear() {
+			counts.clear();
+			touching.clear();
+		}
+	}
+	
+	/**
+	 * Check if the bounds of two bodies overlap
+	 * 
+	 * @param a The first body
+	 * @param b The second body
+	 * @return True if the bounds overlap
+	 */
+	private static boolean touches(Body a, Body b) {
+		float[] ba = getBounds(a);
+		float[] bb = getBounds(b);
+		return (ba[0] < bb[2]) && (bb[0] < ba[2]) && (ba[1] < bb[3]) && (bb[1] < ba[3]);
+	}
+	
+	/**
+	 * Get the bounds of a body
+	 * 
+	 * @param body The body whose bounds should be found
+	 * @return The lowest x and y, then the highest x and y, of the bounds
+	 */
+	private static float[] getBounds(Body body) {
+		AABox bounds = body.getShape().getBounds();
+		float cx = body.getPosition().getX() + bounds.getOffsetX();
+		float cy = body.getPosition().getY() + bounds.getOffsetY();
+		float hw = bounds.getWidth() / 2;
+		float hh = bounds.getHeight() / 2;
+		
+		return new float[] {cx - hw, cy - hh, cx + hw, cy + hh};
+	}
+	
+	/**
+	 * Check every pair was passed at most once and that the overlapping 
+	 * pairs are the ones brute force finds
+	 * 
+	 * @param recorder The pairs passed by the strategy
+	 * @param bodies The bodies being collided
+	 */
+	private void assertMatchesBruteForce(PairRecorder recorder, BodyList bodies) {
+		Iterator counts = recorder.counts.values().iterator();
+		while ( counts.hasNext() )
+			assertEquals(1, ((Integer) counts.next()).intValue());
+		
+		PairRecorder brute = new PairRecorder();
+		new BruteCollisionStrategy().collideBodies(brute, bodies, DT);
+		assertEquals(brute.touching, recorder.touching);
+	}
+	
+	/**
+	 * Get the value of a private field of the strategy
+	 * 
+	 * @param strategy The strategy to read
+	 * @param name The name of the field
+	 * @return The value of the field
+	 * @throws Exception Indicates the field couldn't be read
+	 */
+	private Object getField(SweepAndPruneStrategy strategy, String name) throws Exception {
+		Field field = SweepAndPruneStrategy.class.getDeclaredField(name);
+		field.setAccessible(true);
+		
+		return field.get(strategy);
+	}
+	
+	public void testMovingScene() {
+		Random random = new Random(1234);
+		BodyList bodies = new BodyList();
+		for ( int i = 0; i < 150; i++ ) {
+			Box box = new Box(5 + random.nextInt(30), 5 + random.nextInt(30));
+			Body body = (i % 5 == 0) ? new StaticBody(box) : new Body(box, 1);
+			body.setPosition(random.nextInt(300), random.nextInt(300));
+			bodies.add(body);
+		}
+		
+		SweepAndPruneStrategy sap = new SweepAndPruneStrategy();
+		PairRecorder recorder = new PairRecorder();
+		for ( int step = 0; step < STEPS; step++ ) {
+			// the bodies spread out along x then along y, so the swept 
+			// axis changes part way through
+			float dx = step < STEPS / 2 ? 4 : -4;
+			float dy = step < STEPS / 2 ? 0 : 4;
+			for ( int i = 0; i < bodies.size(); i++ ) {
+				Body body = bodies.get(i);
+				if ( body.isStatic() )
+					continue;
+				float spread = (i - (bodies.size() / 2)) / (float) bodies.size();
+				body.adjustPosition(new Vector2f((dx * spread) + random.nextFloat() - 0.5f, 
+												 (dy * spread) + random.nextFloat() - 0.5f));
+			}
+			
+			recorder.clear();
+			sap.collideBodies(recorder, bodies, DT);
+			assertMatchesBruteForce(recorder, bodies);
+			assertEquals(recorder.touching.size(), sap.getOverlapCount());
+		}
+	}
+	
+	public void testEndedOverlap() {
+		Body a = new Body(new Box(10, 10), 1);
+		Body b = new Body(new Box(10, 10), 1);
+		a.setPosition(0, 0);
+		b.setPosition(5, 0);
+		BodyList bodies = new BodyList();
+		bodies.add(a);
+		bodies.add(b);
+		
+		SweepAndPruneStrategy sap = new SweepAndPruneStrategy();
+		PairRecorder recorder = new PairRecorder();
+		sap.collideBodies(recorder, bodies, DT);
+		assertEquals(1, recorder.touching.size());
+		assertEquals(1, sap.getOverlapCount());
+		
+		// the pair is passed once more after it separates
+		b.setPosition(100, 0);
+		recorder.clear();
+		sap.collideBodies(recorder, bodies, DT);
+		assertEquals(1, recorder.counts.size());
+		assertEquals(0, recorder.touching.size());
+		assertEquals(0, sap.getOverlapCount());
+		
+		// and then forgotten
+		recorder.clear();
+		sap.collideBodies(recorder, bodies, DT);
+		assertEquals(0, recorder.counts.size());
+	}
+	
+	public void testStaleProxies() throws Exception {
+		BodyList bodies = new BodyList();
+		for ( int i = 0; i < 40; i++ ) {
+			Body body = new Body(new Box(10, 10), 1);
+			body.setPosition(i * 8, (i % 2) * 8);
+			bodies.add(body);
+		}
+		
+		SweepAndPruneStrategy sap = new SweepAndPruneStrategy();
+		PairRecorder recorder = new PairRecorder();
+		sap.collideBodies(recorder, bodies, DT);
+		assertMatchesBruteForce(recorder, bodies);
+		assertEquals(80, ((Integer) getField(sap, "count")).intValue());
+		
+		// bodies that leave the list have their end points compacted away
+		// and their pairs dropped without being passed on again
+		BodyList removed = new BodyList();
+		for ( int i = bodies.size() - 1; i >= 0; i -= 3 ) {
+			removed.add(bodies.get(i));
+			bodies.remove(bodies.get(i));
+		}
+		recorder.clear();
+		sap.collideBodies(recorder, bodies, DT);
+		assertMatchesBruteForce(recorder, bodies);
+		assertEquals(bodies.size() * 2, ((Integer) getField(sap, "count")).intValue());
+		assertEquals(bodies.size(), ((IdentityHashMap) getField(sap, "proxies")).size());
+		for ( int i = 0; i < removed.size(); i++ ) {
+			int id = removed.get(i).getID();
+			Iterator keys = recorder.counts.keySet().iterator();
+			while ( keys.hasNext() ) {
+				long key = ((Long) keys.next()).longValue();
+				assertFalse(((int) (key >>> 32) == id) || ((int) key == id));
+			}
+		}
+		
+		// and may come back later
+		bodies.add(removed.get(0));
+		recorder.clear();
+		sap.collideBodies(recorder, bodies, DT);
+		assertMatchesBruteForce(recorder, bodies);
+		assertEquals(bodies.size() * 2, ((Integer) getField(sap, "count")).intValue());
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.BasicJoint;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.StepClock;
+import net.phys2d.raw.StepStats;
+import net.phys2d.raw.World;
+import net.phys2d.raw.WorldMonitor;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.util.AllocationCounter;
+import junit.framework.TestCase;
+
+public class WorldMonitorTest extends TestCase {
+	/** The name the monitor is registered under */
+	private static final String NAME = "net.phys2d:type=World,name=test";
+	/** The number of steps the world is run for */
+	private static final int STEPS = 60;
+	/** The number of steps to warm up with before measuring allocation */
+	private static final int WARM_UP = 2000;
+	
+	/**
+	 * Create a world with a column of boxes resting on the ground and a
+	 * pendulum to one side
+	 * 
+	 * @return The world created
+	 */
+	private World createWorld() {
+		World world = new World(new Vector2f(0, 10), 10);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		for ( int i = 0; i < 5; i++ ) {
+			Body box = new Body(new Box(20, 20), 1);
+			box.setPosition(100, 480 - (i * 21));
+			world.add(box);
+		}
+		
+		Body anchor = new StaticBody(new Box(10, 10));
+		anchor.setPosition(300, 100);
+		Body bob = new Body(new Box(10, 10), 1);
+		bob.setPosition(350, 100);
+		world.add(anchor);
+		world.add(bob);
+		world.add(new BasicJoint(anchor, bob, new Vector2f(300, 100)));
+		
+		return world;
+	}
+	
+	/**
+	 * Read an attribute of the registered monitor through the platform 
+	 * MBean server, which is only reachable reflectively from Java 1.4
+	 * 
+	 * @param attribute The name of the attribute to read
+	 * @return The value of the attribute
+	 * @throws Exception Indicates the attribute couldn't be read
+	 */
+	private Object getAttribute(String attribute) throws Exception {
+		Object server = Class.forName("java.lang.management.ManagementFactory").getMethod("getPlatformMBeanServer", new Class[0]).invoke(null, new Object[0]);
+		Class nameClass = Class.forName("javax.management.ObjectName");
+		Object name = nameClass.getConstructor(new Class[] {String.class}).newInstance(new Object[] {NAME});
+		Method get = Class.forName("javax.management.MBeanServer").getMethod("getAttribute", new Class[] {nameClass, String.class});
+		
+		return get.invoke(server, new Object[] {name, attribute});
+	}
+	
+	public void testCounts() {
+		World world = createWorld();
+		WorldMonitor monitor = new WorldMonitor(world);
+		assertTrue(world.getStepStats() != null);
+		
+		for ( int i = 0; i < STEPS; i++ )
+			world.step();
+		
+		assertEquals(8, monitor.getBodyCount());
+		assertEquals(8, monitor.getAwakeBodyCount());
+		assertEquals(1, monitor.getJointCount());
+		assertEquals(world.getArbiters().size(), monitor.getArbiterCount());
+		assertTrue(monitor.getArbiterCount() >= 5);
+		assertTrue(monitor.getAverageStepTime() >= 0);
+		assertTrue(monitor.getMaxStepTime() >= monitor.getLastStepTime());
+		
+		monitor.unregister();
+		world.add(new Body(new Box(10, 10), 1));
+		world.step();
+		assertEquals(8, monitor.getBodyCount());
+	}
+	
+	public void testClock() throws Exception {
+		Field clock = StepStats.class.getDeclaredField("clock");
+		clock.setAccessible(true);
+		
+		// profiling enabled by the monitor is always timed in nanoseconds
+		World world = createWorld();
+		new WorldMonitor(world);
+		assertSame(StepClock.NANOSECONDS, clock.get(world.getStepStats()));
+		
+		// but stats the world already has are left alone
+		world = createWorld();
+		StepStats stats = new StepStats(10, StepClock.MILLISECONDS);
+		world.enableProfiling(stats);
+		new WorldMonitor(world);
+		assertSame(stats, world.getStepStats());
+		assertSame(StepClock.MILLISECONDS, clock.get(stats));
+	}
+	
+	public void testRegistered() throws Exception {
+		World world = createWorld();
+		WorldMonitor monitor = new WorldMonitor(world);
+		monitor.register(NAME);
+		try {
+			assertTrue(monitor.isRegistered());
+			for ( int i = 0; i < STEPS; i++ )
+				world.step();
+			
+			assertEquals(new Integer(8), getAttribute("BodyCount"));
+			assertEquals(new Integer(1), getAttribute("JointCount"));
+			assertTrue(getAttribute("SolverTime") instanceof Float);
+			
+			try {
+				new WorldMonitor(createWorld()).register(NAME);
+				fail("Name registered twice");
+			} catch ( IllegalArgumentException e ) {
+				// expected
+			}
+		} finally {
+			monitor.unregister();
+		}
+		assertFalse(monitor.isRegistered());
+		
+		try {
+			getAttribute("BodyCount");
+			fail("Monitor still registered");
+		} catch ( java.lang.reflect.InvocationTargetException e ) {
+			// expected
+		}
+	}
+	
+	public void testInvalidName() {
+		try {
+			new WorldMonitor(createWorld()).register("not a name");
+			fail("Invalid name accepted");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+	}
+	
+	public void testStepsPerSecond() {
+		World world = createWorld();
+		WorldMonitor monitor = new WorldMonitor(world);
+		assertEquals(0, monitor.getStepsPerSecond(), 0);
+		
+		long end = System.currentTimeMillis() + 1100;
+		while ( System.currentTimeMillis() < end )
+			world.step();
+		
+		assertTrue(monitor.getStepsPerSecond() > 0);
+		if ( AllocationCounter.create() != null )
+			assertTrue(monitor.getAllocatedBytesPerStep() >= 0);
+		else
+			assertEquals(-1, monitor.getAllocatedBytesPerStep(), 0);
+	}
+	
+	public void testSteadyAllocation() {
+		if ( AllocationCounter.create() == null )
+			return;
+		
+		// the joint allocates as it's solved, so only the column of boxes
+		World world = new World(new Vector2f(0, 10), 10);
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		for ( int i = 0; i < 5; i++ ) {
+			Body box = new Body(new Box(20, 20), 1);
+			box.setPosition(100, 480 - (i * 21));
+			world.add(box);
+		}
+		
+		WorldMonitor monitor = new WorldMonitor(world);
+		for ( int i = 0; i < WARM_UP; i++ )
+			world.step();
+		
+		// the figure covers the last full period, so run on until a whole
+		// period has passed since warming up
+		long end = System.currentTimeMillis() + 2200;
+		while ( System.currentTimeMillis() < end )
+			world.step();
+		
+		// the monitor's own profiling mustn't show up as allocation
+		float allocated = monitor.getAllocatedBytesPerStep();
+		assertTrue("Monitor reported " + allocated + " bytes per step", (allocated >= 0) && (allocated < 1));
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.test.collide;
+
+import java.lang.reflect.Method;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.StaticBody;
+import net.phys2d.raw.World;
+import net.phys2d.raw.WorldCommand;
+import net.phys2d.raw.WorldCommands;
+import net.phys2d.raw.WorldRunner;
+import net.phys2d.raw.WorldSnapshot;
+import net.phys2d.raw.shapes.Box;
+import junit.framework.TestCase;
+
+public class WorldRunnerTest extends TestCase {
+	/** The length of a step */
+	private static final float DT = 0.01f;
+	/** The longest to wait for the runner in milliseconds */
+	private static final long TIMEOUT = 5000;
+	
+	/** The method taking a single step, which only the runner's thread calls */
+	private Method step;
+	
+	protected void setUp() throws Exception {
+		step = WorldRunner.class.getDeclaredMethod("step", new Class[0]);
+		step.setAccessible(true);
+	}
+	
+	/**
+	 * Create a world with a box falling towards the ground
+	 * 
+	 * @return The world created
+	 */
+	private World createWorld() {
+		World world = new World(new Vector2f(0, 10), 10);
+		
+		Body ground = new StaticBody(new Box(2000, 20));
+		ground.setPosition(500, 500);
+		world.add(ground);
+		Body box = new Body(new Box(20, 20), 1);
+		box.setPosition(100, 100);
+		world.add(box);
+		
+		return world;
+	}
+	
+	/**
+	 * Wait for the runner to publish a snapshot that satisfies a check
+	 * 
+	 * @param runner The runner to wait on
+	 * @param steps The fewest steps the snapshot must have been taken after
+	 * @param bodies The fewest bodies the snapshot must hold
+	 * @return The snapshot
+	 * @throws Exception Indicates the wait was interrupted
+	 */
+	private WorldSnapshot waitFor(WorldRunner runner, long steps, int bodies) throws Exception {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while ( System.currentTimeMillis() < end ) {
+			WorldSnapshot snapshot = runner.getSnapshot();
+			if ( (snapshot.getStep() >= steps) && (snapshot.getBodyCount() >= bodies) )
+				return snapshot;
+			
+			Thread.sleep(5);
+		}
+		
+		fail("No snapshot published in time");
+		return null;
+	}
+	
+	public void testSnapshots() throws Exception {
+		WorldRunner runner = new WorldRunner(createWorld(), DT);
+		assertEquals(0, runner.getSnapshot().getBodyCount());
+		
+		step.invoke(runner, null);
+		step.invoke(runner, null);
+		WorldSnapshot snapshot = runner.getSnapshot();
+		assertEquals(2, (int) snapshot.getStep());
+		assertEquals(2, snapshot.getBodyCount());
+		assertTrue(runner.getSnapshot() == snapshot);
+		
+		// the box is falling, so the interpolated position is between the steps
+		float before = snapshot.getY(1, 0);
+		float after = snapshot.getY(1, 1);
+		assertTrue(after > before);
+		assertEquals(after, snapshot.getY(1), 0);
+		assertEquals((before + after) / 2, snapshot.getY(1, 0.5f), 0.0001f);
+		assertTrue(snapshot.getVelocityY(1) > 0);
+		assertTrue(snapshot.getBody(1) == runner.getWorld().getBodies().get(1));
+		
+		step.invoke(runner, null);
+		WorldSnapshot next = runner.getSnapshot();
+		assertTrue(next != snapshot);
+		assertEquals(3, (int) next.getStep());
+		assertEquals(after, next.getY(1, 0), 0);
+		
+		// the snapshot handed out before is left alone while the next is read
+		assertEquals(2, (int) snapshot.getStep());
+	}
+	
+	public void testSnapshotAfterRemoval() throws Exception {
+		World world = createWorld();
+		Body first = world.getBodies().get(1);
+		Body second = new Body(new Box(20, 20), 1);
+		second.setPosition(200, 100);
+		world.add(second);
+		WorldRunner runner = new WorldRunner(world, DT);
+		
+		step.invoke(runner, null);
+		float y = runner.getSnapshot().getY(2);
+		
+		// removing a body moves the ones after it along, but they still
+		// interpolate from where they were
+		world.remove(first);
+		Body third = new Body(new Box(20, 20), 1);
+		third.setPosition(300, 100);
+		world.add(third);
+		step.invoke(runner, null);
+		WorldSnapshot snapshot = runner.getSnapshot();
+		assertEquals(3, snapshot.getBodyCount());
+		assertTrue(snapshot.getBody(1) == second);
+		assertEquals(y, snapshot.getY(1, 0), 0);
+		assertTrue(snapshot.getY(1) > y);
+		
+		// and a body added in the step has nowhere to move from
+		assertTrue(snapshot.getBody(2) == third);
+		assertEquals(snapshot.getY(2), snapshot.getY(2, 0), 0);
+	}
+	
+	public void testRestartAfterFailure() throws Exception {
+		WorldRunner runner = new WorldRunner(createWorld(), DT);
+		runner.start();
+		try {
+			waitFor(runner, 1, 2);
+			runner.getWorld().post(new WorldCommand() {
+				public void execute(World world) {
+					throw new IllegalStateException("Failed");
+				}
+			});
+			
+			long end = System.currentTimeMillis() + TIMEOUT;
+			while ( runner.isRunning() && (System.currentTimeMillis() < end) )
+				Thread.sleep(5);
+			assertFalse(runner.isRunning());
+			assertTrue(runner.getFailure() instanceof IllegalStateException);
+			
+			// no stop() is needed before starting again
+			long steps = runner.getSnapshot().getStep();
+			runner.start();
+			assertTrue(runner.getFailure() == null);
+			waitFor(runner, steps + 5, 2);
+		} finally {
+			runner.stop();
+		}
+		assertFalse(runner.isRunning());
+		assertTrue(runner.getFailure() == null);
+	}
+	
+	public void testRunsOnOwnThread() throws Exception {
+		WorldRunner runner = new WorldRunner(createWorld(), DT);
+		runner.start();
+		try {
+			assertTrue(runner.isRunning());
+			WorldSnapshot snapshot = waitFor(runner, 10, 2);
+			assertTrue(snapshot.getY(1) > 100);
+			
+			Body box = new Body(new Box(20, 20), 1);
+			box.setPosition(200, 100);
+			runner.getWorld().post(WorldCommands.add(box));
+			snapshot = waitFor(runner, snapshot.getStep() + 1, 3);
+			assertTrue(snapshot.getBody(2) == box);
+		} finally {
+			runner.stop();
+		}
+		assertFalse(runner.isRunning());
+		assertTrue(runner.getFailure() == null);
+	}
+	
+	public void testInvalidArguments() {
+		try {
+			new WorldRunner(createWorld(), 0);
+			fail("Zero step accepted");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+		try {
+			new WorldRunner(createWorld(), DT, 0);
+			fail("Zero sub-steps accepted");
+		} catch ( IllegalArgumentException e ) {
+			// expected
+		}
+	}
+}
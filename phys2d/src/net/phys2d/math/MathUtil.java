@@ -131,6 +131,20 @@ public final strictfp class MathUtil {
 		return new Vector2f(A.col1.x * v.getX() + A.col2.x * v.getY(), A.col1.y * v.getX() + A.col2.y * v.getY());
 	}
 	
+	/**
+	 * Multiply a matrix by a vector
+	 * 
+	 * @param A The matrix to be multiplied
+	 * @param v The vector to multiple by
+	 * @param temp The vector to store the result in, may be v
+	 * @return The temp vector passed in
+	 */
+	public static Vector2f mul(Matrix2f A, ROVector2f v, Vector2f temp)
+	{
+		temp.set(A.col1.x * v.getX() + A.col2.x * v.getY(), A.col1.y * v.getX() + A.col2.y * v.getY());
+		return temp;
+	}
+	
 	/**
 	 * Multiple two matricies
 	 * 
@@ -143,6 +157,21 @@ public final strictfp class MathUtil {
 		return new Matrix2f(mul(A,B.col1), mul(A,B.col2));
 	}
 	
+	/**
+	 * Multiple two matricies
+	 * 
+	 * @param A The first matrix
+	 * @param B The second matrix
+	 * @param temp The matrix to store the result in, which must not be A or B
+	 * @return The temp matrix passed in
+	 */
+	public static Matrix2f mul(Matrix2f A, Matrix2f B, Matrix2f temp) 
+	{
+		mul(A, B.col1, temp.col1);
+		mul(A, B.col2, temp.col2);
+		return temp;
+	}
+	
 	/**
 	 * Create the absolute version of a matrix
 	 * 
@@ -152,6 +181,19 @@ public final strictfp class MathUtil {
 	public static Matrix2f abs(Matrix2f A) {
 		return new Matrix2f(abs(A.col1), abs(A.col2));
 	}
+	
+	/**
+	 * Create the absolute version of a matrix
+	 * 
+	 * @param A The matrix to make absolute
+	 * @param temp The matrix to store the result in, may be A
+	 * @return The temp matrix passed in
+	 */
+	public static Matrix2f abs(Matrix2f A, Matrix2f temp) {
+		abs(A.col1, temp.col1);
+		abs(A.col2, temp.col2);
+		return temp;
+	}
 
 	/**
 	 * Make a vector absolute
@@ -163,6 +205,19 @@ public final strictfp class MathUtil {
 	{
 		return new Vector2f(Math.abs(a.x), Math.abs(a.y));
 	}
+	
+	/**
+	 * Make a vector absolute
+	 * 
+	 * @param a The vector to make absolute
+	 * @param temp The vector to store the result in, may be a
+	 * @return The temp vector passed in
+	 */
+	public static Vector2f abs(Vector2f a, Vector2f temp)
+	{
+		temp.set(Math.abs(a.x), Math.abs(a.y));
+		return temp;
+	}
 
 	/**
 	 * Add two matricies
@@ -252,6 +307,76 @@ public final strictfp class MathUtil {
 		return normal;
 	}
 	
+	/**
+	 * Get the normal of a line x y (or edge), storing it in an existing
+	 * vector. When standing on x facing y, the normal will point
+	 * to the left.
+	 * 
+	 * @param x startingpoint of the line
+	 * @param y endpoint of the line
+	 * @param result The vector to store the (normalised) normal in
+	 * @return The result vector passed in
+	 */
+	public static Vector2f getNormal(ROVector2f x, ROVector2f y, Vector2f result) {
+		result.set(y);
+		result.sub(x);
+		
+		result.set(result.y, -result.x);
+		result.normalise();
+		
+		return result;
+	}
+	
+	/**
+	 * Find where a line segment enters an axis aligned box
+	 * 
+	 * @param x1 The x coordinate of the start of the segment
+	 * @param y1 The y coordinate of the start of the segment
+	 * @param x2 The x coordinate of the end of the segment
+	 * @param y2 The y coordinate of the end of the segment
+	 * @param minx The lowest x coordinate of the box
+	 * @param miny The lowest y coordinate of the box
+	 * @param maxx The highest x coordinate of the box
+	 * @param maxy The highest y coordinate of the box
+	 * @return The fraction along the segment at which it enters the box, 0 if
+	 * it starts inside the box or -1 if the segment misses the box
+	 */
+	public static float intersectBounds(float x1, float y1, float x2, float y2,
+										float minx, float miny, float maxx, float maxy) {
+		float tmin = 0;
+		float tmax = 1;
+		
+		float dx = x2 - x1;
+		if (dx == 0) {
+			if ((x1 < minx) || (x1 > maxx)) {
+				return -1;
+			}
+		} else {
+			float t1 = (minx - x1) / dx;
+			float t2 = (maxx - x1) / dx;
+			tmin = Math.max(tmin, Math.min(t1, t2));
+			tmax = Math.min(tmax, Math.max(t1, t2));
+		}
+		
+		float dy = y2 - y1;
+		if (dy == 0) {
+			if ((y1 < miny) || (y1 > maxy)) {
+				return -1;
+			}
+		} else {
+			float t1 = (miny - y1) / dy;
+			float t2 = (maxy - y1) / dy;
+			tmin = Math.max(tmin, Math.min(t1, t2));
+			tmax = Math.min(tmax, Math.max(t1, t2));
+		}
+		
+		if (tmin > tmax) {
+			return -1;
+		}
+		
+		return tmin;
+	}
+
 //	public static Vector2f intersect(Vector2f startA, Vector2f endA, Vector2f startB, Vector2f endB) {				
 //		float d = (endB.y - startB.y) * (endA.x - startA.x) - (endB.x - startB.x) * (endA.y - startA.y);
 //		
@@ -65,6 +65,16 @@ public strictfp class Matrix2f {
 	 * @param angle The angle of the rotation decribed by the matrix
 	 */
 	public Matrix2f(float angle)
+	{
+		set(angle);
+	}
+	
+	/**
+	 * Set this matrix to a rotation
+	 * 
+	 * @param angle The angle of the rotation decribed by the matrix
+	 */
+	public void set(float angle)
 	{
 		float c = (float) Math.cos(angle);
 		float s = (float) Math.sin(angle);
@@ -94,6 +104,22 @@ public strictfp class Matrix2f {
 							new Vector2f(col1.y, col2.y));
 	}
 
+	/**
+	 * Transpose the matrix into an existing matrix
+	 * 
+	 * @param result The matrix to store the transpose in, may be this matrix
+	 * @return The result matrix passed in
+	 */
+	public Matrix2f transpose(Matrix2f result) 
+	{
+		float b = col2.x;
+		float c = col1.y;
+		
+		result.col1.set(col1.x, b);
+		result.col2.set(c, col2.y);
+		return result;
+	}
+	
 	/**
 	 * Transpose the invert
 	 * 
@@ -41,7 +41,10 @@
 package net.phys2d.raw;
 
 import net.phys2d.math.MathUtil;
+import net.phys2d.math.Matrix2f;
+import net.phys2d.math.ROVector2f;
 import net.phys2d.math.Vector2f;
+import net.phys2d.raw.collide.SeparatingAxis;
 
 /**
  * A arbiter resolving contacts between a pair of bodies
@@ -51,9 +54,19 @@ import net.phys2d.math.Vector2f;
 public strictfp class Arbiter {
 	/** The maximum number of points of contact */
 	public static final int MAX_POINTS = 10;
+	/** The worst conditioning of a pair of contacts that's still resolved as a block */
+	private static final float MAX_CONDITION = 1000.0f;
+	/** The penetration that is left alone, so contacts don't flicker */
+	private static final float ALLOWED_PENETRATION = 0.01f;
+	/** The fraction of the penetration removed by each position iteration */
+	private static final float POSITION_CORRECTION = 0.2f;
+	/** The most a single position iteration will move a contact apart */
+	private static final float MAX_POSITION_CORRECTION = 2.0f;
 
 	/** The contacts being resolved by this arbiter */
 	private Contact[] contacts = new Contact[MAX_POINTS];
+	/** The contacts the next update is merged into, swapped with the contacts once it's done */
+	private Contact[] merged = new Contact[MAX_POINTS];
 	/** The number of contacts made */
 	private int numContacts;
 	/** The first body in contact */
@@ -62,6 +75,48 @@ public strictfp class Arbiter {
 	private Body body2;
 	/** Combined friction between two bodies */
 	private float friction;
+	/** The largest change made to an accumulated impulse by the last iteration */
+	private float impulseChange;
+	/** True if a pair of contacts may be resolved together as a block */
+	private boolean blockSolveEnabled = true;
+	/** True if a pair of contacts is resolved together rather than one after the other */
+	private boolean blockSolve;
+	/** The effective mass matrix of the block, first contact against itself */
+	private float k11;
+	/** The effective mass matrix of the block, the coupling between the contacts */
+	private float k12;
+	/** The effective mass matrix of the block, second contact against itself */
+	private float k22;
+	/** The inverse of the effective mass matrix, first entry on the diagonal */
+	private float blockMass11;
+	/** The inverse of the effective mass matrix, off the diagonal */
+	private float blockMass12;
+	/** The inverse of the effective mass matrix, second entry on the diagonal */
+	private float blockMass22;
+	/** The damping applied to the contact impulses this step */
+	private float damping;
+	/** True if position error is corrected with bias impulses this step */
+	private boolean biased = true;
+	/** The offset of each contact from the first body while correcting positions, x component */
+	private float[] positionR1x = new float[MAX_POINTS];
+	/** The offset of each contact from the first body while correcting positions, y component */
+	private float[] positionR1y = new float[MAX_POINTS];
+	/** The offset of each contact from the second body while correcting positions, x component */
+	private float[] positionR2x = new float[MAX_POINTS];
+	/** The offset of each contact from the second body while correcting positions, y component */
+	private float[] positionR2y = new float[MAX_POINTS];
+	/** The separation at each contact while correcting positions */
+	private float[] positionSeparation = new float[MAX_POINTS];
+	/** The next arbiter held for the first body */
+	private Arbiter next1;
+	/** The previous arbiter held for the first body */
+	private Arbiter prev1;
+	/** The next arbiter held for the second body */
+	private Arbiter next2;
+	/** The previous arbiter held for the second body */
+	private Arbiter prev2;
+	/** The edge that separated the bodies last time they were collided */
+	private SeparatingAxis separatingAxis = new SeparatingAxis();
 	
 	/**
 	 * Create a new arbiter - this should only be done by the 
@@ -73,6 +128,7 @@ public strictfp class Arbiter {
 	Arbiter(Body b1, Body b2) {
 		for (int i=0;i<MAX_POINTS;i++) {
 			contacts[i] = new Contact();
+			merged[i] = new Contact();
 		}
 		
 		if (!(b2 instanceof StaticBody) && b1.hashCode() < b2.hashCode())
@@ -103,9 +159,38 @@ public strictfp class Arbiter {
 	 * @param dt The amount of time passed since last collision check
 	 */
 	public void collide(float dt) {
-		numContacts = Collide.collide(contacts, body1, body2, dt);
+		numContacts = Collide.collide(contacts, body1, body2, separatingAxis, dt);
 	} 
 	
+	/**
+	 * Get the record of the edge that separated the bodies the last time 
+	 * they were collided
+	 * 
+	 * @return The separating axis of this pair
+	 */
+	SeparatingAxis getSeparatingAxis() {
+		return separatingAxis;
+	}
+	
+	/**
+	 * Get the combined friction between the two bodies
+	 * 
+	 * @return The combined friction
+	 */
+	float getFriction() {
+		return friction;
+	}
+	
+	/**
+	 * Get the largest change made to the accumulated impulse at any of the
+	 * contacts by the last call to applyImpulse()
+	 * 
+	 * @return The largest change in impulse
+	 */
+	float getImpulseChange() {
+		return impulseChange;
+	}
+	
 	/**
 	 * Get one of the two contacts handled being handled by this
 	 * arbiter
@@ -146,6 +231,26 @@ public strictfp class Arbiter {
 	public int getNumContacts() {
 		return numContacts;
 	}
+	
+	/**
+	 * Set whether a pair of contacts may be resolved together as a block. 
+	 * When they may not, every contact is resolved on its own in turn, as 
+	 * they were before the block solver was added.
+	 * 
+	 * @param enabled True if a pair of contacts may be resolved as a block
+	 */
+	void setBlockSolveEnabled(boolean enabled) {
+		blockSolveEnabled = enabled;
+	}
+	
+	/**
+	 * Check if a pair of contacts may be resolved together as a block
+	 * 
+	 * @return True if a pair of contacts may be resolved as a block
+	 */
+	boolean isBlockSolveEnabled() {
+		return blockSolveEnabled;
+	}
 
 	/**
 	 * Get the first of the two bodies handled by this arbiter
@@ -173,10 +278,7 @@ public strictfp class Arbiter {
 	 * @param numNewContacts The number of new contacts discovered
 	 */
 	void update(Contact[] newContacts, int numNewContacts) {
-		Contact[] mergedContacts = new Contact[MAX_POINTS];
-		for (int i=0;i<mergedContacts.length;i++) {
-			mergedContacts[i] = new Contact();
-		}
+		Contact[] mergedContacts = merged;
 		
 		for (int i = 0; i < numNewContacts; ++i)
 		{
@@ -206,13 +308,117 @@ public strictfp class Arbiter {
 			}
 		}
 
-		for (int i = 0; i < numNewContacts; ++i) {
-			contacts[i].set(mergedContacts[i]);
-		}
+		// the old contacts become the buffer the next update is merged into
+		merged = contacts;
+		contacts = mergedContacts;
 
 		numContacts = numNewContacts;
 	}
 
+	/**
+	 * Reset this arbiter to a new set of contacts, discarding any 
+	 * impulses accumulated at the previous contacts
+	 * 
+	 * @param newContacts The new contacts that have been found
+	 * @param numNewContacts The number of new contacts discovered
+	 */
+	void reset(Contact[] newContacts, int numNewContacts) {
+		for (int i = 0; i < numNewContacts; ++i) {
+			contacts[i].set(newContacts[i]);
+			contacts[i].accumulatedNormalImpulse = 0;
+			contacts[i].accumulatedTangentImpulse = 0;
+		}
+		
+		numContacts = numNewContacts;
+	}
+	
+	/**
+	 * Add this arbiter to the front of the lists of arbiters held
+	 * by each of its bodies
+	 */
+	void link() {
+		prev1 = null;
+		next1 = body1.getFirstArbiter();
+		if (next1 != null) {
+			next1.setPrevious(body1, this);
+		}
+		body1.setFirstArbiter(this);
+		
+		prev2 = null;
+		next2 = body2.getFirstArbiter();
+		if (next2 != null) {
+			next2.setPrevious(body2, this);
+		}
+		body2.setFirstArbiter(this);
+	}
+	
+	/**
+	 * Remove this arbiter from the lists of arbiters held by each 
+	 * of its bodies
+	 */
+	void unlink() {
+		if (prev1 != null) {
+			prev1.setNext(body1, next1);
+		} else if (body1.getFirstArbiter() == this) {
+			body1.setFirstArbiter(next1);
+		}
+		if (next1 != null) {
+			next1.setPrevious(body1, prev1);
+		}
+		
+		if (prev2 != null) {
+			prev2.setNext(body2, next2);
+		} else if (body2.getFirstArbiter() == this) {
+			body2.setFirstArbiter(next2);
+		}
+		if (next2 != null) {
+			next2.setPrevious(body2, prev2);
+		}
+		
+		next1 = null;
+		prev1 = null;
+		next2 = null;
+		prev2 = null;
+	}
+	
+	/**
+	 * Get the next arbiter in the list held by a given body
+	 * 
+	 * @param body The body whose list is being followed
+	 * @return The next arbiter or null if this is the last
+	 */
+	Arbiter getNext(Body body) {
+		return body == body1 ? next1 : next2;
+	}
+	
+	/**
+	 * Set the next arbiter in the list held by a given body
+	 * 
+	 * @param body The body whose list is being updated
+	 * @param arbiter The next arbiter in the list
+	 */
+	private void setNext(Body body, Arbiter arbiter) {
+		if (body == body1) {
+			next1 = arbiter;
+		} else {
+			next2 = arbiter;
+		}
+	}
+	
+	/**
+	 * Set the previous arbiter in the list held by a given body
+	 * 
+	 * @param body The body whose list is being updated
+	 * @param arbiter The previous arbiter in the list
+	 */
+	private void setPrevious(Body body, Arbiter arbiter) {
+		if (body == body1) {
+			prev1 = arbiter;
+		} else {
+			prev2 = arbiter;
+		}
+	}
+	
 	/**
 	 * Check if this arbiter affects the specified body
 	 * 
@@ -234,47 +440,82 @@ public strictfp class Arbiter {
 	 * collision. (1 = no loss, 0 = total loss)
 	 */
 	void preStep(float invDT, float dt, float damping) {
-		float allowedPenetration = 0.01f;
+		preStep(invDT, dt, damping, true);
+	}
+	
+	/**
+	 * Precaculate everything and apply initial impulse before the
+	 * simulation step takes place
+	 * 
+	 * @param dt The amount of time to step the simulation by
+	 * @param invDT The inverted time
+	 * @param damping The percentage of energy to retain through out
+	 * collision. (1 = no loss, 0 = total loss)
+	 * @param biased True if position error should be corrected with bias
+	 * impulses, false if it's left to a separate position pass
+	 */
+	void preStep(float invDT, float dt, float damping, boolean biased) {
+		float allowedPenetration = ALLOWED_PENETRATION;
 		float biasFactor = 0.8f;
 		
+		// all the vector maths is written out on the components so that
+		// the solver doesn't create any garbage each step
+		ROVector2f p1 = body1.getPosition();
+		ROVector2f p2 = body2.getPosition();
+		float invMass1 = body1.getInvMass();
+		float invMass2 = body2.getInvMass();
+		float invI1 = body1.getInvI();
+		float invI2 = body2.getInvI();
+		// bodies of infinite mass are shared between islands, so are never written
+		boolean move1 = !body1.isShared();
+		boolean move2 = !body2.isShared();
+		
 		for (int i = 0; i < numContacts; ++i)
 		{
 			Contact c = contacts[i];
 			c.normal.normalise();
 			
-			Vector2f r1 = new Vector2f(c.position);
-			r1.sub(body1.getPosition());
-			Vector2f r2 = new Vector2f(c.position);
-			r2.sub(body2.getPosition());
+			float nx = c.normal.x;
+			float ny = c.normal.y;
+			float r1x = c.position.x - p1.getX();
+			float r1y = c.position.y - p1.getY();
+			float r2x = c.position.x - p2.getX();
+			float r2y = c.position.y - p2.getY();
+			float r1r1 = (r1x * r1x) + (r1y * r1y);
+			float r2r2 = (r2x * r2x) + (r2y * r2y);
 
 			// Precompute normal mass, tangent mass, and bias.
-			float rn1 = r1.dot(c.normal);
-			float rn2 = r2.dot(c.normal);
-			float kNormal = body1.getInvMass() + body2.getInvMass();
-			kNormal += body1.getInvI() * (r1.dot(r1) - rn1 * rn1) + body2.getInvI() * (r2.dot(r2) - rn2 * rn2);
+			float rn1 = (r1x * nx) + (r1y * ny);
+			float rn2 = (r2x * nx) + (r2y * ny);
+			float kNormal = invMass1 + invMass2;
+			kNormal += invI1 * (r1r1 - rn1 * rn1) + invI2 * (r2r2 - rn2 * rn2);
 			c.massNormal = damping / kNormal;
 			
-			Vector2f tangent = MathUtil.cross(c.normal, 1.0f);
-			float rt1 = r1.dot(tangent);
-			float rt2 = r2.dot(tangent);
-			float kTangent = body1.getInvMass() + body2.getInvMass();
-			kTangent += body1.getInvI() * (r1.dot(r1) - rt1 * rt1) + body2.getInvI() * (r2.dot(r2) - rt2 * rt2);
+			// tangent = cross(normal, 1)
+			float tx = ny;
+			float ty = -nx;
+			float rt1 = (r1x * tx) + (r1y * ty);
+			float rt2 = (r2x * tx) + (r2y * ty);
+			float kTangent = invMass1 + invMass2;
+			kTangent += invI1 * (r1r1 - rt1 * rt1) + invI2 * (r2r2 - rt2 * rt2);
 			c.massTangent = damping / kTangent;
 
 			// Compute restitution
 			// Relative velocity at contact 
-			Vector2f relativeVelocity =  new Vector2f(body2.getVelocity());
-			relativeVelocity.add(MathUtil.cross(r2, body2.getAngularVelocity()));
-			relativeVelocity.sub(body1.getVelocity());
-			relativeVelocity.sub(MathUtil.cross(r1, body1.getAngularVelocity()));
+			ROVector2f v1 = body1.getVelocity();
+			ROVector2f v2 = body2.getVelocity();
+			float w1 = body1.getAngularVelocity();
+			float w2 = body2.getAngularVelocity();
+			float rvx = v2.getX() + w2 * r2y - v1.getX() - w1 * r1y;
+			float rvy = v2.getY() - w2 * r2x - v1.getY() + w1 * r1x;
 			
 			float combinedRestitution = (body1.getRestitution() * body2.getRestitution());
-			float relVel = c.normal.dot(relativeVelocity);
+			float relVel = (nx * rvx) + (ny * rvy);
 			c.restitution = combinedRestitution * -relVel;
 			c.restitution = Math.max(c.restitution, 0);
 			
 			float penVel = -c.separation / dt;
-			if (c.restitution >= penVel) {
+			if (!biased || (c.restitution >= penVel)) {
 				c.bias = 0; 
 			} else {
 				c.bias = -biasFactor * invDT * Math.min(0.0f, c.separation + allowedPenetration);
@@ -284,144 +525,69 @@ public strictfp class Arbiter {
 			c.accumulatedNormalImpulse *= damping;
 			
 			// Apply normal + friction impulse
-			Vector2f impulse = MathUtil.scale(c.normal, c.accumulatedNormalImpulse);
-			impulse.add(MathUtil.scale(tangent, c.accumulatedTangentImpulse));
+			float px = nx * c.accumulatedNormalImpulse + tx * c.accumulatedTangentImpulse;
+			float py = ny * c.accumulatedNormalImpulse + ty * c.accumulatedTangentImpulse;
 			
-			body1.adjustVelocity(MathUtil.scale(impulse, -body1.getInvMass()));
-			body1.adjustAngularVelocity(-body1.getInvI() * MathUtil.cross(r1, impulse));
-
-			body2.adjustVelocity(MathUtil.scale(impulse, body2.getInvMass()));
-			body2.adjustAngularVelocity(body2.getInvI() * MathUtil.cross(r2, impulse));
+			if (move1) {
+				body1.adjustVelocity(px * -invMass1, py * -invMass1);
+				body1.adjustAngularVelocity(-invI1 * (r1x * py - r1y * px));
+			}
+			if (move2) {
+				body2.adjustVelocity(px * invMass2, py * invMass2);
+				body2.adjustAngularVelocity(invI2 * (r2x * py - r2y * px));
+			}
 			
 			// rest bias
 			c.biasImpulse = 0;
 		}
+		
+		blockSolve = false;
+		this.damping = damping;
+		this.biased = biased;
+		if ((numContacts == 2) && blockSolveEnabled) {
+			prepareBlock(invMass1, invMass2, invI1, invI2);
+		}
 	}
 	
-//	private static Vector2f r1 = new Vector2f();
-//	private static Vector2f r2 = new Vector2f();
-//	private static Vector2f relativeVelocity = new Vector2f();
-//	private static Vector2f impulse = new Vector2f();
-//	private static Vector2f Pb = new Vector2f();
-//	private static Vector2f tmp = new Vector2f();
-//	
-//	/**
-//	 * Apply the impulse accumlated at the contact points maintained
-//	 * by this arbiter.
-//	 */
-//	void applyImpulse() {
-//		Body b1 = body1;
-//		Body b2 = body2;
-//		
-//		for (int i = 0; i < numContacts; ++i)
-//		{
-//			Contact c = contacts[i];
-//			
-//			r1.set(c.position);
-//			r1.sub(b1.getPosition());
-//			r2.set(c.position);
-//			r2.sub(b2.getPosition());
-//
-//			// Relative velocity at contact
-//			relativeVelocity.set(b2.getVelocity());
-//			relativeVelocity.add(MathUtil.cross(b2.getAngularVelocity(), r2));
-//			relativeVelocity.sub(b1.getVelocity());
-//			relativeVelocity.sub(MathUtil.cross(b1.getAngularVelocity(), r1));
-//			
-//			// Compute normal impulse with bias.
-//			float vn = relativeVelocity.dot(c.normal);
-//			
-//			// bias caculations are now handled seperately hence we only
-//			// handle the real impulse caculations here
-//			//float normalImpulse = c.massNormal * ((c.restitution - vn) + c.bias);
-//			float normalImpulse = c.massNormal * (c.restitution - vn);
-//			
-//			// Clamp the accumulated impulse
-//			float oldNormalImpulse = c.accumulatedNormalImpulse;
-//			c.accumulatedNormalImpulse = Math.max(oldNormalImpulse + normalImpulse, 0.0f);
-//			normalImpulse = c.accumulatedNormalImpulse - oldNormalImpulse;
-//			
-//			if (normalImpulse != 0) {
-//				// Apply contact impulse
-//				impulse.set(c.normal);
-//				impulse.scale(normalImpulse);
-//				
-//				tmp.set(impulse);
-//				tmp.scale(-b1.getInvMass());
-//				b1.adjustVelocity(tmp);
-//				b1.adjustAngularVelocity(-(b1.getInvI() * MathUtil.cross(r1, impulse)));
-//	
-//				tmp.set(impulse);
-//				tmp.scale(b2.getInvMass());
-//				b2.adjustVelocity(tmp);
-//				b2.adjustAngularVelocity(b2.getInvI() * MathUtil.cross(r2, impulse));
-//			}
-//			
-//			// Compute bias impulse
-//			// NEW STUFF FOR SEPERATING BIAS
-//			relativeVelocity.set(b2.getBiasedVelocity());
-//			relativeVelocity.add(MathUtil.cross(b2.getBiasedAngularVelocity(), r2));
-//			relativeVelocity.sub(b1.getBiasedVelocity());
-//			relativeVelocity.sub(MathUtil.cross(b1.getBiasedAngularVelocity(), r1));
-//			float vnb = relativeVelocity.dot(c.normal);
-//
-//			float biasImpulse = c.massNormal * (-vnb + c.bias);
-//			float oldBiasImpulse = c.biasImpulse;
-//			c.biasImpulse = Math.max(oldBiasImpulse + biasImpulse, 0.0f);
-//			biasImpulse = c.biasImpulse - oldBiasImpulse;
-//
-//			if (biasImpulse != 0) {
-//				Pb.set(c.normal);
-//				Pb.scale(biasImpulse);
-//				
-//				tmp.set(Pb);
-//				tmp.scale(-b1.getInvMass());
-//				b1.adjustBiasedVelocity(tmp);
-//				b1.adjustBiasedAngularVelocity(-(b1.getInvI() * MathUtil.cross(r1, Pb)));
-//	
-//				tmp.set(Pb);
-//				tmp.scale(b2.getInvMass());
-//				b2.adjustBiasedVelocity(tmp);
-//				b2.adjustBiasedAngularVelocity((b2.getInvI() * MathUtil.cross(r2, Pb)));
-//			}
-//			// END NEW STUFF
-//			
-//			//
-//			// Compute friction (tangent) impulse
-//			//
-//			float maxTangentImpulse = friction * c.accumulatedNormalImpulse;
-//
-//			// Relative velocity at contact
-//			relativeVelocity.set(b2.getVelocity());
-//			relativeVelocity.add(MathUtil.cross(b2.getAngularVelocity(), r2));
-//			relativeVelocity.sub(b1.getVelocity());
-//			relativeVelocity.sub(MathUtil.cross(b1.getAngularVelocity(), r1));
-//			
-//			Vector2f tangent = MathUtil.cross(c.normal, 1.0f);
-//			float vt = relativeVelocity.dot(tangent);
-//			float tangentImpulse = c.massTangent * (-vt);
-//
-//			// Clamp friction
-//			float oldTangentImpulse = c.accumulatedTangentImpulse;
-//			c.accumulatedTangentImpulse = MathUtil.clamp(oldTangentImpulse + tangentImpulse, -maxTangentImpulse, maxTangentImpulse);
-//			tangentImpulse = c.accumulatedTangentImpulse - oldTangentImpulse;
-//
-//			// Apply contact impulse
-//			if ((tangentImpulse > 0.1f) || (tangentImpulse < -0.1f)) {
-//				impulse = MathUtil.scale(tangent, tangentImpulse);
-//	
-//				tmp.set(impulse);
-//				tmp.scale(-b1.getInvMass());
-//				b1.adjustVelocity(tmp);
-//				b1.adjustAngularVelocity(-b1.getInvI() * MathUtil.cross(r1, impulse));
-//	
-//				tmp.set(impulse);
-//				tmp.scale(b2.getInvMass());
-//				b2.adjustVelocity(tmp);
-//				b2.adjustAngularVelocity(b2.getInvI() * MathUtil.cross(r2, impulse));
-//			}
-//		}
-//	}
+	/**
+	 * Work out whether the two contacts of this arbiter can be resolved 
+	 * together as a block, and if so the effective mass matrix that couples
+	 * them. Solving the pair together stops the impulse see-sawing between
+	 * the corners of a box resting on a face, so stacks settle in far fewer
+	 * iterations. When the matrix is close to singular, for instance when 
+	 * the two points are nearly on top of each other, the contacts are 
+	 * resolved one after the other as before.
+	 * 
+	 * @param invMass1 The inverse mass of the first body
+	 * @param invMass2 The inverse mass of the second body
+	 * @param invI1 The inverse inertia of the first body
+	 * @param invI2 The inverse inertia of the second body
+	 */
+	private void prepareBlock(float invMass1, float invMass2, float invI1, float invI2) {
+		ROVector2f p1 = body1.getPosition();
+		ROVector2f p2 = body2.getPosition();
+		Contact c1 = contacts[0];
+		Contact c2 = contacts[1];
+		
+		float rn1a = ((c1.position.x - p1.getX()) * c1.normal.y) - ((c1.position.y - p1.getY()) * c1.normal.x);
+		float rn2a = ((c1.position.x - p2.getX()) * c1.normal.y) - ((c1.position.y - p2.getY()) * c1.normal.x);
+		float rn1b = ((c2.position.x - p1.getX()) * c2.normal.y) - ((c2.position.y - p1.getY()) * c2.normal.x);
+		float rn2b = ((c2.position.x - p2.getX()) * c2.normal.y) - ((c2.position.y - p2.getY()) * c2.normal.x);
+		float nn = (c1.normal.x * c2.normal.x) + (c1.normal.y * c2.normal.y);
+		
+		float invMass = invMass1 + invMass2;
+		k11 = invMass + (invI1 * rn1a * rn1a) + (invI2 * rn2a * rn2a);
+		k22 = invMass + (invI1 * rn1b * rn1b) + (invI2 * rn2b * rn2b);
+		k12 = (invMass * nn) + (invI1 * rn1a * rn1b) + (invI2 * rn2a * rn2b);
+		
+		float det = (k11 * k22) - (k12 * k12);
+		if ((k11 * k11) < MAX_CONDITION * det) {
+			blockSolve = true;
+			blockMass11 = k22 / det;
+			blockMass12 = -k12 / det;
+			blockMass22 = k11 / det;
+		}
+	}
 
 	/**
 	 * Apply the impulse accumlated at the contact points maintained
@@ -433,26 +599,60 @@ public strictfp class Arbiter {
 		// rest
 		float restResponseImpulse = 5;
 		
+		if (blockSolve) {
+			float change = applyBlockImpulse(false, null);
+			for (int i = 0; i < 2; ++i) {
+				Contact c = contacts[i];
+				if ((c.accumulatedNormalImpulse / body1.getMass() < restResponseImpulse) &&
+				   (c.accumulatedNormalImpulse / body2.getMass() < restResponseImpulse)) {
+					c.restitution = 0;
+				}
+			}
+			if (biased) {
+				change = Math.max(change, applyBlockImpulse(true, null));
+			}
+			for (int i = 0; i < 2; ++i) {
+				change = Math.max(change, Math.abs(applyFrictionImpulse(contacts[i])));
+			}
+			
+			impulseChange = change;
+			return;
+		}
+		
 		Body b1 = body1;
 		Body b2 = body2;
 		
+		ROVector2f p1 = b1.getPosition();
+		ROVector2f p2 = b2.getPosition();
+		float invMass1 = b1.getInvMass();
+		float invMass2 = b2.getInvMass();
+		float invI1 = b1.getInvI();
+		float invI2 = b2.getInvI();
+		boolean move1 = !b1.isShared();
+		boolean move2 = !b2.isShared();
+		float change = 0;
+		
 		for (int i = 0; i < numContacts; ++i)
 		{
 			Contact c = contacts[i];
 			
-			Vector2f r1 = new Vector2f(c.position);
-			r1.sub(b1.getPosition());
-			Vector2f r2 = new Vector2f(c.position);
-			r2.sub(b2.getPosition());
+			float nx = c.normal.x;
+			float ny = c.normal.y;
+			float r1x = c.position.x - p1.getX();
+			float r1y = c.position.y - p1.getY();
+			float r2x = c.position.x - p2.getX();
+			float r2y = c.position.y - p2.getY();
 
 			// Relative velocity at contact
-			Vector2f relativeVelocity =  new Vector2f(b2.getVelocity());
-			relativeVelocity.add(MathUtil.cross(b2.getAngularVelocity(), r2));
-			relativeVelocity.sub(b1.getVelocity());
-			relativeVelocity.sub(MathUtil.cross(b1.getAngularVelocity(), r1));
+			ROVector2f v1 = b1.getVelocity();
+			ROVector2f v2 = b2.getVelocity();
+			float w1 = b1.getAngularVelocity();
+			float w2 = b2.getAngularVelocity();
+			float rvx = v2.getX() - w2 * r2y - v1.getX() + w1 * r1y;
+			float rvy = v2.getY() + w2 * r2x - v1.getY() - w1 * r1x;
 			
 			// Compute normal impulse with bias.
-			float vn = relativeVelocity.dot(c.normal);
+			float vn = (rvx * nx) + (rvy * ny);
 			
 			// bias caculations are now handled seperately hence we only
 			// handle the real impulse caculations here
@@ -465,14 +665,17 @@ public strictfp class Arbiter {
 			normalImpulse = c.accumulatedNormalImpulse - oldNormalImpulse;
 			
 			// Apply contact impulse
-			Vector2f impulse = MathUtil.scale(c.normal, normalImpulse);
+			float px = nx * normalImpulse;
+			float py = ny * normalImpulse;
 			
-			Vector2f temp = new Vector2f();
-			b1.adjustVelocity(MathUtil.scale(impulse, -b1.getInvMass(), temp));
-			b1.adjustAngularVelocity(-(b1.getInvI() * MathUtil.cross(r1, impulse)));
-
-			b2.adjustVelocity(MathUtil.scale(impulse, b2.getInvMass(), temp));
-			b2.adjustAngularVelocity(b2.getInvI() * MathUtil.cross(r2, impulse));
+			if (move1) {
+				b1.adjustVelocity(px * -invMass1, py * -invMass1);
+				b1.adjustAngularVelocity(-(invI1 * (r1x * py - r1y * px)));
+			}
+			if (move2) {
+				b2.adjustVelocity(px * invMass2, py * invMass2);
+				b2.adjustAngularVelocity(invI2 * (r2x * py - r2y * px));
+			}
 
 			// skip factors if the accumulated normal impulse is lower than tolerance
 			// this tolerance should be calculated on something else, but can't work out
@@ -484,55 +687,574 @@ public strictfp class Arbiter {
 			
 			// Compute bias impulse
 			// NEW STUFF FOR SEPERATING BIAS
-			relativeVelocity.set(b2.getBiasedVelocity());
-			relativeVelocity.add(MathUtil.cross(b2.getBiasedAngularVelocity(), r2));
-			relativeVelocity.sub(b1.getBiasedVelocity());
-			relativeVelocity.sub(MathUtil.cross(b1.getBiasedAngularVelocity(), r1));
-			float vnb = relativeVelocity.dot(c.normal);
-
-			float biasImpulse = c.massNormal * (-vnb + c.bias);
-			float oldBiasImpulse = c.biasImpulse;
-			c.biasImpulse = Math.max(oldBiasImpulse + biasImpulse, 0.0f);
-			biasImpulse = c.biasImpulse - oldBiasImpulse;
+			float biasImpulse = 0;
+			if (biased) {
+				ROVector2f vb1 = b1.getBiasedVelocity();
+				ROVector2f vb2 = b2.getBiasedVelocity();
+				float wb1 = b1.getBiasedAngularVelocity();
+				float wb2 = b2.getBiasedAngularVelocity();
+				rvx = vb2.getX() - wb2 * r2y - vb1.getX() + wb1 * r1y;
+				rvy = vb2.getY() + wb2 * r2x - vb1.getY() - wb1 * r1x;
+				float vnb = (rvx * nx) + (rvy * ny);
+				
+				biasImpulse = c.massNormal * (-vnb + c.bias);
+				float oldBiasImpulse = c.biasImpulse;
+				c.biasImpulse = Math.max(oldBiasImpulse + biasImpulse, 0.0f);
+				biasImpulse = c.biasImpulse - oldBiasImpulse;
+				
+				float pbx = nx * biasImpulse;
+				float pby = ny * biasImpulse;
+				
+				if (move1) {
+					b1.adjustBiasedVelocity(pbx * -invMass1, pby * -invMass1);
+					b1.adjustBiasedAngularVelocity(-(invI1 * (r1x * pby - r1y * pbx)));
+				}
+				if (move2) {
+					b2.adjustBiasedVelocity(pbx * invMass2, pby * invMass2);
+					b2.adjustBiasedAngularVelocity((invI2 * (r2x * pby - r2y * pbx)));
+				}
+			}
 
-			Vector2f Pb = MathUtil.scale(c.normal, biasImpulse);
+			// END NEW STUFF
 			
-			b1.adjustBiasedVelocity(MathUtil.scale(Pb, -b1.getInvMass(), temp));
-			b1.adjustBiasedAngularVelocity(-(b1.getInvI() * MathUtil.cross(r1, Pb)));
+			float tangentImpulse = applyFrictionImpulse(c);
+			
+			change = Math.max(change, Math.max(Math.abs(normalImpulse), 
+						Math.max(Math.abs(biasImpulse), Math.abs(tangentImpulse))));
+		}
+		
+		impulseChange = change;
+	}
+	
+	/**
+	 * Apply one iteration of friction impulse to a contact
+	 * 
+	 * @param c The contact to resolve
+	 * @return The change made to the accumulated tangent impulse
+	 */
+	private float applyFrictionImpulse(Contact c) {
+		Body b1 = body1;
+		Body b2 = body2;
+		
+		ROVector2f p1 = b1.getPosition();
+		ROVector2f p2 = b2.getPosition();
+		float invMass1 = b1.getInvMass();
+		float invMass2 = b2.getInvMass();
+		float invI1 = b1.getInvI();
+		float invI2 = b2.getInvI();
+		boolean move1 = !b1.isShared();
+		boolean move2 = !b2.isShared();
+		
+		float nx = c.normal.x;
+		float ny = c.normal.y;
+		float r1x = c.position.x - p1.getX();
+		float r1y = c.position.y - p1.getY();
+		float r2x = c.position.x - p2.getX();
+		float r2y = c.position.y - p2.getY();
+		
+		float maxTangentImpulse = friction * c.accumulatedNormalImpulse;
+
+		// Relative velocity at contact
+		ROVector2f v1 = b1.getVelocity();
+		ROVector2f v2 = b2.getVelocity();
+		float w1 = b1.getAngularVelocity();
+		float w2 = b2.getAngularVelocity();
+		float rvx = v2.getX() - w2 * r2y - v1.getX() + w1 * r1y;
+		float rvy = v2.getY() + w2 * r2x - v1.getY() - w1 * r1x;
+		
+		// tangent = cross(normal, 1)
+		float tx = ny;
+		float ty = -nx;
+		float vt = (rvx * tx) + (rvy * ty);
+		float tangentImpulse = c.massTangent * (-vt);
 
-			b2.adjustBiasedVelocity(MathUtil.scale(Pb, b2.getInvMass(), temp));
-			b2.adjustBiasedAngularVelocity((b2.getInvI() * MathUtil.cross(r2, Pb)));
+		// Clamp friction
+		float oldTangentImpulse = c.accumulatedTangentImpulse;
+		c.accumulatedTangentImpulse = MathUtil.clamp(oldTangentImpulse + tangentImpulse, -maxTangentImpulse, maxTangentImpulse);
+		tangentImpulse = c.accumulatedTangentImpulse - oldTangentImpulse;
 
-			// END NEW STUFF
+		// Apply contact impulse
+		float px = tx * tangentImpulse;
+		float py = ty * tangentImpulse;
+		
+		if (move1) {
+			b1.adjustVelocity(px * -invMass1, py * -invMass1);
+			b1.adjustAngularVelocity(-invI1 * (r1x * py - r1y * px));
+		}
+		if (move2) {
+			b2.adjustVelocity(px * invMass2, py * invMass2);
+			b2.adjustAngularVelocity(invI2 * (r2x * py - r2y * px));
+		}
+		
+		return tangentImpulse;
+	}
+	
+	/**
+	 * Apply one iteration of normal impulse to both contacts at once. The
+	 * accumulated impulses have to stay positive, so this is a two variable 
+	 * linear complementarity problem. It's solved by trying each of the four
+	 * combinations of contacts pushing or not in turn and taking the first
+	 * that's consistent - either both push, only one of them does or neither
+	 * does because the bodies are separating at both points.
+	 * 
+	 * @param biased True if the bias impulse that pushes the bodies apart 
+	 * should be resolved, false for the impulse that stops them approaching
+	 * @param fixed The body to treat as immovable, or null if both move
+	 * @return The largest change made to an accumulated impulse
+	 */
+	private float applyBlockImpulse(boolean biased, Body fixed) {
+		Body b1 = body1;
+		Body b2 = body2;
+		Contact c1 = contacts[0];
+		Contact c2 = contacts[1];
+		
+		ROVector2f p1 = b1.getPosition();
+		ROVector2f p2 = b2.getPosition();
+		float invMass1 = b1 == fixed ? 0 : b1.getInvMass();
+		float invMass2 = b2 == fixed ? 0 : b2.getInvMass();
+		float invI1 = b1 == fixed ? 0 : b1.getInvI();
+		float invI2 = b2 == fixed ? 0 : b2.getInvI();
+		boolean move1 = (b1 != fixed) && !b1.isShared();
+		boolean move2 = (b2 != fixed) && !b2.isShared();
+		
+		float r1ax = c1.position.x - p1.getX();
+		float r1ay = c1.position.y - p1.getY();
+		float r2ax = c1.position.x - p2.getX();
+		float r2ay = c1.position.y - p2.getY();
+		float r1bx = c2.position.x - p1.getX();
+		float r1by = c2.position.y - p1.getY();
+		float r2bx = c2.position.x - p2.getX();
+		float r2by = c2.position.y - p2.getY();
+		
+		ROVector2f v1 = biased ? b1.getBiasedVelocity() : b1.getVelocity();
+		ROVector2f v2 = biased ? b2.getBiasedVelocity() : b2.getVelocity();
+		float w1 = biased ? b1.getBiasedAngularVelocity() : b1.getAngularVelocity();
+		float w2 = biased ? b2.getBiasedAngularVelocity() : b2.getAngularVelocity();
+		
+		// relative velocity along the normal at each contact
+		float rvx = v2.getX() - w2 * r2ay - v1.getX() + w1 * r1ay;
+		float rvy = v2.getY() + w2 * r2ax - v1.getY() - w1 * r1ax;
+		float vn1 = (rvx * c1.normal.x) + (rvy * c1.normal.y);
+		rvx = v2.getX() - w2 * r2by - v1.getX() + w1 * r1by;
+		rvy = v2.getY() + w2 * r2bx - v1.getY() - w1 * r1bx;
+		float vn2 = (rvx * c2.normal.x) + (rvy * c2.normal.y);
+		
+		float a1 = biased ? c1.biasImpulse : c1.accumulatedNormalImpulse;
+		float a2 = biased ? c2.biasImpulse : c2.accumulatedNormalImpulse;
+		float t1 = biased ? c1.bias : c1.restitution;
+		float t2 = biased ? c2.bias : c2.restitution;
+		
+		// the velocity that would remain with no impulse at either contact
+		float bx = vn1 - t1 - ((k11 * a1) + (k12 * a2));
+		float by = vn2 - t2 - ((k12 * a1) + (k22 * a2));
+		
+		// both contacts push
+		float x1 = -((blockMass11 * bx) + (blockMass12 * by));
+		float x2 = -((blockMass12 * bx) + (blockMass22 * by));
+		if ((x1 < 0) || (x2 < 0)) {
+			// only the first contact pushes
+			x1 = -bx / k11;
+			x2 = 0;
+			if ((x1 < 0) || ((k12 * x1) + by < 0)) {
+				// only the second contact pushes
+				x1 = 0;
+				x2 = -by / k22;
+				if ((x2 < 0) || ((k12 * x2) + bx < 0)) {
+					// neither pushes, or no consistent solution in which
+					// case the impulses are left as they are
+					x1 = 0;
+					x2 = 0;
+					if ((bx < 0) || (by < 0)) {
+						return 0;
+					}
+				}
+			}
+		}
+		
+		// damping holds back part of each change as it does for single contacts
+		float d1 = damping * (x1 - a1);
+		float d2 = damping * (x2 - a2);
+		
+		float p1x = c1.normal.x * d1;
+		float p1y = c1.normal.y * d1;
+		float p2x = c2.normal.x * d2;
+		float p2y = c2.normal.y * d2;
+		float px = p1x + p2x;
+		float py = p1y + p2y;
+		float ang1 = (r1ax * p1y - r1ay * p1x) + (r1bx * p2y - r1by * p2x);
+		float ang2 = (r2ax * p1y - r2ay * p1x) + (r2bx * p2y - r2by * p2x);
+		
+		if (biased) {
+			c1.biasImpulse = a1 + d1;
+			c2.biasImpulse = a2 + d2;
+			if (move1) {
+				b1.adjustBiasedVelocity(px * -invMass1, py * -invMass1);
+				b1.adjustBiasedAngularVelocity(-(invI1 * ang1));
+			}
+			if (move2) {
+				b2.adjustBiasedVelocity(px * invMass2, py * invMass2);
+				b2.adjustBiasedAngularVelocity(invI2 * ang2);
+			}
+		} else {
+			c1.accumulatedNormalImpulse = a1 + d1;
+			c2.accumulatedNormalImpulse = a2 + d2;
+			if (move1) {
+				b1.adjustVelocity(px * -invMass1, py * -invMass1);
+				b1.adjustAngularVelocity(-(invI1 * ang1));
+			}
+			if (move2) {
+				b2.adjustVelocity(px * invMass2, py * invMass2);
+				b2.adjustAngularVelocity(invI2 * ang2);
+			}
+		}
+		
+		return Math.max(Math.abs(d1), Math.abs(d2));
+	}
+	
+	/**
+	 * Move the contacts of this arbiter on by the motion of the bodies over
+	 * a sub-step, rather than running collision again. The separation 
+	 * changes by how fast the bodies are approaching along the normal at 
+	 * each point, and the point moves with the average of the two bodies.
+	 * 
+	 * @param dt The amount of time the bodies are about to be moved by
+	 */
+	void advanceContacts(float dt) {
+		ROVector2f p1 = body1.getPosition();
+		ROVector2f p2 = body2.getPosition();
+		
+		// the bodies move by both their velocity and biased velocity
+		float v1x = body1.getVelocity().getX() + body1.getBiasedVelocity().getX();
+		float v1y = body1.getVelocity().getY() + body1.getBiasedVelocity().getY();
+		float v2x = body2.getVelocity().getX() + body2.getBiasedVelocity().getX();
+		float v2y = body2.getVelocity().getY() + body2.getBiasedVelocity().getY();
+		float w1 = body1.getAngularVelocity() + body1.getBiasedAngularVelocity();
+		float w2 = body2.getAngularVelocity() + body2.getBiasedAngularVelocity();
+		
+		for (int i = 0; i < numContacts; ++i)
+		{
+			Contact c = contacts[i];
+			
+			float r1x = c.position.x - p1.getX();
+			float r1y = c.position.y - p1.getY();
+			float r2x = c.position.x - p2.getX();
+			float r2y = c.position.y - p2.getY();
+			
+			float pv1x = v1x - w1 * r1y;
+			float pv1y = v1y + w1 * r1x;
+			float pv2x = v2x - w2 * r2y;
+			float pv2y = v2y + w2 * r2x;
+			
+			c.separation += dt * (((pv2x - pv1x) * c.normal.x) + ((pv2y - pv1y) * c.normal.y));
+			c.position.x += dt * 0.5f * (pv1x + pv2x);
+			c.position.y += dt * 0.5f * (pv1y + pv2y);
+		}
+	}
+	
+	/**
+	 * Record where each contact sits on the two bodies, so that the 
+	 * separation can be worked out again from the transforms of the bodies
+	 * once they've moved. Must be called before the bodies are moved.
+	 */
+	void storeAnchors() {
+		ROVector2f p1 = body1.getPosition();
+		ROVector2f p2 = body2.getPosition();
+		Matrix2f rot1 = body1.getRotationMatrix();
+		Matrix2f rot2 = body2.getRotationMatrix();
+		
+		for (int i = 0; i < numContacts; ++i)
+		{
+			Contact c = contacts[i];
+			
+			// the transpose of the rotation takes the point into the body's frame
+			float r1x = c.position.x - p1.getX();
+			float r1y = c.position.y - p1.getY();
+			float r2x = c.position.x - p2.getX();
+			float r2y = c.position.y - p2.getY();
+			c.localAnchor1x = (rot1.col1.x * r1x) + (rot1.col1.y * r1y);
+			c.localAnchor1y = (rot1.col2.x * r1x) + (rot1.col2.y * r1y);
+			c.localAnchor2x = (rot2.col1.x * r2x) + (rot2.col1.y * r2y);
+			c.localAnchor2y = (rot2.col2.x * r2x) + (rot2.col2.y * r2y);
+			c.anchorSeparation = c.separation;
+		}
+	}
+	
+	/**
+	 * Apply one iteration of position correction to the contacts of this
+	 * arbiter. The separation at each contact is worked out again from the
+	 * current transforms of the bodies, and the bodies are moved directly 
+	 * to remove part of any penetration beyond that allowed. A pair of 
+	 * contacts is corrected together where it can be, so that a box resting
+	 * on a face isn't tipped by one corner being pushed out before the 
+	 * other.
+	 * 
+	 * @return True if no contact is penetrating by much more than is allowed
+	 */
+	boolean correctPositions() {
+		float invMass1 = body1.getInvMass();
+		float invMass2 = body2.getInvMass();
+		float invI1 = body1.getInvI();
+		float invI2 = body2.getInvI();
+		float invMass = invMass1 + invMass2;
+		
+		float minSeparation = 0;
+		for (int i = 0; i < numContacts; ++i)
+		{
+			loadPosition(i);
+			minSeparation = Math.min(minSeparation, positionSeparation[i]);
+		}
+		
+		if ((numContacts == 2) && blockSolveEnabled) {
+			float rn1a = (positionR1x[0] * contacts[0].normal.y) - (positionR1y[0] * contacts[0].normal.x);
+			float rn2a = (positionR2x[0] * contacts[0].normal.y) - (positionR2y[0] * contacts[0].normal.x);
+			float rn1b = (positionR1x[1] * contacts[1].normal.y) - (positionR1y[1] * contacts[1].normal.x);
+			float rn2b = (positionR2x[1] * contacts[1].normal.y) - (positionR2y[1] * contacts[1].normal.x);
+			float nn = (contacts[0].normal.x * contacts[1].normal.x) + (contacts[0].normal.y * contacts[1].normal.y);
+			
+			float k11 = invMass + (invI1 * rn1a * rn1a) + (invI2 * rn2a * rn2a);
+			float k22 = invMass + (invI1 * rn1b * rn1b) + (invI2 * rn2b * rn2b);
+			float k12 = (invMass * nn) + (invI1 * rn1a * rn1b) + (invI2 * rn2a * rn2b);
+			float det = (k11 * k22) - (k12 * k12);
+			
+			if ((k11 * k11) < MAX_CONDITION * det) {
+				float e1 = POSITION_CORRECTION * getPositionError(0);
+				float e2 = POSITION_CORRECTION * getPositionError(1);
+				float x1 = -((k22 * e1) - (k12 * e2)) / det;
+				float x2 = -((k11 * e2) - (k12 * e1)) / det;
+				
+				// if either point would have to be pulled together the pair 
+				// is corrected one point at a time instead
+				if ((x1 >= 0) && (x2 >= 0)) {
+					applyPositionImpulse(0, x1);
+					applyPositionImpulse(1, x2);
+					return minSeparation >= -3 * ALLOWED_PENETRATION;
+				}
+			}
+		}
+		
+		for (int i = 0; i < numContacts; ++i)
+		{
+			// earlier points have moved the bodies
+			if (i > 0) {
+				loadPosition(i);
+			}
+			
+			float rn1 = (positionR1x[i] * contacts[i].normal.y) - (positionR1y[i] * contacts[i].normal.x);
+			float rn2 = (positionR2x[i] * contacts[i].normal.y) - (positionR2y[i] * contacts[i].normal.x);
+			float k = invMass + (invI1 * rn1 * rn1) + (invI2 * rn2 * rn2);
+			float error = getPositionError(i);
+			if ((error != 0) && (k != 0)) {
+				applyPositionImpulse(i, -POSITION_CORRECTION * error / k);
+			}
+		}
+		
+		return minSeparation >= -3 * ALLOWED_PENETRATION;
+	}
+	
+	/**
+	 * Work out where a contact's anchors are on the bodies as they stand
+	 * and the separation along the normal between them
+	 * 
+	 * @param i The index of the contact to load
+	 */
+	private void loadPosition(int i) {
+		Contact c = contacts[i];
+		Matrix2f rot1 = body1.getRotationMatrix();
+		Matrix2f rot2 = body2.getRotationMatrix();
+		
+		float r1x = (rot1.col1.x * c.localAnchor1x) + (rot1.col2.x * c.localAnchor1y);
+		float r1y = (rot1.col1.y * c.localAnchor1x) + (rot1.col2.y * c.localAnchor1y);
+		float r2x = (rot2.col1.x * c.localAnchor2x) + (rot2.col2.x * c.localAnchor2y);
+		float r2y = (rot2.col1.y * c.localAnchor2x) + (rot2.col2.y * c.localAnchor2y);
+		positionR1x[i] = r1x;
+		positionR1y[i] = r1y;
+		positionR2x[i] = r2x;
+		positionR2y[i] = r2y;
+		
+		// the anchors started on top of each other, so the separation
+		// has changed by how far they've moved apart along the normal
+		float dx = (body2.getPosition().getX() + r2x) - (body1.getPosition().getX() + r1x);
+		float dy = (body2.getPosition().getY() + r2y) - (body1.getPosition().getY() + r1y);
+		positionSeparation[i] = (dx * c.normal.x) + (dy * c.normal.y) + c.anchorSeparation;
+	}
+	
+	/**
+	 * Get the penetration at a loaded contact beyond that allowed
+	 * 
+	 * @param i The index of the contact to check
+	 * @return The penetration to correct as a negative number, or zero if 
+	 * there's none
+	 */
+	private float getPositionError(int i) {
+		return MathUtil.clamp(positionSeparation[i] + ALLOWED_PENETRATION, -MAX_POSITION_CORRECTION, 0);
+	}
+	
+	/**
+	 * Move the bodies apart along the normal at a loaded contact
+	 * 
+	 * @param i The index of the contact to push apart
+	 * @param impulse The size of the positional impulse to apply
+	 */
+	private void applyPositionImpulse(int i, float impulse) {
+		float px = contacts[i].normal.x * impulse;
+		float py = contacts[i].normal.y * impulse;
+		float invMass1 = body1.getInvMass();
+		float invMass2 = body2.getInvMass();
+		
+		if (!body1.isShared()) {
+			body1.correctPosition(px * -invMass1, py * -invMass1, -body1.getInvI() * ((positionR1x[i] * py) - (positionR1y[i] * px)));
+		}
+		if (!body2.isShared()) {
+			body2.correctPosition(px * invMass2, py * invMass2, body2.getInvI() * ((positionR2x[i] * py) - (positionR2y[i] * px)));
+		}
+	}
+	
+	/**
+	 * Bring the contacts of this arbiter up to date with the bodies after
+	 * they've been moved, from the anchors stored before they moved
+	 */
+	void updateContacts() {
+		Matrix2f rot1 = body1.getRotationMatrix();
+		Matrix2f rot2 = body2.getRotationMatrix();
+		
+		for (int i = 0; i < numContacts; ++i)
+		{
+			Contact c = contacts[i];
+			
+			float x1 = body1.getPosition().getX() + (rot1.col1.x * c.localAnchor1x) + (rot1.col2.x * c.localAnchor1y);
+			float y1 = body1.getPosition().getY() + (rot1.col1.y * c.localAnchor1x) + (rot1.col2.y * c.localAnchor1y);
+			float x2 = body2.getPosition().getX() + (rot2.col1.x * c.localAnchor2x) + (rot2.col2.x * c.localAnchor2y);
+			float y2 = body2.getPosition().getY() + (rot2.col1.y * c.localAnchor2x) + (rot2.col2.y * c.localAnchor2y);
+			
+			c.separation = ((x2 - x1) * c.normal.x) + ((y2 - y1) * c.normal.y) + c.anchorSeparation;
+			c.position.x = (x1 + x2) * 0.5f;
+			c.position.y = (y1 + y2) * 0.5f;
+		}
+	}
+	
+	/**
+	 * Apply one last iteration of impulse to the contacts of this arbiter 
+	 * treating one of the bodies as if it had infinite mass. The body has 
+	 * already been resolved against everything beneath it, so only the
+	 * other body is moved.
+	 * 
+	 * @param fixed The body to treat as immovable
+	 * @param damping The percentage of energy to retain through out
+	 * collision. (1 = no loss, 0 = total loss)
+	 */
+	void applyShockImpulse(Body fixed, float damping) {
+		// the moving body is pushed along the normal if it's the second body
+		// and against it if it's the first
+		Body b = fixed == body1 ? body2 : body1;
+		float sign = fixed == body1 ? 1 : -1;
+		
+		ROVector2f p = b.getPosition();
+		float invMass = b.getInvMass();
+		float invI = b.getInvI();
+		
+		this.damping = damping;
+		blockSolve = false;
+		if ((numContacts == 2) && blockSolveEnabled) {
+			if (fixed == body1) {
+				prepareBlock(0, invMass, 0, invI);
+			} else {
+				prepareBlock(invMass, 0, invI, 0);
+			}
+		}
+		if (blockSolve) {
+			applyBlockImpulse(false, fixed);
+			if (biased) {
+				applyBlockImpulse(true, fixed);
+			}
+		}
+		
+		for (int i = 0; i < numContacts; ++i)
+		{
+			Contact c = contacts[i];
+			
+			float nx = c.normal.x;
+			float ny = c.normal.y;
+			float tx = ny;
+			float ty = -nx;
+			float rx = c.position.x - p.getX();
+			float ry = c.position.y - p.getY();
+			float r1x = c.position.x - body1.getPosition().getX();
+			float r1y = c.position.y - body1.getPosition().getY();
+			float r2x = c.position.x - body2.getPosition().getX();
+			float r2y = c.position.y - body2.getPosition().getY();
+			
+			float rr = (rx * rx) + (ry * ry);
+			float rn = (rx * nx) + (ry * ny);
+			float rt = (rx * tx) + (ry * ty);
+			float kNormal = invMass + (invI * (rr - rn * rn));
+			float kTangent = invMass + (invI * (rr - rt * rt));
+			if ((kNormal == 0) || (kTangent == 0)) {
+				continue;
+			}
+			
+			if (!blockSolve) {
+				float massNormal = damping / kNormal;
+				
+				// normal impulse
+				ROVector2f v1 = body1.getVelocity();
+				ROVector2f v2 = body2.getVelocity();
+				float w1 = body1.getAngularVelocity();
+				float w2 = body2.getAngularVelocity();
+				float rvx = v2.getX() - w2 * r2y - v1.getX() + w1 * r1y;
+				float rvy = v2.getY() + w2 * r2x - v1.getY() - w1 * r1x;
+				float vn = (rvx * nx) + (rvy * ny);
+				
+				float normalImpulse = massNormal * (c.restitution - vn);
+				float oldNormalImpulse = c.accumulatedNormalImpulse;
+				c.accumulatedNormalImpulse = Math.max(oldNormalImpulse + normalImpulse, 0.0f);
+				normalImpulse = (c.accumulatedNormalImpulse - oldNormalImpulse) * sign;
+				
+				float px = nx * normalImpulse;
+				float py = ny * normalImpulse;
+				b.adjustVelocity(px * invMass, py * invMass);
+				b.adjustAngularVelocity(invI * (rx * py - ry * px));
+				
+				// bias impulse
+				if (biased) {
+					ROVector2f vb1 = body1.getBiasedVelocity();
+					ROVector2f vb2 = body2.getBiasedVelocity();
+					float wb1 = body1.getBiasedAngularVelocity();
+					float wb2 = body2.getBiasedAngularVelocity();
+					rvx = vb2.getX() - wb2 * r2y - vb1.getX() + wb1 * r1y;
+					rvy = vb2.getY() + wb2 * r2x - vb1.getY() - wb1 * r1x;
+					float vnb = (rvx * nx) + (rvy * ny);
+					
+					float biasImpulse = massNormal * (-vnb + c.bias);
+					float oldBiasImpulse = c.biasImpulse;
+					c.biasImpulse = Math.max(oldBiasImpulse + biasImpulse, 0.0f);
+					biasImpulse = (c.biasImpulse - oldBiasImpulse) * sign;
+					
+					float pbx = nx * biasImpulse;
+					float pby = ny * biasImpulse;
+					b.adjustBiasedVelocity(pbx * invMass, pby * invMass);
+					b.adjustBiasedAngularVelocity(invI * (rx * pby - ry * pbx));
+				}
+			}
+			
+			// friction impulse
+			ROVector2f v1 = body1.getVelocity();
+			ROVector2f v2 = body2.getVelocity();
+			float w1 = body1.getAngularVelocity();
+			float w2 = body2.getAngularVelocity();
+			float rvx = v2.getX() - w2 * r2y - v1.getX() + w1 * r1y;
+			float rvy = v2.getY() + w2 * r2x - v1.getY() - w1 * r1x;
+			float vt = (rvx * tx) + (rvy * ty);
 			
-			//
-			// Compute friction (tangent) impulse
-			//
 			float maxTangentImpulse = friction * c.accumulatedNormalImpulse;
-
-			// Relative velocity at contact
-			relativeVelocity.set(b2.getVelocity());
-			relativeVelocity.add(MathUtil.cross(b2.getAngularVelocity(), r2));
-			relativeVelocity.sub(b1.getVelocity());
-			relativeVelocity.sub(MathUtil.cross(b1.getAngularVelocity(), r1));
-			
-			Vector2f tangent = MathUtil.cross(c.normal, 1.0f);
-			float vt = relativeVelocity.dot(tangent);
-			float tangentImpulse = c.massTangent * (-vt);
-
-			// Clamp friction
+			float tangentImpulse = (damping / kTangent) * (-vt);
 			float oldTangentImpulse = c.accumulatedTangentImpulse;
 			c.accumulatedTangentImpulse = MathUtil.clamp(oldTangentImpulse + tangentImpulse, -maxTangentImpulse, maxTangentImpulse);
-			tangentImpulse = c.accumulatedTangentImpulse - oldTangentImpulse;
-
-			// Apply contact impulse
-			impulse = MathUtil.scale(tangent, tangentImpulse);
+			tangentImpulse = (c.accumulatedTangentImpulse - oldTangentImpulse) * sign;
 			
-			b1.adjustVelocity(MathUtil.scale(impulse, -b1.getInvMass(), temp));
-			b1.adjustAngularVelocity(-b1.getInvI() * MathUtil.cross(r1, impulse));
-
-			b2.adjustVelocity(MathUtil.scale(impulse, b2.getInvMass(), temp));
-			b2.adjustAngularVelocity(b2.getInvI() * MathUtil.cross(r2, impulse));
+			float px = tx * tangentImpulse;
+			float py = ty * tangentImpulse;
+			b.adjustVelocity(px * invMass, py * invMass);
+			b.adjustAngularVelocity(invI * (rx * py - ry * px));
 		}
 	}
 	
@@ -40,16 +40,16 @@
  */
 package net.phys2d.raw;
 
-import java.util.ArrayList;
-
 /**
- * A typed list of <code>Arbiter</code>
+ * A typed list of <code>Arbiter</code>. The arbiters are indexed on the 
+ * pair of bodies they arbitrate so that finding, adding and removing an
+ * arbiter doesn't require a search of the list.
  * 
  * @author Kevin Glass
  */
 public class ArbiterList {
 	/** The elements in the list */
-	private ArrayList elements = new ArrayList();
+	private BodyPairMap elements = new BodyPairMap();
 	
 	/**
 	 * Create an empty list 
@@ -64,7 +64,7 @@ public class ArbiterList {
 	 * @param arbiter The arbiter to add
 	 */
 	void add(Arbiter arbiter) {
-		elements.add(arbiter);
+		elements.put(arbiter.getBody1(), arbiter.getBody2(), arbiter);
 	}
 	
 	/**
@@ -83,7 +83,7 @@ public class ArbiterList {
 	 * @return The index of -1 if not found
 	 */
 	public int indexOf(Arbiter arbiter) {
-		return elements.indexOf(arbiter);
+		return elements.indexOf(BodyPairMap.getKey(arbiter.getBody1(), arbiter.getBody2()));
 	}
 	
 	/**
@@ -92,11 +92,7 @@ public class ArbiterList {
 	 * @param arbiter The arbiter ot remove from the list
 	 */
 	void remove(Arbiter arbiter) {
-		if (!elements.contains(arbiter)) {
-			return;
-		}
-		elements.set(elements.indexOf(arbiter), elements.get(elements.size()-1));
-		elements.remove(elements.size()-1);
+		elements.remove(BodyPairMap.getKey(arbiter.getBody1(), arbiter.getBody2()));
 	}
 	
 	/**
@@ -106,7 +102,7 @@ public class ArbiterList {
 	 * @return The arbiter at the specified index
 	 */
 	public Arbiter get(int i) {
-		return (Arbiter) elements.get(i);
+		return (Arbiter) elements.getValue(i);
 	}
 	
 	/**
@@ -123,6 +119,6 @@ public class ArbiterList {
 	 * @return True if the arbiter is in the list
 	 */
 	public boolean contains(Arbiter arb) {
-		return elements.contains(arb);
+		return indexOf(arb) >= 0;
 	}
 }
@@ -42,9 +42,13 @@ package net.phys2d.raw;
 
 import java.util.ArrayList;
 
+import net.phys2d.math.Matrix2f;
 import net.phys2d.math.ROVector2f;
 import net.phys2d.math.Vector2f;
+import net.phys2d.raw.shapes.Box;
 import net.phys2d.raw.shapes.DynamicShape;
+import net.phys2d.raw.shapes.Line;
+import net.phys2d.raw.shapes.Polygon;
 import net.phys2d.raw.shapes.Shape;
 
 /**
@@ -154,10 +158,31 @@ public strictfp class Body {
 	
 	/** True if this body has been added to the simulation */
 	private boolean added = false;
+	/** The first of the arbiters held for pairs involving this body */
+	private Arbiter firstArbiter;
 	
 	/** The maximum velocity the the body can travel at on each axis */
 	private Vector2f maxVelocity;
 	
+	/** The number of times the position, rotation or shape of this body has changed */
+	private int transformVersion;
+	/** The matrix describing the current rotation of this body */
+	private Matrix2f rotationMatrix = new Matrix2f();
+	/** The transform version the rotation matrix was built for */
+	private int rotationMatrixVersion = -1;
+	/** The vertices of the shape in world space, null if not yet required */
+	private Vector2f[] worldVertices;
+	/** The transform version the world vertices were built for */
+	private int worldVerticesVersion = -1;
+	/** The index of this body in the packed solver's arrays, -1 if not packed */
+	private int solverIndex = -1;
+	/** True if this body's island has been put to sleep */
+	private boolean sleeping;
+	/** The amount of time this body has been moving slowly enough to sleep */
+	private float sleepTime;
+	/** The index of this body while islands are being built, -1 otherwise */
+	private int islandIndex = -1;
+	
 	/**
 	 * Create a new un-named body
 	 * 
@@ -688,6 +713,7 @@ public strictfp class Body {
 
 		this.shape = shape;
 		setMass(m);
+		transformVersion++;
 	}
 
 	/**
@@ -697,6 +723,8 @@ public strictfp class Body {
 	 */
 	public void setShape(Shape shape) {
 		this.shape = shape;
+		transformVersion++;
+		wakeUp();
 	}
 	
 	/**
@@ -739,6 +767,8 @@ public strictfp class Body {
 	 */
 	public void setRotation(float rotation) {
 		this.rotation = rotation;
+		transformVersion++;
+		wakeUp();
 	}
 	
 	/**
@@ -813,6 +843,8 @@ public strictfp class Body {
 	public void setPosition(float x, float y) {
 		position.set(x,y);
 		lastPosition.set(x,y);
+		transformVersion++;
+		wakeUp();
 	}
 	
 	/**
@@ -826,6 +858,8 @@ public strictfp class Body {
 	public void move(float x, float y) {
 		lastPosition.set(position);
 		position.set(x,y);
+		transformVersion++;
+		wakeUp();
 	}
 	
 	/**
@@ -929,6 +963,7 @@ public strictfp class Body {
 		lastPosition.set(position);
 		position.x += delta.getX() * scale;
 		position.y += delta.getY() * scale;
+		transformVersion++;
 	}
 	
 	/**
@@ -941,6 +976,7 @@ public strictfp class Body {
 	public void adjustPosition(Vector2f delta) {
 		lastPosition.set(position);
 		position.add(delta);
+		transformVersion++;
 	}
 
 	/**
@@ -950,6 +986,100 @@ public strictfp class Body {
 	 */
 	public void adjustRotation(float delta) {
 		rotation += delta;
+		transformVersion++;
+	}
+	
+	/**
+	 * Nudge this body to correct the error in its position. Unlike 
+	 * adjustPosition() the last position is left alone, so the change in 
+	 * position over the step is still known.
+	 * 
+	 * @param dx The amount to move the body on the x axis
+	 * @param dy The amount to move the body on the y axis
+	 * @param rotation The amount to rotate the body by
+	 */
+	void correctPosition(float dx, float dy, float rotation) {
+		if (isMoveable()) {
+			position.x += dx;
+			position.y += dy;
+		}
+		if (isRotatable()) {
+			this.rotation += rotation;
+		}
+		transformVersion++;
+	}
+	
+	/**
+	 * Get the number of times the position, rotation or shape of this
+	 * body has changed. Anything derived from the transform of the body
+	 * is still valid as long as this value hasn't changed.
+	 * 
+	 * @return The version of the transform of this body
+	 */
+	public int getTransformVersion() {
+		return transformVersion;
+	}
+	
+	/**
+	 * Get the matrix describing the current rotation of this body. The 
+	 * matrix is only rebuilt when the rotation has changed and is shared
+	 * between callers so it should not be modified.
+	 * 
+	 * @return The rotation matrix of this body
+	 */
+	public Matrix2f getRotationMatrix() {
+		if (rotationMatrixVersion != transformVersion) {
+			rotationMatrix.set(rotation);
+			rotationMatrixVersion = transformVersion;
+		}
+		
+		return rotationMatrix;
+	}
+	
+	/**
+	 * Get the vertices of the shape of this body in world space. The
+	 * vertices are only recalculated when the body has been moved or 
+	 * rotated since the last call, so the colliders for each pair the
+	 * body takes part in can share them. The array is shared between
+	 * callers so neither it nor its vertices should be modified.
+	 * 
+	 * @return The world space vertices or null if the shape of this body
+	 * isn't a polygon, box or line
+	 */
+	public Vector2f[] getWorldVertices() {
+		if (worldVerticesVersion != transformVersion) {
+			if (shape instanceof Polygon) {
+				Polygon poly = (Polygon) shape;
+				poly.getVertices(position, rotation, getWorldVertices(poly.getVertexCount()));
+			} else if (shape instanceof Box) {
+				((Box) shape).getPoints(position, rotation, getWorldVertices(4));
+			} else if (shape instanceof Line) {
+				((Line) shape).getVertices(position, rotation, getWorldVertices(2));
+			} else {
+				worldVertices = null;
+			}
+			worldVerticesVersion = transformVersion;
+		}
+		
+		return worldVertices;
+	}
+	
+	/**
+	 * Get the array for the world space vertices, sized to the number of
+	 * vertices required
+	 * 
+	 * @param count The number of vertices required
+	 * @return The array to hold the world space vertices
+	 */
+	private Vector2f[] getWorldVertices(int count) {
+		if ((worldVertices == null) || (worldVertices.length != count)) {
+			worldVertices = new Vector2f[count];
+			for (int i=0;i<count;i++) {
+				worldVertices[i] = new Vector2f();
+			}
+		}
+		
+		return worldVertices;
 	}
 	
 	/**
@@ -995,11 +1125,25 @@ public strictfp class Body {
 	 * @param delta The amount to change the velocity by
 	 */
 	public void adjustVelocity(Vector2f delta) {
+		adjustVelocity(delta.x, delta.y);
+	}
+	
+	/** 
+	 * Adjust the velocity of this body
+	 * 
+	 * @param dx The amount to change the velocity by on the x axis
+	 * @param dy The amount to change the velocity by on the y axis
+	 */
+	public void adjustVelocity(float dx, float dy) {
 		if (!isMoveable()) {
 			return;
 		}
+		if (sleeping) {
+			wakeUp();
+		}
 		lastVelocity.set(velocity);
-		velocity.add(delta);
+		velocity.x += dx;
+		velocity.y += dy;
 		
 		validateVelocity();
 	}
@@ -1013,6 +1157,9 @@ public strictfp class Body {
 		if (!isRotatable()) {
 			return;
 		}
+		if (sleeping) {
+			wakeUp();
+		}
 		lastAngularVelocity = angularVelocity;
 		angularVelocity += delta;
 	}
@@ -1051,6 +1198,7 @@ public strictfp class Body {
 	 */
 	public void addForce(Vector2f f) {
 		force.add(f);
+		wakeUp();
 	}
 	
 	/**
@@ -1062,6 +1210,18 @@ public strictfp class Body {
 		return invMass;
 	}
 	
+	/**
+	 * Check if this body has infinite mass. Such a body is never moved by
+	 * the simulation, so it's left out of the islands and may be touched
+	 * by any number of them at once. It must never be marked with an 
+	 * island or solver index.
+	 * 
+	 * @return True if this body has infinite mass
+	 */
+	boolean isShared() {
+		return invMass == 0.0f;
+	}
+	
 	/**
 	 * @see java.lang.Object#toString()
 	 */
@@ -1111,10 +1271,21 @@ public strictfp class Body {
 	 * @param delta The amount to change the velocity by
 	 */
 	public void adjustBiasedVelocity(Vector2f delta) {
+		adjustBiasedVelocity(delta.x, delta.y);
+	}
+	
+	/** 
+	 * Adjust the bias velocity of this body
+	 * 
+	 * @param dx The amount to change the velocity by on the x axis
+	 * @param dy The amount to change the velocity by on the y axis
+	 */
+	public void adjustBiasedVelocity(float dx, float dy) {
 		if (!isMoveable()) {
 			return;
 		}
-		biasedVelocity.add(delta);
+		biasedVelocity.x += dx;
+		biasedVelocity.y += dy;
 	}
 	
 	/** 
@@ -1197,6 +1368,25 @@ public strictfp class Body {
 		return added;
 	}
 	
+	/**
+	 * Get the first of the arbiters held for pairs involving this body. The
+	 * rest can be found by following <code>Arbiter.getNext(Body)</code>
+	 * 
+	 * @return The first arbiter or null if there are none
+	 */
+	Arbiter getFirstArbiter() {
+		return firstArbiter;
+	}
+	
+	/**
+	 * Set the first of the arbiters held for pairs involving this body
+	 * 
+	 * @param arbiter The first arbiter or null if there are none
+	 */
+	void setFirstArbiter(Arbiter arbiter) {
+		firstArbiter = arbiter;
+	}
+	
 	/**
 	 * Set the added to simulation flag
 	 * 
@@ -1217,6 +1407,136 @@ public strictfp class Body {
 		maxVelocity = new Vector2f(maxX, maxY);
 	}
 	
+	/**
+	 * Get the maximum velocity of this body
+	 * 
+	 * @return The maximum velocity or null if the velocity isn't limited
+	 */
+	ROVector2f getMaxVelocity() {
+		return maxVelocity;
+	}
+	
+	/**
+	 * Set the velocity state of this body as solved outside of the body, for
+	 * instance by the packed solver. No validation is applied.
+	 * 
+	 * @param vx The x component of the velocity
+	 * @param vy The y component of the velocity
+	 * @param w The angular velocity
+	 * @param lastVx The x component of the velocity before the last update
+	 * @param lastVy The y component of the velocity before the last update
+	 * @param lastW The angular velocity before the last update
+	 */
+	void setVelocityState(float vx, float vy, float w, float lastVx, float lastVy, float lastW) {
+		velocity.set(vx, vy);
+		angularVelocity = w;
+		lastVelocity.set(lastVx, lastVy);
+		lastAngularVelocity = lastW;
+	}
+	
+	/**
+	 * Set the bias velocity of this body as solved outside of the body
+	 * 
+	 * @param vx The x component of the bias velocity
+	 * @param vy The y component of the bias velocity
+	 * @param w The bias angular velocity
+	 */
+	void setBiasedVelocityState(float vx, float vy, float w) {
+		biasedVelocity.set(vx, vy);
+		biasedAngularVelocity = w;
+	}
+	
+	/**
+	 * Get the index of this body in the packed solver's arrays
+	 * 
+	 * @return The index of this body or -1 if it isn't currently packed
+	 */
+	int getSolverIndex() {
+		return solverIndex;
+	}
+	
+	/**
+	 * Set the index of this body in the packed solver's arrays
+	 * 
+	 * @param solverIndex The index of this body or -1 to mark it unpacked
+	 */
+	void setSolverIndex(int solverIndex) {
+		this.solverIndex = solverIndex;
+	}
+	
+	/**
+	 * Check if this body is asleep. A sleeping body is skipped by the 
+	 * simulation until something disturbs it or the island it rests in.
+	 * 
+	 * @return True if this body is asleep
+	 */
+	public boolean isSleeping() {
+		return sleeping;
+	}
+	
+	/**
+	 * Wake this body up if it's asleep. The rest of its island will
+	 * wake with it on the next step.
+	 */
+	public void wakeUp() {
+		if (sleeping) {
+			sleeping = false;
+			sleepTime = 0;
+		}
+	}
+	
+	/**
+	 * Put this body to sleep, stopping it dead
+	 */
+	void sleep() {
+		sleeping = true;
+		velocity.set(0,0);
+		angularVelocity = 0;
+		biasedVelocity.set(0,0);
+		biasedAngularVelocity = 0;
+	}
+	
+	/**
+	 * Update the amount of time this body has been moving slowly
+	 * enough to sleep
+	 * 
+	 * @param dt The amount of time that has passed
+	 * @param linearTolerance The square of the velocity under which the 
+	 * body is considered still
+	 * @param angularTolerance The square of the angular velocity under which
+	 * the body is considered still
+	 * @return The amount of time the body has been still for
+	 */
+	float updateSleepTime(float dt, float linearTolerance, float angularTolerance) {
+		if (!canRest() || (velocity.lengthSquared() > linearTolerance) || 
+			(angularVelocity * angularVelocity > angularTolerance)) {
+			sleepTime = 0;
+		} else {
+			sleepTime += dt;
+		}
+		
+		return sleepTime;
+	}
+	
+	/**
+	 * Get the index of this body while islands are being built
+	 * 
+	 * @return The index of this body or -1 if it's not part of an island
+	 */
+	int getIslandIndex() {
+		return islandIndex;
+	}
+	
+	/**
+	 * Set the index of this body while islands are being built
+	 * 
+	 * @param islandIndex The index of this body or -1 to mark it outside 
+	 * the islands
+	 */
+	void setIslandIndex(int islandIndex) {
+		this.islandIndex = islandIndex;
+	}
+	
 	/**
 	 * Validate the velocity value thats just been applied. Correct
 	 * it if it breaks any rules. The primary rule is maximum velocity
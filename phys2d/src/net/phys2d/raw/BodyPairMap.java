@@ -0,0 +1,383 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * A map from an unordered pair of bodies to an arbitrary value. The pair
+ * is keyed on the IDs of the two bodies packed into a single long so that
+ * lookups don't need to allocate a key object. 
+ * 
+ * The hash table uses open addressing with linear probing and only holds
+ * indices into a set of dense arrays where the entries themselves live. This
+ * means the entries can be iterated by index like the other typed lists and
+ * removing an entry simply moves the last entry into the hole left behind.
+ * Note that this means removal changes the order of iteration.
+ */
+public class BodyPairMap {
+	/** The initial number of slots in the hash table, must be a power of 2 */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/** The hash table, each slot holds a dense index + 1 or 0 if empty */
+	private int[] table;
+	/** The mask applied to hash values to find a slot */
+	private int mask;
+	/** The keys of the entries in the map */
+	private long[] keys;
+	/** The bodies with the lower ID in each entry */
+	private Body[] bodies1;
+	/** The bodies with the higher ID in each entry */
+	private Body[] bodies2;
+	/** The values stored against each entry */
+	private Object[] values;
+	/** The number of entries in the map */
+	private int size;
+	
+	/**
+	 * Create an empty map
+	 */
+	public BodyPairMap() {
+		table = new int[INITIAL_CAPACITY];
+		mask = INITIAL_CAPACITY - 1;
+		keys = new long[INITIAL_CAPACITY / 2];
+		bodies1 = new Body[INITIAL_CAPACITY / 2];
+		bodies2 = new Body[INITIAL_CAPACITY / 2];
+		values = new Object[INITIAL_CAPACITY / 2];
+	}
+	
+	/**
+	 * Get the key used to identify a pair of bodies. The key is the same
+	 * regardless of the order the bodies are given in.
+	 * 
+	 * @param a The first body in the pair
+	 * @param b The second body in the pair
+	 * @return The key identifying the pair 
+	 */
+	public static long getKey(Body a, Body b) {
+		int id1 = a.getID();
+		int id2 = b.getID();
+		
+		if (id1 > id2) {
+			return (((long) id2) << 32) | (id1 & 0xFFFFFFFFL);
+		}
+		return (((long) id1) << 32) | (id2 & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Get the slot in the hash table a key would ideally occupy
+	 * 
+	 * @param key The key to hash
+	 * @return The ideal slot for the key
+	 */
+	private int hash(long key) {
+		int h = (int) (key ^ (key >>> 32));
+		h *= 0x9E3779B9;
+		
+		return (h ^ (h >>> 16)) & mask;
+	}
+	
+	/**
+	 * Find the slot in the hash table holding a given key
+	 * 
+	 * @param key The key to search for
+	 * @return The slot holding the key or -1 if the key isn't present
+	 */
+	private int findSlot(long key) {
+		int slot = hash(key);
+		
+		while (table[slot] != 0) {
+			if (keys[table[slot] - 1] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Get the number of entries in the map
+	 * 
+	 * @return The number of entries in the map
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Get the index of a pair within the dense entry arrays
+	 * 
+	 * @param key The key of the pair, as given by {@link #getKey(Body, Body)}
+	 * @return The index of the pair or -1 if it's not in the map
+	 */
+	public int indexOf(long key) {
+		int slot = findSlot(key);
+		if (slot < 0) {
+			return -1;
+		}
+		
+		return table[slot] - 1;
+	}
+	
+	/**
+	 * Get the value stored against a pair of bodies
+	 * 
+	 * @param key The key of the pair, as given by {@link #getKey(Body, Body)}
+	 * @return The value stored or null if the pair isn't in the map
+	 */
+	public Object get(long key) {
+		int slot = findSlot(key);
+		if (slot < 0) {
+			return null;
+		}
+		
+		return values[table[slot] - 1];
+	}
+
+	/**
+	 * Get the value stored against a pair of bodies
+	 * 
+	 * @param a The first body in the pair
+	 * @param b The second body in the pair
+	 * @return The value stored or null if the pair isn't in the map
+	 */
+	public Object get(Body a, Body b) {
+		return get(getKey(a,b));
+	}
+	
+	/**
+	 * Store a value against a pair of bodies, replacing any value
+	 * already stored against the pair
+	 * 
+	 * @param a The first body in the pair
+	 * @param b The second body in the pair
+	 * @param value The value to store
+	 */
+	public void put(Body a, Body b, Object value) {
+		long key = getKey(a,b);
+		int slot = findSlot(key);
+		if (slot >= 0) {
+			values[table[slot] - 1] = value;
+			return;
+		}
+		
+		if ((size + 1) * 2 > table.length) {
+			grow();
+		}
+		
+		if (a.getID() > b.getID()) {
+			Body temp = a;
+			a = b;
+			b = temp;
+		}
+		
+		keys[size] = key;
+		bodies1[size] = a;
+		bodies2[size] = b;
+		values[size] = value;
+		size++;
+		
+		slot = hash(key);
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = size;
+	}
+	
+	/**
+	 * Remove a pair of bodies from the map
+	 * 
+	 * @param key The key of the pair, as given by {@link #getKey(Body, Body)}
+	 * @return The value that was stored against the pair or null if the pair
+	 * wasn't in the map
+	 */
+	public Object remove(long key) {
+		int slot = findSlot(key);
+		if (slot < 0) {
+			return null;
+		}
+		
+		Object value = values[table[slot] - 1];
+		removeSlot(slot);
+		
+		return value;
+	}
+	
+	/**
+	 * Remove a pair of bodies from the map
+	 * 
+	 * @param a The first body in the pair
+	 * @param b The second body in the pair
+	 * @return The value that was stored against the pair or null if the pair
+	 * wasn't in the map
+	 */
+	public Object remove(Body a, Body b) {
+		return remove(getKey(a,b));
+	}
+	
+	/**
+	 * Remove the entry at a given index. The last entry in the map
+	 * will be moved into the index given.
+	 * 
+	 * @param index The index of the entry to remove
+	 */
+	public void removeAt(int index) {
+		removeSlot(findSlot(keys[index]));
+	}
+	
+	/**
+	 * Remove the entry held in a given slot of the hash table
+	 * 
+	 * @param slot The slot in the hash table to clear
+	 */
+	private void removeSlot(int slot) {
+		int index = table[slot] - 1;
+		
+		// close the gap in the probe sequence by shifting back any
+		// entries that would have liked to live in this slot or earlier
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (table[next] != 0) {
+			int ideal = hash(keys[table[next] - 1]);
+			if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+				table[gap] = table[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		table[gap] = 0;
+		
+		// move the last entry into the hole in the dense arrays
+		int last = size - 1;
+		if (index != last) {
+			keys[index] = keys[last];
+			bodies1[index] = bodies1[last];
+			bodies2[index] = bodies2[last];
+			values[index] = values[last];
+			table[findSlot(keys[index])] = index + 1;
+		}
+		bodies1[last] = null;
+		bodies2[last] = null;
+		values[last] = null;
+		size--;
+	}
+	
+	/**
+	 * Double the size of the hash table and entry arrays
+	 */
+	private void grow() {
+		int capacity = table.length * 2;
+		
+		long[] newKeys = new long[capacity / 2];
+		Body[] newBodies1 = new Body[capacity / 2];
+		Body[] newBodies2 = new Body[capacity / 2];
+		Object[] newValues = new Object[capacity / 2];
+		System.arraycopy(keys, 0, newKeys, 0, size);
+		System.arraycopy(bodies1, 0, newBodies1, 0, size);
+		System.arraycopy(bodies2, 0, newBodies2, 0, size);
+		System.arraycopy(values, 0, newValues, 0, size);
+		keys = newKeys;
+		bodies1 = newBodies1;
+		bodies2 = newBodies2;
+		values = newValues;
+		
+		table = new int[capacity];
+		mask = capacity - 1;
+		for (int i=0;i<size;i++) {
+			int slot = hash(keys[i]);
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = i + 1;
+		}
+	}
+	
+	/**
+	 * Get the key of the entry at a given index
+	 * 
+	 * @param index The index of the entry 
+	 * @return The key of the entry
+	 */
+	public long getKey(int index) {
+		return keys[index];
+	}
+	
+	/**
+	 * Get the body with the lower ID in the entry at a given index
+	 * 
+	 * @param index The index of the entry 
+	 * @return The first body of the pair
+	 */
+	public Body getBody1(int index) {
+		return bodies1[index];
+	}
+
+	/**
+	 * Get the body with the higher ID in the entry at a given index
+	 * 
+	 * @param index The index of the entry 
+	 * @return The second body of the pair
+	 */
+	public Body getBody2(int index) {
+		return bodies2[index];
+	}
+	
+	/**
+	 * Get the value of the entry at a given index
+	 * 
+	 * @param index The index of the entry 
+	 * @return The value stored in the entry
+	 */
+	public Object getValue(int index) {
+		return values[index];
+	}
+	
+	/**
+	 * Remove all the entries from the map
+	 */
+	public void clear() {
+		for (int i=0;i<size;i++) {
+			bodies1[i] = null;
+			bodies2[i] = null;
+			values[i] = null;
+		}
+		for (int i=0;i<table.length;i++) {
+			table[i] = 0;
+		}
+		size = 0;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * A broad phase strategy that is also able to answer spatial queries 
+ * about the bodies it holds. Spaces will use these queries, when the 
+ * strategy supports them, in preference to checking every body. 
+ * <p>
+ * Queries may be answered from the state the strategy was left in by the
+ * last step, rather than bringing it up to date first. Bodies added or moved
+ * since the last step may then be missed.
+ */
+public interface BroadQueryStrategy extends BroadCollisionStrategy {
+	
+	/**
+	 * Find the bodies whose bounds might overlap a given region. The 
+	 * results may include some bodies that don't actually overlap the region
+	 * but must include all those that do.
+	 * 
+	 * @param bodies The complete list of bodies in the space
+	 * @param minx The lowest x coordinate of the region
+	 * @param miny The lowest y coordinate of the region
+	 * @param maxx The highest x coordinate of the region
+	 * @param maxy The highest y coordinate of the region
+	 * @param result The list to add the bodies found to
+	 */
+	public void queryRegion(BodyList bodies, float minx, float miny, float maxx, float maxy, BodyList result);
+	
+	/**
+	 * Find the bodies whose bounds might be crossed by a line segment. The
+	 * results may include some bodies that aren't actually crossed by the 
+	 * segment but must include all those that are.
+	 * 
+	 * @param bodies The complete list of bodies in the space
+	 * @param x1 The x coordinate of the start of the segment
+	 * @param y1 The y coordinate of the start of the segment
+	 * @param x2 The x coordinate of the end of the segment
+	 * @param y2 The y coordinate of the end of the segment
+	 * @param result The list to add the bodies found to
+	 */
+	public void queryRay(BodyList bodies, float x1, float y1, float x2, float y2, BodyList result);
+}
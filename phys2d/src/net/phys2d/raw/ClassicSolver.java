@@ -0,0 +1,156 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * The original solver, which resolves each arbiter and joint in turn by 
+ * applying impulses directly to the bodies involved.
+ */
+public strictfp class ClassicSolver implements ConstraintSolver {
+	
+	/**
+	 * @see net.phys2d.raw.ConstraintSolver#solve(net.phys2d.raw.ArbiterList, net.phys2d.raw.JointList, float, float, int, int, float, boolean, boolean, net.phys2d.raw.StepStats)
+	 */
+	public int solve(ArbiterList arbiters, JointList joints, float dt, float damping, int minIterations, int maxIterations, float tolerance, boolean biased, boolean restingBodyDetection, StepStats stats) {
+		float invDT = dt > 0.0f ? 1.0f / dt : 0.0f;
+		long time = (stats != null) ? stats.getTime() : 0;
+		
+		for (int i=0;i<arbiters.size();i++) {
+			Arbiter arb = arbiters.get(i);
+			if (!restingBodyDetection || !arb.hasRestingPair()) {
+				arb.preStep(invDT, dt, damping, biased);
+			}
+		}
+		if (stats != null) {
+			time = stats.addTimeSince(StepStats.ARBITER_PRE_STEP, time);
+		}
+		
+		for (int i = 0; i < joints.size(); ++i) {
+			Joint j = joints.get(i);
+			j.preStep(invDT);	
+		}
+		if (stats != null) {
+			time = stats.addTimeSince(StepStats.JOINT_PRE_STEP, time);
+		}
+		
+		boolean adaptive = minIterations < maxIterations;
+		for (int i = 0; i < maxIterations; ++i)
+		{
+			float change = 0;
+			for (int k=0;k<arbiters.size();k++) {
+				Arbiter arb = arbiters.get(k);
+				if (!restingBodyDetection || !arb.hasRestingPair()) {
+					arb.applyImpulse();
+					change = Math.max(change, arb.getImpulseChange());
+				} else {
+					arb.getBody1().collided(arb.getBody2());
+					arb.getBody2().collided(arb.getBody1());
+				}
+			}
+			
+			for (int k=0;k<joints.size();++k) {
+				Joint j = joints.get(k);
+				if (adaptive) {
+					change = Math.max(change, applyImpulse(j));
+				} else {
+					j.applyImpulse();
+				}
+			}
+			
+			if (adaptive && (i + 1 >= minIterations) && (change <= tolerance)) {
+				if (stats != null) {
+					stats.addTimeSince(StepStats.SOLVER, time);
+				}
+				return i + 1;
+			}
+		}
+		if (stats != null) {
+			stats.addTimeSince(StepStats.SOLVER, time);
+		}
+		
+		return maxIterations;
+	}
+	
+	/**
+	 * Apply one iteration of impulse to a joint, measuring the size of the
+	 * impulse from the change in momentum of the bodies it joins. Joints 
+	 * don't share a way of reporting their accumulated impulse but the 
+	 * impulse they apply shows up in the bodies.
+	 * 
+	 * @param joint The joint to resolve
+	 * @return The size of the impulse applied
+	 */
+	static float applyImpulse(Joint joint) {
+		Body b1 = joint.getBody1();
+		Body b2 = joint.getBody2();
+		float vx1 = b1.getVelocity().getX();
+		float vy1 = b1.getVelocity().getY();
+		float w1 = b1.getAngularVelocity();
+		float vx2 = b2.getVelocity().getX();
+		float vy2 = b2.getVelocity().getY();
+		float w2 = b2.getAngularVelocity();
+		
+		joint.applyImpulse();
+		
+		return Math.max(getImpulse(b1, vx1, vy1, w1), getImpulse(b2, vx2, vy2, w2));
+	}
+	
+	/**
+	 * Get the size of the impulse that changed a body's velocity from the
+	 * given state, linear or angular whichever is the larger
+	 * 
+	 * @param body The body to check
+	 * @param vx The x component of the velocity before the impulse
+	 * @param vy The y component of the velocity before the impulse
+	 * @param w The angular velocity before the impulse
+	 * @return The size of the impulse
+	 */
+	private static float getImpulse(Body body, float vx, float vy, float w) {
+		float impulse = 0;
+		if (body.getInvMass() > 0) {
+			float dx = body.getVelocity().getX() - vx;
+			float dy = body.getVelocity().getY() - vy;
+			impulse = (float) Math.sqrt((dx * dx) + (dy * dy)) / body.getInvMass();
+		}
+		if (body.getInvI() > 0) {
+			impulse = Math.max(impulse, Math.abs(body.getAngularVelocity() - w) / body.getInvI());
+		}
+		
+		return impulse;
+	}
+}
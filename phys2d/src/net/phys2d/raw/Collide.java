@@ -43,6 +43,8 @@ package net.phys2d.raw;
 import net.phys2d.raw.collide.Collider;
 import net.phys2d.raw.collide.ColliderFactory;
 import net.phys2d.raw.collide.ColliderUnavailableException;
+import net.phys2d.raw.collide.SeparatingAxis;
+import net.phys2d.raw.collide.SeparatingAxisCollider;
 
 /**
  * A static utility for resolve the collision between shapes
@@ -56,6 +58,16 @@ public strictfp class Collide {
 	/** The factory that provides us with colliders */
 	private static ColliderFactory collFactory = new ColliderFactory();
 
+	/**
+	 * Get the factory used to find the colliders between shapes. Custom 
+	 * shapes should register their colliders with this factory.
+	 * 
+	 * @return The factory used to find colliders
+	 */
+	public static ColliderFactory getColliderFactory() {
+		return collFactory;
+	}
+	
 	/**
 	 * Perform the collision between two bodies
 	 * 
@@ -66,16 +78,36 @@ public strictfp class Collide {
 	 * @return The number of points at which the two bodies contact
 	 */
 	public static int collide(Contact[] contacts, Body bodyA, Body bodyB, float dt)
+	{
+		return collide(contacts, bodyA, bodyB, null, dt);
+	}
+	
+	/**
+	 * Perform the collision between two bodies, making use of the edge that
+	 * separated them last time if the collider supports it
+	 * 
+	 * @param contacts The points of contact that should be populated
+	 * @param bodyA The first body
+	 * @param bodyB The second body
+	 * @param axis The separating axis recorded for the pair, null if there is none 
+	 * @param dt The amount of time that's passed since we last checked collision
+	 * @return The number of points at which the two bodies contact
+	 */
+	public static int collide(Contact[] contacts, Body bodyA, Body bodyB, SeparatingAxis axis, float dt)
 	{
 		Collider collider;
 		try {
-			collider = collFactory.createCollider(bodyA, bodyB);
+			collider = collFactory.getCollider(bodyA.getShape(), bodyB.getShape());
 		} catch (ColliderUnavailableException e) {
 			System.out.println(e.getMessage()
 					+ "\n Ignoring any possible collision between the bodies in question");
 			return 0;
 		}
 		
+		if ((axis != null) && (collider instanceof SeparatingAxisCollider)) {
+			return ((SeparatingAxisCollider) collider).collide(contacts, bodyA, bodyB, axis);
+		}
+		
 		return collider.collide(contacts, bodyA, bodyB);
 	}
 }
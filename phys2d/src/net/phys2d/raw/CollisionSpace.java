@@ -2,7 +2,10 @@ package net.phys2d.raw;
 
 import java.util.ArrayList;
 
+import net.phys2d.math.MathUtil;
 import net.phys2d.math.ROVector2f;
+import net.phys2d.raw.collide.SeparatingAxis;
+import net.phys2d.raw.shapes.AABox;
 
 /**
  * A space that will resolve collisions and report them to registered 
@@ -15,6 +18,10 @@ public class CollisionSpace implements CollisionContext {
 	protected BodyList bodies = new BodyList(); 
 	/** The arbiters that have been required in the world */
 	protected ArbiterList arbiters = new ArbiterList(); 
+	/** The arbiters for each pair of bodies whose bounds overlap, keyed on the pair */
+	private BodyPairMap pairs = new BodyPairMap();
+	/** The contacts used to collect the results of collision between a pair */
+	private Contact[] contacts = new Contact[Arbiter.MAX_POINTS];
 	/** The broad phase collision strategy we're using */
 	protected BroadCollisionStrategy collisionStrategy;
 	/** The list of listeners that should be notified of collisions */
@@ -25,6 +32,20 @@ public class CollisionSpace implements CollisionContext {
 	private long bitmask = 0xFFFFFFFFFFFFFFFFL;
 	/** True if the bitmask provided on bodies is used for exclusion */
 	private boolean bitmaskExcludes = true;
+	/** The number of times a pair was first tested against the edge that last separated it */
+	private long separatingAxisTests;
+	/** The number of times the edge that last separated a pair still did */
+	private long separatingAxisHits;
+	/** True if the arbiters may resolve pairs of contacts as a block */
+	private boolean blockSolve = true;
+	/** The bodies the strategy found might match the last query */
+	private BodyList candidates = new BodyList();
+	/** The bodies crossed by the last ray query, in order along the ray */
+	private Body[] hits = new Body[0];
+	/** The fraction along the ray each body in the hits was crossed at */
+	private float[] fractions = new float[0];
+	/** The stats collision is recorded to, or null if the world isn't being profiled */
+	StepStats stats;
 	
 	/**
 	 * Create a new collision space based on a given strategy for 
@@ -34,6 +55,10 @@ public class CollisionSpace implements CollisionContext {
 	 */
 	public CollisionSpace(BroadCollisionStrategy strategy) {
 		this.collisionStrategy = strategy;
+		
+		for (int i=0;i<contacts.length;i++) {
+			contacts[i] = new Contact();
+		}
 	}
 
 	/**
@@ -89,8 +114,12 @@ public class CollisionSpace implements CollisionContext {
 	 * Remove all the elements from this space
 	 */
 	public void clear() {
+		for (int i=0;i<pairs.size();i++) {
+			((Arbiter) pairs.getValue(i)).unlink();
+		}
 		bodies.clear();
 		arbiters.clear();
+		pairs.clear();
 	}
 	
 	/**
@@ -112,6 +141,41 @@ public class CollisionSpace implements CollisionContext {
 	public void remove(Body body) {
 		body.setAdded(false);
 		bodies.remove(body);
+		clearPairs(body);
+	}
+	
+	/**
+	 * Discard the arbiters held for every pair involving a given body
+	 * 
+	 * @param body The body whose pairs should be discarded
+	 */
+	void clearPairs(Body body) {
+		Arbiter arb = body.getFirstArbiter();
+		while (arb != null) {
+			Arbiter next = arb.getNext(body);
+			
+			arbiters.remove(arb);
+			pairs.remove(BodyPairMap.getKey(arb.getBody1(), arb.getBody2()));
+			arb.unlink();
+			if (stats != null) {
+				stats.addCount(StepStats.ARBITERS_DESTROYED, 1);
+			}
+			
+			arb = next;
+		}
+	}
+	
+	/**
+	 * Set whether the arbiters may resolve pairs of contacts as a block,
+	 * including those already held
+	 * 
+	 * @param blockSolve True if pairs of contacts may be resolved as a block
+	 */
+	void setBlockSolve(boolean blockSolve) {
+		this.blockSolve = blockSolve;
+		for (int i=0;i<pairs.size();i++) {
+			((Arbiter) pairs.getValue(i)).setBlockSolveEnabled(blockSolve);
+		}
 	}
 	
 	/**
@@ -123,6 +187,132 @@ public class CollisionSpace implements CollisionContext {
 		return bodies;
 	}
 	
+	/**
+	 * Get the bodies whose bounds overlap a given region. If the collision
+	 * strategy supports queries it will be used to find the bodies,
+	 * otherwise every body is checked.
+	 * 
+	 * @param x The x coordinate of the top left of the region
+	 * @param y The y coordinate of the top left of the region
+	 * @param width The width of the region
+	 * @param height The height of the region
+	 * @return The list of bodies whose bounds overlap the region
+	 */
+	public BodyList getBodiesInRegion(float x, float y, float width, float height) {
+		BodyList result = new BodyList();
+		getBodiesInRegion(x, y, width, height, result);
+		
+		return result;
+	}
+	
+	/**
+	 * Get the bodies whose bounds overlap a given region, adding them to an
+	 * existing list so that repeated queries needn't create a new one. 
+	 * 
+	 * @param x The x coordinate of the top left of the region
+	 * @param y The y coordinate of the top left of the region
+	 * @param width The width of the region
+	 * @param height The height of the region
+	 * @param result The list to add the bodies whose bounds overlap the region to
+	 */
+	public void getBodiesInRegion(float x, float y, float width, float height, BodyList result) {
+		BodyList candidates = bodies;
+		if (collisionStrategy instanceof BroadQueryStrategy) {
+			candidates = this.candidates;
+			candidates.clear();
+			((BroadQueryStrategy) collisionStrategy).queryRegion(bodies, x, y, x+width, y+height, candidates);
+		}
+		
+		for (int i=0;i<candidates.size();i++) {
+			Body body = candidates.get(i);
+			AABox bounds = body.getShape().getBounds();
+			float cx = body.getPosition().getX() + bounds.getOffsetX();
+			float cy = body.getPosition().getY() + bounds.getOffsetY();
+			
+			if ((cx - (bounds.getWidth() / 2) < x + width) && (x < cx + (bounds.getWidth() / 2)) &&
+				(cy - (bounds.getHeight() / 2) < y + height) && (y < cy + (bounds.getHeight() / 2))) {
+				result.add(body);
+			}
+		}
+		this.candidates.clear();
+	}
+	
+	/**
+	 * Get the bodies whose bounds are crossed by a line segment, nearest
+	 * to the start of the segment first. If the collision strategy supports
+	 * queries it will be used to find the bodies, otherwise every body
+	 * is checked.
+	 * 
+	 * @param start The start of the segment
+	 * @param end The end of the segment
+	 * @return The list of bodies whose bounds the segment crosses
+	 */
+	public BodyList getBodiesOnRay(ROVector2f start, ROVector2f end) {
+		BodyList result = new BodyList();
+		getBodiesOnRay(start, end, result);
+		
+		return result;
+	}
+	
+	/**
+	 * Get the bodies whose bounds are crossed by a line segment, nearest
+	 * to the start of the segment first, adding them to an existing list 
+	 * so that repeated queries needn't create a new one.
+	 * 
+	 * @param start The start of the segment
+	 * @param end The end of the segment
+	 * @param result The list to add the bodies whose bounds the segment crosses to
+	 */
+	public void getBodiesOnRay(ROVector2f start, ROVector2f end, BodyList result) {
+		float x1 = start.getX();
+		float y1 = start.getY();
+		float x2 = end.getX();
+		float y2 = end.getY();
+		
+		BodyList candidates = bodies;
+		if (collisionStrategy instanceof BroadQueryStrategy) {
+			candidates = this.candidates;
+			candidates.clear();
+			((BroadQueryStrategy) collisionStrategy).queryRay(bodies, x1, y1, x2, y2, candidates);
+		}
+		
+		if (hits.length < candidates.size()) {
+			hits = new Body[candidates.size()];
+			fractions = new float[candidates.size()];
+		}
+		int count = 0;
+		for (int i=0;i<candidates.size();i++) {
+			Body body = candidates.get(i);
+			AABox bounds = body.getShape().getBounds();
+			float cx = body.getPosition().getX() + bounds.getOffsetX();
+			float cy = body.getPosition().getY() + bounds.getOffsetY();
+			float hw = bounds.getWidth() / 2;
+			float hh = bounds.getHeight() / 2;
+			
+			float fraction = MathUtil.intersectBounds(x1, y1, x2, y2, cx - hw, cy - hh, cx + hw, cy + hh);
+			if (fraction < 0) {
+				continue;
+			}
+			
+			// insert in order of distance along the segment
+			int j = count - 1;
+			while ((j >= 0) && (fractions[j] > fraction)) {
+				fractions[j+1] = fractions[j];
+				hits[j+1] = hits[j];
+				j--;
+			}
+			fractions[j+1] = fraction;
+			hits[j+1] = body;
+			count++;
+		}
+		
+		for (int i=0;i<count;i++) {
+			result.add(hits[i]);
+			hits[i] = null;
+		}
+		this.candidates.clear();
+	}
+	
 	/**
 	 * Set the strategy used to determine the bodies for collision in the
 	 * broad phase.
@@ -159,6 +349,15 @@ public class CollisionSpace implements CollisionContext {
 	 * @see net.phys2d.raw.CollisionContext#resolve(net.phys2d.raw.BodyList, float)
 	 */
 	public void resolve(BodyList bodyList, float dt) {
+		// the stats are only recorded to once all the pairs are done
+		StepStats stats = this.stats;
+		int candidatePairs = 0;
+		int narrowPhaseCalls = 0;
+		int contactCount = 0;
+		int created = 0;
+		int destroyed = 0;
+		long narrowPhase = 0;
+		
 		for (int i = 0; i < bodyList.size(); ++i)
 		{
 			Body bi = bodyList.get(i);
@@ -189,44 +388,129 @@ public class CollisionSpace implements CollisionContext {
 				if (bi.getInvMass() == 0.0f && bj.getInvMass() == 0.0f) {
 					continue;
 				}
+				// nothing moves in a sleeping island, its contacts stay as they were
+				if ((bi.isSleeping() || bi.getInvMass() == 0.0f) && (bj.isSleeping() || bj.getInvMass() == 0.0f)) {
+					continue;
+				}
+				candidatePairs++;
 				if (!bi.getShape().getBounds().touches(bi.getPosition().getX(), 
 													   bi.getPosition().getY(), 
 													   bj.getShape().getBounds(), 
 													   bj.getPosition().getX(), 
 													   bj.getPosition().getY())) {
-
-					arbiters.remove(new Arbiter(bi,bj));
+					// the pair has stopped overlapping, only now is its arbiter discarded
+					Arbiter arb = (Arbiter) pairs.remove(BodyPairMap.getKey(bi,bj));
+					if (arb != null) {
+						arbiters.remove(arb);
+						arb.unlink();
+						destroyed++;
+					}
 					continue;
 				}
 				
-				Arbiter newArb = new Arbiter(bi, bj);
-				newArb.collide(dt);
+				// the pair has started overlapping, only now is its arbiter created
+				long key = BodyPairMap.getKey(bi,bj);
+				Arbiter arb = (Arbiter) pairs.get(key);
+				if (arb == null) {
+					arb = new Arbiter(bi, bj);
+					arb.setBlockSolveEnabled(blockSolve);
+					arb.link();
+					pairs.put(bi, bj, arb);
+					created++;
+				}
 				
-				if (newArb.getNumContacts() > 0)
+				SeparatingAxis axis = arb.getSeparatingAxis();
+				boolean cached = axis.isSet();
+				long time = (stats != null) ? stats.getTime() : 0;
+				int numContacts = Collide.collide(contacts, arb.getBody1(), arb.getBody2(), axis, dt);
+				if (stats != null) {
+					narrowPhase += stats.getTime() - time;
+				}
+				narrowPhaseCalls++;
+				contactCount += numContacts;
+				if (cached) {
+					separatingAxisTests++;
+					if (axis.wasHit()) {
+						separatingAxisHits++;
+					}
+				}
+				if (numContacts > 0)
 				{
 					bi.collided(bj);
 					bj.collided(bi);
 					
-					if (arbiters.contains(newArb)) {
-						int index = arbiters.indexOf(newArb);
-						Arbiter arb = arbiters.get(index);
-						arb.update(newArb.getContacts(), newArb.getNumContacts());
+					if (arbiters.contains(arb)) {
+						arb.update(contacts, numContacts);
 					} else {
-						Contact c = newArb.getContact(0);
+						arb.reset(contacts, numContacts);
+						arbiters.add(arb);
+						arb.init();
 						
+						// listeners may remove the bodies so the arbiter must already
+						// be in place to be cleared up
+						Contact c = arb.getContact(0);
 						notifyCollision(bi,bj,c.getPosition(),c.getNormal(),c.getSeparation());
-						arbiters.add(newArb);
-						newArb.init();
 					}
 				}
 				else
 				{
-					arbiters.remove(newArb);
+					arbiters.remove(arb);
 				}
 			}
 		}
+		
+		if (stats != null) {
+			stats.addTime(StepStats.NARROW_PHASE, narrowPhase);
+			stats.addCount(StepStats.CANDIDATE_PAIRS, candidatePairs);
+			stats.addCount(StepStats.NARROW_PHASE_CALLS, narrowPhaseCalls);
+			stats.addCount(StepStats.CONTACTS, contactCount);
+			stats.addCount(StepStats.ARBITERS_CREATED, created);
+			stats.addCount(StepStats.ARBITERS_DESTROYED, destroyed);
+		}
 	}
 
+	/**
+	 * Get the number of times a pair of bodies has been tested against 
+	 * the edge that separated them the step before
+	 * 
+	 * @return The number of separating axis tests
+	 */
+	public long getSeparatingAxisTests() {
+		return separatingAxisTests;
+	}
+	
+	/**
+	 * Get the number of times the edge that separated a pair of bodies the
+	 * step before still separated them, so the full collision was skipped
+	 * 
+	 * @return The number of separating axis hits
+	 */
+	public long getSeparatingAxisHits() {
+		return separatingAxisHits;
+	}
+	
+	/**
+	 * Get the fraction of separating axis tests that allowed the full 
+	 * collision to be skipped
+	 * 
+	 * @return The separating axis hit rate, between 0 and 1
+	 */
+	public float getSeparatingAxisHitRate() {
+		if (separatingAxisTests == 0) {
+			return 0;
+		}
+		
+		return (float) separatingAxisHits / separatingAxisTests;
+	}
+	
+	/**
+	 * Reset the separating axis counters
+	 */
+	public void resetSeparatingAxisStats() {
+		separatingAxisTests = 0;
+		separatingAxisHits = 0;
+	}
+	
 	/**
 	 * Get the bitmask used to determine which
 	 * bits are allowed to collide.
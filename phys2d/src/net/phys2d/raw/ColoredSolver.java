@@ -0,0 +1,516 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * A solver that spreads the contacts and joints of the world across the 
+ * threads of a worker pool. The constraints are first coloured so that no 
+ * two constraints of the same colour share a body that can move, each 
+ * colour is then resolved in parallel with the threads waiting for each 
+ * other before moving on to the next colour. Bodies that can't be moved 
+ * aren't changed by resolving a constraint so any number of constraints of
+ * one colour can share them.
+ * 
+ * Unlike stepping islands in parallel this helps with a single large 
+ * island, like a big pile of boxes or a long bridge. The constraints are 
+ * resolved in a different order to the classic solver so the simulation 
+ * differs slightly, but it's the same whatever the number of threads. 
+ * 
+ * Constraints that can't be given one of the first 64 colours are 
+ * resolved on the calling thread once the colours have been resolved.
+ */
+public strictfp class ColoredSolver implements ConstraintSolver {
+	/** The number of colours handed out before constraints are left to be resolved serially */
+	private static final int MAX_COLORS = 64;
+	/** The smallest number of constraints worth handing to another thread */
+	private static final int MIN_TASK_SIZE = 32;
+	
+	/** The pool that resolves each colour */
+	private WorkerPool workers;
+	/** The colouring each thread builds, so one solver can be shared by many threads */
+	private ThreadLocal coloring = new ThreadLocal() {
+		protected Object initialValue() {
+			return new Coloring();
+		}
+	};
+	
+	/**
+	 * Create a new solver
+	 * 
+	 * @param workers The pool that resolves the constraints of each colour
+	 */
+	public ColoredSolver(WorkerPool workers) {
+		if (workers == null) {
+			throw new IllegalArgumentException("A coloured solver needs a worker pool");
+		}
+		this.workers = workers;
+	}
+	
+	/**
+	 * Get the pool that resolves the constraints of each colour
+	 * 
+	 * @return The pool used by this solver
+	 */
+	public WorkerPool getWorkerPool() {
+		return workers;
+	}
+	
+	/**
+	 * @see net.phys2d.raw.ConstraintSolver#solve(net.phys2d.raw.ArbiterList, net.phys2d.raw.JointList, float, float, int, int, float, boolean, boolean, net.phys2d.raw.StepStats)
+	 */
+	public int solve(ArbiterList arbiters, JointList joints, float dt, float damping, int minIterations, int maxIterations, float tolerance, boolean biased, boolean restingBodyDetection, StepStats stats) {
+		return ((Coloring) coloring.get()).solve(workers, arbiters, joints, dt, damping, minIterations, maxIterations, tolerance, biased, restingBodyDetection, stats);
+	}
+	
+	/**
+	 * The constraints of a single solve, sorted by colour
+	 */
+	static strictfp class Coloring {
+		/** The constraints, arbiters or joints, in order of colour */
+		private Object[] constraints = new Object[0];
+		/** The colour of each constraint in the order they were given */
+		private int[] colors = new int[0];
+		/** The index of the first constraint of each colour, the last entry being the end of the overflow */
+		private int[] colorStart = new int[MAX_COLORS + 2];
+		/** The number of constraints coloured */
+		private int constraintCount;
+		/** The number of colours used, not counting the overflow */
+		private int colorCount;
+		/** The colours already used by each body that can move */
+		private long[] bodyColors = new long[0];
+		/** The bodies that have been marked while colouring */
+		private Body[] bodies = new Body[0];
+		/** The number of bodies marked while colouring */
+		private int bodyCount;
+		/** The arbiters between resting bodies that are skipped this step */
+		private Arbiter[] resting = new Arbiter[0];
+		/** The number of arbiters skipped this step */
+		private int restingCount;
+		/** The tasks handed to the worker pool */
+		private BatchTask[] tasks = new BatchTask[0];
+		/** True if the size of the impulses applied by joints should be measured */
+		private boolean adaptive;
+		/** True if position error is corrected with bias impulses this step */
+		private boolean biased;
+		
+		/**
+		 * Solve the constraints for a single step of the simulation
+		 * 
+		 * @param workers The pool that resolves the constraints of each colour
+		 * @param arbiters The arbiters holding the contacts to be resolved
+		 * @param joints The joints to be resolved
+		 * @param dt The amount of time to step
+		 * @param damping The percentage of energy to retain through out
+		 * collision. (1 = no loss, 0 = total loss)
+		 * @param minIterations The fewest iterations to run
+		 * @param maxIterations The most iterations to run
+		 * @param tolerance The largest change in impulse in an iteration at 
+		 * which the constraints are considered solved
+		 * @param biased True if position error should be corrected with bias
+		 * impulses, false if it's left to a separate position pass
+		 * @param restingBodyDetection True if arbiters between two resting bodies
+		 * should be skipped
+		 * @param stats The stats to record the time spent in each phase of 
+		 * the solve to, or null if the world isn't being profiled
+		 * @return The number of iterations run
+		 */
+		int solve(WorkerPool workers, ArbiterList arbiters, JointList joints, float dt, float damping, int minIterations, int maxIterations, float tolerance, boolean biased, boolean restingBodyDetection, StepStats stats) {
+			float invDT = dt > 0.0f ? 1.0f / dt : 0.0f;
+			long time = (stats != null) ? stats.getTime() : 0;
+			
+			color(arbiters, joints, restingBodyDetection);
+			adaptive = minIterations < maxIterations;
+			this.biased = biased;
+			
+			try {
+				resolve(workers, true, invDT, dt, damping);
+				if (stats != null) {
+					time = stats.addTimeSince(StepStats.ARBITER_PRE_STEP, time);
+				}
+				for (int i=0;i<maxIterations;i++) {
+					for (int k=0;k<restingCount;k++) {
+						Arbiter arb = resting[k];
+						arb.getBody1().collided(arb.getBody2());
+						arb.getBody2().collided(arb.getBody1());
+					}
+					float change = resolve(workers, false, invDT, dt, damping);
+					
+					if (adaptive && (i + 1 >= minIterations) && (change <= tolerance)) {
+						return i + 1;
+					}
+				}
+				
+				return maxIterations;
+			} finally {
+				if (stats != null) {
+					stats.addTimeSince(StepStats.SOLVER, time);
+				}
+				for (int i=0;i<constraintCount;i++) {
+					constraints[i] = null;
+				}
+				for (int i=0;i<restingCount;i++) {
+					resting[i] = null;
+				}
+			}
+		}
+		
+		/**
+		 * Sort the constraints into colours, such that no two constraints of
+		 * the same colour share a body that can move
+		 * 
+		 * @param arbiters The arbiters holding the contacts to be resolved
+		 * @param joints The joints to be resolved
+		 * @param restingBodyDetection True if arbiters between two resting bodies
+		 * should be skipped
+		 */
+		private void color(ArbiterList arbiters, JointList joints, boolean restingBodyDetection) {
+			ensureCapacity(arbiters.size(), joints.size());
+			
+			for (int i=0;i<colorStart.length;i++) {
+				colorStart[i] = 0;
+			}
+			
+			int count = 0;
+			restingCount = 0;
+			colorCount = 0;
+			for (int i=0;i<arbiters.size();i++) {
+				Arbiter arb = arbiters.get(i);
+				if (restingBodyDetection && arb.hasRestingPair()) {
+					resting[restingCount++] = arb;
+				} else {
+					colors[count++] = pickColor(arb.getBody1(), arb.getBody2());
+				}
+			}
+			for (int i=0;i<joints.size();i++) {
+				Joint joint = joints.get(i);
+				colors[count++] = pickColor(joint.getBody1(), joint.getBody2());
+			}
+			constraintCount = count;
+			
+			for (int i=0;i<bodyCount;i++) {
+				bodies[i].setSolverIndex(-1);
+				bodies[i] = null;
+			}
+			bodyCount = 0;
+			
+			// count the constraints of each colour, then turn the counts into
+			// the start of each colour so the constraints can be placed in order
+			for (int i=0;i<count;i++) {
+				colorStart[colors[i] + 1]++;
+			}
+			for (int i=0;i<=MAX_COLORS;i++) {
+				colorStart[i + 1] += colorStart[i];
+			}
+			
+			int c = 0;
+			for (int i=0;i<arbiters.size();i++) {
+				Arbiter arb = arbiters.get(i);
+				if (!restingBodyDetection || !arb.hasRestingPair()) {
+					constraints[colorStart[colors[c++]]++] = arb;
+				}
+			}
+			for (int i=0;i<joints.size();i++) {
+				constraints[colorStart[colors[c++]]++] = joints.get(i);
+			}
+			
+			// placing the constraints has moved each start on to the next 
+			// colour, so shift them back again
+			for (int i=MAX_COLORS+1;i>0;i--) {
+				colorStart[i] = colorStart[i - 1];
+			}
+			colorStart[0] = 0;
+		}
+		
+		/**
+		 * Find the first colour not yet used by either of the bodies and mark 
+		 * it as used by both
+		 * 
+		 * @param body1 The first body of the constraint
+		 * @param body2 The second body of the constraint
+		 * @return The colour given to the constraint, or MAX_COLORS if every
+		 * colour was already in use
+		 */
+		private int pickColor(Body body1, Body body2) {
+			int index1 = mark(body1);
+			int index2 = mark(body2);
+			long used = 0;
+			if (index1 >= 0) {
+				used |= bodyColors[index1];
+			}
+			if (index2 >= 0) {
+				used |= bodyColors[index2];
+			}
+			
+			int color = 0;
+			while ((color < MAX_COLORS) && ((used & (1L << color)) != 0)) {
+				color++;
+			}
+			if (color == MAX_COLORS) {
+				return MAX_COLORS;
+			}
+			
+			if (index1 >= 0) {
+				bodyColors[index1] |= 1L << color;
+			}
+			if (index2 >= 0) {
+				bodyColors[index2] |= 1L << color;
+			}
+			if (color >= colorCount) {
+				colorCount = color + 1;
+			}
+			return color;
+		}
+		
+		/**
+		 * Get the index of the colours used by a body, marking it if it's the 
+		 * first time it's been seen
+		 * 
+		 * @param body The body to locate
+		 * @return The index of the colours used by the body or -1 if it has
+		 * infinite mass and so can be shared by any number of constraints
+		 */
+		private int mark(Body body) {
+			if (body.isShared()) {
+				return -1;
+			}
+			
+			int index = body.getSolverIndex();
+			if (index >= 0) {
+				return index;
+			}
+			
+			if (bodyCount == bodies.length) {
+				int size = Math.max(16, bodies.length * 2);
+				Body[] newBodies = new Body[size];
+				System.arraycopy(bodies, 0, newBodies, 0, bodyCount);
+				bodies = newBodies;
+				long[] newColors = new long[size];
+				System.arraycopy(bodyColors, 0, newColors, 0, bodyCount);
+				bodyColors = newColors;
+			}
+			index = bodyCount++;
+			bodies[index] = body;
+			bodyColors[index] = 0;
+			body.setSolverIndex(index);
+			
+			return index;
+		}
+		
+		/**
+		 * Make sure the arrays are large enough for a step
+		 * 
+		 * @param arbiterCount The number of arbiters to be resolved
+		 * @param jointCount The number of joints to be resolved
+		 */
+		private void ensureCapacity(int arbiterCount, int jointCount) {
+			int count = arbiterCount + jointCount;
+			if (constraints.length < count) {
+				int size = Math.max(count, constraints.length * 2);
+				constraints = new Object[size];
+				colors = new int[size];
+			}
+			if (resting.length < arbiterCount) {
+				resting = new Arbiter[Math.max(arbiterCount, resting.length * 2)];
+			}
+		}
+		
+		/**
+		 * Resolve every colour in turn, spreading the constraints of each 
+		 * colour across the threads of the pool
+		 * 
+		 * @param workers The pool that resolves the constraints of each colour
+		 * @param preStep True if the constraints should be prepared, false if
+		 * their impulses should be applied
+		 * @param invDT The inverse of the amount of time to step
+		 * @param dt The amount of time to step
+		 * @param damping The percentage of energy to retain through out collision
+		 * @return The largest change made to an accumulated impulse
+		 */
+		private float resolve(WorkerPool workers, boolean preStep, float invDT, float dt, float damping) {
+			int threads = workers.getThreadCount();
+			if (tasks.length < threads) {
+				BatchTask[] newTasks = new BatchTask[threads];
+				System.arraycopy(tasks, 0, newTasks, 0, tasks.length);
+				for (int i=tasks.length;i<threads;i++) {
+					newTasks[i] = new BatchTask(this);
+				}
+				tasks = newTasks;
+			}
+			
+			float change = 0;
+			for (int c=0;c<colorCount;c++) {
+				int first = colorStart[c];
+				int last = colorStart[c + 1];
+				int count = Math.min(threads, (last - first) / MIN_TASK_SIZE);
+				
+				if (count <= 1) {
+					change = Math.max(change, resolve(first, last, preStep, invDT, dt, damping));
+				} else {
+					for (int i=0;i<count;i++) {
+						tasks[i].set(first + (((last - first) * i) / count), 
+									 first + (((last - first) * (i + 1)) / count), 
+									 preStep, invDT, dt, damping);
+					}
+					workers.invokeAll(tasks, count);
+					for (int i=0;i<count;i++) {
+						change = Math.max(change, tasks[i].change);
+					}
+				}
+			}
+			
+			return Math.max(change, resolve(colorStart[MAX_COLORS], colorStart[MAX_COLORS + 1], preStep, invDT, dt, damping));
+		}
+		
+		/**
+		 * Resolve a range of the coloured constraints
+		 * 
+		 * @param first The index of the first constraint to resolve
+		 * @param last The index after the last constraint to resolve
+		 * @param preStep True if the constraints should be prepared, false if
+		 * their impulses should be applied
+		 * @param invDT The inverse of the amount of time to step
+		 * @param dt The amount of time to step
+		 * @param damping The percentage of energy to retain through out collision
+		 * @return The largest change made to an accumulated impulse
+		 */
+		float resolve(int first, int last, boolean preStep, float invDT, float dt, float damping) {
+			float change = 0;
+			for (int i=first;i<last;i++) {
+				Object constraint = constraints[i];
+				if (constraint instanceof Arbiter) {
+					if (preStep) {
+						((Arbiter) constraint).preStep(invDT, dt, damping, biased);
+					} else {
+						((Arbiter) constraint).applyImpulse();
+						change = Math.max(change, ((Arbiter) constraint).getImpulseChange());
+					}
+				} else {
+					if (preStep) {
+						((Joint) constraint).preStep(invDT);
+					} else if (adaptive) {
+						change = Math.max(change, ClassicSolver.applyImpulse((Joint) constraint));
+					} else {
+						((Joint) constraint).applyImpulse();
+					}
+				}
+			}
+			
+			return change;
+		}
+		
+		/**
+		 * Get the number of colours the last solve used, not counting the
+		 * constraints left over to be resolved serially
+		 * 
+		 * @return The number of colours used
+		 */
+		int getColorCount() {
+			return colorCount;
+		}
+		
+		/**
+		 * Get the constraints of a given colour from the last solve
+		 * 
+		 * @param color The colour to retrieve, MAX_COLORS for the constraints
+		 * resolved serially
+		 * @return The arbiters and joints of the given colour
+		 */
+		Object[] getConstraints(int color) {
+			Object[] result = new Object[colorStart[color + 1] - colorStart[color]];
+			System.arraycopy(constraints, colorStart[color], result, 0, result.length);
+			return result;
+		}
+	}
+	
+	/**
+	 * A range of constraints of a single colour handed to the pool
+	 */
+	private static class BatchTask implements Runnable {
+		/** The colouring the constraints come from */
+		private Coloring coloring;
+		/** The index of the first constraint to resolve */
+		private int first;
+		/** The index after the last constraint to resolve */
+		private int last;
+		/** True if the constraints should be prepared rather than have their impulses applied */
+		private boolean preStep;
+		/** The inverse of the amount of time to step */
+		private float invDT;
+		/** The amount of time to step */
+		private float dt;
+		/** The percentage of energy to retain through out collision */
+		private float damping;
+		/** The largest change made to an accumulated impulse by the last run */
+		private float change;
+		
+		/**
+		 * Create a new task
+		 * 
+		 * @param coloring The colouring the constraints come from
+		 */
+		BatchTask(Coloring coloring) {
+			this.coloring = coloring;
+		}
+		
+		/**
+		 * Set the range of constraints this task should resolve
+		 * 
+		 * @param first The index of the first constraint to resolve
+		 * @param last The index after the last constraint to resolve
+		 * @param preStep True if the constraints should be prepared
+		 * @param invDT The inverse of the amount of time to step
+		 * @param dt The amount of time to step
+		 * @param damping The percentage of energy to retain through out collision
+		 */
+		void set(int first, int last, boolean preStep, float invDT, float dt, float damping) {
+			this.first = first;
+			this.last = last;
+			this.preStep = preStep;
+			this.invDT = invDT;
+			this.dt = dt;
+			this.damping = damping;
+		}
+		
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			change = coloring.resolve(first, last, preStep, invDT, dt, damping);
+		}
+	}
+}
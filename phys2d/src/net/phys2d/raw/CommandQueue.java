@@ -0,0 +1,137 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * The commands posted to a world waiting to be run. Any number of threads
+ * may post while the stepping thread drains the queue. Posting only holds
+ * the lock long enough to store the command, and the commands are run
+ * outside of it, so a slow command never holds up the threads posting.
+ * The arrays only ever grow, once they're large enough posting allocates
+ * nothing beyond the command itself.
+ */
+class CommandQueue {
+	/** The commands posted since the queue was last drained */
+	private WorldCommand[] pending = new WorldCommand[16];
+	/** The number of commands posted since the queue was last drained */
+	private int pendingCount;
+	/** The commands being run, swapped with the pending commands on each drain */
+	private WorldCommand[] running = new WorldCommand[16];
+	
+	/**
+	 * Post a command to be run on the next drain
+	 * 
+	 * @param command The command to post
+	 */
+	synchronized void post(WorldCommand command) {
+		if (pendingCount == pending.length) {
+			WorldCommand[] temp = new WorldCommand[pendingCount * 2];
+			System.arraycopy(pending, 0, temp, 0, pendingCount);
+			pending = temp;
+		}
+		pending[pendingCount++] = command;
+	}
+	
+	/**
+	 * Get the number of commands waiting to be run
+	 * 
+	 * @return The number of commands posted since the last drain
+	 */
+	synchronized int size() {
+		return pendingCount;
+	}
+	
+	/**
+	 * Run all the commands posted so far in the order they were posted.
+	 * Commands posted while the queue is being drained, including by the
+	 * commands themselves, wait for the next drain. If a command throws, 
+	 * the commands after it are put back at the head of the queue, ahead
+	 * of any posted since, and the exception is passed on.
+	 * 
+	 * @param world The world the commands are run against
+	 */
+	void drain(World world) {
+		WorldCommand[] commands;
+		int count;
+		synchronized (this) {
+			if (pendingCount == 0) {
+				return;
+			}
+			
+			commands = pending;
+			count = pendingCount;
+			pending = running;
+			pendingCount = 0;
+			running = commands;
+		}
+		
+		int next = 0;
+		try {
+			while (next < count) {
+				commands[next++].execute(world);
+			}
+		} finally {
+			if (next < count) {
+				requeue(commands, next, count);
+			}
+			for (int i=0;i<count;i++) {
+				commands[i] = null;
+			}
+		}
+	}
+	
+	/**
+	 * Put commands that weren't run back at the head of the queue
+	 * 
+	 * @param commands The commands being run
+	 * @param start The index of the first command that wasn't run
+	 * @param end The index after the last command that wasn't run
+	 */
+	private synchronized void requeue(WorldCommand[] commands, int start, int end) {
+		int count = end - start;
+		if (pendingCount + count > pending.length) {
+			WorldCommand[] temp = new WorldCommand[(pendingCount + count) * 2];
+			System.arraycopy(pending, 0, temp, count, pendingCount);
+			pending = temp;
+		} else {
+			System.arraycopy(pending, 0, pending, count, pendingCount);
+		}
+		System.arraycopy(commands, start, pending, 0, count);
+		pendingCount += count;
+	}
+}
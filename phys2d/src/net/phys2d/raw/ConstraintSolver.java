@@ -0,0 +1,75 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * A description of any strategy for resolving the contacts and joints 
+ * between bodies once they've been detected - i.e. applying the impulses
+ * that keep the bodies apart and the joints together. The solver leaves 
+ * the resulting velocities on the bodies ready for the world to integrate
+ * them.
+ */
+public interface ConstraintSolver {
+	
+	/**
+	 * Solve the constraints for a single step of the simulation. Once the
+	 * minimum number of iterations have been run the solver stops as soon
+	 * as an iteration changes no accumulated impulse by more than the 
+	 * tolerance. Giving the same minimum and maximum always runs that
+	 * many iterations.
+	 * 
+	 * @param arbiters The arbiters holding the contacts to be resolved
+	 * @param joints The joints to be resolved
+	 * @param dt The amount of time to step
+	 * @param damping The percentage of energy to retain through out
+	 * collision. (1 = no loss, 0 = total loss)
+	 * @param minIterations The fewest iterations to run
+	 * @param maxIterations The most iterations to run. More iterations
+	 * is more accurate but slower
+	 * @param tolerance The largest change in impulse in an iteration at 
+	 * which the constraints are considered solved
+	 * @param biased True if position error should be corrected with bias
+	 * impulses, false if it's left to a separate position pass
+	 * @param restingBodyDetection True if arbiters between two resting bodies
+	 * should be skipped
+	 * @param stats The stats to record the time spent in each phase of the
+	 * solve to, or null if the world isn't being profiled
+	 * @return The number of iterations run
+	 */
+	public int solve(ArbiterList arbiters, JointList joints, float dt, float damping, int minIterations, int maxIterations, float tolerance, boolean biased, boolean restingBodyDetection, StepStats stats);
+}
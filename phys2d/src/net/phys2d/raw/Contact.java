@@ -74,6 +74,16 @@ public strictfp class Contact {
 	float restitution;
 	/** The bias impulse accumulated */
 	float biasImpulse;
+	/** The x component of the contact point in the first body's frame, when projecting positions */
+	float localAnchor1x;
+	/** The y component of the contact point in the first body's frame, when projecting positions */
+	float localAnchor1y;
+	/** The x component of the contact point in the second body's frame, when projecting positions */
+	float localAnchor2x;
+	/** The y component of the contact point in the second body's frame, when projecting positions */
+	float localAnchor2y;
+	/** The separation at the time the anchors were taken */
+	float anchorSeparation;
 	
 	/**
 	 * Create a new contact point
@@ -0,0 +1,117 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * A group of bodies that affect each other through contacts or joints. 
+ * Nothing in one island can affect another, so islands can be solved on 
+ * their own and put to sleep as a whole once all their bodies have come
+ * to rest. Static bodies never belong to an island, they can be touched 
+ * by any number of islands without joining them together.
+ */
+public class Island {
+	/** The bodies in the island */
+	private BodyList bodies = new BodyList();
+	/** The arbiters between bodies in the island */
+	private ArbiterList arbiters = new ArbiterList();
+	/** The joints between bodies in the island */
+	private JointList joints = new JointList();
+	/** True if the island is asleep */
+	private boolean sleeping;
+	
+	/**
+	 * Create an empty island
+	 */
+	Island() {
+	}
+	
+	/**
+	 * Get the bodies in this island
+	 * 
+	 * @return The bodies in this island
+	 */
+	public BodyList getBodies() {
+		return bodies;
+	}
+	
+	/**
+	 * Get the arbiters between the bodies in this island
+	 * 
+	 * @return The arbiters in this island
+	 */
+	public ArbiterList getArbiters() {
+		return arbiters;
+	}
+	
+	/**
+	 * Get the joints between the bodies in this island
+	 * 
+	 * @return The joints in this island
+	 */
+	public JointList getJoints() {
+		return joints;
+	}
+	
+	/**
+	 * Check if this island is asleep
+	 * 
+	 * @return True if this island is asleep
+	 */
+	public boolean isSleeping() {
+		return sleeping;
+	}
+	
+	/**
+	 * Indicate whether this island is asleep
+	 * 
+	 * @param sleeping True if this island is asleep
+	 */
+	void setSleeping(boolean sleeping) {
+		this.sleeping = sleeping;
+	}
+	
+	/**
+	 * Empty the island ready for it to be reused
+	 */
+	void clear() {
+		bodies.clear();
+		arbiters.clear();
+		joints.clear();
+		sleeping = false;
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * Splits the bodies of the world into islands each step. Bodies are joined
+ * into the same island by the arbiters and joints between them using a 
+ * union-find over the body indices. An island is awake if any of its bodies
+ * are awake, in which case the whole island is woken. Islands that have 
+ * been still for long enough are put to sleep as a whole.
+ * 
+ * The islands and lists are reused from step to step so once the simulation
+ * has settled in nothing is allocated.
+ */
+strictfp class IslandBuilder {
+	/** The parent of each body in the union-find forest */
+	private int[] parent = new int[0];
+	/** True for each root whose island contains an awake body */
+	private boolean[] awake = new boolean[0];
+	/** The island assigned to each root, -1 if not yet assigned */
+	private int[] islandOf = new int[0];
+	/** The islands built, only the first islandCount are in use */
+	private Island[] islands = new Island[0];
+	/** The number of islands built this step */
+	private int islandCount;
+	/** The bodies in awake islands */
+	private BodyList awakeBodies = new BodyList();
+	
+	/**
+	 * Build the islands for a step
+	 * 
+	 * @param bodies The bodies to split into islands
+	 * @param arbiters The arbiters joining bodies together
+	 * @param joints The joints joining bodies together
+	 */
+	void build(BodyList bodies, ArbiterList arbiters, JointList joints) {
+		for (int i=0;i<islandCount;i++) {
+			islands[i].clear();
+		}
+		islandCount = 0;
+		awakeBodies.clear();
+		
+		int count = bodies.size();
+		if (parent.length < count) {
+			parent = new int[count];
+			awake = new boolean[count];
+			islandOf = new int[count];
+		}
+		
+		for (int i=0;i<count;i++) {
+			Body body = bodies.get(i);
+			
+			parent[i] = i;
+			awake[i] = false;
+			islandOf[i] = -1;
+			if (!body.isShared()) {
+				body.setIslandIndex(i);
+			}
+		}
+		
+		for (int i=0;i<arbiters.size();i++) {
+			Arbiter arb = arbiters.get(i);
+			union(arb.getBody1(), arb.getBody2());
+		}
+		for (int i=0;i<joints.size();i++) {
+			Joint joint = joints.get(i);
+			union(joint.getBody1(), joint.getBody2());
+		}
+		
+		for (int i=0;i<count;i++) {
+			Body body = bodies.get(i);
+			if ((body.getIslandIndex() >= 0) && !body.isSleeping()) {
+				awake[find(i)] = true;
+			}
+		}
+		
+		for (int i=0;i<count;i++) {
+			Body body = bodies.get(i);
+			if (body.getIslandIndex() < 0) {
+				continue;
+			}
+			
+			int root = find(i);
+			if (islandOf[root] < 0) {
+				islandOf[root] = islandCount;
+				nextIsland().setSleeping(!awake[root]);
+			}
+			
+			islands[islandOf[root]].getBodies().add(body);
+			if (awake[root]) {
+				body.wakeUp();
+				awakeBodies.add(body);
+			}
+		}
+		
+		for (int i=0;i<arbiters.size();i++) {
+			Arbiter arb = arbiters.get(i);
+			Island island = getIsland(arb.getBody1(), arb.getBody2());
+			if (island != null) {
+				island.getArbiters().add(arb);
+			}
+		}
+		for (int i=0;i<joints.size();i++) {
+			Joint joint = joints.get(i);
+			Island island = getIsland(joint.getBody1(), joint.getBody2());
+			if (island != null) {
+				island.getJoints().add(joint);
+			}
+		}
+		
+		for (int i=0;i<count;i++) {
+			bodies.get(i).setIslandIndex(-1);
+		}
+	}
+	
+	/**
+	 * Get the next unused island, creating it if required
+	 * 
+	 * @return The next island
+	 */
+	private Island nextIsland() {
+		if (islandCount == islands.length) {
+			Island[] temp = new Island[Math.max(16, islands.length * 2)];
+			System.arraycopy(islands, 0, temp, 0, islands.length);
+			for (int i=islands.length;i<temp.length;i++) {
+				temp[i] = new Island();
+			}
+			islands = temp;
+		}
+		
+		return islands[islandCount++];
+	}
+	
+	/**
+	 * Find the root of the tree a body index belongs to, halving the 
+	 * path as it goes
+	 * 
+	 * @param i The index of the body
+	 * @return The index of the root of the tree
+	 */
+	private int find(int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		
+		return i;
+	}
+	
+	/**
+	 * Join the islands of two bodies. Bodies outside of the islands, 
+	 * i.e. static ones, don't join anything.
+	 * 
+	 * @param a The first body
+	 * @param b The second body
+	 */
+	private void union(Body a, Body b) {
+		int indexA = a.getIslandIndex();
+		int indexB = b.getIslandIndex();
+		if ((indexA < 0) || (indexB < 0)) {
+			return;
+		}
+		
+		int rootA = find(indexA);
+		int rootB = find(indexB);
+		if (rootA < rootB) {
+			parent[rootB] = rootA;
+		} else if (rootB < rootA) {
+			parent[rootA] = rootB;
+		}
+	}
+	
+	/**
+	 * Get the island a constraint between two bodies belongs to
+	 * 
+	 * @param a The first body
+	 * @param b The second body
+	 * @return The island or null if neither body is part of an island
+	 */
+	private Island getIsland(Body a, Body b) {
+		int index = a.getIslandIndex();
+		if (index < 0) {
+			index = b.getIslandIndex();
+		}
+		if (index < 0) {
+			return null;
+		}
+		
+		return islands[islandOf[find(index)]];
+	}
+	
+	/**
+	 * Check each awake island and put it to sleep if all its bodies have 
+	 * been still for long enough
+	 * 
+	 * @param dt The amount of time that has passed
+	 * @param linearTolerance The velocity under which a body is considered still
+	 * @param angularTolerance The angular velocity under which a body is 
+	 * considered still
+	 * @param timeToSleep The amount of time every body in an island has to be 
+	 * still before the island is put to sleep
+	 */
+	void updateSleep(float dt, float linearTolerance, float angularTolerance, float timeToSleep) {
+		float linearSquared = linearTolerance * linearTolerance;
+		float angularSquared = angularTolerance * angularTolerance;
+		
+		for (int i=0;i<islandCount;i++) {
+			Island island = islands[i];
+			if (island.isSleeping()) {
+				continue;
+			}
+			
+			BodyList bodies = island.getBodies();
+			float stillTime = Float.MAX_VALUE;
+			for (int j=0;j<bodies.size();j++) {
+				stillTime = Math.min(stillTime, bodies.get(j).updateSleepTime(dt, linearSquared, angularSquared));
+			}
+			
+			if (stillTime >= timeToSleep) {
+				for (int j=0;j<bodies.size();j++) {
+					bodies.get(j).sleep();
+				}
+				island.setSleeping(true);
+			}
+		}
+	}
+	
+	/**
+	 * Get the number of islands built this step
+	 * 
+	 * @return The number of islands
+	 */
+	int getIslandCount() {
+		return islandCount;
+	}
+	
+	/**
+	 * Get one of the islands built this step
+	 * 
+	 * @param index The index of the island to retrieve
+	 * @return The island at the given index
+	 */
+	Island getIsland(int index) {
+		return islands[index];
+	}
+	
+	/**
+	 * Get the bodies in islands that are awake this step
+	 * 
+	 * @return The awake bodies
+	 */
+	BodyList getAwakeBodies() {
+		return awakeBodies;
+	}
+}
@@ -0,0 +1,933 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+import net.phys2d.math.MathUtil;
+import net.phys2d.math.ROVector2f;
+
+/**
+ * A solver that packs the state of the bodies and contacts into flat arrays
+ * at the start of each step, runs the iterations over those arrays and then
+ * writes the results back to the bodies and contacts. Walking the arrays is
+ * far kinder to the cache than chasing the arbiters and bodies through the
+ * object graph once there are a lot of them.
+ * 
+ * The impulses are computed exactly as the classic solver computes them, so
+ * the two produce the same simulation. Joints are still resolved against the 
+ * bodies, the state of the bodies they're attached to is written back and 
+ * read again around each joint.
+ * 
+ * Each thread packs into its own arrays, so one solver can be used to solve
+ * separate islands at the same time.
+ */
+public strictfp class PackedSolver implements ConstraintSolver {
+	/** The worst conditioning of a pair of contacts that's still resolved as a block */
+	private static final float MAX_CONDITION = 1000.0f;
+	/** The arrays each thread packs into, so one solver can be shared by many threads */
+	private ThreadLocal packing = new ThreadLocal() {
+		protected Object initialValue() {
+			return new Packing();
+		}
+	};
+	
+	/**
+	 * @see net.phys2d.raw.ConstraintSolver#solve(net.phys2d.raw.ArbiterList, net.phys2d.raw.JointList, float, float, int, int, float, boolean, boolean, net.phys2d.raw.StepStats)
+	 */
+	public int solve(ArbiterList arbiters, JointList joints, float dt, float damping, int minIterations, int maxIterations, float tolerance, boolean biased, boolean restingBodyDetection, StepStats stats) {
+		return ((Packing) packing.get()).solve(arbiters, joints, dt, damping, minIterations, maxIterations, tolerance, biased, restingBodyDetection, stats);
+	}
+	
+	/**
+	 * The arrays the bodies and contacts are packed into by a single thread
+	 */
+	private static strictfp class Packing {
+		/** The number of bodies packed this step */
+		private int bodyCount;
+		/** The bodies packed this step, indexed by their solver index */
+		private Body[] bodies = new Body[0];
+		/** The x component of the velocity of each body */
+		private float[] vx = new float[0];
+		/** The y component of the velocity of each body */
+		private float[] vy = new float[0];
+		/** The angular velocity of each body */
+		private float[] w = new float[0];
+		/** The x component of the velocity of each body before its last update */
+		private float[] lastVx = new float[0];
+		/** The y component of the velocity of each body before its last update */
+		private float[] lastVy = new float[0];
+		/** The angular velocity of each body before its last update */
+		private float[] lastW = new float[0];
+		/** The x component of the bias velocity of each body */
+		private float[] biasVx = new float[0];
+		/** The y component of the bias velocity of each body */
+		private float[] biasVy = new float[0];
+		/** The bias angular velocity of each body */
+		private float[] biasW = new float[0];
+		/** The mass of each body */
+		private float[] mass = new float[0];
+		/** The inverse mass of each body */
+		private float[] invMass = new float[0];
+		/** The inverse inertia of each body */
+		private float[] invI = new float[0];
+		/** The maximum velocity of each body on the x axis */
+		private float[] maxVx = new float[0];
+		/** The maximum velocity of each body on the y axis */
+		private float[] maxVy = new float[0];
+		/** True for each body that can move */
+		private boolean[] moveable = new boolean[0];
+		/** True for each body that can rotate */
+		private boolean[] rotatable = new boolean[0];
+		
+		/** The number of contacts packed this step */
+		private int rowCount;
+		/** The contact each row was packed from */
+		private Contact[] contacts = new Contact[0];
+		/** The index of the first body of each contact */
+		private int[] body1 = new int[0];
+		/** The index of the second body of each contact */
+		private int[] body2 = new int[0];
+		/** The x component of the contact point relative to the first body */
+		private float[] r1x = new float[0];
+		/** The y component of the contact point relative to the first body */
+		private float[] r1y = new float[0];
+		/** The x component of the contact point relative to the second body */
+		private float[] r2x = new float[0];
+		/** The y component of the contact point relative to the second body */
+		private float[] r2y = new float[0];
+		/** The x component of the contact normal */
+		private float[] nx = new float[0];
+		/** The y component of the contact normal */
+		private float[] ny = new float[0];
+		/** The normal mass of each contact */
+		private float[] massNormal = new float[0];
+		/** The tangent mass of each contact */
+		private float[] massTangent = new float[0];
+		/** The bias of each contact */
+		private float[] bias = new float[0];
+		/** The restitution of each contact */
+		private float[] restitution = new float[0];
+		/** The accumulated normal impulse of each contact */
+		private float[] normalImpulse = new float[0];
+		/** The accumulated tangent impulse of each contact */
+		private float[] tangentImpulse = new float[0];
+		/** The accumulated bias impulse of each contact */
+		private float[] biasImpulse = new float[0];
+		/** The friction between the bodies of each contact */
+		private float[] friction = new float[0];
+		/** True for the first of each pair of contacts resolved together as a block */
+		private boolean[] block = new boolean[0];
+		/** The effective mass matrix of each block, first contact against itself */
+		private float[] k11 = new float[0];
+		/** The effective mass matrix of each block, the coupling between the contacts */
+		private float[] k12 = new float[0];
+		/** The effective mass matrix of each block, second contact against itself */
+		private float[] k22 = new float[0];
+		/** The inverse of the effective mass matrix of each block, first entry on the diagonal */
+		private float[] blockMass11 = new float[0];
+		/** The inverse of the effective mass matrix of each block, off the diagonal */
+		private float[] blockMass12 = new float[0];
+		/** The inverse of the effective mass matrix of each block, second entry on the diagonal */
+		private float[] blockMass22 = new float[0];
+		/** The damping applied to the block impulses this step */
+		private float damping;
+		/** True if position error is corrected with bias impulses this step */
+		private boolean biased;
+		
+		/** The number of arbiters between resting bodies this step */
+		private int restingCount;
+		/** The arbiters between resting bodies, which are only notified */
+		private Arbiter[] resting = new Arbiter[0];
+		
+		/**
+		 * Solve the constraints for a single step of the simulation
+		 * 
+		 * @see ConstraintSolver#solve(ArbiterList, JointList, float, float, int, int, float, boolean, boolean, StepStats)
+		 * @param arbiters The arbiters holding the contacts to be resolved
+		 * @param joints The joints to be resolved
+		 * @param dt The amount of time to step
+		 * @param damping The percentage of energy to retain through out
+		 * collision. (1 = no loss, 0 = total loss)
+		 * @param minIterations The fewest iterations to run
+		 * @param maxIterations The most iterations to run
+		 * @param tolerance The largest change in impulse in an iteration at 
+		 * which the constraints are considered solved
+		 * @param biased True if position error should be corrected with bias
+		 * impulses, false if it's left to a separate position pass
+		 * @param restingBodyDetection True if arbiters between two resting bodies
+		 * should be skipped
+		 * @param stats The stats to record the time spent in each phase of 
+		 * the solve to, or null if the world isn't being profiled
+		 * @return The number of iterations run
+		 */
+		int solve(ArbiterList arbiters, JointList joints, float dt, float damping, int minIterations, int maxIterations, float tolerance, boolean biased, boolean restingBodyDetection, StepStats stats) {
+			float invDT = dt > 0.0f ? 1.0f / dt : 0.0f;
+			long time = (stats != null) ? stats.getTime() : 0;
+			this.biased = biased;
+			
+			ensureCapacity(arbiters);
+			
+			bodyCount = 0;
+			rowCount = 0;
+			restingCount = 0;
+			for (int i=0;i<arbiters.size();i++) {
+				Arbiter arb = arbiters.get(i);
+				if (!restingBodyDetection || !arb.hasRestingPair()) {
+					preStep(arb, invDT, dt, damping);
+				} else {
+					resting[restingCount++] = arb;
+				}
+			}
+			if (stats != null) {
+				time = stats.addTimeSince(StepStats.ARBITER_PRE_STEP, time);
+			}
+		
+			for (int i = 0; i < joints.size(); ++i) {
+				Joint j = joints.get(i);
+				store(j);
+				j.preStep(invDT);
+				load(j);
+			}
+			if (stats != null) {
+				time = stats.addTimeSince(StepStats.JOINT_PRE_STEP, time);
+			}
+		
+			int iterations = maxIterations;
+			boolean adaptive = minIterations < maxIterations;
+			for (int i = 0; i < maxIterations; ++i)
+			{
+				float change = 0;
+				for (int k=0;k<rowCount;k++) {
+					if (block[k]) {
+						change = Math.max(change, applyBlockImpulse(k));
+						k++;
+					} else {
+						change = Math.max(change, applyImpulse(k));
+					}
+				}
+				for (int k=0;k<restingCount;k++) {
+					Arbiter arb = resting[k];
+					arb.getBody1().collided(arb.getBody2());
+					arb.getBody2().collided(arb.getBody1());
+				}
+			
+				for (int k=0;k<joints.size();++k) {
+					Joint j = joints.get(k);
+					store(j);
+					if (adaptive) {
+						change = Math.max(change, ClassicSolver.applyImpulse(j));
+					} else {
+						j.applyImpulse();
+					}
+					load(j);
+				}
+				
+				if (adaptive && (i + 1 >= minIterations) && (change <= tolerance)) {
+					iterations = i + 1;
+					break;
+				}
+			}
+			
+			unpack();
+			if (stats != null) {
+				stats.addTimeSince(StepStats.SOLVER, time);
+			}
+			
+			return iterations;
+		}
+	
+		/**
+		 * Make sure the arrays are large enough to hold everything that might be
+		 * packed from the given arbiters. The arrays only ever grow so once
+		 * the simulation has settled in nothing is allocated.
+		 * 
+		 * @param arbiters The arbiters that will be packed
+		 */
+		private void ensureCapacity(ArbiterList arbiters) {
+			int maxBodies = arbiters.size() * 2;
+			int maxRows = 0;
+			for (int i=0;i<arbiters.size();i++) {
+				maxRows += arbiters.get(i).getNumContacts();
+			}
+		
+			if (bodies.length < maxBodies) {
+				int size = Math.max(maxBodies, bodies.length * 2);
+				
+				bodies = new Body[size];
+				vx = new float[size];
+				vy = new float[size];
+				w = new float[size];
+				lastVx = new float[size];
+				lastVy = new float[size];
+				lastW = new float[size];
+				biasVx = new float[size];
+				biasVy = new float[size];
+				biasW = new float[size];
+				mass = new float[size];
+				invMass = new float[size];
+				invI = new float[size];
+				maxVx = new float[size];
+				maxVy = new float[size];
+				moveable = new boolean[size];
+				rotatable = new boolean[size];
+			}
+			if (contacts.length < maxRows) {
+				int size = Math.max(maxRows, contacts.length * 2);
+				
+				contacts = new Contact[size];
+				body1 = new int[size];
+				body2 = new int[size];
+				r1x = new float[size];
+				r1y = new float[size];
+				r2x = new float[size];
+				r2y = new float[size];
+				nx = new float[size];
+				ny = new float[size];
+				massNormal = new float[size];
+				massTangent = new float[size];
+				bias = new float[size];
+				block = new boolean[size];
+				k11 = new float[size];
+				k12 = new float[size];
+				k22 = new float[size];
+				blockMass11 = new float[size];
+				blockMass12 = new float[size];
+				blockMass22 = new float[size];
+				restitution = new float[size];
+				normalImpulse = new float[size];
+				tangentImpulse = new float[size];
+				biasImpulse = new float[size];
+				friction = new float[size];
+			}
+			if (resting.length < arbiters.size()) {
+				resting = new Arbiter[Math.max(arbiters.size(), resting.length * 2)];
+			}
+		}
+	
+		/**
+		 * Get the index of a body in the arrays, packing it if this is the first
+		 * time it's been seen this step
+		 * 
+		 * @param body The body to locate
+		 * @return The index of the body in the arrays
+		 */
+		private int pack(Body body) {
+			int index = body.getSolverIndex();
+			if (index >= 0) {
+				return index;
+			}
+		
+			index = bodyCount++;
+			bodies[index] = body;
+			// a body of infinite mass may be shared with islands being solved
+			// on other threads, so rather than being marked it's packed again for
+			// each arbiter it's part of
+			if (!body.isShared()) {
+				body.setSolverIndex(index);
+			}
+			load(index);
+			
+			mass[index] = body.getMass();
+			invMass[index] = body.getInvMass();
+			invI[index] = body.getInvI();
+			moveable[index] = body.isMoveable();
+			rotatable[index] = body.isRotatable();
+			
+			ROVector2f max = body.getMaxVelocity();
+			if (max == null) {
+				maxVx[index] = Float.POSITIVE_INFINITY;
+				maxVy[index] = Float.POSITIVE_INFINITY;
+			} else {
+				maxVx[index] = max.getX();
+				maxVy[index] = max.getY();
+			}
+		
+			return index;
+		}
+		
+		/**
+		 * Read the velocities of a packed body into the arrays
+		 * 
+		 * @param index The index of the body to read
+		 */
+		private void load(int index) {
+			Body body = bodies[index];
+			
+			vx[index] = body.getVelocity().getX();
+			vy[index] = body.getVelocity().getY();
+			w[index] = body.getAngularVelocity();
+			lastVx[index] = body.getLastVelocity().getX();
+			lastVy[index] = body.getLastVelocity().getY();
+			lastW[index] = body.getLastAngularVelocity();
+			biasVx[index] = body.getBiasedVelocity().getX();
+			biasVy[index] = body.getBiasedVelocity().getY();
+			biasW[index] = body.getBiasedAngularVelocity();
+		}
+	
+		/**
+		 * Write the velocities of a packed body from the arrays back to the body
+		 * 
+		 * @param index The index of the body to write
+		 */
+		private void store(int index) {
+			Body body = bodies[index];
+			
+			body.setVelocityState(vx[index], vy[index], w[index], lastVx[index], lastVy[index], lastW[index]);
+			body.setBiasedVelocityState(biasVx[index], biasVy[index], biasW[index]);
+		}
+		
+		/**
+		 * Write the packed velocities of the bodies attached to a joint back 
+		 * to the bodies so the joint can work on them
+		 * 
+		 * @param joint The joint about to be resolved
+		 */
+		private void store(Joint joint) {
+			int index1 = joint.getBody1().getSolverIndex();
+			int index2 = joint.getBody2().getSolverIndex();
+			
+			if (index1 >= 0) {
+				store(index1);
+			}
+			if (index2 >= 0) {
+				store(index2);
+			}
+		}
+	
+		/**
+		 * Read the velocities of the bodies attached to a joint back into the 
+		 * arrays once the joint has worked on them
+		 * 
+		 * @param joint The joint that has been resolved
+		 */
+		private void load(Joint joint) {
+			int index1 = joint.getBody1().getSolverIndex();
+			int index2 = joint.getBody2().getSolverIndex();
+			
+			if (index1 >= 0) {
+				load(index1);
+			}
+			if (index2 >= 0) {
+				load(index2);
+			}
+		}
+		
+		/**
+		 * Write the solved state back to the bodies and contacts and release
+		 * the bodies from the arrays
+		 */
+		private void unpack() {
+			for (int i=0;i<bodyCount;i++) {
+				if (bodies[i].getSolverIndex() == i) {
+					store(i);
+					bodies[i].setSolverIndex(-1);
+				}
+				bodies[i] = null;
+			}
+		
+			for (int i=0;i<rowCount;i++) {
+				Contact c = contacts[i];
+			
+				c.massNormal = massNormal[i];
+				c.massTangent = massTangent[i];
+				c.bias = bias[i];
+				c.restitution = restitution[i];
+				c.accumulatedNormalImpulse = normalImpulse[i];
+				c.accumulatedTangentImpulse = tangentImpulse[i];
+				c.biasImpulse = biasImpulse[i];
+				contacts[i] = null;
+			}
+		}
+	
+		/**
+		 * Adjust the velocity of a packed body as Body#adjustVelocity() would
+		 * 
+		 * @param b The index of the body to adjust
+		 * @param dx The amount to change the velocity by on the x axis
+		 * @param dy The amount to change the velocity by on the y axis
+		 */
+		private void adjustVelocity(int b, float dx, float dy) {
+			if (!moveable[b]) {
+				return;
+			}
+			lastVx[b] = vx[b];
+			lastVy[b] = vy[b];
+			vx[b] += dx;
+			vy[b] += dy;
+		
+			if (Math.abs(vx[b]) > maxVx[b]) {
+				vx[b] = vx[b] > 0 ? maxVx[b] : -maxVx[b];
+			}
+			if (Math.abs(vy[b]) > maxVy[b]) {
+				vy[b] = vy[b] > 0 ? maxVy[b] : -maxVy[b];
+			}
+		}
+	
+		/**
+		 * Adjust the angular velocity of a packed body as 
+		 * Body#adjustAngularVelocity() would
+		 * 
+		 * @param b The index of the body to adjust
+		 * @param delta The amount to change the velocity by
+		 */
+		private void adjustAngularVelocity(int b, float delta) {
+			if (!rotatable[b]) {
+				return;
+			}
+			lastW[b] = w[b];
+			w[b] += delta;
+		}
+	
+		/**
+		 * Adjust the bias velocity of a packed body
+		 * 
+		 * @param b The index of the body to adjust
+		 * @param dx The amount to change the velocity by on the x axis
+		 * @param dy The amount to change the velocity by on the y axis
+		 */
+		private void adjustBiasedVelocity(int b, float dx, float dy) {
+			if (!moveable[b]) {
+				return;
+			}
+			biasVx[b] += dx;
+			biasVy[b] += dy;
+		}
+	
+		/**
+		 * Adjust the bias angular velocity of a packed body
+		 * 
+		 * @param b The index of the body to adjust
+		 * @param delta The amount to change the velocity by
+		 */
+		private void adjustBiasedAngularVelocity(int b, float delta) {
+			if (!rotatable[b]) {
+				return;
+			}
+			biasW[b] += delta;
+		}
+	
+		/**
+		 * Pack the contacts of an arbiter, precomputing their masses and bias 
+		 * and applying the impulse accumulated last step. 
+		 * 
+		 * @see Arbiter#preStep(float, float, float)
+		 * @param arb The arbiter to pack
+		 * @param invDT The inverted time
+		 * @param dt The amount of time to step the simulation by
+		 * @param damping The percentage of energy to retain through out
+		 * collision. (1 = no loss, 0 = total loss)
+		 */
+		private void preStep(Arbiter arb, float invDT, float dt, float damping) {
+			float allowedPenetration = 0.01f;
+			float biasFactor = 0.8f;
+			
+			Body bodyA = arb.getBody1();
+			Body bodyB = arb.getBody2();
+			int a = pack(bodyA);
+			int b = pack(bodyB);
+			ROVector2f p1 = bodyA.getPosition();
+			ROVector2f p2 = bodyB.getPosition();
+			float combinedRestitution = (bodyA.getRestitution() * bodyB.getRestitution());
+			
+			for (int i=0;i<arb.getNumContacts();i++) {
+				Contact c = arb.getContact(i);
+				c.normal.normalise();
+			
+				int row = rowCount++;
+				contacts[row] = c;
+				body1[row] = a;
+				body2[row] = b;
+				friction[row] = arb.getFriction();
+			
+				float nx = c.normal.x;
+				float ny = c.normal.y;
+				float r1x = c.position.x - p1.getX();
+				float r1y = c.position.y - p1.getY();
+				float r2x = c.position.x - p2.getX();
+				float r2y = c.position.y - p2.getY();
+				float r1r1 = (r1x * r1x) + (r1y * r1y);
+				float r2r2 = (r2x * r2x) + (r2y * r2y);
+				this.nx[row] = nx;
+				this.ny[row] = ny;
+				this.r1x[row] = r1x;
+				this.r1y[row] = r1y;
+				this.r2x[row] = r2x;
+				this.r2y[row] = r2y;
+			
+				// Precompute normal mass, tangent mass, and bias.
+				float rn1 = (r1x * nx) + (r1y * ny);
+				float rn2 = (r2x * nx) + (r2y * ny);
+				float kNormal = invMass[a] + invMass[b];
+				kNormal += invI[a] * (r1r1 - rn1 * rn1) + invI[b] * (r2r2 - rn2 * rn2);
+				massNormal[row] = damping / kNormal;
+			
+				// tangent = cross(normal, 1)
+				float tx = ny;
+				float ty = -nx;
+				float rt1 = (r1x * tx) + (r1y * ty);
+				float rt2 = (r2x * tx) + (r2y * ty);
+				float kTangent = invMass[a] + invMass[b];
+				kTangent += invI[a] * (r1r1 - rt1 * rt1) + invI[b] * (r2r2 - rt2 * rt2);
+				massTangent[row] = damping / kTangent;
+			
+				// Compute restitution
+				float rvx = vx[b] + w[b] * r2y - vx[a] - w[a] * r1y;
+				float rvy = vy[b] - w[b] * r2x - vy[a] + w[a] * r1x;
+			
+				float relVel = (nx * rvx) + (ny * rvy);
+				float rest = combinedRestitution * -relVel;
+				rest = Math.max(rest, 0);
+				restitution[row] = rest;
+			
+				float penVel = -c.separation / dt;
+				if (!biased || (rest >= penVel)) {
+					bias[row] = 0; 
+				} else {
+					bias[row] = -biasFactor * invDT * Math.min(0.0f, c.separation + allowedPenetration);
+				}
+			
+				// apply damping
+				float accN = c.accumulatedNormalImpulse * damping;
+				float accT = c.accumulatedTangentImpulse;
+				normalImpulse[row] = accN;
+				tangentImpulse[row] = accT;
+				biasImpulse[row] = 0;
+			
+				// Apply normal + friction impulse
+				float px = nx * accN + tx * accT;
+				float py = ny * accN + ty * accT;
+			
+				adjustVelocity(a, px * -invMass[a], py * -invMass[a]);
+				adjustAngularVelocity(a, -invI[a] * (r1x * py - r1y * px));
+			
+				adjustVelocity(b, px * invMass[b], py * invMass[b]);
+				adjustAngularVelocity(b, invI[b] * (r2x * py - r2y * px));
+				
+				block[row] = false;
+			}
+			
+			this.damping = damping;
+			if ((arb.getNumContacts() == 2) && arb.isBlockSolveEnabled()) {
+				prepareBlock(rowCount - 2);
+			}
+		}
+		
+		/**
+		 * Work out whether a pair of packed contacts can be resolved together
+		 * as a block, as Arbiter#prepareBlock() would
+		 * 
+		 * @param row The index of the first contact of the pair
+		 */
+		private void prepareBlock(int row) {
+			int a = body1[row];
+			int b = body2[row];
+			int next = row + 1;
+			
+			float rn1a = (r1x[row] * ny[row]) - (r1y[row] * nx[row]);
+			float rn2a = (r2x[row] * ny[row]) - (r2y[row] * nx[row]);
+			float rn1b = (r1x[next] * ny[next]) - (r1y[next] * nx[next]);
+			float rn2b = (r2x[next] * ny[next]) - (r2y[next] * nx[next]);
+			float nn = (nx[row] * nx[next]) + (ny[row] * ny[next]);
+			
+			float invMassSum = invMass[a] + invMass[b];
+			float k11 = invMassSum + (invI[a] * rn1a * rn1a) + (invI[b] * rn2a * rn2a);
+			float k22 = invMassSum + (invI[a] * rn1b * rn1b) + (invI[b] * rn2b * rn2b);
+			float k12 = (invMassSum * nn) + (invI[a] * rn1a * rn1b) + (invI[b] * rn2a * rn2b);
+			
+			float det = (k11 * k22) - (k12 * k12);
+			if ((k11 * k11) < MAX_CONDITION * det) {
+				block[row] = true;
+				this.k11[row] = k11;
+				this.k12[row] = k12;
+				this.k22[row] = k22;
+				blockMass11[row] = k22 / det;
+				blockMass12[row] = -k12 / det;
+				blockMass22[row] = k11 / det;
+			}
+		}
+	
+		/**
+		 * Apply one iteration of impulse to a packed contact
+		 * 
+		 * @see Arbiter#applyImpulse()
+		 * @param row The index of the contact to resolve
+		 * @return The largest change made to an accumulated impulse
+		 */
+		private float applyImpulse(int row) {
+			// the amount of impulse per mass unit that must be applied before
+			// restitution will have any effect. This gives more stability at
+			// rest
+			float restResponseImpulse = 5;
+			
+			int a = body1[row];
+			int b = body2[row];
+			float nx = this.nx[row];
+			float ny = this.ny[row];
+			float r1x = this.r1x[row];
+			float r1y = this.r1y[row];
+			float r2x = this.r2x[row];
+			float r2y = this.r2y[row];
+			float invMass1 = invMass[a];
+			float invMass2 = invMass[b];
+			float invI1 = invI[a];
+			float invI2 = invI[b];
+			
+			// Relative velocity at contact
+			float rvx = vx[b] - w[b] * r2y - vx[a] + w[a] * r1y;
+			float rvy = vy[b] + w[b] * r2x - vy[a] - w[a] * r1x;
+			
+			// Compute normal impulse
+			float vn = (rvx * nx) + (rvy * ny);
+			float impulse = massNormal[row] * (restitution[row] - vn);
+			
+			// Clamp the accumulated impulse
+			float oldImpulse = normalImpulse[row];
+			normalImpulse[row] = Math.max(oldImpulse + impulse, 0.0f);
+			impulse = normalImpulse[row] - oldImpulse;
+			
+			float change = Math.abs(impulse);
+			
+			// Apply contact impulse
+			float px = nx * impulse;
+			float py = ny * impulse;
+			
+			adjustVelocity(a, px * -invMass1, py * -invMass1);
+			adjustAngularVelocity(a, -(invI1 * (r1x * py - r1y * px)));
+			
+			adjustVelocity(b, px * invMass2, py * invMass2);
+			adjustAngularVelocity(b, invI2 * (r2x * py - r2y * px));
+			
+			if ((normalImpulse[row] / mass[a] < restResponseImpulse) &&
+			   (normalImpulse[row] / mass[b] < restResponseImpulse)) {
+				restitution[row] = 0;
+			}
+		
+			// Compute bias impulse
+			if (biased) {
+				rvx = biasVx[b] - biasW[b] * r2y - biasVx[a] + biasW[a] * r1y;
+				rvy = biasVy[b] + biasW[b] * r2x - biasVy[a] - biasW[a] * r1x;
+				float vnb = (rvx * nx) + (rvy * ny);
+				
+				impulse = massNormal[row] * (-vnb + bias[row]);
+				oldImpulse = biasImpulse[row];
+				biasImpulse[row] = Math.max(oldImpulse + impulse, 0.0f);
+				impulse = biasImpulse[row] - oldImpulse;
+				change = Math.max(change, Math.abs(impulse));
+				
+				px = nx * impulse;
+				py = ny * impulse;
+				
+				adjustBiasedVelocity(a, px * -invMass1, py * -invMass1);
+				adjustBiasedAngularVelocity(a, -(invI1 * (r1x * py - r1y * px)));
+				
+				adjustBiasedVelocity(b, px * invMass2, py * invMass2);
+				adjustBiasedAngularVelocity(b, (invI2 * (r2x * py - r2y * px)));
+			}
+		
+			return Math.max(change, Math.abs(applyFrictionImpulse(row)));
+		}
+		
+		/**
+		 * Apply one iteration of friction impulse to a packed contact
+		 * 
+		 * @param row The index of the contact to resolve
+		 * @return The change made to the accumulated tangent impulse
+		 */
+		private float applyFrictionImpulse(int row) {
+			int a = body1[row];
+			int b = body2[row];
+			float nx = this.nx[row];
+			float ny = this.ny[row];
+			float r1x = this.r1x[row];
+			float r1y = this.r1y[row];
+			float r2x = this.r2x[row];
+			float r2y = this.r2y[row];
+			float invMass1 = invMass[a];
+			float invMass2 = invMass[b];
+			float invI1 = invI[a];
+			float invI2 = invI[b];
+			
+			float maxTangentImpulse = friction[row] * normalImpulse[row];
+		
+			float rvx = vx[b] - w[b] * r2y - vx[a] + w[a] * r1y;
+			float rvy = vy[b] + w[b] * r2x - vy[a] - w[a] * r1x;
+		
+			// tangent = cross(normal, 1)
+			float tx = ny;
+			float ty = -nx;
+			float vt = (rvx * tx) + (rvy * ty);
+			float impulse = massTangent[row] * (-vt);
+		
+			// Clamp friction
+			float oldImpulse = tangentImpulse[row];
+			tangentImpulse[row] = MathUtil.clamp(oldImpulse + impulse, -maxTangentImpulse, maxTangentImpulse);
+			impulse = tangentImpulse[row] - oldImpulse;
+		
+			// Apply contact impulse
+			float px = tx * impulse;
+			float py = ty * impulse;
+		
+			adjustVelocity(a, px * -invMass1, py * -invMass1);
+			adjustAngularVelocity(a, -invI1 * (r1x * py - r1y * px));
+		
+			adjustVelocity(b, px * invMass2, py * invMass2);
+			adjustAngularVelocity(b, invI2 * (r2x * py - r2y * px));
+			
+			return impulse;
+		}
+		
+		/**
+		 * Apply one iteration of impulse to a pair of packed contacts resolved
+		 * together as a block
+		 * 
+		 * @see Arbiter#applyImpulse()
+		 * @param row The index of the first contact of the pair
+		 * @return The largest change made to an accumulated impulse
+		 */
+		private float applyBlockImpulse(int row) {
+			// the amount of impulse per mass unit that must be applied before
+			// restitution will have any effect. This gives more stability at
+			// rest
+			float restResponseImpulse = 5;
+			
+			float change = applyBlockImpulse(row, false);
+			for (int i=row;i<row+2;i++) {
+				if ((normalImpulse[i] / mass[body1[i]] < restResponseImpulse) &&
+				   (normalImpulse[i] / mass[body2[i]] < restResponseImpulse)) {
+					restitution[i] = 0;
+				}
+			}
+			if (biased) {
+				change = Math.max(change, applyBlockImpulse(row, true));
+			}
+			change = Math.max(change, Math.abs(applyFrictionImpulse(row)));
+			change = Math.max(change, Math.abs(applyFrictionImpulse(row + 1)));
+			
+			return change;
+		}
+		
+		/**
+		 * Apply one iteration of normal impulse to a pair of packed contacts at
+		 * once, as Arbiter#applyBlockImpulse() would
+		 * 
+		 * @param row The index of the first contact of the pair
+		 * @param biased True if the bias impulse should be resolved, false for
+		 * the normal impulse
+		 * @return The largest change made to an accumulated impulse
+		 */
+		private float applyBlockImpulse(int row, boolean biased) {
+			int next = row + 1;
+			int a = body1[row];
+			int b = body2[row];
+			float invMass1 = invMass[a];
+			float invMass2 = invMass[b];
+			float invI1 = invI[a];
+			float invI2 = invI[b];
+			
+			float vx1 = biased ? biasVx[a] : vx[a];
+			float vy1 = biased ? biasVy[a] : vy[a];
+			float vx2 = biased ? biasVx[b] : vx[b];
+			float vy2 = biased ? biasVy[b] : vy[b];
+			float w1 = biased ? biasW[a] : w[a];
+			float w2 = biased ? biasW[b] : w[b];
+			
+			// relative velocity along the normal at each contact
+			float rvx = vx2 - w2 * r2y[row] - vx1 + w1 * r1y[row];
+			float rvy = vy2 + w2 * r2x[row] - vy1 - w1 * r1x[row];
+			float vn1 = (rvx * nx[row]) + (rvy * ny[row]);
+			rvx = vx2 - w2 * r2y[next] - vx1 + w1 * r1y[next];
+			rvy = vy2 + w2 * r2x[next] - vy1 - w1 * r1x[next];
+			float vn2 = (rvx * nx[next]) + (rvy * ny[next]);
+			
+			float a1 = biased ? biasImpulse[row] : normalImpulse[row];
+			float a2 = biased ? biasImpulse[next] : normalImpulse[next];
+			float t1 = biased ? bias[row] : restitution[row];
+			float t2 = biased ? bias[next] : restitution[next];
+			
+			float bx = vn1 - t1 - ((k11[row] * a1) + (k12[row] * a2));
+			float by = vn2 - t2 - ((k12[row] * a1) + (k22[row] * a2));
+			
+			float x1 = -((blockMass11[row] * bx) + (blockMass12[row] * by));
+			float x2 = -((blockMass12[row] * bx) + (blockMass22[row] * by));
+			if ((x1 < 0) || (x2 < 0)) {
+				x1 = -bx / k11[row];
+				x2 = 0;
+				if ((x1 < 0) || ((k12[row] * x1) + by < 0)) {
+					x1 = 0;
+					x2 = -by / k22[row];
+					if ((x2 < 0) || ((k12[row] * x2) + bx < 0)) {
+						x1 = 0;
+						x2 = 0;
+						if ((bx < 0) || (by < 0)) {
+							return 0;
+						}
+					}
+				}
+			}
+			
+			float d1 = damping * (x1 - a1);
+			float d2 = damping * (x2 - a2);
+			
+			float p1x = nx[row] * d1;
+			float p1y = ny[row] * d1;
+			float p2x = nx[next] * d2;
+			float p2y = ny[next] * d2;
+			float px = p1x + p2x;
+			float py = p1y + p2y;
+			float ang1 = (r1x[row] * p1y - r1y[row] * p1x) + (r1x[next] * p2y - r1y[next] * p2x);
+			float ang2 = (r2x[row] * p1y - r2y[row] * p1x) + (r2x[next] * p2y - r2y[next] * p2x);
+			
+			if (biased) {
+				biasImpulse[row] = a1 + d1;
+				biasImpulse[next] = a2 + d2;
+				adjustBiasedVelocity(a, px * -invMass1, py * -invMass1);
+				adjustBiasedAngularVelocity(a, -(invI1 * ang1));
+				adjustBiasedVelocity(b, px * invMass2, py * invMass2);
+				adjustBiasedAngularVelocity(b, invI2 * ang2);
+			} else {
+				normalImpulse[row] = a1 + d1;
+				normalImpulse[next] = a2 + d2;
+				adjustVelocity(a, px * -invMass1, py * -invMass1);
+				adjustAngularVelocity(a, -(invI1 * ang1));
+				adjustVelocity(b, px * invMass2, py * invMass2);
+				adjustAngularVelocity(b, invI2 * ang2);
+			}
+			
+			return Math.max(Math.abs(d1), Math.abs(d2));
+		}
+	}
+}
\ No newline at end of file
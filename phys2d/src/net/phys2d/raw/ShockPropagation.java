@@ -0,0 +1,205 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+import net.phys2d.math.ROVector2f;
+
+/**
+ * Orders the contacts of a step from the bottom of the world up, along the 
+ * direction of gravity, and once the solver has run makes a final pass up 
+ * through them in which the lower body of each contact is treated as if it 
+ * had infinite mass. The bodies at the bottom of a stack are solved first 
+ * and can't then be pushed down by the bodies resting on them, so the 
+ * weight of a stack doesn't need many iterations to travel down it.
+ */
+strictfp class ShockPropagation {
+	/** The arbiters in order from the bottom up */
+	private ArbiterList sorted = new ArbiterList();
+	/** The arbiters being sorted */
+	private Arbiter[] order = new Arbiter[0];
+	/** The height of each arbiter being sorted */
+	private float[] heights = new float[0];
+	/** The scratch space for merging the arbiters */
+	private Arbiter[] mergeOrder = new Arbiter[0];
+	/** The scratch space for merging the heights */
+	private float[] mergeHeights = new float[0];
+	
+	/**
+	 * Sort a set of arbiters from the bottom up. The list returned is reused
+	 * by the next sort.
+	 * 
+	 * @param arbiters The arbiters to sort
+	 * @param gravity The direction of gravity in the world
+	 * @return The arbiters sorted from the bottom up, or the arbiters given
+	 * if there's no gravity to give an order
+	 */
+	ArbiterList sort(ArbiterList arbiters, ROVector2f gravity) {
+		if ((gravity.getX() == 0) && (gravity.getY() == 0)) {
+			return arbiters;
+		}
+		
+		int count = arbiters.size();
+		if (order.length < count) {
+			int size = Math.max(count, order.length * 2);
+			order = new Arbiter[size];
+			heights = new float[size];
+			mergeOrder = new Arbiter[size];
+			mergeHeights = new float[size];
+		}
+		
+		for (int i=0;i<count;i++) {
+			Arbiter arb = arbiters.get(i);
+			order[i] = arb;
+			heights[i] = getHeight(arb, gravity);
+		}
+		mergeSort(count);
+		
+		sorted.clear();
+		for (int i=0;i<count;i++) {
+			sorted.add(order[i]);
+			order[i] = null;
+		}
+		
+		return sorted;
+	}
+	
+	/**
+	 * Get the height of an arbiter against gravity. Only the order matters
+	 * so the height isn't scaled by the strength of gravity.
+	 * 
+	 * @param arb The arbiter to check
+	 * @param gravity The direction of gravity in the world
+	 * @return The height of the centre of the arbiter's contacts
+	 */
+	private float getHeight(Arbiter arb, ROVector2f gravity) {
+		float x = 0;
+		float y = 0;
+		int contacts = arb.getNumContacts();
+		if (contacts == 0) {
+			x = (arb.getBody1().getPosition().getX() + arb.getBody2().getPosition().getX()) * 0.5f;
+			y = (arb.getBody1().getPosition().getY() + arb.getBody2().getPosition().getY()) * 0.5f;
+		} else {
+			for (int i=0;i<contacts;i++) {
+				ROVector2f position = arb.getContact(i).getPosition();
+				x += position.getX();
+				y += position.getY();
+			}
+			x /= contacts;
+			y /= contacts;
+		}
+		
+		return -((x * gravity.getX()) + (y * gravity.getY()));
+	}
+	
+	/**
+	 * Sort the arbiters by height with a bottom up merge sort, which keeps
+	 * arbiters at the same height in the order they were given
+	 * 
+	 * @param count The number of arbiters to sort
+	 */
+	private void mergeSort(int count) {
+		for (int width=1;width<count;width*=2) {
+			for (int start=0;start<count;start+=width*2) {
+				int middle = Math.min(start + width, count);
+				int end = Math.min(start + (width * 2), count);
+				
+				int a = start;
+				int b = middle;
+				for (int i=start;i<end;i++) {
+					if ((a < middle) && ((b >= end) || (heights[a] <= heights[b]))) {
+						mergeOrder[i] = order[a];
+						mergeHeights[i] = heights[a++];
+					} else {
+						mergeOrder[i] = order[b];
+						mergeHeights[i] = heights[b++];
+					}
+				}
+			}
+			
+			Arbiter[] tempOrder = order;
+			order = mergeOrder;
+			mergeOrder = tempOrder;
+			float[] tempHeights = heights;
+			heights = mergeHeights;
+			mergeHeights = tempHeights;
+		}
+		
+		for (int i=0;i<count;i++) {
+			mergeOrder[i] = null;
+		}
+	}
+	
+	/**
+	 * Make the final pass up through the sorted arbiters, treating the lower
+	 * body of each as immovable
+	 * 
+	 * @param arbiters The arbiters sorted from the bottom up
+	 * @param gravity The direction of gravity in the world
+	 * @param damping The percentage of energy to retain through out
+	 * collision. (1 = no loss, 0 = total loss)
+	 * @param restingBodyDetection True if arbiters between two resting bodies
+	 * should be skipped
+	 */
+	void propagate(ArbiterList arbiters, ROVector2f gravity, float damping, boolean restingBodyDetection) {
+		if ((gravity.getX() == 0) && (gravity.getY() == 0)) {
+			return;
+		}
+		
+		for (int i=0;i<arbiters.size();i++) {
+			Arbiter arb = arbiters.get(i);
+			if (restingBodyDetection && arb.hasRestingPair()) {
+				continue;
+			}
+			
+			Body body1 = arb.getBody1();
+			Body body2 = arb.getBody2();
+			Body lower;
+			if (body1.getInvMass() == 0) {
+				lower = body1;
+			} else if (body2.getInvMass() == 0) {
+				lower = body2;
+			} else {
+				float height1 = -((body1.getPosition().getX() * gravity.getX()) + (body1.getPosition().getY() * gravity.getY()));
+				float height2 = -((body2.getPosition().getX() * gravity.getX()) + (body2.getPosition().getY() * gravity.getY()));
+				lower = height1 <= height2 ? body1 : body2;
+			}
+			
+			arb.applyShockImpulse(lower, damping);
+		}
+	}
+}
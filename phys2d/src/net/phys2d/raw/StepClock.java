@@ -0,0 +1,65 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * A source of time for the step profiler. The engine itself runs on 
+ * versions of Java without System.nanoTime(), so the clock reading it is
+ * loaded by name and the default clock falls back to the resolution of 
+ * System.currentTimeMillis() only where it's missing.
+ */
+public interface StepClock {
+	/** A clock accurate to a millisecond, available on any VM */
+	public static final StepClock MILLISECONDS = new StepClock() {
+		public long getNanoTime() {
+			return System.currentTimeMillis() * 1000000L;
+		}
+	};
+	/** A clock reading System.nanoTime(), or null where that isn't available */
+	public static final StepClock NANOSECONDS = StepStats.loadNanoClock();
+	/** The clock used when none is given, nanoseconds where available */
+	public static final StepClock DEFAULT = NANOSECONDS != null ? NANOSECONDS : MILLISECONDS;
+	
+	/**
+	 * Get the current time. Only the difference between two times is 
+	 * meaningful.
+	 * 
+	 * @return The current time in nanoseconds
+	 */
+	public long getNanoTime();
+}
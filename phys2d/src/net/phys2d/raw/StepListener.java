@@ -0,0 +1,87 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * A description of a class that can be notified as a world steps, for 
+ * instance to pass each step and its phases on to an external profiler 
+ * or event recorder as they happen. The phases are identified by the 
+ * constants on <code>StepStats</code>.
+ * <p>
+ * The phases run one after another and may each be reported many times
+ * a step, once for every sub-step or island. The broad phase covers all
+ * of collision, narrow phase included, and the solver phase covers the 
+ * whole constraint solve, pre-steps included. When islands are stepped 
+ * on a worker pool their phases are reported on the pool's threads, many
+ * at once, so an implementation has to keep each thread's phases apart.
+ * <p>
+ * Listeners are called on every step, so they shouldn't allocate or
+ * block. With no listeners added the world makes no calls at all.
+ */
+public interface StepListener {
+	/**
+	 * Notification that a step is starting
+	 * 
+	 * @param world The world being stepped
+	 */
+	public void stepStarted(World world);
+	
+	/**
+	 * Notification that a phase of the step is starting
+	 * 
+	 * @param world The world being stepped
+	 * @param phase The phase starting
+	 */
+	public void phaseStarted(World world, int phase);
+	
+	/**
+	 * Notification that a phase of the step has ended
+	 * 
+	 * @param world The world being stepped
+	 * @param phase The phase that has ended
+	 */
+	public void phaseEnded(World world, int phase);
+	
+	/**
+	 * Notification that a step has ended. The bodies, arbiters and joints
+	 * in the world are as the step left them.
+	 * 
+	 * @param world The world that has been stepped
+	 */
+	public void stepEnded(World world);
+}
@@ -0,0 +1,389 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * The timings and counts recorded by a world for each step it takes, kept
+ * over a rolling window of recent steps. Each metric is identified by one
+ * of the constants on this class, times are in nanoseconds. The window is
+ * allocated up front and nothing is allocated while recording or reading,
+ * so the same object can be left in place for the life of a world.
+ * <p>
+ * The world records into the stats as it steps, so they should be read
+ * between steps on the stepping thread. When islands are stepped on a 
+ * worker pool the phase times add up the time spent on every thread, each
+ * thread recording to stats of its own that are added in once the islands
+ * are done.
+ */
+public class StepStats {
+	/** The time spent applying the force sources */
+	public static final int FORCES = 0;
+	/** The time spent by the collision strategy finding pairs to check */
+	public static final int BROAD_PHASE = 1;
+	/** The time spent colliding the pairs found */
+	public static final int NARROW_PHASE = 2;
+	/** The time spent splitting the bodies into islands */
+	public static final int ISLANDS = 3;
+	/** The time spent preparing contacts before the iterations */
+	public static final int ARBITER_PRE_STEP = 4;
+	/** The time spent preparing joints before the iterations */
+	public static final int JOINT_PRE_STEP = 5;
+	/** The time spent in the solver iterations */
+	public static final int SOLVER = 6;
+	/** The time spent in the position projection pass */
+	public static final int POSITION_CORRECTION = 7;
+	/** The time spent integrating velocities and positions */
+	public static final int INTEGRATION = 8;
+	/** The time spent on resting body detection and sleeping */
+	public static final int RESTING = 9;
+	/** The time spent cleaning up the arbiters of removed bodies */
+	public static final int CLEAN_UP = 10;
+	/** The time spent on the whole step */
+	public static final int STEP = 11;
+	/** The number of pairs handed from the broad phase to the narrow phase */
+	public static final int CANDIDATE_PAIRS = 12;
+	/** The number of pairs whose bounds overlapped and were collided */
+	public static final int NARROW_PHASE_CALLS = 13;
+	/** The number of contacts generated by collision */
+	public static final int CONTACTS = 14;
+	/** The number of arbiters created for pairs that started overlapping */
+	public static final int ARBITERS_CREATED = 15;
+	/** The number of arbiters discarded for pairs that stopped overlapping */
+	public static final int ARBITERS_DESTROYED = 16;
+	/** The number of metrics recorded */
+	public static final int METRICS = 17;
+	
+	/** The names of the metrics */
+	private static final String[] NAMES = {"forces", "broadPhase", "narrowPhase", "islands", 
+		"arbiterPreStep", "jointPreStep", "solver", "positionCorrection", "integration", 
+		"resting", "cleanUp", "step", "candidatePairs", "narrowPhaseCalls", "contacts", 
+		"arbitersCreated", "arbitersDestroyed"};
+	
+	/** The clock the timings are taken from */
+	private StepClock clock;
+	/** The values recorded so far for the step in progress */
+	private long[] current = new long[METRICS];
+	/** The values recorded for each step in the window, by metric */
+	private long[][] samples;
+	/** The total of the values in the window, by metric */
+	private long[] totals = new long[METRICS];
+	/** The number of steps in the window so far */
+	private int count;
+	/** The index in the window the next step will be written to */
+	private int next;
+	/** The largest values in the window, used to find the percentile */
+	private long[] largest;
+	
+	/**
+	 * Create a new set of stats timed with the default clock, accurate to 
+	 * a nanosecond where System.nanoTime() is available
+	 * 
+	 * @param window The number of steps to keep the values of
+	 */
+	public StepStats(int window) {
+		this(window, StepClock.DEFAULT);
+	}
+	
+	/**
+	 * Create a new set of stats
+	 * 
+	 * @param window The number of steps to keep the values of
+	 * @param clock The clock to take the timings from
+	 */
+	public StepStats(int window, StepClock clock) {
+		if (window < 1) {
+			throw new IllegalArgumentException("Invalid window: "+window);
+		}
+		if (clock == null) {
+			throw new IllegalArgumentException("A clock is required");
+		}
+		
+		this.clock = clock;
+		samples = new long[METRICS][window];
+		largest = new long[(window / 100) + 1];
+	}
+	
+	/**
+	 * Load the clock reading System.nanoTime(). The clock is loaded by name
+	 * and read once up front, so a VM without the method fails here rather
+	 * than part way through a step.
+	 * 
+	 * @return The clock or null if System.nanoTime() isn't available on 
+	 * this VM
+	 */
+	static StepClock loadNanoClock() {
+		try {
+			StepClock clock = (StepClock) Class.forName("net.phys2d.raw.NanoClock").newInstance();
+			clock.getNanoTime();
+			
+			return clock;
+		} catch (Exception e) {
+			// the clock couldn't be created
+			return null;
+		} catch (LinkageError e) {
+			// nanoTime() was only added in Java 5
+			return null;
+		}
+	}
+	
+	/**
+	 * Get the name of a metric
+	 * 
+	 * @param metric The metric to name
+	 * @return The name of the metric
+	 */
+	public static String getName(int metric) {
+		return NAMES[metric];
+	}
+	
+	/**
+	 * Get the current time from the clock the stats are timed with
+	 * 
+	 * @return The current time in nanoseconds
+	 */
+	public long getTime() {
+		return clock.getNanoTime();
+	}
+	
+	/**
+	 * Add time to a phase of the step in progress
+	 * 
+	 * @param phase The phase the time was spent in
+	 * @param time The time spent in nanoseconds
+	 */
+	public synchronized void addTime(int phase, long time) {
+		current[phase] += time;
+	}
+	
+	/**
+	 * Add the time since the given time to a phase of the step in progress
+	 * 
+	 * @param phase The phase the time was spent in
+	 * @param start The time, from getTime(), the phase started
+	 * @return The current time, ready to start the next phase
+	 */
+	public long addTimeSince(int phase, long start) {
+		long now = clock.getNanoTime();
+		addTime(phase, now - start);
+		
+		return now;
+	}
+	
+	/**
+	 * Add to a count for the step in progress
+	 * 
+	 * @param counter The metric to count
+	 * @param amount The amount to add
+	 */
+	public synchronized void addCount(int counter, int amount) {
+		current[counter] += amount;
+	}
+	
+	/**
+	 * Get the clock the stats are timed with
+	 * 
+	 * @return The clock the timings are taken from
+	 */
+	StepClock getClock() {
+		return clock;
+	}
+	
+	/**
+	 * Add the values recorded so far by another set of stats to the step
+	 * in progress, clearing them from the other set. The other set must no 
+	 * longer be being recorded to.
+	 * 
+	 * @param other The stats to take the values from
+	 */
+	synchronized void add(StepStats other) {
+		for (int i=0;i<METRICS;i++) {
+			current[i] += other.current[i];
+			other.current[i] = 0;
+		}
+	}
+	
+	/**
+	 * Get the value recorded so far for the step in progress
+	 * 
+	 * @param metric The metric to check
+	 * @return The value recorded so far
+	 */
+	synchronized long getCurrent(int metric) {
+		return current[metric];
+	}
+	
+	/**
+	 * Finish the step in progress, moving its values into the window and
+	 * starting the next from zero
+	 */
+	synchronized void endStep() {
+		int window = samples[0].length;
+		for (int i=0;i<METRICS;i++) {
+			if (count == window) {
+				totals[i] -= samples[i][next];
+			}
+			samples[i][next] = current[i];
+			totals[i] += current[i];
+			current[i] = 0;
+		}
+		
+		next = (next + 1) % window;
+		if (count < window) {
+			count++;
+		}
+	}
+	
+	/**
+	 * Discard all the steps recorded
+	 */
+	public synchronized void reset() {
+		for (int i=0;i<METRICS;i++) {
+			current[i] = 0;
+			totals[i] = 0;
+		}
+		count = 0;
+		next = 0;
+	}
+	
+	/**
+	 * Get the number of steps in the window
+	 * 
+	 * @return The number of steps the values are taken over
+	 */
+	public synchronized int getSampleCount() {
+		return count;
+	}
+	
+	/**
+	 * Get the value of a metric for the last step
+	 * 
+	 * @param metric The metric to check
+	 * @return The value for the last step, or zero if there's been no step
+	 */
+	public synchronized long getLast(int metric) {
+		if (count == 0) {
+			return 0;
+		}
+		
+		int window = samples[0].length;
+		return samples[metric][(next + window - 1) % window];
+	}
+	
+	/**
+	 * Get the smallest value of a metric over the window
+	 * 
+	 * @param metric The metric to check
+	 * @return The smallest value, or zero if there's been no step
+	 */
+	public synchronized long getMin(int metric) {
+		if (count == 0) {
+			return 0;
+		}
+		
+		long min = Long.MAX_VALUE;
+		for (int i=0;i<count;i++) {
+			min = Math.min(min, samples[metric][i]);
+		}
+		
+		return min;
+	}
+	
+	/**
+	 * Get the largest value of a metric over the window
+	 * 
+	 * @param metric The metric to check
+	 * @return The largest value, or zero if there's been no step
+	 */
+	public synchronized long getMax(int metric) {
+		long max = 0;
+		for (int i=0;i<count;i++) {
+			max = Math.max(max, samples[metric][i]);
+		}
+		
+		return max;
+	}
+	
+	/**
+	 * Get the average value of a metric over the window
+	 * 
+	 * @param metric The metric to check
+	 * @return The average value, or zero if there's been no step
+	 */
+	public synchronized float getAverage(int metric) {
+		if (count == 0) {
+			return 0;
+		}
+		
+		return (float) totals[metric] / count;
+	}
+	
+	/**
+	 * Get the value of a metric that 99 percent of the steps in the window
+	 * came in at or under
+	 * 
+	 * @param metric The metric to check
+	 * @return The 99th percentile, or zero if there's been no step
+	 */
+	public synchronized long get99thPercentile(int metric) {
+		if (count == 0) {
+			return 0;
+		}
+		
+		// the percentile is the nth largest value, where n is small, so
+		// only the largest few values need to be kept in order
+		int rank = (count * 99 + 99) / 100;
+		int keep = count - rank + 1;
+		int kept = 0;
+		for (int i=0;i<count;i++) {
+			long value = samples[metric][i];
+			if ((kept == keep) && (value <= largest[kept - 1])) {
+				continue;
+			}
+			
+			int j = Math.min(kept, keep - 1);
+			while ((j > 0) && (largest[j - 1] < value)) {
+				largest[j] = largest[j - 1];
+				j--;
+			}
+			largest[j] = value;
+			kept = Math.min(kept + 1, keep);
+		}
+		
+		return largest[keep - 1];
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * A fixed set of threads that a world can hand independent pieces of work
+ * to. The thread that hands the work over runs tasks as well, so a pool 
+ * of N threads starts N-1 threads of its own. The threads wait for work
+ * until the pool is shut down.
+ */
+public class WorkerPool {
+	/** The threads started by the pool */
+	private Thread[] threads;
+	/** The lock preventing more than one batch of tasks running at a time */
+	private Object invokeLock = new Object();
+	/** The tasks currently being run */
+	private Runnable[] tasks;
+	/** The number of tasks currently being run */
+	private int taskCount;
+	/** The index of the next task to be picked up */
+	private int nextTask;
+	/** The number of tasks that haven't yet completed */
+	private int remaining;
+	/** Incremented each time a new batch of tasks is handed out */
+	private int generation;
+	/** The first failure thrown by a task in the current batch */
+	private Throwable failure;
+	/** True once the pool has been shut down */
+	private boolean shutdown;
+	/** The thread handing out the current batch of tasks, if any */
+	private volatile Thread invoker;
+	
+	/**
+	 * Create a new pool
+	 * 
+	 * @param threadCount The number of threads that should work on each
+	 * batch of tasks, including the one handing them out
+	 */
+	public WorkerPool(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("A pool needs at least one thread");
+		}
+		
+		threads = new Thread[threadCount - 1];
+		for (int i=0;i<threads.length;i++) {
+			threads[i] = new Thread("phys2d worker "+(i+1)) {
+				public void run() {
+					work();
+				}
+			};
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+	
+	/**
+	 * Create a new pool with a thread for each available processor
+	 */
+	public WorkerPool() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Get the number of threads that work on each batch of tasks
+	 * 
+	 * @return The number of threads, including the one handing out tasks
+	 */
+	public int getThreadCount() {
+		return threads.length + 1;
+	}
+	
+	/**
+	 * Run a batch of tasks across the threads of the pool, returning
+	 * once all of them have completed. If any task fails the first 
+	 * failure is thrown once the rest have completed.
+	 * 
+	 * A task that hands out a batch of its own to the same pool has the
+	 * nested batch run in turn on its own thread, since the other threads
+	 * are already busy with the outer batch.
+	 * 
+	 * @param tasks The tasks to run
+	 * @param count The number of tasks from the start of the array to run
+	 */
+	public void invokeAll(Runnable[] tasks, int count) {
+		if (isPoolThread()) {
+			for (int i=0;i<count;i++) {
+				tasks[i].run();
+			}
+			return;
+		}
+		
+		synchronized (invokeLock) {
+			invoker = Thread.currentThread();
+			try {
+				invokeBatch(tasks, count);
+			} finally {
+				invoker = null;
+			}
+		}
+	}
+	
+	/**
+	 * Check if the current thread is already working on a batch of tasks
+	 * from this pool
+	 * 
+	 * @return True if the current thread is working on a batch
+	 */
+	private boolean isPoolThread() {
+		Thread current = Thread.currentThread();
+		if (current == invoker) {
+			return true;
+		}
+		for (int i=0;i<threads.length;i++) {
+			if (threads[i] == current) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Hand a batch of tasks out to the threads of the pool and help run
+	 * them, returning once all of them have completed
+	 * 
+	 * @param tasks The tasks to run
+	 * @param count The number of tasks from the start of the array to run
+	 */
+	private void invokeBatch(Runnable[] tasks, int count) {
+		synchronized (this) {
+			if (shutdown) {
+				throw new IllegalStateException("The pool has been shut down");
+			}
+			
+			this.tasks = tasks;
+			this.taskCount = count;
+			this.nextTask = 0;
+			this.remaining = count;
+			this.failure = null;
+			generation++;
+			notifyAll();
+		}
+		
+		runTasks();
+		
+		Throwable failed;
+		synchronized (this) {
+			while (remaining > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// the tasks must complete before the caller can continue
+				}
+			}
+			this.tasks = null;
+			failed = failure;
+			failure = null;
+		}
+		
+		if (failed instanceof RuntimeException) {
+			throw (RuntimeException) failed;
+		}
+		if (failed instanceof Error) {
+			throw (Error) failed;
+		}
+	}
+	
+	/**
+	 * Run tasks from the current batch until there are none left to 
+	 * pick up
+	 */
+	private void runTasks() {
+		while (true) {
+			Runnable task;
+			synchronized (this) {
+				if (nextTask >= taskCount) {
+					return;
+				}
+				task = tasks[nextTask++];
+			}
+			
+			try {
+				task.run();
+			} catch (Throwable e) {
+				synchronized (this) {
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			} finally {
+				synchronized (this) {
+					remaining--;
+					if (remaining == 0) {
+						notifyAll();
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The body of each thread in the pool, waiting for batches of tasks
+	 * and helping to run them
+	 */
+	private void work() {
+		int seen = 0;
+		
+		while (true) {
+			synchronized (this) {
+				while ((generation == seen) && !shutdown) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						// keep waiting until there's work or the pool is shut down
+					}
+				}
+				if (shutdown) {
+					return;
+				}
+				seen = generation;
+			}
+			
+			runTasks();
+		}
+	}
+	
+	/**
+	 * Shut the pool down, stopping its threads once any batch in
+	 * progress has completed
+	 */
+	public void shutdown() {
+		synchronized (this) {
+			shutdown = true;
+			notifyAll();
+		}
+	}
+}
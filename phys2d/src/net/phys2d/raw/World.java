@@ -53,6 +53,11 @@ import net.phys2d.raw.strategies.BruteCollisionStrategy;
  * @author Kevin Glass
  */
 public strictfp class World extends CollisionSpace {
+	/** The least amount of work, in bodies and constraints, worth handing to another thread */
+	private static final int MIN_TASK_SIZE = 64;
+	/** The number of tasks the islands are split into for each thread in the pool */
+	private static final int TASKS_PER_THREAD = 4;
+	
 	/** The joints contained in the world */
 	private JointList joints = new JointList(); 
 	/** The direction and force of gravity */
@@ -71,6 +76,50 @@ public strictfp class World extends CollisionSpace {
 	private float positionTolerance; 
 	/** The force sources in the world */
 	private ArrayList sources = new ArrayList();
+	/** The bodies removed since the arbiters were last cleaned up */
+	private BodyList removed = new BodyList();
+	/** The solver used to resolve the contacts and joints */
+	private ConstraintSolver solver = new ClassicSolver();
+	/** True if islands of bodies are put to sleep once they come to rest */
+	private boolean sleeping = false;
+	/** The velocity under which a body is considered still enough to sleep */
+	private float linearSleepTolerance;
+	/** The angular velocity under which a body is considered still enough to sleep */
+	private float angularSleepTolerance;
+	/** The amount of time an island has to be still before it's put to sleep */
+	private float timeToSleep;
+	/** True if each island stops iterating once its impulses stop changing */
+	private boolean adaptiveIterations = false;
+	/** The fewest iterations run on an island when iterating adaptively */
+	private int minIterations;
+	/** The most iterations run on an island when iterating adaptively */
+	private int maxIterations;
+	/** The change in impulse under which an island is considered solved */
+	private float iterationTolerance;
+	/** True if contacts are solved from the bottom up with a final shock propagation pass */
+	private boolean shockPropagation = false;
+	/** True if penetration is corrected by a separate pass moving the bodies directly */
+	private boolean positionProjection = false;
+	/** The most iterations of the position pass run each step */
+	private int positionIterations;
+	/** The shock propagation state for each thread solving islands */
+	private ThreadLocal shocks = new ThreadLocal() {
+		protected Object initialValue() {
+			return new ShockPropagation();
+		}
+	};
+	/** The builder splitting the bodies into islands each step */
+	private IslandBuilder islands = new IslandBuilder();
+	/** The pool the islands are stepped on, null to step on the calling thread */
+	private WorkerPool workers;
+	/** The tasks each stepping a run of islands, reused between steps */
+	private IslandTask[] islandTasks = new IslandTask[0];
+	/** The listeners notified as the world steps, replaced rather than changed so stepping threads can read it freely */
+	private StepListener[] stepListeners = new StepListener[0];
+	/** True if there are any step listeners to notify */
+	private boolean listening;
+	/** The commands posted from other threads waiting for the next step */
+	private CommandQueue commands = new CommandQueue();
 	
 	/**
 	 * Create a new physics model World
@@ -139,6 +188,229 @@ public strictfp class World extends CollisionSpace {
 		restingBodyDetection = false;
 	}
 	
+	/**
+	 * Enable sleeping. Each step the bodies are split into islands of 
+	 * bodies touching or jointed to each other. Once every body in an
+	 * island has been still for long enough the whole island is put to 
+	 * sleep and is skipped by the simulation until something disturbs it.
+	 * 
+	 * @param linearTolerance The velocity under which a body is considered still
+	 * @param angularTolerance The angular velocity under which a body is 
+	 * considered still
+	 * @param timeToSleep The amount of time an island has to be still before
+	 * it's put to sleep
+	 */
+	public void enableSleeping(float linearTolerance, float angularTolerance, float timeToSleep) {
+		this.linearSleepTolerance = linearTolerance;
+		this.angularSleepTolerance = angularTolerance;
+		this.timeToSleep = timeToSleep;
+		sleeping = true;
+	}
+	
+	/**
+	 * Disable sleeping on the world, waking any bodies that are asleep
+	 */
+	public void disableSleeping() {
+		sleeping = false;
+		for (int i=0;i<bodies.size();i++) {
+			bodies.get(i).wakeUp();
+		}
+	}
+	
+	/**
+	 * Enable adaptive iterations. Rather than always running the number of
+	 * iterations the world was created with, each island of bodies stops
+	 * iterating once no accumulated impulse changes by more than the 
+	 * tolerance in an iteration. Settled islands need far fewer iterations 
+	 * than ones with things crashing into each other.
+	 * 
+	 * @param tolerance The largest change in impulse in an iteration at 
+	 * which an island is considered solved
+	 * @param minIterations The fewest iterations to run on each island
+	 * @param maxIterations The most iterations to run on each island
+	 */
+	public void enableAdaptiveIterations(float tolerance, int minIterations, int maxIterations) {
+		if ((minIterations < 1) || (maxIterations < minIterations)) {
+			throw new IllegalArgumentException("Invalid iteration range: "+minIterations+" to "+maxIterations);
+		}
+		
+		this.iterationTolerance = tolerance;
+		this.minIterations = minIterations;
+		this.maxIterations = maxIterations;
+		adaptiveIterations = true;
+	}
+	
+	/**
+	 * Disable adaptive iterations, going back to running the number of 
+	 * iterations the world was created with every step
+	 */
+	public void disableAdaptiveIterations() {
+		adaptiveIterations = false;
+	}
+	
+	/**
+	 * Enable shock propagation. Contacts are solved in order from the bottom
+	 * of the world up along the direction of gravity, and after the solver
+	 * has run a final pass is made up through them treating the lower body
+	 * of each contact as immovable. Tall stacks stay up with far fewer 
+	 * iterations, at the cost of the bottom of a stack not feeling the full
+	 * weight of what's on top of it in the final pass. Has no effect while
+	 * there's no gravity.
+	 */
+	public void enableShockPropagation() {
+		shockPropagation = true;
+	}
+	
+	/**
+	 * Disable shock propagation, going back to solving the contacts in the 
+	 * order they were found
+	 */
+	public void disableShockPropagation() {
+		shockPropagation = false;
+	}
+	
+	/**
+	 * Enable position projection. Rather than pushing penetrating bodies 
+	 * apart with bias impulses during every solver iteration, the solver 
+	 * only resolves velocities and a separate pass afterwards moves the 
+	 * bodies directly, working out the penetration again from where the 
+	 * bodies have got to. The pass stops early once nothing is penetrating
+	 * by much more than is allowed. This applies to contacts only, joints 
+	 * still correct themselves through their own bias.
+	 * 
+	 * @param iterations The most iterations of the position pass to run
+	 * each step
+	 */
+	public void enablePositionProjection(int iterations) {
+		if (iterations < 1) {
+			throw new IllegalArgumentException("Invalid number of position iterations: "+iterations);
+		}
+		
+		positionIterations = iterations;
+		positionProjection = true;
+	}
+	
+	/**
+	 * Disable position projection, going back to correcting penetration with
+	 * bias impulses in the solver
+	 */
+	public void disablePositionProjection() {
+		positionProjection = false;
+	}
+	
+	/**
+	 * Enable the block solver. Where a pair of bodies touches at two points
+	 * the two contacts are resolved together, so the impulse doesn't 
+	 * see-saw between the corners of a box resting on a face. The block 
+	 * solver is enabled by default.
+	 */
+	public void enableBlockSolver() {
+		setBlockSolve(true);
+	}
+	
+	/**
+	 * Disable the block solver, resolving every contact on its own in turn 
+	 * as the engine did before the block solver was added
+	 */
+	public void disableBlockSolver() {
+		setBlockSolve(false);
+	}
+	
+	/**
+	 * Enable profiling. Each step records the time spent in each of its 
+	 * phases, along with counts of the collision work done, to the given
+	 * stats. Nothing is allocated while profiling and when it's disabled
+	 * the step does no timing at all.
+	 * 
+	 * @param stats The stats to record each step to
+	 */
+	public void enableProfiling(StepStats stats) {
+		if (stats == null) {
+			throw new IllegalArgumentException("Profiling needs stats to record to");
+		}
+		
+		this.stats = stats;
+	}
+	
+	/**
+	 * Disable profiling, the stats recorded so far are left as they are
+	 */
+	public void disableProfiling() {
+		stats = null;
+	}
+	
+	/**
+	 * Get the stats each step is being recorded to
+	 * 
+	 * @return The stats being recorded to, or null if profiling is disabled
+	 */
+	public StepStats getStepStats() {
+		return stats;
+	}
+	
+	/**
+	 * Post a command to be run at the start of the next step. This is the
+	 * only method on the world, or the bodies and joints in it, that can 
+	 * be called from any thread while another is stepping. Commands are 
+	 * run in the order they were posted on the stepping thread, before the
+	 * force sources are applied, so the whole step sees their changes. 
+	 * Commands posted while the commands are running wait for the step 
+	 * after. If a command throws, the step is abandoned with its exception
+	 * and the commands posted after it run at the start of the next step.
+	 * 
+	 * @param command The command to run
+	 * @see WorldCommands
+	 */
+	public void post(WorldCommand command) {
+		if (command == null) {
+			throw new IllegalArgumentException("Can't post a null command");
+		}
+		
+		commands.post(command);
+	}
+	
+	/**
+	 * Get the number of commands posted that are waiting for the next step
+	 * 
+	 * @return The number of commands waiting
+	 */
+	public int getPendingCommandCount() {
+		return commands.size();
+	}
+	
+	/**
+	 * Add a listener to be notified as the world steps
+	 * 
+	 * @param listener The listener to be notified
+	 */
+	public void addStepListener(StepListener listener) {
+		StepListener[] temp = new StepListener[stepListeners.length + 1];
+		System.arraycopy(stepListeners, 0, temp, 0, stepListeners.length);
+		temp[stepListeners.length] = listener;
+		
+		stepListeners = temp;
+		listening = true;
+	}
+	
+	/**
+	 * Remove a listener from the world
+	 * 
+	 * @param listener The listener to be removed
+	 */
+	public void removeStepListener(StepListener listener) {
+		for (int i=0;i<stepListeners.length;i++) {
+			if (stepListeners[i] == listener) {
+				StepListener[] temp = new StepListener[stepListeners.length - 1];
+				System.arraycopy(stepListeners, 0, temp, 0, i);
+				System.arraycopy(stepListeners, i + 1, temp, i, temp.length - i);
+				
+				stepListeners = temp;
+				listening = temp.length > 0;
+				return;
+			}
+		}
+	}
+	
 	/**
 	 * Reset all dynamic bodies to indicate they are no longer resting. Useful when manually
 	 * changing the state of the world and then expecting normal results
@@ -161,6 +433,50 @@ public strictfp class World extends CollisionSpace {
 		this.damping = damping;
 	}
 	
+	/**
+	 * Set the solver used to resolve contacts and joints each step. The 
+	 * default is the ClassicSolver, the PackedSolver gives the same results
+	 * but is faster with a large number of contacts.
+	 * 
+	 * @param solver The solver to use
+	 */
+	public void setSolver(ConstraintSolver solver) {
+		this.solver = solver;
+	}
+	
+	/**
+	 * Get the solver used to resolve contacts and joints each step
+	 * 
+	 * @return The solver in use
+	 */
+	public ConstraintSolver getSolver() {
+		return solver;
+	}
+	
+	/**
+	 * Set the pool of threads used to step the world. Islands of bodies
+	 * only share bodies of infinite mass, which the contacts in each island
+	 * read but never write, so with a pool set the integration and constraint 
+	 * solving of separate islands runs on many threads at once. The results
+	 * are exactly the same as stepping on a single thread. Resting body 
+	 * detection notifies bodies across islands so while it's enabled the 
+	 * world is always stepped on the calling thread.
+	 * 
+	 * @param workers The pool to step on, or null to step on the calling thread
+	 */
+	public void setWorkerPool(WorkerPool workers) {
+		this.workers = workers;
+	}
+	
+	/**
+	 * Get the pool of threads used to step the world
+	 * 
+	 * @return The pool in use or null if the world steps on the calling thread
+	 */
+	public WorkerPool getWorkerPool() {
+		return workers;
+	}
+	
 	/**
 	 * Set the gravity applied in the world
 	 * 
@@ -196,11 +512,8 @@ public strictfp class World extends CollisionSpace {
 	 * @param b The body whose arbiters should be removed
 	 */
 	public void clearArbiters(Body b) {
-		for (int i=0;i<arbiters.size();i++) {
-			if (arbiters.get(i).concerns(b)) {
-				arbiters.remove(arbiters.get(i));
-				i--;
-			}
+		for (Arbiter arb = b.getFirstArbiter(); arb != null; arb = arb.getNext(b)) {
+			arbiters.remove(arb);
 		}
 	}
 	
@@ -211,6 +524,8 @@ public strictfp class World extends CollisionSpace {
 	 */
 	public void add(Joint joint) {
 		joints.add(joint);
+		joint.getBody1().wakeUp();
+		joint.getBody2().wakeUp();
 	}
 	
 	/**
@@ -220,6 +535,8 @@ public strictfp class World extends CollisionSpace {
 	 */
 	public void remove(Joint joint) {
 		joints.remove(joint);
+		joint.getBody1().wakeUp();
+		joint.getBody2().wakeUp();
 	}
 	
 	/**
@@ -242,7 +559,8 @@ public strictfp class World extends CollisionSpace {
 	
 	/**
 	 * Get the list of bodies that should be considered active at this time. Sub-classes
-	 * can override to incur spatial culling
+	 * can override to incur spatial culling. When sleeping is enabled the bodies 
+	 * in sleeping islands are skipped on top of this.
 	 * 
 	 * @return The list of bodies that should be considered active at this point in time
 	 */
@@ -268,19 +586,50 @@ public strictfp class World extends CollisionSpace {
 	 * @param dt The amount of time to step
 	 */
 	public void step(float dt) {
+		step(dt, 1);
+	}
+	
+	/**
+	 * Step the simulation in a number of smaller sub-steps. Collision is
+	 * only run once for the whole step, and the contacts found are moved
+	 * on with the bodies between sub-steps. Each sub-step integrates the 
+	 * velocities, runs a single iteration of the solver warm started from
+	 * the last and then moves the bodies, which keeps chains of joints far
+	 * stiffer than running the same number of iterations on one big step.
+	 * The number of iterations the world was created with, and adaptive 
+	 * iterations, only apply when there's a single sub-step.
+	 * 
+	 * @param dt The amount of time to step
+	 * @param substeps The number of sub-steps to split the step into
+	 */
+	public void step(float dt, int substeps) {
+		if (substeps < 1) {
+			throw new IllegalArgumentException("Invalid number of sub-steps: "+substeps);
+		}
+		
+		if (listening) {
+			for (int i=0;i<stepListeners.length;i++) {
+				stepListeners[i].stepStarted(this);
+			}
+		}
+		long start = getTime();
+		
+		commands.drain(this);
+		
+		long time = begin(StepStats.FORCES);
 		for (int i = 0; i < bodies.size(); ++i)
 		{
 			for (int j=0;j<sources.size();j++) {
 				((ForceSource) sources.get(j)).apply(bodies.get(i), dt);
 			}
 		}
+		end(StepStats.FORCES, time);
 		
 		BodyList bodies = getActiveBodies();
 		JointList joints = getActiveJoints();
-		
-		float invDT = dt > 0.0f ? 1.0f / dt : 0.0f;
 
 		if (restingBodyDetection) {
+			time = begin(StepStats.RESTING);
 			for (int i = 0; i < bodies.size(); ++i)
 			{
 				Body b = bodies.get(i);
@@ -291,116 +640,544 @@ public strictfp class World extends CollisionSpace {
 				j.getBody1().setIsResting(false);
 				j.getBody2().setIsResting(false);
 			}
+			end(StepStats.RESTING, time);
 		}
 		
-		broadPhase(dt);
-
-		for (int i = 0; i < bodies.size(); ++i)
-		{
-			Body b = bodies.get(i);
+		time = begin(StepStats.BROAD_PHASE);
+		if (stats != null) {
+			// the narrow phase is timed as it runs, the rest is the broad phase
+			long narrow = stats.getCurrent(StepStats.NARROW_PHASE);
+			broadPhase(dt);
+			narrow = stats.getCurrent(StepStats.NARROW_PHASE) - narrow;
+			stats.addTime(StepStats.BROAD_PHASE, Math.max(0, stats.getTime() - time - narrow));
+		} else {
+			broadPhase(dt);
+		}
+		if (listening) {
+			phaseEnded(StepStats.BROAD_PHASE);
+		}
 
-			if (b.getInvMass() == 0.0f) {
-				continue;
+		if ((workers != null) && !restingBodyDetection) {
+			time = begin(StepStats.ISLANDS);
+			islands.build(bodies, arbiters, joints);
+			end(StepStats.ISLANDS, time);
+			stepIslands(dt, substeps);
+		} else {
+			BodyList moving = bodies;
+			if (sleeping || adaptiveIterations) {
+				time = begin(StepStats.ISLANDS);
+				islands.build(bodies, arbiters, joints);
+				moving = islands.getAwakeBodies();
+				end(StepStats.ISLANDS, time);
 			}
-			if (b.isResting() && restingBodyDetection) {
-				continue;
+			
+			float h = dt / substeps;
+			for (int s=0;s<substeps;s++) {
+				boolean last = s == substeps - 1;
+				
+				time = begin(StepStats.INTEGRATION);
+				for (int i = 0; i < moving.size(); ++i)
+				{
+					Body b = moving.get(i);
+					
+					if (b.getInvMass() == 0.0f) {
+						continue;
+					}
+					if (b.isResting() && restingBodyDetection) {
+						continue;
+					}
+					
+					integrateVelocity(b, h, substeps);
+				}
+				end(StepStats.INTEGRATION, time);
+				
+				if (sleeping || adaptiveIterations) {
+					// islands share no dynamic bodies so can be solved one at a time
+					for (int i=0;i<islands.getIslandCount();i++) {
+						Island island = islands.getIsland(i);
+						if (island.isSleeping()) {
+							continue;
+						}
+						if ((island.getArbiters().size() > 0) || (island.getJoints().size() > 0)) {
+							solve(island.getArbiters(), island.getJoints(), h, substeps, restingBodyDetection, stats);
+							if (!last && !positionProjection) {
+								advanceContacts(island.getArbiters(), h);
+							}
+						}
+					}
+				} else {
+					solve(arbiters, joints, h, substeps, restingBodyDetection, stats);
+					if (!last && !positionProjection) {
+						advanceContacts(arbiters, h);
+					}
+				}
+				
+				time = begin(StepStats.INTEGRATION);
+				for (int i=0;i < moving.size(); ++i)
+				{
+					Body b = moving.get(i);
+					
+					if (b.getInvMass() == 0.0f) {
+						continue;
+					}
+					if (restingBodyDetection) {
+						if (b.isResting()) {
+							continue;
+						}
+					}
+					
+					integratePosition(b, h, last);
+				}
+				end(StepStats.INTEGRATION, time);
+				
+				if (positionProjection) {
+					time = begin(StepStats.POSITION_CORRECTION);
+					if (sleeping || adaptiveIterations) {
+						for (int i=0;i<islands.getIslandCount();i++) {
+							Island island = islands.getIsland(i);
+							if (!island.isSleeping()) {
+								projectPositions(island.getArbiters(), last, restingBodyDetection);
+							}
+						}
+					} else {
+						projectPositions(arbiters, last, restingBodyDetection);
+					}
+					end(StepStats.POSITION_CORRECTION, time);
+				}
 			}
-
-			Vector2f temp = new Vector2f(b.getForce());
-			temp.scale(b.getInvMass());
-			if (b.getGravityEffected()) {
-				temp.add(gravity);
+		}
+		
+		if (sleeping || restingBodyDetection) {
+			time = begin(StepStats.RESTING);
+			if (sleeping) {
+				islands.updateSleep(dt, linearSleepTolerance, angularSleepTolerance, timeToSleep);
 			}
-			temp.scale(dt);
-			
-			b.adjustVelocity(temp);
 			
-			Vector2f damping = new Vector2f(b.getVelocity());
-			damping.scale(-b.getDamping() * b.getInvMass());
-			b.adjustVelocity(damping);
-			
-			b.adjustAngularVelocity(dt * b.getInvI() * b.getTorque());
-			b.adjustAngularVelocity(-b.getAngularVelocity() * b.getInvI() * b.getRotDamping());
+			if (restingBodyDetection) {
+				for (int i=0;i < bodies.size(); ++i)
+				{
+					Body b = bodies.get(i);
+					b.endFrame();
+				}
+			}
+			end(StepStats.RESTING, time);
 		}
-
-		for (int i=0;i<arbiters.size();i++) {
-			Arbiter arb = arbiters.get(i);
-			if (!restingBodyDetection || !arb.hasRestingPair()) {
-				arb.preStep(invDT, dt, damping);
+		
+		time = begin(StepStats.CLEAN_UP);
+		cleanUpArbiters();
+		end(StepStats.CLEAN_UP, time);
+		
+		if (stats != null) {
+			stats.addTimeSince(StepStats.STEP, start);
+			stats.endStep();
+		}
+		if (listening) {
+			for (int i=0;i<stepListeners.length;i++) {
+				stepListeners[i].stepEnded(this);
 			}
 		}
-
-		for (int i = 0; i < joints.size(); ++i) {
-			Joint j = joints.get(i);
-			j.preStep(invDT);	
+	}
+	
+	/**
+	 * Get the current time from the stats being recorded to
+	 * 
+	 * @return The current time in nanoseconds, or zero if profiling is disabled
+	 */
+	private long getTime() {
+		return (stats != null) ? stats.getTime() : 0;
+	}
+	
+	/**
+	 * Start a phase of the step, notifying any step listeners
+	 * 
+	 * @param phase The phase that is starting, one of the constants on StepStats
+	 * @return The time the phase started, or zero if profiling is disabled
+	 */
+	private long begin(int phase) {
+		return begin(phase, stats);
+	}
+	
+	/**
+	 * Start a phase of the step, notifying any step listeners
+	 * 
+	 * @param phase The phase that is starting, one of the constants on StepStats
+	 * @param stats The stats the phase is recorded to, or null if profiling is disabled
+	 * @return The time the phase started, or zero if profiling is disabled
+	 */
+	private long begin(int phase, StepStats stats) {
+		if (listening) {
+			phaseStarted(phase);
 		}
-
-		for (int i = 0; i < iterations; ++i)
-		{
-			for (int k=0;k<arbiters.size();k++) {
-				Arbiter arb = arbiters.get(k);
+		
+		return (stats != null) ? stats.getTime() : 0;
+	}
+	
+	/**
+	 * End a phase of the step, recording the time spent in it if profiling
+	 * is enabled and notifying any step listeners
+	 * 
+	 * @param phase The phase that has just finished
+	 * @param start The time the phase started
+	 */
+	private void end(int phase, long start) {
+		end(phase, start, stats);
+	}
+	
+	/**
+	 * End a phase of the step, recording the time spent in it if profiling
+	 * is enabled and notifying any step listeners
+	 * 
+	 * @param phase The phase that has just finished
+	 * @param start The time the phase started
+	 * @param stats The stats the phase is recorded to, or null if profiling is disabled
+	 */
+	private void end(int phase, long start, StepStats stats) {
+		if (stats != null) {
+			stats.addTimeSince(phase, start);
+		}
+		if (listening) {
+			phaseEnded(phase);
+		}
+	}
+	
+	/**
+	 * Notify the step listeners that a phase of the step has started
+	 * 
+	 * @param phase The phase that has started
+	 */
+	private void phaseStarted(int phase) {
+		StepListener[] listeners = stepListeners;
+		for (int i=0;i<listeners.length;i++) {
+			listeners[i].phaseStarted(this, phase);
+		}
+	}
+	
+	/**
+	 * Notify the step listeners that a phase of the step has ended
+	 * 
+	 * @param phase The phase that has ended
+	 */
+	private void phaseEnded(int phase) {
+		StepListener[] listeners = stepListeners;
+		for (int i=0;i<listeners.length;i++) {
+			listeners[i].phaseEnded(this, phase);
+		}
+	}
+	
+	/**
+	 * Apply the forces acting on a body to its velocity
+	 * 
+	 * @param b The body to update
+	 * @param dt The amount of time to step
+	 * @param substeps The number of sub-steps the damping is spread across
+	 */
+	private void integrateVelocity(Body b, float dt, int substeps) {
+		float x = b.getForce().getX() * b.getInvMass();
+		float y = b.getForce().getY() * b.getInvMass();
+		if (b.getGravityEffected()) {
+			x += gravity.x;
+			y += gravity.y;
+		}
+		b.adjustVelocity(x * dt, y * dt);
+		
+		float damping = -b.getDamping() * b.getInvMass() / substeps;
+		b.adjustVelocity(b.getVelocity().getX() * damping, b.getVelocity().getY() * damping);
+		
+		b.adjustAngularVelocity(dt * b.getInvI() * b.getTorque());
+		b.adjustAngularVelocity(-b.getAngularVelocity() * b.getInvI() * b.getRotDamping() / substeps);
+	}
+	
+	/**
+	 * Move a body according to its velocity and, at the end of the
+	 * step, clear the forces acting on it ready for the next step
+	 * 
+	 * @param b The body to update
+	 * @param dt The amount of time to step
+	 * @param last True if this is the last sub-step of the step
+	 */
+	private void integratePosition(Body b, float dt, boolean last) {
+		b.adjustPosition(b.getVelocity(), dt);
+		b.adjustPosition(b.getBiasedVelocity(), dt);
+		
+		b.adjustRotation(dt * b.getAngularVelocity());
+		b.adjustRotation(dt * b.getBiasedAngularVelocity());
+		
+		b.resetBias();
+		if (last) {
+			b.setForce(0,0);
+			b.setTorque(0);
+		}
+	}
+	
+	/**
+	 * Move the contacts of a set of arbiters on by a sub-step
+	 * 
+	 * @param arbiters The arbiters holding the contacts to move
+	 * @param dt The amount of time the bodies are about to be moved by
+	 */
+	private void advanceContacts(ArbiterList arbiters, float dt) {
+		long time = begin(StepStats.INTEGRATION);
+		for (int i=0;i<arbiters.size();i++) {
+			arbiters.get(i).advanceContacts(dt);
+		}
+		end(StepStats.INTEGRATION, time);
+	}
+	
+	/**
+	 * Move the bodies held by a set of arbiters apart until nothing is 
+	 * penetrating by much more than is allowed, or the position iterations 
+	 * run out
+	 * 
+	 * @param arbiters The arbiters holding the contacts to correct
+	 * @param last True if this is the last sub-step of the step, otherwise
+	 * the contacts are brought up to date for the next sub-step
+	 * @param restingBodyDetection True if arbiters between two resting bodies
+	 * should be skipped
+	 */
+	private void projectPositions(ArbiterList arbiters, boolean last, boolean restingBodyDetection) {
+		for (int i=0;i<positionIterations;i++) {
+			boolean solved = true;
+			for (int j=0;j<arbiters.size();j++) {
+				Arbiter arb = arbiters.get(j);
 				if (!restingBodyDetection || !arb.hasRestingPair()) {
-					arb.applyImpulse();
-				} else {
-					arb.getBody1().collided(arb.getBody2());
-					arb.getBody2().collided(arb.getBody1());
+					solved &= arb.correctPositions();
 				}
 			}
 			
-			for (int k=0;k<joints.size();++k) {
-				Joint j = joints.get(k);
-				j.applyImpulse();
+			if (solved) {
+				break;
 			}
 		}
 		
+		if (!last) {
+			for (int i=0;i<arbiters.size();i++) {
+				arbiters.get(i).updateContacts();
+			}
+		}
+	}
+	
+	/**
+	 * Resolve a set of contacts and joints with the solver, running either 
+	 * the fixed number of iterations, iterating adaptively or running a 
+	 * single iteration for a sub-step, followed by the shock propagation 
+	 * pass if it's enabled. When positions are projected the solver leaves
+	 * penetration alone and the contacts are anchored to the bodies ready
+	 * for the position pass.
+	 * 
+	 * @param arbiters The arbiters holding the contacts to be resolved
+	 * @param joints The joints to be resolved
+	 * @param dt The amount of time to step
+	 * @param substeps The number of sub-steps the step is split into
+	 * @param restingBodyDetection True if arbiters between two resting bodies
+	 * should be skipped
+	 * @param stats The stats to record the solve to, or null if profiling is disabled
+	 * @return The number of iterations run
+	 */
+	private int solve(ArbiterList arbiters, JointList joints, float dt, int substeps, boolean restingBodyDetection, StepStats stats) {
+		ShockPropagation shock = null;
+		long time = begin(StepStats.SOLVER, stats);
+		if (shockPropagation) {
+			shock = (ShockPropagation) shocks.get();
+			arbiters = shock.sort(arbiters, gravity);
+			if (stats != null) {
+				stats.addTimeSince(StepStats.SOLVER, time);
+			}
+		}
 		
-		for (int i=0;i < bodies.size(); ++i)
-		{
-			Body b = bodies.get(i);
-
-			if (b.getInvMass() == 0.0f) {
-				continue;
+		int run;
+		if (substeps > 1) {
+			run = solver.solve(arbiters, joints, dt, damping, 1, 1, 0, !positionProjection, restingBodyDetection, stats);
+		} else if (adaptiveIterations) {
+			run = solver.solve(arbiters, joints, dt, damping, minIterations, maxIterations, iterationTolerance, !positionProjection, restingBodyDetection, stats);
+		} else {
+			run = solver.solve(arbiters, joints, dt, damping, iterations, iterations, 0, !positionProjection, restingBodyDetection, stats);
+		}
+		
+		time = (stats != null) ? stats.getTime() : 0;
+		if (shock != null) {
+			shock.propagate(arbiters, gravity, damping, restingBodyDetection);
+		}
+		if (positionProjection) {
+			for (int i=0;i<arbiters.size();i++) {
+				arbiters.get(i).storeAnchors();
 			}
-			if (restingBodyDetection) {
-				if (b.isResting()) {
-					continue;
+		}
+		end(StepStats.SOLVER, time, stats);
+		
+		return run;
+	}
+	
+	/**
+	 * Step each awake island on its own, splitting the islands across the
+	 * threads of the worker pool. Small islands are batched together so
+	 * each task is worth handing to another thread.
+	 * 
+	 * @param dt The amount of time to step
+	 * @param substeps The number of sub-steps to split the step into
+	 */
+	private void stepIslands(float dt, int substeps) {
+		int total = 0;
+		for (int i=0;i<islands.getIslandCount();i++) {
+			total += getTaskSize(islands.getIsland(i));
+		}
+		int target = Math.max(MIN_TASK_SIZE, total / (workers.getThreadCount() * TASKS_PER_THREAD));
+		
+		int taskCount = 0;
+		int first = 0;
+		int size = 0;
+		for (int i=0;i<islands.getIslandCount();i++) {
+			size += getTaskSize(islands.getIsland(i));
+			
+			if ((size >= target) || (i == islands.getIslandCount() - 1)) {
+				if (size > 0) {
+					if (taskCount == islandTasks.length) {
+						IslandTask[] temp = new IslandTask[taskCount + 16];
+						System.arraycopy(islandTasks, 0, temp, 0, taskCount);
+						for (int j=taskCount;j<temp.length;j++) {
+							temp[j] = new IslandTask();
+						}
+						islandTasks = temp;
+					}
+					islandTasks[taskCount++].set(first, i + 1, dt, substeps, stats);
 				}
+				first = i + 1;
+				size = 0;
 			}
+		}
+		
+		try {
+			workers.invokeAll(islandTasks, taskCount);
+		} finally {
+			if (stats != null) {
+				for (int i=0;i<taskCount;i++) {
+					stats.add(islandTasks[i].stats);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the amount of work stepping an island involves
+	 * 
+	 * @param island The island to check
+	 * @return The number of bodies and constraints to step, 0 if it's asleep
+	 */
+	private int getTaskSize(Island island) {
+		if (island.isSleeping()) {
+			return 0;
+		}
+		
+		return island.getBodies().size() + island.getArbiters().size() + island.getJoints().size();
+	}
+	
+	/**
+	 * Step a single island, integrating its velocities, solving its 
+	 * constraints and then moving its bodies
+	 * 
+	 * @param island The island to step
+	 * @param dt The amount of time to step
+	 * @param substeps The number of sub-steps to split the step into
+	 * @param stats The stats to record the island to, or null if profiling is disabled
+	 */
+	private void stepIsland(Island island, float dt, int substeps, StepStats stats) {
+		BodyList bodies = island.getBodies();
+		boolean constrained = (island.getArbiters().size() > 0) || (island.getJoints().size() > 0);
+		
+		float h = dt / substeps;
+		for (int s=0;s<substeps;s++) {
+			boolean last = s == substeps - 1;
 			
-			b.adjustPosition(b.getVelocity(), dt);
-			b.adjustPosition(b.getBiasedVelocity(), dt);
-			
-			b.adjustRotation(dt * b.getAngularVelocity());
-			b.adjustRotation(dt * b.getBiasedAngularVelocity());
-
-			b.resetBias();
-			b.setForce(0,0);
-			b.setTorque(0);
+			long time = begin(StepStats.INTEGRATION, stats);
+			for (int i=0;i<bodies.size();i++) {
+				integrateVelocity(bodies.get(i), h, substeps);
+			}
+			end(StepStats.INTEGRATION, time, stats);
+			if (constrained) {
+				solve(island.getArbiters(), island.getJoints(), h, substeps, false, stats);
+				if (!last && !positionProjection) {
+					advanceContacts(island.getArbiters(), h);
+				}
+			}
+			time = begin(StepStats.INTEGRATION, stats);
+			for (int i=0;i<bodies.size();i++) {
+				integratePosition(bodies.get(i), h, last);
+			}
+			end(StepStats.INTEGRATION, time, stats);
+			if (positionProjection) {
+				time = begin(StepStats.POSITION_CORRECTION, stats);
+				projectPositions(island.getArbiters(), last, false);
+				end(StepStats.POSITION_CORRECTION, time, stats);
+			}
 		}
-
-		if (restingBodyDetection) {
-			for (int i=0;i < bodies.size(); ++i)
-			{
-				Body b = bodies.get(i);
-				b.endFrame();
+	}
+	
+	/**
+	 * A task stepping a run of consecutive islands
+	 */
+	private class IslandTask implements Runnable {
+		/** The index of the first island to step */
+		private int first;
+		/** The index after the last island to step */
+		private int last;
+		/** The amount of time to step */
+		private float dt;
+		/** The number of sub-steps to split the step into */
+		private int substeps;
+		/** The stats the islands are recorded to, or null if profiling is disabled */
+		private StepStats stats;
+		/** The stats kept for this task, so tasks don't contend for the world's */
+		private StepStats local;
+		
+		/**
+		 * Set the islands this task steps
+		 * 
+		 * @param first The index of the first island to step
+		 * @param last The index after the last island to step
+		 * @param dt The amount of time to step
+		 * @param substeps The number of sub-steps to split the step into
+		 * @param worldStats The stats the world is recorded to, or null if 
+		 * profiling is disabled
+		 */
+		void set(int first, int last, float dt, int substeps, StepStats worldStats) {
+			this.first = first;
+			this.last = last;
+			this.dt = dt;
+			this.substeps = substeps;
+			
+			stats = null;
+			if (worldStats != null) {
+				if ((local == null) || (local.getClock() != worldStats.getClock())) {
+					local = new StepStats(1, worldStats.getClock());
+				}
+				stats = local;
 			}
 		}
 		
-		cleanUpArbiters();
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run() {
+			for (int i=first;i<last;i++) {
+				Island island = islands.getIsland(i);
+				if (!island.isSleeping()) {
+					stepIsland(island, dt, substeps, stats);
+				}
+			}
+		}
 	}
 	
 	/**
 	 * Clean up the arbiters for departied bodies
 	 */
 	private void cleanUpArbiters() {
-		for (int i=0;i<arbiters.size();i++) {
-			Arbiter arbiter = arbiters.get(i);
+		for (int i=0;i<removed.size();i++) {
+			Body body = removed.get(i);
 			
-			if (!arbiter.getBody1().added() || !arbiter.getBody2().added()) {
-				arbiters.remove(arbiter);
-				i--;
+			if (!body.added()) {
+				clearPairs(body);
 			}
 		}
+		removed.clear();
 	}
 	
 	/**
@@ -466,7 +1243,13 @@ public strictfp class World extends CollisionSpace {
 	 * @param body The body to be removed
 	 */
 	public void remove(Body body) {
+		// anything that was resting on the body needs to notice it's gone
+		for (Arbiter arb = body.getFirstArbiter(); arb != null; arb = arb.getNext(body)) {
+			arb.getBody1().wakeUp();
+			arb.getBody2().wakeUp();
+		}
 		clearArbiters(body);
 		super.remove(body);
+		removed.add(body);
 	}
 }
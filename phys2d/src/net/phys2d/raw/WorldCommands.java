@@ -0,0 +1,160 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+import net.phys2d.math.Vector2f;
+
+/**
+ * The commands most often posted to a world from other threads. Each 
+ * method creates a new command which makes its change when the world 
+ * next steps.
+ * 
+ * @see World#post(WorldCommand)
+ */
+public class WorldCommands {
+	/**
+	 * Not to be created, the commands are reached statically
+	 */
+	private WorldCommands() {
+	}
+	
+	/**
+	 * Create a command adding a body to the world
+	 * 
+	 * @param body The body to add
+	 * @return The command created
+	 */
+	public static WorldCommand add(final Body body) {
+		return new WorldCommand() {
+			public void execute(World world) {
+				world.add(body);
+			}
+		};
+	}
+	
+	/**
+	 * Create a command removing a body from the world
+	 * 
+	 * @param body The body to remove
+	 * @return The command created
+	 */
+	public static WorldCommand remove(final Body body) {
+		return new WorldCommand() {
+			public void execute(World world) {
+				world.remove(body);
+			}
+		};
+	}
+	
+	/**
+	 * Create a command adding a joint to the world
+	 * 
+	 * @param joint The joint to add
+	 * @return The command created
+	 */
+	public static WorldCommand add(final Joint joint) {
+		return new WorldCommand() {
+			public void execute(World world) {
+				world.add(joint);
+			}
+		};
+	}
+	
+	/**
+	 * Create a command removing a joint from the world
+	 * 
+	 * @param joint The joint to remove
+	 * @return The command created
+	 */
+	public static WorldCommand remove(final Joint joint) {
+		return new WorldCommand() {
+			public void execute(World world) {
+				world.remove(joint);
+			}
+		};
+	}
+	
+	/**
+	 * Create a command adding a force to a body for the step
+	 * 
+	 * @param body The body to push
+	 * @param x The x component of the force
+	 * @param y The y component of the force
+	 * @return The command created
+	 */
+	public static WorldCommand addForce(final Body body, final float x, final float y) {
+		return new WorldCommand() {
+			public void execute(World world) {
+				body.addForce(new Vector2f(x, y));
+			}
+		};
+	}
+	
+	/**
+	 * Create a command applying an impulse to a body, changing its 
+	 * velocity at once
+	 * 
+	 * @param body The body to push
+	 * @param x The x component of the impulse
+	 * @param y The y component of the impulse
+	 * @return The command created
+	 */
+	public static WorldCommand applyImpulse(final Body body, final float x, final float y) {
+		return new WorldCommand() {
+			public void execute(World world) {
+				body.adjustVelocity(x * body.getInvMass(), y * body.getInvMass());
+			}
+		};
+	}
+	
+	/**
+	 * Create a command moving a body to a new position
+	 * 
+	 * @param body The body to move
+	 * @param x The new x position of the body
+	 * @param y The new y position of the body
+	 * @return The command created
+	 */
+	public static WorldCommand setPosition(final Body body, final float x, final float y) {
+		return new WorldCommand() {
+			public void execute(World world) {
+				body.setPosition(x, y);
+			}
+		};
+	}
+}
@@ -0,0 +1,409 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import net.phys2d.util.AllocationCounter;
+
+/**
+ * A JMX MBean exposing the live state and performance of a single world,
+ * so that servers running many worlds can find the busy ones from their 
+ * management console. The monitor listens to the world as it steps and 
+ * reads its timings from the world's stats, enabling profiling if it
+ * isn't already. The stats the monitor creates are always timed with
+ * System.nanoTime(), so the monitor needs a VM providing it. To time 
+ * with another clock, enable profiling before the monitor is created.
+ * <p>
+ * The engine doesn't depend on JMX being present, the platform MBean 
+ * server and the thread allocation counters are only looked up when they
+ * are needed. Allocation is only measured on the thread calling step(),
+ * not on the threads of a worker pool.
+ */
+public class WorldMonitor implements WorldMonitorMBean, StepListener {
+	/** The number of steps held by the stats created when the world isn't profiled */
+	public static final int DEFAULT_WINDOW = 60;
+	/** The length of the period steps per second are measured over, in milliseconds */
+	private static final long PERIOD = 1000;
+	
+	/** The world being monitored */
+	private World world;
+	/** The stats the world records its steps to */
+	private StepStats stats;
+	/** The number of bodies as of the last step */
+	private volatile int bodyCount;
+	/** The number of awake bodies as of the last step */
+	private volatile int awakeBodyCount;
+	/** The number of arbiters as of the last step */
+	private volatile int arbiterCount;
+	/** The number of joints as of the last step */
+	private volatile int jointCount;
+	/** The steps per second over the last full period */
+	private volatile float stepsPerSecond;
+	/** The bytes allocated per step over the last full period, -1 if not measured */
+	private volatile float allocatedBytesPerStep = -1;
+	/** The time the current period started */
+	private volatile long periodStart;
+	/** The number of steps taken in the current period */
+	private volatile int periodSteps;
+	/** The bytes allocated in the current period */
+	private long periodBytes;
+	/** The allocation count of the stepping thread at the start of the step */
+	private long stepStartBytes;
+	
+	/** The counter of the bytes allocated, null if allocation can't be measured */
+	private AllocationCounter allocations;
+	/** The bytes allocated by measuring the allocation itself */
+	private long overhead;
+	
+	/** The server the monitor is registered with, or null if it isn't */
+	private Object server;
+	/** The name the monitor is registered under, or null if it isn't */
+	private Object name;
+	
+	/**
+	 * Create a new monitor and start listening to a world
+	 * 
+	 * @param world The world to monitor
+	 * @throws IllegalStateException Indicates the world isn't profiled and 
+	 * System.nanoTime() isn't available to time it with
+	 */
+	public WorldMonitor(World world) {
+		this.world = world;
+		
+		stats = world.getStepStats();
+		if (stats == null) {
+			if (StepClock.NANOSECONDS == null) {
+				throw new IllegalStateException("System.nanoTime() is required to profile a monitored world");
+			}
+			stats = new StepStats(DEFAULT_WINDOW, StepClock.NANOSECONDS);
+			world.enableProfiling(stats);
+		}
+		
+		allocations = AllocationCounter.create();
+		if (allocations != null) {
+			overhead = allocations.measureOverhead();
+		}
+		
+		periodStart = System.currentTimeMillis();
+		update();
+		world.addStepListener(this);
+	}
+	
+	/**
+	 * Register the monitor with the platform MBean server
+	 * 
+	 * @param objectName The JMX object name to register under, for instance
+	 * "net.phys2d:type=World,name=lobby"
+	 * @throws IllegalArgumentException Indicates the name isn't a valid
+	 * object name or is already in use
+	 * @throws IllegalStateException Indicates the monitor is already 
+	 * registered or JMX isn't available on this VM
+	 */
+	public synchronized void register(String objectName) {
+		if (name != null) {
+			throw new IllegalStateException("Already registered as "+name);
+		}
+		
+		Object platform;
+		Class nameClass;
+		try {
+			Class factory = Class.forName("java.lang.management.ManagementFactory");
+			platform = factory.getMethod("getPlatformMBeanServer", new Class[0]).invoke(null, new Object[0]);
+			nameClass = Class.forName("javax.management.ObjectName");
+		} catch (Exception e) {
+			throw (IllegalStateException) new IllegalStateException("JMX is not available").initCause(e);
+		}
+		
+		Object mbeanName;
+		try {
+			mbeanName = nameClass.getConstructor(new Class[] {String.class}).newInstance(new Object[] {objectName});
+			Method register = Class.forName("javax.management.MBeanServer").getMethod("registerMBean", new Class[] {Object.class, nameClass});
+			register.invoke(platform, new Object[] {this, mbeanName});
+		} catch (InvocationTargetException e) {
+			throw (IllegalArgumentException) new IllegalArgumentException("Unable to register as: "+objectName).initCause(e.getTargetException());
+		} catch (Exception e) {
+			throw (IllegalStateException) new IllegalStateException("JMX is not available").initCause(e);
+		}
+		
+		server = platform;
+		name = mbeanName;
+	}
+	
+	/**
+	 * Unregister the monitor from the MBean server and stop listening to 
+	 * the world. The world is left profiling.
+	 */
+	public synchronized void unregister() {
+		world.removeStepListener(this);
+		if (name == null) {
+			return;
+		}
+		
+		try {
+			Method unregister = Class.forName("javax.management.MBeanServer").getMethod("unregisterMBean", new Class[] {name.getClass()});
+			unregister.invoke(server, new Object[] {name});
+		} catch (Exception e) {
+			// already gone from the server
+		}
+		
+		server = null;
+		name = null;
+	}
+	
+	/**
+	 * Check if the monitor is registered with the MBean server
+	 * 
+	 * @return True if the monitor is registered
+	 */
+	public synchronized boolean isRegistered() {
+		return name != null;
+	}
+	
+	/**
+	 * Take the counts of the world's contents
+	 */
+	private void update() {
+		BodyList bodies = world.getBodies();
+		int awake = 0;
+		for (int i=0;i<bodies.size();i++) {
+			if (!bodies.get(i).isSleeping()) {
+				awake++;
+			}
+		}
+		
+		bodyCount = bodies.size();
+		awakeBodyCount = awake;
+		arbiterCount = world.getArbiters().size();
+		jointCount = world.getJoints().size();
+	}
+	
+	/**
+	 * @see net.phys2d.raw.StepListener#stepStarted(net.phys2d.raw.World)
+	 */
+	public void stepStarted(World world) {
+		if (allocations != null) {
+			stepStartBytes = allocations.getAllocatedBytes();
+		}
+	}
+	
+	/**
+	 * @see net.phys2d.raw.StepListener#phaseStarted(net.phys2d.raw.World, int)
+	 */
+	public void phaseStarted(World world, int phase) {
+	}
+	
+	/**
+	 * @see net.phys2d.raw.StepListener#phaseEnded(net.phys2d.raw.World, int)
+	 */
+	public void phaseEnded(World world, int phase) {
+	}
+	
+	/**
+	 * @see net.phys2d.raw.StepListener#stepEnded(net.phys2d.raw.World)
+	 */
+	public void stepEnded(World world) {
+		if (allocations != null) {
+			long end = allocations.getAllocatedBytes();
+			if ((end < 0) || (stepStartBytes < 0)) {
+				allocations = null;
+			} else {
+				periodBytes += Math.max(0, end - stepStartBytes - overhead);
+			}
+		}
+		update();
+		
+		int steps = periodSteps + 1;
+		long now = System.currentTimeMillis();
+		if (now - periodStart >= PERIOD) {
+			stepsPerSecond = (steps * 1000.0f) / (now - periodStart);
+			allocatedBytesPerStep = (allocations != null) ? (float) periodBytes / steps : -1;
+			periodStart = now;
+			periodBytes = 0;
+			steps = 0;
+		}
+		periodSteps = steps;
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getStepsPerSecond()
+	 */
+	public float getStepsPerSecond() {
+		// a world that's stopped stepping never finishes its period
+		long elapsed = System.currentTimeMillis() - periodStart;
+		if (elapsed >= PERIOD * 2) {
+			return (periodSteps * 1000.0f) / elapsed;
+		}
+		
+		return stepsPerSecond;
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getLastStepTime()
+	 */
+	public long getLastStepTime() {
+		return stats.getLast(StepStats.STEP);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getAverageStepTime()
+	 */
+	public float getAverageStepTime() {
+		return stats.getAverage(StepStats.STEP);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getMaxStepTime()
+	 */
+	public long getMaxStepTime() {
+		return stats.getMax(StepStats.STEP);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getBodyCount()
+	 */
+	public int getBodyCount() {
+		return bodyCount;
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getAwakeBodyCount()
+	 */
+	public int getAwakeBodyCount() {
+		return awakeBodyCount;
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getArbiterCount()
+	 */
+	public int getArbiterCount() {
+		return arbiterCount;
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getJointCount()
+	 */
+	public int getJointCount() {
+		return jointCount;
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getForcesTime()
+	 */
+	public float getForcesTime() {
+		return stats.getAverage(StepStats.FORCES);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getBroadPhaseTime()
+	 */
+	public float getBroadPhaseTime() {
+		return stats.getAverage(StepStats.BROAD_PHASE);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getNarrowPhaseTime()
+	 */
+	public float getNarrowPhaseTime() {
+		return stats.getAverage(StepStats.NARROW_PHASE);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getIslandsTime()
+	 */
+	public float getIslandsTime() {
+		return stats.getAverage(StepStats.ISLANDS);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getArbiterPreStepTime()
+	 */
+	public float getArbiterPreStepTime() {
+		return stats.getAverage(StepStats.ARBITER_PRE_STEP);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getJointPreStepTime()
+	 */
+	public float getJointPreStepTime() {
+		return stats.getAverage(StepStats.JOINT_PRE_STEP);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getSolverTime()
+	 */
+	public float getSolverTime() {
+		return stats.getAverage(StepStats.SOLVER);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getPositionCorrectionTime()
+	 */
+	public float getPositionCorrectionTime() {
+		return stats.getAverage(StepStats.POSITION_CORRECTION);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getIntegrationTime()
+	 */
+	public float getIntegrationTime() {
+		return stats.getAverage(StepStats.INTEGRATION);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getRestingTime()
+	 */
+	public float getRestingTime() {
+		return stats.getAverage(StepStats.RESTING);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getCleanUpTime()
+	 */
+	public float getCleanUpTime() {
+		return stats.getAverage(StepStats.CLEAN_UP);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.WorldMonitorMBean#getAllocatedBytesPerStep()
+	 */
+	public float getAllocatedBytesPerStep() {
+		return allocatedBytesPerStep;
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * The management interface of a <code>WorldMonitor</code>, exposing the
+ * state and performance of a single world as JMX attributes. Times are in
+ * nanoseconds, averaged over the steps held by the world's stats.
+ */
+public interface WorldMonitorMBean {
+	/**
+	 * Get the number of steps taken per second, measured over the last 
+	 * full second
+	 * 
+	 * @return The number of steps per second
+	 */
+	public float getStepsPerSecond();
+	
+	/**
+	 * Get the time taken by the last step
+	 * 
+	 * @return The time of the last step
+	 */
+	public long getLastStepTime();
+	
+	/**
+	 * Get the average time taken by a step
+	 * 
+	 * @return The average step time
+	 */
+	public float getAverageStepTime();
+	
+	/**
+	 * Get the largest time taken by a step
+	 * 
+	 * @return The largest step time
+	 */
+	public long getMaxStepTime();
+	
+	/**
+	 * Get the number of bodies in the world
+	 * 
+	 * @return The number of bodies
+	 */
+	public int getBodyCount();
+	
+	/**
+	 * Get the number of bodies in the world that aren't asleep
+	 * 
+	 * @return The number of awake bodies
+	 */
+	public int getAwakeBodyCount();
+	
+	/**
+	 * Get the number of arbiters holding contacts in the world
+	 * 
+	 * @return The number of arbiters
+	 */
+	public int getArbiterCount();
+	
+	/**
+	 * Get the number of joints in the world
+	 * 
+	 * @return The number of joints
+	 */
+	public int getJointCount();
+	
+	/**
+	 * Get the average time spent applying force sources
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getForcesTime();
+	
+	/**
+	 * Get the average time spent in the broad phase
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getBroadPhaseTime();
+	
+	/**
+	 * Get the average time spent in the narrow phase
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getNarrowPhaseTime();
+	
+	/**
+	 * Get the average time spent building islands
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getIslandsTime();
+	
+	/**
+	 * Get the average time spent preparing contacts
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getArbiterPreStepTime();
+	
+	/**
+	 * Get the average time spent preparing joints
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getJointPreStepTime();
+	
+	/**
+	 * Get the average time spent in the solver iterations
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getSolverTime();
+	
+	/**
+	 * Get the average time spent correcting positions
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getPositionCorrectionTime();
+	
+	/**
+	 * Get the average time spent integrating
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getIntegrationTime();
+	
+	/**
+	 * Get the average time spent on resting bodies and sleeping
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getRestingTime();
+	
+	/**
+	 * Get the average time spent cleaning up arbiters
+	 * 
+	 * @return The average time of the phase
+	 */
+	public float getCleanUpTime();
+	
+	/**
+	 * Get the number of bytes allocated by the stepping thread per step,
+	 * measured over the last full second
+	 * 
+	 * @return The bytes allocated per step, or -1 if allocation can't be 
+	 * measured on this VM or a full second hasn't passed yet
+	 */
+	public float getAllocatedBytesPerStep();
+}
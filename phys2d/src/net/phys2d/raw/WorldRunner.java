@@ -0,0 +1,271 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * Steps a world at a fixed rate on a thread of its own, so rendering and
+ * stepping no longer hold each other up. After every step the runner 
+ * publishes a snapshot of the bodies which renderers pick up without
+ * waiting on the step. Everything else that changes the world while the
+ * runner owns it has to be posted to the world as a command.
+ * <p>
+ * The snapshots are passed through a triple buffer: the runner writes 
+ * one, one waits with the latest published state and the renderer reads
+ * the third. Neither side ever copies while holding the lock, the lock 
+ * only covers swapping two references. Snapshots are meant to be read 
+ * by one rendering thread.
+ * 
+ * @see World#post(WorldCommand)
+ */
+public class WorldRunner implements Runnable {
+	/** The most steps taken at once to catch up before the runner gives up on falling behind */
+	private static final int MAX_CATCH_UP = 5;
+	
+	/** The world being stepped */
+	private World world;
+	/** The amount of time each step moves the world on */
+	private float dt;
+	/** The number of sub-steps each step is split into */
+	private int substeps;
+	/** The snapshot being written by the runner */
+	private WorldSnapshot back = new WorldSnapshot();
+	/** The latest snapshot published and not yet picked up */
+	private WorldSnapshot middle = new WorldSnapshot();
+	/** The snapshot being read by the renderer */
+	private WorldSnapshot front = new WorldSnapshot();
+	/** The snapshot published last, which the next records where the bodies were */
+	private WorldSnapshot last;
+	/** True if the middle snapshot is newer than the front */
+	private boolean fresh;
+	/** The lock guarding the swapping of the snapshots */
+	private Object lock = new Object();
+	/** The number of steps taken */
+	private long steps;
+	/** The thread stepping the world, or null if it's not running */
+	private Thread thread;
+	/** True while the runner should keep stepping */
+	private volatile boolean running;
+	/** The failure that stopped the runner, or null if there's been none */
+	private volatile RuntimeException failure;
+	
+	/**
+	 * Create a new runner
+	 * 
+	 * @param world The world to step, which the runner owns once started
+	 * @param dt The amount of time each step moves the world on, and so 
+	 * the time between steps in seconds
+	 */
+	public WorldRunner(World world, float dt) {
+		this(world, dt, 1);
+	}
+	
+	/**
+	 * Create a new runner
+	 * 
+	 * @param world The world to step, which the runner owns once started
+	 * @param dt The amount of time each step moves the world on, and so 
+	 * the time between steps in seconds
+	 * @param substeps The number of sub-steps each step is split into
+	 */
+	public WorldRunner(World world, float dt, int substeps) {
+		if (dt <= 0) {
+			throw new IllegalArgumentException("Invalid step length: "+dt);
+		}
+		if (substeps < 1) {
+			throw new IllegalArgumentException("Invalid number of sub-steps: "+substeps);
+		}
+		
+		this.world = world;
+		this.dt = dt;
+		this.substeps = substeps;
+	}
+	
+	/**
+	 * Get the world being stepped
+	 * 
+	 * @return The world being stepped
+	 */
+	public World getWorld() {
+		return world;
+	}
+	
+	/**
+	 * Start stepping the world on a new thread. A runner stopped by a 
+	 * failed step can be started again without being stopped first.
+	 */
+	public synchronized void start() {
+		if (running) {
+			throw new IllegalStateException("The runner is already started");
+		}
+		
+		// a thread that has failed may still be on its way out
+		boolean interrupted = false;
+		while (thread != null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		
+		failure = null;
+		running = true;
+		thread = new Thread(this, "phys2d world runner");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stop stepping the world, waiting for the step in progress to finish.
+	 * Once stopped the world can be used on the calling thread again.
+	 * 
+	 * @throws InterruptedException Indicates the wait was interrupted
+	 */
+	public synchronized void stop() throws InterruptedException {
+		running = false;
+		while (thread != null) {
+			wait();
+		}
+	}
+	
+	/**
+	 * Check if the runner is stepping the world
+	 * 
+	 * @return True if the runner is stepping the world
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+	
+	/**
+	 * Get the exception thrown by a step that stopped the runner
+	 * 
+	 * @return The exception, or null if the runner hasn't failed since it
+	 * was last started
+	 */
+	public RuntimeException getFailure() {
+		return failure;
+	}
+	
+	/**
+	 * Get the latest snapshot of the world. The snapshot returned stays as
+	 * it is until the next call, and the same snapshot is returned again
+	 * while nothing newer has been published. This never waits on the step
+	 * in progress.
+	 * 
+	 * @return The latest snapshot, empty if the world hasn't stepped yet
+	 */
+	public WorldSnapshot getSnapshot() {
+		synchronized (lock) {
+			if (fresh) {
+				WorldSnapshot temp = front;
+				front = middle;
+				middle = temp;
+				fresh = false;
+			}
+		}
+		
+		return front;
+	}
+	
+	/**
+	 * Step the world once and publish the snapshot of the result
+	 */
+	void step() {
+		world.step(dt, substeps);
+		steps++;
+		
+		back.take(world, last, steps, dt, System.currentTimeMillis());
+		last = back;
+		synchronized (lock) {
+			WorldSnapshot temp = middle;
+			middle = back;
+			back = temp;
+			fresh = true;
+		}
+	}
+	
+	/**
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		long period = (long) (dt * 1000);
+		long next = System.currentTimeMillis();
+		float owed = 0;
+		
+		try {
+			while (running) {
+				// step as often as the clock says is due, dropping time
+				// rather than spiralling when the steps can't keep up
+				int taken = 0;
+				long now = System.currentTimeMillis();
+				while ((now >= next) && (taken < MAX_CATCH_UP)) {
+					step();
+					taken++;
+					
+					// the step length rarely divides into whole milliseconds
+					owed += (dt * 1000) - period;
+					next += period + (long) owed;
+					owed -= (long) owed;
+				}
+				if (taken == MAX_CATCH_UP) {
+					next = Math.max(next, now);
+				}
+				
+				long wait = next - System.currentTimeMillis();
+				if (wait > 0) {
+					Thread.sleep(wait);
+				}
+			}
+		} catch (InterruptedException e) {
+			// asked to stop
+		} catch (RuntimeException e) {
+			failure = e;
+		} finally {
+			// the world is only handed back once this thread is done with it
+			synchronized (this) {
+				running = false;
+				thread = null;
+				notifyAll();
+			}
+		}
+	}
+}
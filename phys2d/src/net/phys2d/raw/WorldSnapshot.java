@@ -0,0 +1,333 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+/**
+ * The state of the bodies in a world as of the end of a step, published
+ * by a <code>WorldRunner</code> for other threads to render from. Along 
+ * with where each body is, the snapshot holds where it was before the
+ * step, so a renderer drawing between steps can interpolate smoothly
+ * between the two.
+ * <p>
+ * Snapshots are allocated up front and reused by the runner. A snapshot
+ * handed out by the runner doesn't change until the same thread asks the
+ * runner for the next one.
+ */
+public class WorldSnapshot {
+	/** The bodies in the snapshot */
+	private Body[] bodies = new Body[0];
+	/** The number of bodies in the snapshot */
+	private int bodyCount;
+	/** The x position of each body */
+	private float[] x = new float[0];
+	/** The y position of each body */
+	private float[] y = new float[0];
+	/** The rotation of each body */
+	private float[] rotation = new float[0];
+	/** The x position of each body before the step */
+	private float[] lastX = new float[0];
+	/** The y position of each body before the step */
+	private float[] lastY = new float[0];
+	/** The rotation of each body before the step */
+	private float[] lastRotation = new float[0];
+	/** The x component of the velocity of each body */
+	private float[] vx = new float[0];
+	/** The y component of the velocity of each body */
+	private float[] vy = new float[0];
+	/** The angular velocity of each body */
+	private float[] w = new float[0];
+	/** The number of steps the world had taken */
+	private long step;
+	/** The amount of time the step moved the world on */
+	private float dt;
+	/** The time the snapshot was taken in milliseconds */
+	private long time;
+	
+	/**
+	 * Make sure the arrays can hold a number of bodies. The arrays only 
+	 * ever grow so once the world has settled nothing is allocated.
+	 * 
+	 * @param count The number of bodies to hold
+	 */
+	private void ensureCapacity(int count) {
+		if (bodies.length < count) {
+			int size = Math.max(count, bodies.length * 2);
+			
+			bodies = new Body[size];
+			x = new float[size];
+			y = new float[size];
+			rotation = new float[size];
+			lastX = new float[size];
+			lastY = new float[size];
+			lastRotation = new float[size];
+			vx = new float[size];
+			vy = new float[size];
+			w = new float[size];
+		}
+	}
+	
+	/**
+	 * Take the state of the bodies in a world
+	 * 
+	 * @param world The world that has just been stepped
+	 * @param before The snapshot taken of the world before the step, used 
+	 * for the positions the bodies had
+	 * @param step The number of steps the world has taken
+	 * @param dt The amount of time the step moved the world on
+	 * @param time The time the snapshot is taken in milliseconds
+	 */
+	void take(World world, WorldSnapshot before, long step, float dt, long time) {
+		BodyList list = world.getBodies();
+		
+		for (int i=bodyCount;i<bodies.length;i++) {
+			bodies[i] = null;
+		}
+		ensureCapacity(list.size());
+		bodyCount = list.size();
+		
+		// the world keeps its bodies in the order they were added, so each 
+		// body is looked for in the earlier snapshot from just after the 
+		// last one found there, skipping any removed in the step
+		int next = 0;
+		for (int i=0;i<bodyCount;i++) {
+			Body body = list.get(i);
+			bodies[i] = body;
+			x[i] = body.getPosition().getX();
+			y[i] = body.getPosition().getY();
+			rotation[i] = body.getRotation();
+			vx[i] = body.getVelocity().getX();
+			vy[i] = body.getVelocity().getY();
+			w[i] = body.getAngularVelocity();
+			
+			int found = (before != null) ? before.indexOf(body, next) : -1;
+			if (found >= 0) {
+				lastX[i] = before.x[found];
+				lastY[i] = before.y[found];
+				lastRotation[i] = before.rotation[found];
+				next = found + 1;
+			} else {
+				// added in the step, so there's nothing to move from
+				lastX[i] = x[i];
+				lastY[i] = y[i];
+				lastRotation[i] = rotation[i];
+			}
+		}
+		
+		this.step = step;
+		this.dt = dt;
+		this.time = time;
+	}
+	
+	/**
+	 * Find a body in the snapshot
+	 * 
+	 * @param body The body to look for
+	 * @param start The index to start looking from
+	 * @return The index of the body or -1 if it's not at or after the start
+	 */
+	private int indexOf(Body body, int start) {
+		for (int i=start;i<bodyCount;i++) {
+			if (bodies[i] == body) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Get the number of bodies in the snapshot
+	 * 
+	 * @return The number of bodies
+	 */
+	public int getBodyCount() {
+		return bodyCount;
+	}
+	
+	/**
+	 * Get a body in the snapshot, to find out how it should be drawn. Its
+	 * current state belongs to the thread stepping the world.
+	 * 
+	 * @param i The index of the body
+	 * @return The body
+	 */
+	public Body getBody(int i) {
+		return bodies[i];
+	}
+	
+	/**
+	 * Get the x position of a body
+	 * 
+	 * @param i The index of the body
+	 * @return The x position of the body
+	 */
+	public float getX(int i) {
+		return x[i];
+	}
+	
+	/**
+	 * Get the y position of a body
+	 * 
+	 * @param i The index of the body
+	 * @return The y position of the body
+	 */
+	public float getY(int i) {
+		return y[i];
+	}
+	
+	/**
+	 * Get the rotation of a body
+	 * 
+	 * @param i The index of the body
+	 * @return The rotation of the body
+	 */
+	public float getRotation(int i) {
+		return rotation[i];
+	}
+	
+	/**
+	 * Get the x component of the velocity of a body
+	 * 
+	 * @param i The index of the body
+	 * @return The x component of the velocity
+	 */
+	public float getVelocityX(int i) {
+		return vx[i];
+	}
+	
+	/**
+	 * Get the y component of the velocity of a body
+	 * 
+	 * @param i The index of the body
+	 * @return The y component of the velocity
+	 */
+	public float getVelocityY(int i) {
+		return vy[i];
+	}
+	
+	/**
+	 * Get the angular velocity of a body
+	 * 
+	 * @param i The index of the body
+	 * @return The angular velocity
+	 */
+	public float getAngularVelocity(int i) {
+		return w[i];
+	}
+	
+	/**
+	 * Get the x position of a body part way through the step
+	 * 
+	 * @param i The index of the body
+	 * @param alpha How far through the step, 0 being before the step and 
+	 * 1 after it
+	 * @return The interpolated x position
+	 */
+	public float getX(int i, float alpha) {
+		return lastX[i] + ((x[i] - lastX[i]) * alpha);
+	}
+	
+	/**
+	 * Get the y position of a body part way through the step
+	 * 
+	 * @param i The index of the body
+	 * @param alpha How far through the step, 0 being before the step and 
+	 * 1 after it
+	 * @return The interpolated y position
+	 */
+	public float getY(int i, float alpha) {
+		return lastY[i] + ((y[i] - lastY[i]) * alpha);
+	}
+	
+	/**
+	 * Get the rotation of a body part way through the step
+	 * 
+	 * @param i The index of the body
+	 * @param alpha How far through the step, 0 being before the step and 
+	 * 1 after it
+	 * @return The interpolated rotation
+	 */
+	public float getRotation(int i, float alpha) {
+		return lastRotation[i] + ((rotation[i] - lastRotation[i]) * alpha);
+	}
+	
+	/**
+	 * Get how far a renderer drawing at a given time should interpolate 
+	 * through the step. Drawing one step behind the world in this way
+	 * keeps the motion smooth however the frames and steps line up.
+	 * 
+	 * @param now The time being drawn in milliseconds
+	 * @return How far through the step to interpolate, between 0 and 1
+	 */
+	public float getAlpha(long now) {
+		if (dt <= 0) {
+			return 1;
+		}
+		
+		float alpha = (now - time) / (dt * 1000);
+		return Math.max(0, Math.min(1, alpha));
+	}
+	
+	/**
+	 * Get the number of steps the world had taken when the snapshot was 
+	 * taken
+	 * 
+	 * @return The number of steps taken
+	 */
+	public long getStep() {
+		return step;
+	}
+	
+	/**
+	 * Get the amount of time the step moved the world on
+	 * 
+	 * @return The length of the step
+	 */
+	public float getStepLength() {
+		return dt;
+	}
+	
+	/**
+	 * Get the time the snapshot was taken
+	 * 
+	 * @return The time the snapshot was taken in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+}
@@ -57,7 +57,7 @@ import net.phys2d.raw.shapes.Box;
  * 
  * @author Kevin Glass
  */
-public strictfp class BoxBoxCollider implements Collider {
+public strictfp class BoxBoxCollider implements SeparatingAxisCollider {
 
 //	 Box vertex and edge numbering:
 	//
@@ -91,18 +91,13 @@ public strictfp class BoxBoxCollider implements Collider {
 	/** The identifier indicating the forth edge collides */
 	public static final int EDGE4 = 4;
 
-	/** Temp vector */
-	private static Vector2f hA = new Vector2f();
-	/** Temp vector */
-	private static Vector2f hB = new Vector2f();
-	
 	/**
 	 * A simple structure describe a vertex against which the
 	 * shape should be clipped
 	 * 
 	 * @author Kevin Glass
 	 */
-	private class ClipVertex {
+	static class ClipVertex {
 		/** The vertex */
 		Vector2f v = new Vector2f();
 		/** The pair this clipping applied to */
@@ -120,7 +115,7 @@ public strictfp class BoxBoxCollider implements Collider {
 	 * 
 	 * @param fp The feature pair to flip
 	 */
-	private void flip(FeaturePair fp) {
+	static void flip(FeaturePair fp) {
 		int temp = fp.inEdge1;
 		fp.inEdge1 = fp.inEdge2;
 		fp.inEdge2 = temp;
@@ -140,7 +135,7 @@ public strictfp class BoxBoxCollider implements Collider {
 	 * @param clipEdge The edge against which we're clipping
 	 * @return The number of points we've clipped
 	 */
-	private int clipSegmentToLine(ClipVertex[] vOut, ClipVertex[] vIn,
+	static int clipSegmentToLine(ClipVertex[] vOut, ClipVertex[] vIn,
 						  Vector2f normal, float offset, char clipEdge) {
 		// Start with no output points
 		int numOut = 0;
@@ -158,18 +153,21 @@ public strictfp class BoxBoxCollider implements Collider {
 		{
 			// Find intersection point of edge and plane
 			float interp = distance0 / (distance0 - distance1);
-			vOut[numOut].v = MathUtil.scaleInSitu(MathUtil.sub(vIn[1].v, vIn[0].v),interp);
-			vOut[numOut].v.add(vIn[0].v);
+			Vector2f v = vOut[numOut].v;
+			v.set(vIn[1].v);
+			v.sub(vIn[0].v);
+			v.scale(interp);
+			v.add(vIn[0].v);
 			
 			if (distance0 > 0.0f)
 			{
-				vOut[numOut].fp = vIn[0].fp;
+				vOut[numOut].fp.set(vIn[0].fp);
 				vOut[numOut].fp.inEdge1 = clipEdge;
 				vOut[numOut].fp.inEdge2 = NO_EDGE;
 			}
 			else
 			{
-				vOut[numOut].fp = vIn[1].fp;
+				vOut[numOut].fp.set(vIn[1].fp);
 				vOut[numOut].fp.outEdge1 = clipEdge;
 				vOut[numOut].fp.outEdge2 = NO_EDGE;
 			}
@@ -187,16 +185,18 @@ public strictfp class BoxBoxCollider implements Collider {
 	 * @param pos
 	 * @param rot
 	 * @param normal
+	 * @param scratch The context providing the temporary storage
 	 */
 	private void computeIncidentEdge(ClipVertex[] c, 
 									ROVector2f h, 
 									ROVector2f pos,
-									Matrix2f rot, Vector2f normal) {
+									Matrix2f rot, Vector2f normal,
+									CollisionScratch scratch) {
 		// The normal is from the reference box. Convert it
 		// to the incident boxe's frame and flip sign.
-		Matrix2f rotT = rot.transpose();
-		Vector2f n = MathUtil.scaleInSitu(MathUtil.mul(rotT,normal),-1);
-		Vector2f nAbs = MathUtil.abs(n);
+		Matrix2f rotT = rot.transpose(scratch.matrices[7]);
+		Vector2f n = MathUtil.scaleInSitu(MathUtil.mul(rotT,normal,scratch.vectors[12]),-1);
+		Vector2f nAbs = MathUtil.abs(n,scratch.vectors[13]);
 
 		if (nAbs.x > nAbs.y)
 		{
@@ -245,17 +245,44 @@ public strictfp class BoxBoxCollider implements Collider {
 			}
 		}
 
-		c[0].v = MathUtil.mul(rot,c[0].v);
+		MathUtil.mul(rot,c[0].v,c[0].v);
 		c[0].v.add(pos);
 		
-		c[1].v = MathUtil.mul(rot,c[1].v);
+		MathUtil.mul(rot,c[1].v,c[1].v);
 		c[1].v.add(pos);
 	}
 	
+	/**
+	 * Get the edge of a box whose face separates it from the other box,
+	 * numbered as the points of Box.getPoints()
+	 * 
+	 * @param face The separation along the x and y axes of the box
+	 * @param d The offset to the other box in the frame of the box
+	 * @return The index of the separating edge
+	 */
+	private int getSeparatingEdge(Vector2f face, Vector2f d) {
+		if (face.x > 0.0f) {
+			return d.x > 0.0f ? 1 : 3;
+		}
+		
+		return d.y > 0.0f ? 2 : 0;
+	}
+	
 	/**
 	 * @see net.phys2d.raw.collide.Collider#collide(net.phys2d.raw.Contact[], net.phys2d.raw.Body, net.phys2d.raw.Body)
 	 */
 	public int collide(Contact[] contacts, Body bodyA, Body bodyB) {
+		return collide(contacts, bodyA, bodyB, null);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.collide.SeparatingAxisCollider#collide(net.phys2d.raw.Contact[], net.phys2d.raw.Body, net.phys2d.raw.Body, net.phys2d.raw.collide.SeparatingAxis)
+	 */
+	public int collide(Contact[] contacts, Body bodyA, Body bodyB, SeparatingAxis separatingAxis) {
+		if ((separatingAxis != null) && (separatingAxis.separates(bodyA, bodyB))) {
+			return 0;
+		}
+		
 		float x1 = bodyA.getPosition().getX();
 		float y1 = bodyA.getPosition().getY();
 		float x2 = bodyB.getPosition().getX();
@@ -266,7 +293,13 @@ public strictfp class BoxBoxCollider implements Collider {
 			return 0;
 		}
 		
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f[] temp = scratch.vectors;
+		Matrix2f[] matrices = scratch.matrices;
+		
 		// Setup
+		Vector2f hA = temp[0];
+		Vector2f hB = temp[1];
 		hA.set(((Box) bodyA.getShape()).getSize());
 		hA.scale(0.5f);
 		//Vector2f hA = MathUtil.scale(((Box) bodyA.getShape()).getSize(), 0.5f);
@@ -279,11 +312,11 @@ public strictfp class BoxBoxCollider implements Collider {
 		ROVector2f posA = bodyA.getPosition();
 		ROVector2f posB = bodyB.getPosition();
 
-		Matrix2f rotA = new Matrix2f(bodyA.getRotation());
-		Matrix2f rotB = new Matrix2f(bodyB.getRotation());
+		Matrix2f rotA = bodyA.getRotationMatrix();
+		Matrix2f rotB = bodyB.getRotationMatrix();
 
-		Matrix2f RotAT = rotA.transpose();
-		Matrix2f RotBT = rotB.transpose();
+		Matrix2f RotAT = rotA.transpose(matrices[2]);
+		Matrix2f RotBT = rotB.transpose(matrices[3]);
 
 		// unused?
 //		Vector2f a1 = rotA.col1;
@@ -291,47 +324,60 @@ public strictfp class BoxBoxCollider implements Collider {
 //		Vector2f b1 = rotB.col1;
 //		Vector2f b2 = rotB.col2;
 
-		Vector2f dp = MathUtil.sub(posB,posA);
-		Vector2f dA = MathUtil.mul(RotAT,dp);
-		Vector2f dB = MathUtil.mul(RotBT,dp);
+		Vector2f dp = temp[2];
+		dp.set(posB);
+		dp.sub(posA);
+		Vector2f dA = MathUtil.mul(RotAT,dp,temp[3]);
+		Vector2f dB = MathUtil.mul(RotBT,dp,temp[4]);
 
-		Matrix2f C = MathUtil.mul(RotAT,rotB);
-		Matrix2f absC = MathUtil.abs(C);
-		Matrix2f absCT = absC.transpose();
+		Matrix2f C = MathUtil.mul(RotAT,rotB,matrices[4]);
+		Matrix2f absC = MathUtil.abs(C,matrices[5]);
+		Matrix2f absCT = absC.transpose(matrices[6]);
 
 		// Box A faces
-		Vector2f faceA = MathUtil.abs(dA);
+		Vector2f faceA = MathUtil.abs(dA,temp[5]);
 		faceA.sub(hA);
-		faceA.sub(MathUtil.mul(absC,hB));
+		faceA.sub(MathUtil.mul(absC,hB,temp[6]));
 		
 		if (faceA.x > 0.0f || faceA.y > 0.0f) {
+			if (separatingAxis != null) {
+				separatingAxis.set(getSeparatingEdge(faceA, dA), false);
+			}
 			return 0;
 		}
 
 		// Box B faces
-		Vector2f faceB = MathUtil.abs(dB);
-		faceB.sub(MathUtil.mul(absCT,hA));
+		Vector2f faceB = MathUtil.abs(dB,temp[7]);
+		faceB.sub(MathUtil.mul(absCT,hA,temp[6]));
 		faceB.sub(hB);
 		//MathUtil.sub(MathUtil.sub(MathUtil.abs(dB),MathUtil.mul(absCT,hA)),hB);
 		if (faceB.x > 0.0f || faceB.y > 0.0f) {
+			if (separatingAxis != null) {
+				// the offset is from A to B, B's edge faces the other way
+				separatingAxis.set(getSeparatingEdge(faceB, MathUtil.scaleInSitu(dB, -1)), true);
+			}
 			return 0;
 		}
+		
+		if (separatingAxis != null) {
+			separatingAxis.clear();
+		}
 
 		// Find best axis
 		int axis;
 		float separation;
-		Vector2f normal;
+		Vector2f normal = temp[8];
 
 		// Box A faces
 		axis = FACE_A_X;
 		separation = faceA.x;
-		normal = dA.x > 0.0f ? rotA.col1 : MathUtil.scale(rotA.col1,-1);
+		MathUtil.scale(rotA.col1, dA.x > 0.0f ? 1 : -1, normal);
 
 		if (faceA.y > 1.05f * separation + 0.01f * hA.y)
 		{
 			axis = FACE_A_Y;
 			separation = faceA.y;
-			normal = dA.y > 0.0f ? rotA.col2 : MathUtil.scale(rotA.col2,-1);
+			MathUtil.scale(rotA.col2, dA.y > 0.0f ? 1 : -1, normal);
 		}
 
 		// Box B faces
@@ -339,19 +385,19 @@ public strictfp class BoxBoxCollider implements Collider {
 		{
 			axis = FACE_B_X;
 			separation = faceB.x;
-			normal = dB.x > 0.0f ? rotB.col1 : MathUtil.scale(rotB.col1,-1);
+			MathUtil.scale(rotB.col1, dB.x > 0.0f ? 1 : -1, normal);
 		}
 
 		if (faceB.y > 1.05f * separation + 0.01f * hB.y)
 		{
 			axis = FACE_B_Y;
 			separation = faceB.y;
-			normal = dB.y > 0.0f ? rotB.col2 : MathUtil.scale(rotB.col2,-1);
+			MathUtil.scale(rotB.col2, dB.y > 0.0f ? 1 : -1, normal);
 		}
 
 		// Setup clipping plane data based on the separating axis
 		Vector2f frontNormal, sideNormal;
-		ClipVertex[] incidentEdge = new ClipVertex[] {new ClipVertex(), new ClipVertex()};
+		ClipVertex[] incidentEdge = scratch.incidentEdge;
 		float front, negSide, posSide;
 		char negEdge, posEdge;
 
@@ -368,7 +414,7 @@ public strictfp class BoxBoxCollider implements Collider {
 				posSide =  side + hA.y;
 				negEdge = EDGE3;
 				posEdge = EDGE1;
-				computeIncidentEdge(incidentEdge, hB, posB, rotB, frontNormal);
+				computeIncidentEdge(incidentEdge, hB, posB, rotB, frontNormal, scratch);
 			}
 			break;
 
@@ -382,13 +428,13 @@ public strictfp class BoxBoxCollider implements Collider {
 				posSide =  side + hA.x;
 				negEdge = EDGE2;
 				posEdge = EDGE4;
-				computeIncidentEdge(incidentEdge, hB, posB, rotB, frontNormal);
+				computeIncidentEdge(incidentEdge, hB, posB, rotB, frontNormal, scratch);
 			}
 			break;
 
 		case FACE_B_X:
 			{
-				frontNormal = MathUtil.scale(normal,-1);
+				frontNormal = MathUtil.scale(normal,-1,temp[9]);
 				front = posB.dot(frontNormal) + hB.x;
 				sideNormal = rotB.col2;
 				float side = posB.dot(sideNormal);
@@ -396,13 +442,13 @@ public strictfp class BoxBoxCollider implements Collider {
 				posSide =  side + hB.y;
 				negEdge = EDGE3;
 				posEdge = EDGE1;
-				computeIncidentEdge(incidentEdge, hA, posA, rotA, frontNormal);
+				computeIncidentEdge(incidentEdge, hA, posA, rotA, frontNormal, scratch);
 			}
 			break;
 
 		case FACE_B_Y:
 			{
-				frontNormal = MathUtil.scale(normal,-1);
+				frontNormal = MathUtil.scale(normal,-1,temp[9]);
 				front = posB.dot(frontNormal) + hB.y;
 				sideNormal = rotB.col1;
 				float side = posB.dot(sideNormal);
@@ -410,7 +456,7 @@ public strictfp class BoxBoxCollider implements Collider {
 				posSide =  side + hB.x;
 				negEdge = EDGE2;
 				posEdge = EDGE4;
-				computeIncidentEdge(incidentEdge, hA, posA, rotA, frontNormal);
+				computeIncidentEdge(incidentEdge, hA, posA, rotA, frontNormal, scratch);
 			}
 			break;
 		default:
@@ -419,8 +465,9 @@ public strictfp class BoxBoxCollider implements Collider {
 
 		// clip other face with 5 box planes (1 face plane, 4 edge planes)
 
-		ClipVertex[] clipPoints1 = new ClipVertex[] {new ClipVertex(), new ClipVertex()};
-		ClipVertex[] clipPoints2 = new ClipVertex[] {new ClipVertex(), new ClipVertex()};
+		scratch.resetClipPoints();
+		ClipVertex[] clipPoints1 = scratch.clipPoints1;
+		ClipVertex[] clipPoints2 = scratch.clipPoints2;
 		int np;
 
 		// Clip to box side 1
@@ -449,8 +496,11 @@ public strictfp class BoxBoxCollider implements Collider {
 				contacts[numContacts].setSeparation(separation2);
 				contacts[numContacts].setNormal(normal);
 				// slide contact point onto reference face (easy to cull)
-				contacts[numContacts].setPosition(MathUtil.sub(clipPoints2[i].v,MathUtil.scale(frontNormal,separation2)));
-				contacts[numContacts].setFeature(clipPoints2[i].fp);
+				Vector2f position = temp[10];
+				position.set(clipPoints2[i].v);
+				position.sub(MathUtil.scale(frontNormal,separation2,temp[11]));
+				contacts[numContacts].setPosition(position);
+				contacts[numContacts].getFeature().set(clipPoints2[i].fp);
 				if (axis == FACE_B_X || axis == FACE_B_Y)
 					flip(contacts[numContacts].getFeature());
 				++numContacts;
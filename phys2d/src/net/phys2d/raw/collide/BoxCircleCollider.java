@@ -37,11 +37,9 @@
  */
 package net.phys2d.raw.collide;
 
-import net.phys2d.math.MathUtil;
 import net.phys2d.math.Vector2f;
 import net.phys2d.raw.Body;
 import net.phys2d.raw.Contact;
-import net.phys2d.raw.shapes.Box;
 import net.phys2d.raw.shapes.Circle;
 import net.phys2d.raw.shapes.Line;
 
@@ -68,15 +66,15 @@ public strictfp class BoxCircleCollider implements Collider {
 			return 0;
 		}
 		
-		Box box = (Box) boxBody.getShape();
 		Circle circle = (Circle) circleBody.getShape();
 		
-		Vector2f[] pts = box.getPoints(boxBody.getPosition(), boxBody.getRotation());
-		Line[] lines = new Line[4];
-		lines[0] = new Line(pts[0],pts[1]);
-		lines[1] = new Line(pts[1],pts[2]);
-		lines[2] = new Line(pts[2],pts[3]);
-		lines[3] = new Line(pts[3],pts[0]);
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f[] pts = boxBody.getWorldVertices();
+		Line[] lines = scratch.lines;
+		lines[0].set(pts[0],pts[1]);
+		lines[1].set(pts[1],pts[2]);
+		lines[2].set(pts[2],pts[3]);
+		lines[3].set(pts[3],pts[0]);
 		
 		float r2 = circle.getRadius() * circle.getRadius();
 		int closest = -1;
@@ -98,14 +96,16 @@ public strictfp class BoxCircleCollider implements Collider {
 			
 			// this should really be where the edge and the line
 			// between the two elements cross?
-			Vector2f contactPoint = new Vector2f();
+			Vector2f contactPoint = scratch.vectors[0];
 			lines[closest].getClosestPoint(circleBody.getPosition(), contactPoint);
 			
-			Vector2f normal = MathUtil.sub(circleBody.getPosition(), contactPoint);
+			Vector2f normal = scratch.vectors[1];
+			normal.set(circleBody.getPosition());
+			normal.sub(contactPoint);
 			normal.normalise();
 			contacts[0].setNormal(normal);
 			contacts[0].setPosition(contactPoint);
-			contacts[0].setFeature(new FeaturePair());
+			contacts[0].getFeature().set(0, 0, 0, 0);
 			
 			return 1;
 		}
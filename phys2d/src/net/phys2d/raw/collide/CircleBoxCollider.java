@@ -81,7 +81,9 @@ public strictfp class CircleBoxCollider extends BoxCircleCollider {
 		for (int i=0;i<count;i++) {
 			MathUtil.scaleInSitu((Vector2f) contacts[i].getNormal(),-1);
 			
-			Vector2f pt = MathUtil.sub(contacts[i].getPosition(), circleBody.getPosition());
+			Vector2f pt = CollisionScratch.get().vectors[0];
+			pt.set(contacts[i].getPosition());
+			pt.sub(circleBody.getPosition());
 			pt.normalise();
 			pt.scale(((Circle) circleBody.getShape()).getRadius());
 			pt.add(circleBody.getPosition());
@@ -74,19 +74,20 @@ public strictfp class CircleCircleCollider implements Collider {
 			return 0;
 		}
 		
-		Vector2f normal = MathUtil.sub(bodyB.getPosition(),bodyA.getPosition());
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f normal = scratch.vectors[0];
+		normal.set(bodyB.getPosition());
+		normal.sub(bodyA.getPosition());
 		float sep = (circleA.getRadius() + circleB.getRadius()) - normal.length();
 
 		normal.normalise();
-		Vector2f pt = MathUtil.scale(normal, circleA.getRadius());
+		Vector2f pt = MathUtil.scale(normal, circleA.getRadius(), scratch.vectors[1]);
 		pt.add(bodyA.getPosition());
 
 		contacts[0].setSeparation(-sep);
 		contacts[0].setPosition(pt);
 		contacts[0].setNormal(normal);
-		
-		FeaturePair fp = new FeaturePair();
-		contacts[0].setFeature(fp);
+		contacts[0].getFeature().set(0, 0, 0, 0);
 
 		return 1;
 	}
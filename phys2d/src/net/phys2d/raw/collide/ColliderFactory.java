@@ -45,12 +45,123 @@ import net.phys2d.raw.shapes.*;
  * or actually their shapes.
  * This was implemented to replace a visitor-pattern based implementation,
  * that required many files to be edited to add a new shape.
- * Furthermore this factory can handle singleton colliders if needed.
+ * 
+ * Colliders hold no state between calls so a single instance of each is 
+ * kept in a table indexed by the type IDs of the two shapes. Where only
+ * the reverse combination has a collider the table is filled with a 
+ * SwapCollider when the collider is registered, so finding a collider
+ * is a simple lookup. Custom shapes can register their own colliders 
+ * using type IDs from <code>Shape.FIRST_CUSTOM_TYPE</code> upwards.
  * 
  * @author Gideon Smeding
  *
  */
 public class ColliderFactory {
+	/** The colliders indexed by the type IDs of the two shapes */
+	private Collider[][] colliders = new Collider[0][0];
+	/** True for the entries in the table that were registered rather than swapped */
+	private boolean[][] registered = new boolean[0][0];
+	
+	/**
+	 * Create a new factory populated with the colliders for the 
+	 * standard shapes
+	 */
+	public ColliderFactory() {
+		Collider polygonCircle = new PolygonCircleCollider();
+		Collider linePolygon = new LinePolygonCollider();
+		Collider polygonPolygon = new PolygonPolygonCollider();
+		Collider convexPolygon = new ConvexPolygonCollider();
+		
+		register(Shape.CIRCLE_TYPE, Shape.CIRCLE_TYPE, new CircleCircleCollider());
+		register(Shape.BOX_TYPE, Shape.CIRCLE_TYPE, new BoxCircleCollider());
+		register(Shape.LINE_TYPE, Shape.CIRCLE_TYPE, new LineCircleCollider());
+		register(Shape.POLYGON_TYPE, Shape.CIRCLE_TYPE, polygonCircle);
+		
+		register(Shape.BOX_TYPE, Shape.BOX_TYPE, new BoxBoxCollider());
+		register(Shape.LINE_TYPE, Shape.BOX_TYPE, new LineBoxCollider());
+		register(Shape.POLYGON_TYPE, Shape.BOX_TYPE, new PolygonBoxCollider());
+		
+		register(Shape.LINE_TYPE, Shape.LINE_TYPE, new LineLineCollider());
+		register(Shape.LINE_TYPE, Shape.POLYGON_TYPE, linePolygon);
+		
+		register(Shape.POLYGON_TYPE, Shape.POLYGON_TYPE, polygonPolygon);
+		
+		// convex polygons are polygons to everything but other convex shapes
+		register(Shape.CONVEX_POLYGON_TYPE, Shape.CIRCLE_TYPE, polygonCircle);
+		register(Shape.LINE_TYPE, Shape.CONVEX_POLYGON_TYPE, linePolygon);
+		register(Shape.CONVEX_POLYGON_TYPE, Shape.POLYGON_TYPE, polygonPolygon);
+		register(Shape.POLYGON_TYPE, Shape.CONVEX_POLYGON_TYPE, polygonPolygon);
+		register(Shape.CONVEX_POLYGON_TYPE, Shape.BOX_TYPE, convexPolygon);
+		register(Shape.BOX_TYPE, Shape.CONVEX_POLYGON_TYPE, convexPolygon);
+		register(Shape.CONVEX_POLYGON_TYPE, Shape.CONVEX_POLYGON_TYPE, convexPolygon);
+	}
+	
+	/**
+	 * Register the collider to use between two types of shape. Unless a 
+	 * collider has been registered for the reverse combination, the collider
+	 * will also be used for it with its results swapped.
+	 * 
+	 * @param typeA The type ID of the first shape the collider expects
+	 * @param typeB The type ID of the second shape the collider expects
+	 * @param collider The collider to use, it must hold no state between calls
+	 * since it'll be shared between every pair of bodies
+	 */
+	public void register(int typeA, int typeB, Collider collider) {
+		ensureCapacity(Math.max(typeA, typeB) + 1);
+		
+		colliders[typeA][typeB] = collider;
+		registered[typeA][typeB] = true;
+		
+		if ((typeA != typeB) && (!registered[typeB][typeA])) {
+			colliders[typeB][typeA] = new SwapCollider(collider);
+		}
+	}
+	
+	/**
+	 * Make sure the table can hold a given number of shape types
+	 * 
+	 * @param types The number of shape types the table must hold
+	 */
+	private void ensureCapacity(int types) {
+		if (types <= colliders.length) {
+			return;
+		}
+		
+		Collider[][] newColliders = new Collider[types][types];
+		boolean[][] newRegistered = new boolean[types][types];
+		for (int i=0;i<colliders.length;i++) {
+			System.arraycopy(colliders[i], 0, newColliders[i], 0, colliders.length);
+			System.arraycopy(registered[i], 0, newRegistered[i], 0, colliders.length);
+		}
+		colliders = newColliders;
+		registered = newRegistered;
+	}
+	
+	/**
+	 * Get the collider for two shapes
+	 * 
+	 * @param shapeA The first shape in the collision test
+	 * @param shapeB The second shape in the collision test
+	 * @return A collider that can test wether the two shapes actually collide
+	 * @throws ColliderUnavailableException 
+	 *         This exception will be thrown if no suitable collider can be found. 
+	 */
+	public Collider getCollider(Shape shapeA, Shape shapeB) 
+	throws ColliderUnavailableException {
+		int typeA = shapeA.getTypeID();
+		int typeB = shapeB.getTypeID();
+		
+		if ((typeA < 0) || (typeB < 0) || (typeA >= colliders.length) || (typeB >= colliders.length)) {
+			throw new ColliderUnavailableException(shapeA, shapeB);
+		}
+		
+		Collider collider = colliders[typeA][typeB];
+		if (collider == null) {
+			throw new ColliderUnavailableException(shapeA, shapeB);
+		}
+		
+		return collider;
+	}
 	
 	/**
 	 * Create a collider for two bodies. The decision depends on
@@ -64,20 +175,7 @@ public class ColliderFactory {
 	 */
 	public Collider createCollider(Body bodyA, Body bodyB) 
 	throws ColliderUnavailableException {
-		Shape shapeA = bodyA.getShape();
-		Shape shapeB = bodyB.getShape();
-		
-		if ( shapeA instanceof Circle ) {
-			return createColliderFor((Circle) shapeA, shapeB);
-		} else if ( shapeA instanceof Box ) {
-			return createColliderFor((Box) shapeA, shapeB);
-		} else if ( shapeA instanceof Line ) {
-			return createColliderFor((Line) shapeA, shapeB);
-		} else if ( shapeA instanceof Polygon ) {
-			return createColliderFor((Polygon) shapeA, shapeB);
-		}
-		
-		throw new ColliderUnavailableException(shapeA, shapeB);
+		return getCollider(bodyA.getShape(), bodyB.getShape());
 	}
 	
 	/**
@@ -92,18 +190,7 @@ public class ColliderFactory {
 	 */
 	public Collider createColliderFor(Circle shapeA, Shape shapeB) 
 	throws ColliderUnavailableException {
-
-		if ( shapeB instanceof Circle ) {
-			return new CircleCircleCollider();
-		} else if ( shapeB instanceof Box ) {
-			return new SwapCollider(new BoxCircleCollider());
-		} else if ( shapeB instanceof Line ) {
-			return new SwapCollider(new LineCircleCollider());
-		} else if ( shapeB instanceof Polygon ) {
-			return new SwapCollider(new PolygonCircleCollider());
-		}
-		
-		throw new ColliderUnavailableException(shapeA, shapeB);
+		return getCollider(shapeA, shapeB);
 	}
 	
 	/**
@@ -118,18 +205,7 @@ public class ColliderFactory {
 	 */
 	public Collider createColliderFor(Box shapeA, Shape shapeB) 
 	throws ColliderUnavailableException {
-
-		if ( shapeB instanceof Circle ) {
-			return new BoxCircleCollider();
-		} else if ( shapeB instanceof Box ) {
-			return new BoxBoxCollider();
-		} else if ( shapeB instanceof Line ) {
-			return new SwapCollider(new LineBoxCollider());
-		} else if ( shapeB instanceof Polygon ) {
-			return new SwapCollider(new PolygonBoxCollider());
-		}
-		
-		throw new ColliderUnavailableException(shapeA, shapeB);
+		return getCollider(shapeA, shapeB);
 	}
 	
 	/**
@@ -144,18 +220,7 @@ public class ColliderFactory {
 	 */
 	public Collider createColliderFor(Line shapeA, Shape shapeB) 
 	throws ColliderUnavailableException {
-
-		if ( shapeB instanceof Circle ) {
-			return new LineCircleCollider();
-		} else if ( shapeB instanceof Box ) {
-			return new LineBoxCollider();
-		} else if ( shapeB instanceof Line ) {
-			return new LineLineCollider();
-		} else if ( shapeB instanceof Polygon ) {
-			return new LinePolygonCollider();
-		}
-		
-		throw new ColliderUnavailableException(shapeA, shapeB);
+		return getCollider(shapeA, shapeB);
 	}
 	
 	/**
@@ -170,17 +235,6 @@ public class ColliderFactory {
 	 */
 	public Collider createColliderFor(Polygon shapeA, Shape shapeB) 
 	throws ColliderUnavailableException {
-
-		if ( shapeB instanceof Circle ) {
-			return new PolygonCircleCollider();
-		} else if ( shapeB instanceof Box ) {
-			return new PolygonBoxCollider();
-		} else if ( shapeB instanceof Line ) {
-			return new SwapCollider(new LinePolygonCollider());
-		} else if ( shapeB instanceof Polygon ) {
-			return new PolygonPolygonCollider();
-		}
-		
-		throw new ColliderUnavailableException(shapeA, shapeB);
+		return getCollider(shapeA, shapeB);
 	}
 }
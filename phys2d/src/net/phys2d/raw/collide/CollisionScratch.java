@@ -0,0 +1,215 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.collide;
+
+import net.phys2d.math.Matrix2f;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.shapes.Line;
+
+/**
+ * The working storage used by the colliders while they determine contacts.
+ * Each thread gets its own context so that the colliders themselves can
+ * remain stateless and shared, while no objects need to be created for
+ * each pair of bodies once the context has grown to fit the shapes in
+ * the simulation.
+ * 
+ * The storage is only valid until the collider returns - contacts must 
+ * always copy the values they are given.
+ */
+final class CollisionScratch {
+	/** The number of temporary vectors available */
+	private static final int VECTORS = 16;
+	/** The number of temporary matrices available */
+	private static final int MATRICES = 8;
+	
+	/** The context for each thread */
+	private static ThreadLocal current = new ThreadLocal() {
+		protected Object initialValue() {
+			return new CollisionScratch();
+		}
+	};
+	
+	/** Temporary vectors, each collider picks the ones it needs */
+	final Vector2f[] vectors = new Vector2f[VECTORS];
+	/** Temporary matrices, each collider picks the ones it needs */
+	final Matrix2f[] matrices = new Matrix2f[MATRICES];
+	/** Temporary lines, used for the edges of a box */
+	final Line[] lines = new Line[4];
+	/** Temporary values, one for each point of a box */
+	final float[] tangent = new float[4];
+	/** Temporary values, one for each point of a box */
+	final float[] proj = new float[4];
+	
+	/** The clip vertices owned by this context */
+	final BoxBoxCollider.ClipVertex[] clipVertices = new BoxBoxCollider.ClipVertex[6];
+	/** The incident edge of the box collision */
+	final BoxBoxCollider.ClipVertex[] incidentEdge = new BoxBoxCollider.ClipVertex[2];
+	/** The points after clipping against the first side */
+	final BoxBoxCollider.ClipVertex[] clipPoints1 = new BoxBoxCollider.ClipVertex[2];
+	/** The points after clipping against the second side */
+	final BoxBoxCollider.ClipVertex[] clipPoints2 = new BoxBoxCollider.ClipVertex[2];
+	
+	/** The sweep used to find colliding edges */
+	final EdgeSweep sweep = new EdgeSweep(new Vector2f());
+	/** The gatherer used to find the intersections between edges */
+	final IntersectionGatherer gatherer = new IntersectionGatherer(null, null);
+	/** The sweep used to find the penetration depth of an intersection pair */
+	final PenetrationSweep penetration = new PenetrationSweep();
+	
+	/** The vertex arrays for the first shape, indexed by the number of vertices */
+	private Vector2f[][] verticesA = new Vector2f[8][];
+	/** The vertex arrays for the second shape, indexed by the number of vertices */
+	private Vector2f[][] verticesB = new Vector2f[8][];
+	/** The edge normal arrays for the first shape, indexed by the number of edges */
+	private Vector2f[][] normalsA = new Vector2f[8][];
+	/** The edge normal arrays for the second shape, indexed by the number of edges */
+	private Vector2f[][] normalsB = new Vector2f[8][];
+	
+	/**
+	 * Create a new context, use {@link #get()} instead
+	 */
+	private CollisionScratch() {
+		for (int i=0;i<VECTORS;i++) {
+			vectors[i] = new Vector2f();
+		}
+		for (int i=0;i<MATRICES;i++) {
+			matrices[i] = new Matrix2f();
+		}
+		for (int i=0;i<lines.length;i++) {
+			lines[i] = new Line(0,0,0,0);
+		}
+		for (int i=0;i<clipVertices.length;i++) {
+			clipVertices[i] = new BoxBoxCollider.ClipVertex();
+		}
+		incidentEdge[0] = clipVertices[0];
+		incidentEdge[1] = clipVertices[1];
+	}
+	
+	/**
+	 * Get the context for the current thread
+	 * 
+	 * @return The context for the current thread
+	 */
+	static CollisionScratch get() {
+		return (CollisionScratch) current.get();
+	}
+	
+	/**
+	 * Restore the clip point arrays to the vertices owned by this context,
+	 * clipping stores references to the input vertices in them.
+	 */
+	void resetClipPoints() {
+		clipPoints1[0] = clipVertices[2];
+		clipPoints1[1] = clipVertices[3];
+		clipPoints2[0] = clipVertices[4];
+		clipPoints2[1] = clipVertices[5];
+	}
+	
+	/**
+	 * Get an array of exactly the given length to hold the vertices of
+	 * the first shape in a collision
+	 * 
+	 * @param count The number of vertices
+	 * @return The array of vertices
+	 */
+	Vector2f[] getVerticesA(int count) {
+		verticesA = ensureVertices(verticesA, count);
+		return verticesA[count];
+	}
+	
+	/**
+	 * Get an array of exactly the given length to hold the vertices of
+	 * the second shape in a collision
+	 * 
+	 * @param count The number of vertices
+	 * @return The array of vertices
+	 */
+	Vector2f[] getVerticesB(int count) {
+		verticesB = ensureVertices(verticesB, count);
+		return verticesB[count];
+	}
+	
+	/**
+	 * Get an array of exactly the given length to hold the edge normals
+	 * of the first shape in a collision
+	 * 
+	 * @param count The number of edges
+	 * @return The array of normals
+	 */
+	Vector2f[] getNormalsA(int count) {
+		normalsA = ensureVertices(normalsA, count);
+		return normalsA[count];
+	}
+	
+	/**
+	 * Get an array of exactly the given length to hold the edge normals
+	 * of the second shape in a collision
+	 * 
+	 * @param count The number of edges
+	 * @return The array of normals
+	 */
+	Vector2f[] getNormalsB(int count) {
+		normalsB = ensureVertices(normalsB, count);
+		return normalsB[count];
+	}
+	
+	/**
+	 * Make sure a table of vertex arrays holds an array of the given length
+	 * 
+	 * @param table The table of arrays indexed by length
+	 * @param count The number of vertices required
+	 * @return The table, which is a new one if it had to grow
+	 */
+	private Vector2f[][] ensureVertices(Vector2f[][] table, int count) {
+		if (count >= table.length) {
+			Vector2f[][] temp = new Vector2f[Math.max(count + 1, table.length * 2)][];
+			System.arraycopy(table, 0, temp, 0, table.length);
+			table = temp;
+		}
+		
+		if (table[count] == null) {
+			Vector2f[] verts = new Vector2f[count];
+			for (int i=0;i<count;i++) {
+				verts[i] = new Vector2f();
+			}
+			table[count] = verts;
+		}
+		
+		return table;
+	}
+}
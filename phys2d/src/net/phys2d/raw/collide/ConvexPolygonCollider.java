@@ -0,0 +1,319 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.collide;
+
+import net.phys2d.math.MathUtil;
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.Contact;
+
+/**
+ * Collide two convex shapes, Convex Polygons or a Convex Polygon and a Box,
+ * using the separating axis theorem. The edge normals of both shapes are
+ * the only candidate axes, so the axis of least penetration gives the
+ * reference edge directly. The edge of the other shape most opposed to
+ * it is then clipped against the sides of the reference edge, which 
+ * leaves at most two contacts.
+ * 
+ * Edges are identified by their index plus one in the feature pairs, 
+ * following the box collider, so contacts keep their identity between
+ * steps as long as the same edges are touching. The separating edge found
+ * when the shapes don't touch can be recorded to be tested first next time.
+ */
+public strictfp class ConvexPolygonCollider implements SeparatingAxisCollider {
+	/** The fraction of the first shape's separation the second shape's must exceed to be preferred */
+	private static final float RELATIVE_TOLERANCE = 0.98f;
+	/** The amount the second shape's separation must exceed the first shape's by to be preferred */
+	private static final float ABSOLUTE_TOLERANCE = 0.001f;
+	
+	/**
+	 * @see net.phys2d.raw.collide.Collider#collide(net.phys2d.raw.Contact[], net.phys2d.raw.Body, net.phys2d.raw.Body)
+	 */
+	public int collide(Contact[] contacts, Body bodyA, Body bodyB) {
+		return collide(contacts, bodyA, bodyB, null);
+	}
+	
+	/**
+	 * @see net.phys2d.raw.collide.SeparatingAxisCollider#collide(net.phys2d.raw.Contact[], net.phys2d.raw.Body, net.phys2d.raw.Body, net.phys2d.raw.collide.SeparatingAxis)
+	 */
+	public int collide(Contact[] contacts, Body bodyA, Body bodyB, SeparatingAxis axis) {
+		if ((axis != null) && (axis.separates(bodyA, bodyB))) {
+			return 0;
+		}
+		
+		float x1 = bodyA.getPosition().getX();
+		float y1 = bodyA.getPosition().getY();
+		float x2 = bodyB.getPosition().getX();
+		float y2 = bodyB.getPosition().getY();
+		
+		boolean touches = bodyA.getShape().getBounds().touches(x1,y1,bodyB.getShape().getBounds(),x2,y2);
+		if (!touches) {
+			return 0;
+		}
+		
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f[] vertsA = bodyA.getWorldVertices();
+		Vector2f[] vertsB = bodyB.getWorldVertices();
+		Vector2f[] normalsA = getNormals(vertsA, scratch.getNormalsA(vertsA.length));
+		Vector2f[] normalsB = getNormals(vertsB, scratch.getNormalsB(vertsB.length));
+		
+		int edgeA = findMaxSeparation(vertsA, normalsA, vertsB);
+		float separationA = getSeparation(vertsA[edgeA], normalsA[edgeA], vertsB);
+		if (separationA > 0) {
+			if (axis != null) {
+				axis.set(edgeA, false);
+			}
+			return 0;
+		}
+		
+		int edgeB = findMaxSeparation(vertsB, normalsB, vertsA);
+		float separationB = getSeparation(vertsB[edgeB], normalsB[edgeB], vertsA);
+		if (separationB > 0) {
+			if (axis != null) {
+				axis.set(edgeB, true);
+			}
+			return 0;
+		}
+		
+		if (axis != null) {
+			axis.clear();
+		}
+		
+		// prefer the first shape's edge unless the second's is clearly
+		// better, which keeps the reference edge from flip-flopping
+		Vector2f[] refVerts = vertsA;
+		Vector2f[] incVerts = vertsB;
+		Vector2f[] incNormals = normalsB;
+		Vector2f frontNormal = normalsA[edgeA];
+		int refEdge = edgeA;
+		boolean flip = false;
+		
+		if (separationB > RELATIVE_TOLERANCE * separationA + ABSOLUTE_TOLERANCE) {
+			refVerts = vertsB;
+			incVerts = vertsA;
+			incNormals = normalsA;
+			frontNormal = normalsB[edgeB];
+			refEdge = edgeB;
+			flip = true;
+		}
+		
+		// the incident edge is the one facing the reference edge the most
+		int incEdge = findIncidentEdge(frontNormal, incNormals);
+		BoxBoxCollider.ClipVertex[] incidentEdge = scratch.incidentEdge;
+		setClipVertex(incidentEdge[0], incVerts, incEdge);
+		setClipVertex(incidentEdge[1], incVerts, (incEdge + 1) % incVerts.length);
+		
+		// the reference edge is bounded by the planes through its end 
+		// points, which are the planes of its neighbouring edges
+		Vector2f v1 = refVerts[refEdge];
+		Vector2f v2 = refVerts[(refEdge + 1) % refVerts.length];
+		Vector2f sideNormal = scratch.vectors[0];
+		sideNormal.set(v2);
+		sideNormal.sub(v1);
+		sideNormal.normalise();
+		Vector2f negSideNormal = MathUtil.scale(sideNormal, -1, scratch.vectors[1]);
+		
+		float front = frontNormal.dot(v1);
+		float negSide = -sideNormal.dot(v1);
+		float posSide = sideNormal.dot(v2);
+		char negEdge = (char) getEdgeID(refEdge - 1, refVerts.length);
+		char posEdge = (char) getEdgeID(refEdge + 1, refVerts.length);
+		
+		scratch.resetClipPoints();
+		BoxBoxCollider.ClipVertex[] clipPoints1 = scratch.clipPoints1;
+		BoxBoxCollider.ClipVertex[] clipPoints2 = scratch.clipPoints2;
+		
+		int np = BoxBoxCollider.clipSegmentToLine(clipPoints1, incidentEdge, negSideNormal, negSide, negEdge);
+		if (np < 2) {
+			return 0;
+		}
+		
+		np = BoxBoxCollider.clipSegmentToLine(clipPoints2, clipPoints1, sideNormal, posSide, posEdge);
+		if (np < 2) {
+			return 0;
+		}
+		
+		// the normal always points from the first body to the second
+		Vector2f normal = frontNormal;
+		if (flip) {
+			normal = MathUtil.scale(frontNormal, -1, scratch.vectors[2]);
+		}
+		
+		int numContacts = 0;
+		for (int i = 0; i < 2; ++i) {
+			float separation = frontNormal.dot(clipPoints2[i].v) - front;
+			
+			if (separation <= 0) {
+				contacts[numContacts].setSeparation(separation);
+				contacts[numContacts].setNormal(normal);
+				// slide contact point onto reference face (easy to cull)
+				Vector2f position = scratch.vectors[3];
+				position.set(clipPoints2[i].v);
+				position.sub(MathUtil.scale(frontNormal, separation, scratch.vectors[4]));
+				contacts[numContacts].setPosition(position);
+				contacts[numContacts].getFeature().set(clipPoints2[i].fp);
+				if (flip) {
+					BoxBoxCollider.flip(contacts[numContacts].getFeature());
+				}
+				++numContacts;
+			}
+		}
+		
+		return numContacts;
+	}
+	
+	/**
+	 * Calculate the outward unit normals of the edges of a counterclockwise 
+	 * polygon, the normal at index i belongs to the edge from vertex i to 
+	 * vertex i+1
+	 * 
+	 * @param verts The vertices of the polygon
+	 * @param normals The array to store the normals in
+	 * @return The array of normals passed in
+	 */
+	private Vector2f[] getNormals(Vector2f[] verts, Vector2f[] normals) {
+		for (int i = 0; i < verts.length; i++) {
+			Vector2f start = verts[i];
+			Vector2f end = verts[(i + 1) % verts.length];
+			normals[i].set(end.y - start.y, start.x - end.x);
+			normals[i].normalise();
+		}
+		
+		return normals;
+	}
+	
+	/**
+	 * Find the edge of the first polygon along whose normal the second
+	 * polygon is furthest away. If the second polygon is in front of that
+	 * edge the polygons are separated.
+	 * 
+	 * @param verts The vertices of the polygon whose edges are tested
+	 * @param normals The normals of the edges tested
+	 * @param otherVerts The vertices of the other polygon
+	 * @return The index of the edge with the largest separation
+	 */
+	int findMaxSeparation(Vector2f[] verts, Vector2f[] normals, Vector2f[] otherVerts) {
+		int best = 0;
+		float maxSeparation = -Float.MAX_VALUE;
+		
+		for (int i = 0; i < verts.length; i++) {
+			float separation = getSeparation(verts[i], normals[i], otherVerts);
+			if (separation > maxSeparation) {
+				maxSeparation = separation;
+				best = i;
+				
+				// any separating axis will do
+				if (separation > 0) {
+					break;
+				}
+			}
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Get the distance of the deepest vertex of a polygon in front of an
+	 * edge, negative if the polygon reaches behind the edge
+	 * 
+	 * @param start The start of the edge
+	 * @param normal The normal of the edge
+	 * @param otherVerts The vertices of the polygon
+	 * @return The separation of the polygon from the edge
+	 */
+	float getSeparation(Vector2f start, Vector2f normal, Vector2f[] otherVerts) {
+		float min = Float.MAX_VALUE;
+		
+		for (int i = 0; i < otherVerts.length; i++) {
+			float distance = normal.dot(otherVerts[i]);
+			if (distance < min) {
+				min = distance;
+			}
+		}
+		
+		return min - normal.dot(start);
+	}
+	
+	/**
+	 * Find the edge of the incident polygon whose normal is the most 
+	 * opposed to the normal of the reference edge
+	 * 
+	 * @param normal The normal of the reference edge
+	 * @param normals The edge normals of the incident polygon
+	 * @return The index of the incident edge
+	 */
+	private int findIncidentEdge(Vector2f normal, Vector2f[] normals) {
+		int edge = 0;
+		float min = Float.MAX_VALUE;
+		
+		for (int i = 0; i < normals.length; i++) {
+			float dot = normal.dot(normals[i]);
+			if (dot < min) {
+				min = dot;
+				edge = i;
+			}
+		}
+		
+		return edge;
+	}
+	
+	/**
+	 * Initialise a clip vertex from a vertex of the incident polygon, 
+	 * identified by the edges entering and leaving it
+	 * 
+	 * @param clip The clip vertex to initialise
+	 * @param verts The vertices of the incident polygon
+	 * @param index The index of the vertex
+	 */
+	private void setClipVertex(BoxBoxCollider.ClipVertex clip, Vector2f[] verts, int index) {
+		clip.v.set(verts[index]);
+		clip.fp.set(BoxBoxCollider.NO_EDGE, getEdgeID(index - 1, verts.length), 
+				BoxBoxCollider.NO_EDGE, getEdgeID(index, verts.length));
+	}
+	
+	/**
+	 * Get the identifier of an edge used in feature pairs
+	 * 
+	 * @param index The index of the edge, which may be one before the first or one after the last
+	 * @param count The number of edges in the polygon
+	 * @return The identifier of the edge
+	 */
+	private int getEdgeID(int index, int count) {
+		return ((index + count) % count) + 1;
+	}
+}
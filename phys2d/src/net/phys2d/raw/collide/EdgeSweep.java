@@ -109,9 +109,23 @@ public class EdgeSweep {
 		 * @param distance Distance of the projection onto the sweep direction from the origin
 		 */
 		public ProjectedVertex(int vertex, boolean isA, float distance) {
+			set(vertex, isA, distance);
+		}
+		
+		/** 
+		 * Set all the values of this list element and unlink it from
+		 * any other element, so it can be reused for another insertion.
+		 * 
+		 * @param vertex Vertex number, usually the index of the vertex in a polygon's array
+		 * @param isA True if this is a vertex belonging to polygon A, false if B
+		 * @param distance Distance of the projection onto the sweep direction from the origin
+		 */
+		public void set(int vertex, boolean isA, float distance) {
 			this.vertex = vertex;
 			this.isA = isA;
 			this.distance = distance;
+			this.next = null;
+			this.previous = null;
 		}
 	}
 	
@@ -121,6 +135,18 @@ public class EdgeSweep {
 	/** The direction in which to sweep */
 	private Vector2f sweepDir;
 	
+	/** The list elements handed out since the last reset, kept for reuse */
+	private ProjectedVertex[] vertexPool = new ProjectedVertex[16];
+	/** The number of list elements from the pool currently in use */
+	private int noVertices;
+	
+	/** The edges of polygon A touched by the sweepline */
+	private CurrentEdges edgesA = new CurrentEdges();
+	/** The edges of polygon B touched by the sweepline */
+	private CurrentEdges edgesB = new CurrentEdges();
+	/** The collision candidates found by the last sweep */
+	private EdgePairs collidingEdges = new EdgePairs();
+	
 	/** Constructs an EdgeSweep object with the given sweep direction.
 	 * 
 	 * @param sweepDir The direction in which to sweep
@@ -129,6 +155,45 @@ public class EdgeSweep {
 		this.sweepDir = new Vector2f(sweepDir);
 	}
 	
+	/**
+	 * Clear all inserted vertices and set a new sweep direction, allowing
+	 * this EdgeSweep to be reused without allocating new list elements.
+	 * 
+	 * @param sweepDir The direction in which to sweep
+	 */
+	public void reset(ROVector2f sweepDir) {
+		this.sweepDir.set(sweepDir);
+		this.current = null;
+		this.noVertices = 0;
+	}
+	
+	/**
+	 * Get a list element from the pool, growing the pool when it is exhausted.
+	 * 
+	 * @param vertex Vertex number, usually the index of the vertex in a polygon's array
+	 * @param isA True if this is a vertex belonging to polygon A, false if B
+	 * @param distance Distance of the projection onto the sweep direction from the origin
+	 * @return The unlinked list element
+	 */
+	private ProjectedVertex obtainVertex(int vertex, boolean isA, float distance) {
+		if ( noVertices == vertexPool.length ) {
+			ProjectedVertex[] temp = new ProjectedVertex[vertexPool.length * 2];
+			System.arraycopy(vertexPool, 0, temp, 0, vertexPool.length);
+			vertexPool = temp;
+		}
+		
+		ProjectedVertex svl = vertexPool[noVertices];
+		if ( svl == null ) {
+			svl = new ProjectedVertex(vertex, isA, distance);
+			vertexPool[noVertices] = svl;
+		} else {
+			svl.set(vertex, isA, distance);
+		}
+		noVertices++;
+		
+		return svl;
+	}
+	
 	/**
 	 * Insert a new element into our list that is known to be somewhere before 
 	 * the current element. It walks backwards over the vertex list untill a vertex
@@ -140,7 +205,7 @@ public class EdgeSweep {
 	 * @param distance Distance of the projection onto the sweep direction from the origin
 	 */
 	private void insertBackwards(int vertex, boolean isA, float distance) {
-		ProjectedVertex svl = new ProjectedVertex(vertex, isA, distance);
+		ProjectedVertex svl = obtainVertex(vertex, isA, distance);
 		
 		if ( current == null ) {
 			current = svl;
@@ -195,7 +260,7 @@ public class EdgeSweep {
 	 * @param distance Distance of the projection onto the sweep direction from the origin
 	 */
 	private void insertForwards(int vertex, boolean isA, float distance) {
-		ProjectedVertex svl = new ProjectedVertex(vertex, isA, distance);
+		ProjectedVertex svl = obtainVertex(vertex, isA, distance);
 		
 		if ( current == null ) {
 			current = svl;
@@ -241,15 +306,29 @@ public class EdgeSweep {
 	 * dimension [n][2], where [i][0] is the edge of polygon A and [i][1] of B.
 	 */
 	public int[][] getOverlappingEdges() {
+		findOverlappingEdges();
+		
+		return collidingEdges.toList();
+	}
+	
+	/**
+	 * Find all edges whose projection onto the sweep direction overlap 
+	 * without creating any new objects. The pairs can be retrieved with
+	 * {@link #getEdgeA(int)} and {@link #getEdgeB(int)} and are reported in the
+	 * same order as the rows of {@link #getOverlappingEdges()}.
+	 * 
+	 * @return The number of overlapping edge pairs
+	 */
+	public int findOverlappingEdges() {
+		edgesA.clear();
+		edgesB.clear();
+		collidingEdges.clear();
+		
 		if ( current == null )
-			return new int[0][2];
+			return 0;
 		
 		goToStart();
 		
-		CurrentEdges edgesA = new CurrentEdges();
-		CurrentEdges edgesB = new CurrentEdges();
-		EdgePairs collidingEdges = new EdgePairs();
-		
 		float lastDist = -Float.MAX_VALUE;
 		
 		while ( current != null ) {
@@ -262,22 +341,14 @@ public class EdgeSweep {
 			if ( current.isA ) {
 				if ( !edgesA.contains(current.vertex) ) {
 					edgesA.addEdge(current.vertex);
-					
-					int[] edgeListB = edgesB.getEdges(); 
-					for ( int i = 0; i < edgeListB.length; i++ )
-						collidingEdges.add(current.vertex, edgeListB[i]);
-					
+					edgesB.pairWith(current.vertex, false);
 				} else {
 					edgesA.scheduleRemoval(current.vertex);
 				}
 			} else {
 				if ( !edgesB.contains(current.vertex) ) {
 					edgesB.addEdge(current.vertex);
-					
-					int[] edgeListA = edgesA.getEdges(); 
-					for ( int i = 0; i < edgeListA.length; i++ )
-						collidingEdges.add(edgeListA[i], current.vertex);
-					
+					edgesA.pairWith(current.vertex, true);
 				} else {
 					edgesB.scheduleRemoval(current.vertex);
 				}
@@ -286,7 +357,27 @@ public class EdgeSweep {
 			current = current.next;
 		}
 		
-		return collidingEdges.toList();
+		return collidingEdges.size;
+	}
+	
+	/**
+	 * Get the edge of polygon A of a pair found by the last sweep
+	 * 
+	 * @param i The index of the pair
+	 * @return The edge of polygon A
+	 */
+	public int getEdgeA(int i) {
+		return collidingEdges.a[collidingEdges.size - 1 - i];
+	}
+	
+	/**
+	 * Get the edge of polygon B of a pair found by the last sweep
+	 * 
+	 * @param i The index of the pair
+	 * @return The edge of polygon B
+	 */
+	public int getEdgeB(int i) {
+		return collidingEdges.b[collidingEdges.size - 1 - i];
 	}
 	
 	/** The list of edges that are touched by the sweepline at a given time. 
@@ -306,6 +397,46 @@ public class EdgeSweep {
 		private LinkedEdgeList currentEdges;
 		/** The edges that have been scheduled for removal but have not yet been removed */
 		private LinkedEdgeList scheduledForRemoval;
+		/** The list elements handed out since the last clear, kept for reuse */
+		private LinkedEdgeList[] pool = new LinkedEdgeList[8];
+		/** The number of list elements from the pool currently in use */
+		private int used;
+		
+		/**
+		 * Empty this list, making all its list elements available for reuse.
+		 */
+		public void clear() {
+			currentEdges = null;
+			scheduledForRemoval = null;
+			used = 0;
+		}
+		
+		/**
+		 * Get a list element from the pool, growing the pool when it is exhausted.
+		 * 
+		 * @param edge The edge number
+		 * @param next The next list element
+		 * @return The list element
+		 */
+		private LinkedEdgeList obtain(int edge, LinkedEdgeList next) {
+			if ( used == pool.length ) {
+				LinkedEdgeList[] temp = new LinkedEdgeList[pool.length * 2];
+				System.arraycopy(pool, 0, temp, 0, pool.length);
+				pool = temp;
+			}
+			
+			LinkedEdgeList element = pool[used];
+			if ( element == null ) {
+				element = new LinkedEdgeList(edge, next);
+				pool[used] = element;
+			} else {
+				element.edge = edge;
+				element.next = next;
+			}
+			used++;
+			
+			return element;
+		}
 		
 		/**
 		 * Add an edge to the top of the list.
@@ -316,7 +447,7 @@ public class EdgeSweep {
 		 * @param e The edge to be added
 		 */
 		public void addEdge(int e) {
-			currentEdges = new LinkedEdgeList(e,currentEdges);
+			currentEdges = obtain(e,currentEdges);
 		}
 		
 		/**
@@ -338,7 +469,8 @@ public class EdgeSweep {
 				while ( current != null ) {
 					if ( current.edge == e ) {
 						last.next = current.next;
-						scheduledForRemoval = new LinkedEdgeList(e,scheduledForRemoval);
+						current.next = scheduledForRemoval;
+						scheduledForRemoval = current;
 						return;
 					}
 					last = current;
@@ -378,53 +510,31 @@ public class EdgeSweep {
 		}
 		
 		/**
-		 * Get the total number of edges, this includes the edges that are
-		 * scheduled for removal.
+		 * Add a collision candidate for every edge in this list, including the
+		 * edges that are scheduled for removal, paired with an edge of the
+		 * other polygon.
 		 * 
-		 * @return The total number of edges
+		 * @param other The edge of the other polygon
+		 * @param isA True if this list holds the edges of polygon A
 		 */
-		public int getNoEdges() {
-			int count = 0;
+		public void pairWith(int other, boolean isA) {
 			LinkedEdgeList current = currentEdges;
 			while ( current != null ) {
-				count++;
+				if ( isA )
+					collidingEdges.add(current.edge, other);
+				else
+					collidingEdges.add(other, current.edge);
 				current = current.next;
 			}
 			
 			current = scheduledForRemoval;
 			while ( current != null ) {
-				count++;
+				if ( isA )
+					collidingEdges.add(current.edge, other);
+				else
+					collidingEdges.add(other, current.edge);
 				current = current.next;
 			}
-			
-			return count;
-		}
-		
-		/**
-		 * Get the list of edges in this list.
-		 * It should not contain any duplicates, but that depends on the insertion
-		 * of elements.
-		 * 
-		 * @return the list of edges
-		 */
-		public int[] getEdges() {
-			int[] returnEdges = new int[getNoEdges()];
-			
-			int i = 0;
-			LinkedEdgeList current = currentEdges;
-			while ( current != null ) {
-				returnEdges[i] = current.edge;
-				i++;
-				current = current.next;
-			}
-			current = scheduledForRemoval;
-			while ( current != null ) {
-				returnEdges[i] = current.edge;
-				i++;
-				current = current.next;
-			}
-			
-			return returnEdges;
 		}
 		
 		/** A singly linked list for edges */
@@ -448,13 +558,22 @@ public class EdgeSweep {
 		}
 	}
 	
-	/** The list of collision candidates in a linked list */
+	/** The list of collision candidates, kept in arrays that grow as needed */
 	private class EdgePairs {
-		/** The first element of the list of collision candidates */ 
-		private EdgePair first;
+		/** The edges of polygon A in order of insertion */ 
+		private int[] a = new int[16];
+		/** The edges of polygon B in order of insertion */ 
+		private int[] b = new int[16];
 		/** The total number of collision candidates */
 		private int size = 0;
 		
+		/**
+		 * Remove all the pairs from this list
+		 */
+		public void clear() {
+			size = 0;
+		}
+		
 		/** 
 		 * Add a pair of edges to this list
 		 *
@@ -462,12 +581,23 @@ public class EdgeSweep {
 		 * @param idB An edge of polygon B 
 		 */
 		public void add(int idA, int idB) {
-			first = new EdgePair(idA, idB, first);
+			if ( size == a.length ) {
+				int[] temp = new int[size * 2];
+				System.arraycopy(a, 0, temp, 0, size);
+				a = temp;
+				temp = new int[size * 2];
+				System.arraycopy(b, 0, temp, 0, size);
+				b = temp;
+			}
+			
+			a[size] = idA;
+			b[size] = idB;
 			size++;
 		}
 		
 		/**
-		 * Convert this linked list into a two dimensional array
+		 * Convert this list into a two dimensional array, the most 
+		 * recently added pair first
 		 * 
 		 * @return The numbers of the overlapping edges. The array will always have
 		 * dimension [n][2], where [i][0] is the edge of polygon A and [i][1] of B.
@@ -475,39 +605,13 @@ public class EdgeSweep {
 		public int[][] toList() {
 			int[][] list = new int[size][2];
 			
-			EdgePair current = first;
 			for ( int i = 0; i < size; i++ ) {
-				list[i][0] = current.a;
-				list[i][1] = current.b;
-				
-				current = current.next;
+				list[i][0] = a[size - 1 - i];
+				list[i][1] = b[size - 1 - i];
 			}
 			
 			return list;
 		}
-		
-		/** The singly linked list representing one pair of edges */
-		class EdgePair {
-			/** An edge of polygon A */
-			public int a;
-			/** An edge of polygon B */
-			public int b;
-			/** The next element in the list */
-			public EdgePair next;
-			
-			/** Construct a new list element with all the attributes set to the
-			 * provided values.
-			 * 
-			 * @param a An edge of polygon A
-			 * @param b An edge of polygon B
-			 * @param next The next element in the list
-			 */
-			public EdgePair(int a, int b, EdgePair next) {
-				this.a = a;
-				this.b = b;
-				this.next = next;
-			}
-		}
 	}
 	
 	/**
@@ -146,6 +146,22 @@ public class FeaturePair {
 		outEdge2 = other.outEdge2;
 	}
 	
+	/**
+	 * Set the edges of this pair, so a contact's pair can be updated
+	 * without creating a new one
+	 * 
+	 * @param inEdge1 The edge of the first polygon entering the second polygon
+	 * @param inEdge2 The edge of the second polygon in the collision
+	 * @param outEdge1 The edge of the first polygon leaving the second polygon
+	 * @param outEdge2 The edge of the second polygon leaving the first polygon
+	 */
+	public void set(int inEdge1, int inEdge2, int outEdge1, int outEdge2) {
+		this.inEdge1 = inEdge1;
+		this.inEdge2 = inEdge2;
+		this.outEdge1 = outEdge1;
+		this.outEdge2 = outEdge2;
+	}
+	
 	/**
 	 * @see Object#toString()
 	 */
@@ -37,9 +37,7 @@
  */
 package net.phys2d.raw.collide;
 
-import java.util.Arrays;
 import java.util.Comparator;
-import java.util.LinkedList;
 
 import net.phys2d.math.Vector2f;
 
@@ -206,6 +204,20 @@ public class IntersectionGatherer {
 	private SortableIntersection[] intersections;
 	/** The amount of intersections gathered */
 	private int noIntersections = 0;
+	/** The intersection objects created so far, reused for every gathering */
+	private SortableIntersection[] pool;
+	/** The pointer table into the intersections array */
+	private int[] pointers;
+	/** The ingoing (or only) intersection of each pair */
+	private Intersection[] pairIns;
+	/** The outgoing intersection of each pair, null if it is a single intersection */
+	private Intersection[] pairOuts;
+	/** The number of pairs found by the last call to {@link #findIntersectionPairs()} */
+	private int noPairs;
+	/** The comparator used to sort the intersections along polygon A */
+	private IntersectionComparator intersectionComparator = new IntersectionComparator();
+	/** The comparator used to sort the pointer table along polygon B */
+	private PointerTableComparator pointerComparator = new PointerTableComparator();
 	
 	/** The vertices of polygon A */
 	private Vector2f[] vertsA;
@@ -220,7 +232,24 @@ public class IntersectionGatherer {
 	 */
 	public IntersectionGatherer(Vector2f[] vertsA, Vector2f[] vertsB) {
 		this.intersections = new SortableIntersection[MAX_INTERSECTIONS];
+		this.pool = new SortableIntersection[MAX_INTERSECTIONS];
+		this.pointers = new int[MAX_INTERSECTIONS];
+		this.pairIns = new Intersection[MAX_INTERSECTIONS];
+		this.pairOuts = new Intersection[MAX_INTERSECTIONS];
+		reset(vertsA, vertsB);
+	}
+	
+	/**
+	 * Discard all gathered intersections and start gathering for another
+	 * pair of polygons. The intersection objects are kept and reused, so
+	 * the results of a previous gathering should no longer be used.
+	 * 
+	 * @param vertsA The 'first' polygon involved in this collision check
+	 * @param vertsB The 'second' polygon involved in this collision check
+	 */
+	public void reset(Vector2f[] vertsA, Vector2f[] vertsB) {
 		this.noIntersections = 0;
+		this.noPairs = 0;
 		this.vertsA = vertsA;
 		this.vertsB = vertsB;
 	}
@@ -254,27 +283,27 @@ public class IntersectionGatherer {
 		if ( uA < 0 || uA > 1 || uB < 0 || uB > 1 ) 
 			return; // intersection point isn't between the start and endpoints
 		
-		Vector2f position = new Vector2f(
-				startA.x + uA * (endA.x - startA.x),
-				startA.y + uA * (endA.y - startA.y));
+		float x = startA.x + uA * (endA.x - startA.x);
+		float y = startA.y + uA * (endA.y - startA.y);
 		
-		Vector2f dist = new Vector2f(position);
-		dist.sub(startA);
-		float distFromVertA = dist.lengthSquared();
-		dist = new Vector2f(position);
-		dist.sub(startB);
-		float distFromVertB = dist.lengthSquared();
+		float dx = x - startA.x;
+		float dy = y - startA.y;
+		float distFromVertA = (dx * dx) + (dy * dy);
+		dx = x - startB.x;
+		dy = y - startB.y;
+		float distFromVertB = (dx * dx) + (dy * dy);
 		
 		// z axis of 3d cross product
 		float sA = (startA.x - startB.x) * (endB.y - startB.y) - (endB.x - startB.x) * (startA.y - startB.y);
 		
-		if ( sA > 0 ) {
-			intersections[noIntersections] =
-				new SortableIntersection(a, b, position, true, distFromVertA, distFromVertB);
+		SortableIntersection intersection = pool[noIntersections];
+		if ( intersection == null ) {
+			intersection = new SortableIntersection(a, b, new Vector2f(x, y), sA > 0, distFromVertA, distFromVertB);
+			pool[noIntersections] = intersection;
 		} else {
-			intersections[noIntersections] =
-				new SortableIntersection(a, b, position, false, distFromVertA, distFromVertB);
+			intersection.set(a, b, x, y, sA > 0, distFromVertA, distFromVertB);
 		}
+		intersections[noIntersections] = intersection;
 		
 		noIntersections++;
 	}
@@ -286,15 +315,46 @@ public class IntersectionGatherer {
 	 * @return A sorted list of intersections
 	 */
 	public Intersection[] getIntersections() {
+		sortIntersections();
+		
 		Intersection[] out = new Intersection[noIntersections];
 		
 		for ( int i = 0; i < noIntersections; i++ )
 			out[i] = intersections[i];
 		
-		Arrays.sort(out, new IntersectionComparator());
-		
 		return out;
 	}
+	
+	/**
+	 * Sort the gathered intersections in place by the order defined by
+	 * {@link IntersectionComparator}, without creating a new array.
+	 * 
+	 * @return The number of intersections
+	 */
+	public int sortIntersections() {
+		for ( int i = 1; i < noIntersections; i++ ) {
+			SortableIntersection intersection = intersections[i];
+			int j = i;
+			
+			while ( j > 0 && intersectionComparator.compare(intersections[j-1], intersection) > 0 ) {
+				intersections[j] = intersections[j-1];
+				j--;
+			}
+			intersections[j] = intersection;
+		}
+		
+		return noIntersections;
+	}
+	
+	/**
+	 * Get the array the intersections are gathered in, only the first
+	 * {@link #sortIntersections()} elements are valid.
+	 * 
+	 * @return The array of intersections, which is not a copy
+	 */
+	Intersection[] getIntersectionArray() {
+		return intersections;
+	}
 
 	/**
 	 * Get the pairs of ingoing and outgoing intersections encountered when tracing
@@ -307,17 +367,48 @@ public class IntersectionGatherer {
 	 * and getIntersectionPairs()[i][1] the outgoing intersection.
 	 */
 	public Intersection[][] getIntersectionPairs() {
+		findIntersectionPairs();
+		
+		Intersection[][] out = new Intersection[noPairs][];
+		for ( int i = 0; i < noPairs; i++ ) {
+			if ( pairOuts[i] == null ) {
+				Intersection[] inArr = {pairIns[i]};
+				out[i] = inArr;
+			} else {
+				Intersection[] pair = {pairIns[i], pairOuts[i]};
+				out[i] = pair;
+			}
+		}
+		
+		return out;
+	}
+	
+	/**
+	 * Find the pairs of ingoing and outgoing intersections in the same way as
+	 * {@link #getIntersectionPairs()} but without creating any new objects.
+	 * The pairs can be retrieved with {@link #getPairIn(int)} and
+	 * {@link #getPairOut(int)}.
+	 * 
+	 * @return The number of pairs (including single intersections) found
+	 */
+	public int findIntersectionPairs() {
+		noPairs = 0;
 		if ( noIntersections < 2 )
-			return new Intersection[0][2];
+			return 0;
 		
 		// sort the array for a trace 
-		Arrays.sort(intersections, 0, noIntersections, new IntersectionComparator());
+		sortIntersections();
 		
 		// sort a pointer table which uses the indices in the intersections array
-		Integer[] pointers = new Integer[noIntersections];
-		for ( int i = 0; i < noIntersections; i++ )
-			pointers[i] = new Integer(i);
-		Arrays.sort(pointers, new PointerTableComparator());
+		for ( int i = 0; i < noIntersections; i++ ) {
+			int j = i;
+			
+			while ( j > 0 && pointerComparator.compare(pointers[j-1], i) > 0 ) {
+				pointers[j] = pointers[j-1];
+				j--;
+			}
+			pointers[j] = i;
+		}
 		
 		int referenceVertB = getReferencePointer(pointers);
 		filterIntersections(referenceVertB, pointers);
@@ -325,8 +416,6 @@ public class IntersectionGatherer {
 		// make sure we're starting with an ingoing edge
 		int first = intersections[0].isIngoing ? 0 : 1;
 		
-		// now copy our results to a new array
-		LinkedList outIntersections = new LinkedList();
 		for ( int i = first; i < noIntersections + first; ) {
 			SortableIntersection in = intersections[i % noIntersections];
 			SortableIntersection out = intersections[(i+1) % noIntersections];
@@ -340,19 +429,43 @@ public class IntersectionGatherer {
 				// pairs that are too close to eachother will
 				// often cause problems, so don't create them
 				if ( !in.position.equalsDelta(out.position, MIN_PAIR_DIST) ) {
-					Intersection[] pair = {in, out}; 
-					outIntersections.add(pair);
+					pairIns[noPairs] = in;
+					pairOuts[noPairs] = out;
+					noPairs++;
 					i += 2;
 					continue;
 				}
 			}
 			
-			Intersection[] inArr = {in};
-			outIntersections.add(inArr);
+			pairIns[noPairs] = in;
+			pairOuts[noPairs] = null;
+			noPairs++;
 			i += 1;
 		}
 
- 		return (Intersection[][]) outIntersections.toArray(new Intersection[outIntersections.size()][]);
+		return noPairs;
+	}
+	
+	/**
+	 * Get the ingoing intersection of a pair found by {@link #findIntersectionPairs()},
+	 * or the only intersection if it could not be paired up.
+	 * 
+	 * @param i The index of the pair
+	 * @return The ingoing intersection
+	 */
+	public Intersection getPairIn(int i) {
+		return pairIns[i];
+	}
+	
+	/**
+	 * Get the outgoing intersection of a pair found by {@link #findIntersectionPairs()}
+	 * 
+	 * @param i The index of the pair
+	 * @return The outgoing intersection or null if the ingoing intersection
+	 * could not be paired up
+	 */
+	public Intersection getPairOut(int i) {
+		return pairOuts[i];
 	}
 	
 	/**
@@ -365,15 +478,15 @@ public class IntersectionGatherer {
 	 * {@link PointerTableComparator}.
 	 * @return The reference pointer which is an outgoing intersection. 
 	 */
-	private int getReferencePointer(Integer[] pointers) {
+	private int getReferencePointer(int[] pointers) {
 		// we want to find an ingoing edge with the largest number of edges outside of A
 		// these edges should be between the in and the nex out, when tracing the contour of B
-		int first = intersections[pointers[0].intValue()].isIngoing ? 0 : 1;
+		int first = intersections[pointers[0]].isIngoing ? 0 : 1;
 		int maxInOutDist = 0;
 		int maxInIndex = first + 1 % noIntersections;//intersections[pointers[first].intValue()].edgeB;
 		int lastInEdgeB = -1;	
 		for ( int i = first; i < noIntersections + first; i++ ) {
-			int k = pointers[i % noIntersections].intValue();
+			int k = pointers[i % noIntersections];
 			SortableIntersection intersection = intersections[k];
 			
 			if ( intersection.isIngoing ) {
@@ -404,7 +517,7 @@ public class IntersectionGatherer {
 	 * intersections array. The list should be sorted with the order defined by
 	 * {@link PointerTableComparator}.
 	 */
-	private void filterIntersections(int referencePointer, Integer[] pointers) {
+	private void filterIntersections(int referencePointer, int[] pointers) {
 		// make sure the reference vertex is real
 		if ( referencePointer >= noIntersections && referencePointer < 0 )
 			throw new RuntimeException("The reference vertex cannot be correct since B does not have that many vertices.");
@@ -413,7 +526,7 @@ public class IntersectionGatherer {
 		int topOut = -2; // -2 + 1 will never give an edge number
 		for ( int i = referencePointer; i < noIntersections + referencePointer; i++ ) {
 			int j = i % noIntersections;
-			int k = pointers[j].intValue();
+			int k = pointers[j];
 			SortableIntersection intersection = intersections[k];
 			
 			// note that we go backwards with respect to A so we expect an outgoing edge first
@@ -467,6 +580,26 @@ public class IntersectionGatherer {
 			this.distFromVertA = distFromVertA;
 			this.distFromVertB = distFromVertB;
 		}
+		
+		/**
+		 * Set all the attributes of this intersection, so it can be reused.
+		 * 
+		 * @param edgeA The edge of polygon A that intersects
+		 * @param edgeB The edge of polygon B that intersects
+		 * @param x The x coordinate of the intersection in world (absolute) coordinates
+		 * @param y The y coordinate of the intersection in world (absolute) coordinates
+		 * @param isIngoing True iff this is an intersection where polygon A enters B
+		 * @param distFromVertA The squared distance from the vertice that starts edgeA
+		 * @param distFromVertB The squared distance from the vertice that starts edgeB
+		 */
+		public void set(int edgeA, int edgeB, float x, float y, boolean isIngoing, float distFromVertA, float distFromVertB) {
+			this.edgeA = edgeA;
+			this.edgeB = edgeB;
+			this.position.set(x, y);
+			this.isIngoing = isIngoing;
+			this.distFromVertA = distFromVertA;
+			this.distFromVertB = distFromVertB;
+		}
 	}
 	
 	/** Comparator used to sort intersections by their distance from A's first
@@ -511,8 +644,19 @@ public class IntersectionGatherer {
 		 * @see Comparator#compare(Object, Object)
 		 */
 		public int compare(Object first, Object second) {
-			SortableIntersection one = intersections[((Integer) first).intValue()];
-			SortableIntersection other = intersections[((Integer) second).intValue()];
+			return compare(((Integer) first).intValue(), ((Integer) second).intValue());
+		}
+		
+		/**
+		 * Compares two intersections by their indices in the intersections array.
+		 * 
+		 * @param first The index of the first intersection
+		 * @param second The index of the second intersection
+		 * @return -1 if the first comes before the second, 1 otherwise
+		 */
+		public int compare(int first, int second) {
+			SortableIntersection one = intersections[first];
+			SortableIntersection other = intersections[second];
 			
 			if ( one.edgeB < other.edgeB ) {
 				return -1; 
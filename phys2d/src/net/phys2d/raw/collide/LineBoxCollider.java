@@ -37,7 +37,7 @@
  */
 package net.phys2d.raw.collide;
 
-import net.phys2d.math.MathUtil;
+import net.phys2d.math.ROVector2f;
 import net.phys2d.math.Vector2f;
 import net.phys2d.raw.Body;
 import net.phys2d.raw.Contact;
@@ -92,22 +92,36 @@ public strictfp class LineBoxCollider implements Collider {
 		Line line = (Line) bodyA.getShape();
 		Box box = (Box) bodyB.getShape();
 		
-		Vector2f lineVec = new Vector2f(line.getDX(), line.getDY());
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f[] temp = scratch.vectors;
+		
+		Vector2f lineVec = temp[0];
+		lineVec.set(line.getDX(), line.getDY());
 		lineVec.normalise();	
-		Vector2f axis = new Vector2f(-line.getDY(), line.getDX());
+		Vector2f axis = temp[1];
+		axis.set(-line.getDY(), line.getDX());
 		axis.normalise();
+		Vector2f lineDelta = temp[2];
+		lineDelta.set(line.getDX(), line.getDY());
 		
-		Vector2f res = new Vector2f();
+		Vector2f res = temp[3];
 		line.getStart().projectOntoUnit(axis, res);
 		float linePos = getProp(res,axis);
 		
-		Vector2f c = MathUtil.sub(bodyB.getPosition(),bodyA.getPosition());
+		Vector2f c = temp[4];
+		c.set(bodyB.getPosition());
+		c.sub(bodyA.getPosition());
 		c.projectOntoUnit(axis,res);
 		float centre = getProp(res, axis);
 		
-		Vector2f[] pts = box.getPoints(bodyB.getPosition(), bodyB.getRotation());
-		float[] tangent = new float[4];
-		float[] proj = new float[4];
+		// the box's vertices are moved relative to the line below so work on a copy
+		Vector2f[] boxPts = bodyB.getWorldVertices();
+		Vector2f[] pts = scratch.getVerticesB(4);
+		for (int i=0;i<4;i++) {
+			pts[i].set(boxPts[i]);
+		}
+		float[] tangent = scratch.tangent;
+		float[] proj = scratch.proj;
 		
 		int outOfRange = 0;
 		
@@ -116,7 +130,7 @@ public strictfp class LineBoxCollider implements Collider {
 			pts[i].projectOntoUnit(axis, res);
 			tangent[i] = getProp(res, axis);
 			pts[i].projectOntoUnit(lineVec, res);
-			proj[i] = getProp(res, new Vector2f(line.getDX(), line.getDY()));
+			proj[i] = getProp(res, lineDelta);
 			
 			if ((proj[i] >= 1) || (proj[i] <= 0)) {
 				outOfRange++;
@@ -126,7 +140,12 @@ public strictfp class LineBoxCollider implements Collider {
 			return 0;
 		}
 		
-		Vector2f normal = new Vector2f(axis);
+		Vector2f normal = temp[5];
+		normal.set(axis);
+		Vector2f onAxis = temp[6];
+		Vector2f pos = temp[7];
+		Line leftLine = scratch.lines[0];
+		Line rightLine = scratch.lines[1];
 		
 		if (centre < linePos) {
 			if (!line.blocksInnerEdge()) {
@@ -137,9 +156,8 @@ public strictfp class LineBoxCollider implements Collider {
 			for (int i=0;i<4;i++) {
 				if (tangent[i] > linePos) {
 					if (proj[i] < 0) {
-						Vector2f onAxis = new Vector2f();
-						Line leftLine = new Line(getPt(pts,i-1),pts[i]);
-						Line rightLine = new Line(getPt(pts,i+1),pts[i]);
+						leftLine.set(getPt(pts,i-1),pts[i]);
+						rightLine.set(getPt(pts,i+1),pts[i]);
 						leftLine.getClosestPoint(line.getStart(),res);
 						res.projectOntoUnit(axis, onAxis);
 						float left = getProp(onAxis, axis);
@@ -148,16 +166,15 @@ public strictfp class LineBoxCollider implements Collider {
 						float right = getProp(onAxis, axis);
 						
 						if ((left > 0) && (right > 0)) {
-							Vector2f pos = new Vector2f(bodyA.getPosition());
+							pos.set(bodyA.getPosition());
 							pos.add(line.getStart());
 							
-							resolveEndPointCollision(pos,bodyA,bodyB,normal,leftLine,rightLine,contacts[numContacts],i);
+							resolveEndPointCollision(pos,bodyA,bodyB,normal,leftLine,rightLine,contacts[numContacts],i,scratch);
 							numContacts++;
 						}
 					} else if (proj[i] > 1) {
-						Vector2f onAxis = new Vector2f();
-						Line leftLine = new Line(getPt(pts,i-1),pts[i]);
-						Line rightLine = new Line(getPt(pts,i+1),pts[i]);
+						leftLine.set(getPt(pts,i-1),pts[i]);
+						rightLine.set(getPt(pts,i+1),pts[i]);
 						leftLine.getClosestPoint(line.getEnd(),res);
 						res.projectOntoUnit(axis, onAxis);
 						float left = getProp(onAxis, axis);
@@ -166,19 +183,19 @@ public strictfp class LineBoxCollider implements Collider {
 						float right = getProp(onAxis, axis);
 						
 						if ((left > 0) && (right > 0)) {
-							Vector2f pos = new Vector2f(bodyA.getPosition());
+							pos.set(bodyA.getPosition());
 							pos.add(line.getEnd());
 
-							resolveEndPointCollision(pos,bodyA,bodyB,normal,leftLine,rightLine,contacts[numContacts],i);
+							resolveEndPointCollision(pos,bodyA,bodyB,normal,leftLine,rightLine,contacts[numContacts],i,scratch);
 							numContacts++;
 						}
 					} else {
 						pts[i].projectOntoUnit(lineVec, res);
 						res.add(bodyA.getPosition());
 						contacts[numContacts].setSeparation(-(tangent[i]-linePos));
-						contacts[numContacts].setPosition(new Vector2f(res));
+						contacts[numContacts].setPosition(res);
 						contacts[numContacts].setNormal(normal);
-						contacts[numContacts].setFeature(new FeaturePair(i));	
+						contacts[numContacts].getFeature().set(i, 0, 0, 0);	
 						numContacts++;
 					}
 				}
@@ -191,9 +208,8 @@ public strictfp class LineBoxCollider implements Collider {
 			for (int i=0;i<4;i++) {
 				if (tangent[i] < linePos) {
 					if (proj[i] < 0) {
-						Vector2f onAxis = new Vector2f();
-						Line leftLine = new Line(getPt(pts,i-1),pts[i]);
-						Line rightLine = new Line(getPt(pts,i+1),pts[i]);
+						leftLine.set(getPt(pts,i-1),pts[i]);
+						rightLine.set(getPt(pts,i+1),pts[i]);
 						leftLine.getClosestPoint(line.getStart(),res);
 						res.projectOntoUnit(axis, onAxis);
 						float left = getProp(onAxis, axis);
@@ -202,16 +218,15 @@ public strictfp class LineBoxCollider implements Collider {
 						float right = getProp(onAxis, axis);
 						
 						if ((left < 0) && (right < 0)) {
-							Vector2f pos = new Vector2f(bodyA.getPosition());
+							pos.set(bodyA.getPosition());
 							pos.add(line.getStart());
 
-							resolveEndPointCollision(pos,bodyA,bodyB,normal,leftLine,rightLine,contacts[numContacts],i);
+							resolveEndPointCollision(pos,bodyA,bodyB,normal,leftLine,rightLine,contacts[numContacts],i,scratch);
 							numContacts++;
 						}
 					} else if (proj[i] > 1) {
-						Vector2f onAxis = new Vector2f();
-						Line leftLine = new Line(getPt(pts,i-1),pts[i]);
-						Line rightLine = new Line(getPt(pts,i+1),pts[i]);
+						leftLine.set(getPt(pts,i-1),pts[i]);
+						rightLine.set(getPt(pts,i+1),pts[i]);
 						leftLine.getClosestPoint(line.getEnd(),res);
 						res.projectOntoUnit(axis, onAxis);
 						float left = getProp(onAxis, axis);
@@ -220,19 +235,19 @@ public strictfp class LineBoxCollider implements Collider {
 						float right = getProp(onAxis, axis);
 						
 						if ((left < 0) && (right < 0)) {
-							Vector2f pos = new Vector2f(bodyA.getPosition());
+							pos.set(bodyA.getPosition());
 							pos.add(line.getEnd());
 
-							resolveEndPointCollision(pos,bodyA,bodyB,normal,leftLine,rightLine,contacts[numContacts],i);
+							resolveEndPointCollision(pos,bodyA,bodyB,normal,leftLine,rightLine,contacts[numContacts],i,scratch);
 							numContacts++;
 						}
 					} else {
 						pts[i].projectOntoUnit(lineVec, res);
 						res.add(bodyA.getPosition());
 						contacts[numContacts].setSeparation(-(linePos - tangent[i]));
-						contacts[numContacts].setPosition(new Vector2f(res));
+						contacts[numContacts].setPosition(res);
 						contacts[numContacts].setNormal(normal);
-						contacts[numContacts].setFeature(new FeaturePair());				
+						contacts[numContacts].getFeature().set(0, 0, 0, 0);				
 						numContacts++;
 					}
 				}
@@ -257,25 +272,29 @@ public strictfp class LineBoxCollider implements Collider {
 	 * @param contact The contact to populate
 	 * @param norm The normal determined for the line
 	 * @param i The index of teh face we're resolving for feature ID
+	 * @param scratch The context providing the temporary storage
 	 */
-	private void resolveEndPointCollision(Vector2f pos, Body bodyA, Body bodyB, Vector2f norm, Line leftLine, Line rightLine, Contact contact, int i) {
-		Vector2f start = new Vector2f(pos);
-		Vector2f end = new Vector2f(start);
+	private void resolveEndPointCollision(Vector2f pos, Body bodyA, Body bodyB, Vector2f norm, Line leftLine, Line rightLine, Contact contact, int i, CollisionScratch scratch) {
+		Vector2f[] temp = scratch.vectors;
+		Vector2f start = temp[8];
+		start.set(pos);
+		Vector2f end = temp[9];
+		end.set(start);
 		end.add(norm);
 		
-		rightLine.move(bodyA.getPosition());
-		leftLine.move(bodyA.getPosition());
-		Line normLine = new Line(start,end);
-		Vector2f rightPoint = normLine.intersect(rightLine);
-		Vector2f leftPoint = normLine.intersect(leftLine);
+		move(rightLine, bodyA.getPosition(), temp[10], temp[11]);
+		move(leftLine, bodyA.getPosition(), temp[12], temp[13]);
+		Line normLine = scratch.lines[2];
+		normLine.set(start,end);
+		Vector2f point = temp[14];
 		
 		float dis1 = Float.MAX_VALUE;
-		if (rightPoint != null) {
-			dis1 = rightPoint.distance(start) - norm.length();
+		if (normLine.intersect(rightLine, point)) {
+			dis1 = point.distance(start) - norm.length();
 		}
 		float dis2 = Float.MAX_VALUE;
-		if (leftPoint != null) {
-			dis2 = leftPoint.distance(start) - norm.length();
+		if (normLine.intersect(leftLine, point)) {
+			dis2 = point.distance(start) - norm.length();
 		}
 		
 		norm.normalise();
@@ -284,7 +303,24 @@ public strictfp class LineBoxCollider implements Collider {
 		contact.setSeparation(-dis);
 		contact.setPosition(pos);
 		contact.setNormal(norm);
-		contact.setFeature(new FeaturePair(i));
+		contact.getFeature().set(i, 0, 0, 0);
+	}
+	
+	/**
+	 * Move a line a certain amount, in the same way as {@link Line#move(ROVector2f)}
+	 * but storing the new end points in the vectors given
+	 * 
+	 * @param line The line to move
+	 * @param v The amount to move the line
+	 * @param start The vector to store the new start point in
+	 * @param end The vector to store the new end point in
+	 */
+	private void move(Line line, ROVector2f v, Vector2f start, Vector2f end) {
+		start.set(line.getStart());
+		start.add(v);
+		end.set(line.getEnd());
+		end.add(v);
+		line.set(start, end);
 	}
 	/**
 	 * Get a specified point in the array using wrap round
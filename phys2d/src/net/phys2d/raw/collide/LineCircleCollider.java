@@ -42,7 +42,6 @@ import net.phys2d.math.Vector2f;
 import net.phys2d.raw.Body;
 import net.phys2d.raw.Contact;
 import net.phys2d.raw.shapes.Circle;
-import net.phys2d.raw.shapes.Line;
 
 /**
  * Collision routines betwene a circle and a line. The create method is
@@ -56,17 +55,18 @@ public strictfp class LineCircleCollider implements Collider {
 	 * @see net.phys2d.raw.collide.Collider#collide(net.phys2d.raw.Contact[], net.phys2d.raw.Body, net.phys2d.raw.Body)
 	 */
 	public int collide(Contact[] contacts, Body bodyA, Body bodyB) {
-		Line line = (Line) bodyA.getShape();
 		Circle circle = (Circle) bodyB.getShape();
 		
-		Vector2f[] vertsA = line.getVertices(bodyA.getPosition(), bodyA.getRotation());
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f[] vertsA = bodyA.getWorldVertices();
 		
 		// compute intersection of the line A and a line parallel to 
 		// the line A's normal passing through the origin of B
 		Vector2f startA = vertsA[0];
 		Vector2f endA = vertsA[1];
 		ROVector2f startB = bodyB.getPosition();
-		Vector2f endB = new Vector2f(endA);
+		Vector2f endB = scratch.vectors[0];
+		endB.set(endA);
 		endB.sub(startA);
 		endB.set(endB.y, -endB.x);
 //		endB.add(startB);// TODO: inline endB into equations below, this last operation will be useless..
@@ -92,7 +92,8 @@ public strictfp class LineCircleCollider implements Collider {
 		} else if ( uA > 1 ) { // the intersection is somewhere after endA
 			position = endA;
 		} else {
-			position = new Vector2f(
+			position = scratch.vectors[1];
+			position.set(
 					startA.x + uA * (endA.x - startA.x),
 					startA.y + uA * (endA.y - startA.y));
 		}
@@ -105,7 +106,7 @@ public strictfp class LineCircleCollider implements Collider {
 		
 		if ( distSquared < radiusSquared ) {
 			contacts[0].setPosition(position);
-			contacts[0].setFeature(new FeaturePair());
+			contacts[0].getFeature().set(0, 0, 0, 0);
 			
 			normal.normalise();
 			contacts[0].setNormal(normal);
@@ -62,10 +62,16 @@ public class LinePolygonCollider  extends PolygonPolygonCollider {
 		
 		// TODO: this can be optimized using matrix multiplications and moving only one shape
 		// specifically the line, because it has only two vertices
-		Vector2f[] vertsA = line.getVertices(bodyA.getPosition(), bodyA.getRotation());
-		Vector2f[] vertsB = poly.getVertices(bodyB.getPosition(), bodyB.getRotation());
+		CollisionScratch scratch = CollisionScratch.get();
+		// the line's vertices may be swapped below so work on a copy
+		Vector2f[] lineVerts = bodyA.getWorldVertices();
+		Vector2f[] vertsA = scratch.getVerticesA(2);
+		vertsA[0].set(lineVerts[0]);
+		vertsA[1].set(lineVerts[1]);
+		Vector2f[] vertsB = bodyB.getWorldVertices();
 
-		Vector2f pos = poly.getCentroid(bodyB.getPosition(), bodyB.getRotation());
+		Vector2f pos = scratch.vectors[0];
+		poly.getCentroid(bodyB.getPosition(), bodyB.getRotation(), pos);
 		
 		// using the z axis of a 3d cross product we determine on what side B is
 		boolean isLeftOf = 0 > (pos.x - vertsA[0].x) * (vertsA[1].y - vertsA[0].y) - (vertsA[1].x - vertsA[0].x) * (pos.y - vertsA[0].y);
@@ -80,22 +86,25 @@ public class LinePolygonCollider  extends PolygonPolygonCollider {
 		}
 		
 		// we use the line's normal for our sweepline projection
-		Vector2f normal = new Vector2f(vertsA[1]);
+		Vector2f normal = scratch.vectors[1];
+		normal.set(vertsA[1]);
 		normal.sub(vertsA[0]);
 		normal.set(normal.y, -normal.x);
-		EdgeSweep sweep = new EdgeSweep(normal);
+		EdgeSweep sweep = scratch.sweep;
+		sweep.reset(normal);
 		sweep.insert(0, true, vertsA[0].dot(normal));
 		sweep.insert(0, true, vertsA[1].dot(normal));
 		sweep.addVerticesToSweep(false, vertsB);
-		int[][] collEdgeCands = sweep.getOverlappingEdges(); 
+		int noCandidates = sweep.findOverlappingEdges(); 
 		
-		IntersectionGatherer intGath = new IntersectionGatherer(vertsA, vertsB);
-		for ( int i = 0; i < collEdgeCands.length; i++ )
-			intGath.intersect(collEdgeCands[i][0], collEdgeCands[i][1]);
+		IntersectionGatherer intGath = scratch.gatherer;
+		intGath.reset(vertsA, vertsB);
+		for ( int i = 0; i < noCandidates; i++ )
+			intGath.intersect(sweep.getEdgeA(i), sweep.getEdgeB(i));
 		
-		Intersection[] intersections = intGath.getIntersections();
+		int noIntersections = intGath.sortIntersections();
 		
-		return populateContacts(contacts, vertsA, vertsB, intersections);
+		return populateContacts(contacts, vertsA, vertsB, intGath.getIntersectionArray(), noIntersections);
 	}
 		
 	/**
@@ -110,14 +119,30 @@ public class LinePolygonCollider  extends PolygonPolygonCollider {
 	 * @return The number of contacts that have been set in the contact array
 	 */
 	public int populateContacts(Contact[] contacts, Vector2f[] vertsA, Vector2f[] vertsB, Intersection[] intersections) {	
-		if ( intersections.length == 0 )
+		return populateContacts(contacts, vertsA, vertsB, intersections, intersections.length);
+	}
+	
+	/**
+	 * Given a list of intersections, calculate the collision information and
+	 * set the contacts with that information.
+	 * 
+	 * @param contacts The array of contacts to fill
+	 * @param vertsA The vertices of polygon A
+	 * @param vertsB The vertices of polygon B
+	 * @param intersections The array of intersections sorted in the order 
+	 * returned by {@link IntersectionGatherer#getIntersections()}
+	 * @param noIntersections The number of intersections in the array to use
+	 * @return The number of contacts that have been set in the contact array
+	 */
+	int populateContacts(Contact[] contacts, Vector2f[] vertsA, Vector2f[] vertsB, Intersection[] intersections, int noIntersections) {	
+		if ( noIntersections == 0 )
 			return 0;
 		
 		int noContacts = 0;
 		
 		// is the first intersection outgoing?
 		if ( !intersections[0].isIngoing ) {
-			setLineEndContact(contacts[noContacts], intersections[intersections.length-1], vertsA, vertsB);
+			setLineEndContact(contacts[noContacts], intersections[noIntersections-1], vertsA, vertsB);
 			
 			if (contacts[noContacts].getSeparation() < -10 )
 				System.out.println("first " + contacts[noContacts].getSeparation());
@@ -127,7 +152,7 @@ public class LinePolygonCollider  extends PolygonPolygonCollider {
 
 		
 		int i = noContacts;
-		while ( i < intersections.length-1 ) {
+		while ( i < noIntersections-1 ) {
 			if ( noContacts > contacts.length-2 )
 				return noContacts;
 			
@@ -154,10 +179,10 @@ public class LinePolygonCollider  extends PolygonPolygonCollider {
 		}
 		
 		// is there still an ingoing intersection left?
-		if ( i < intersections.length && 
-				intersections[intersections.length-1].isIngoing &&
+		if ( i < noIntersections && 
+				intersections[noIntersections-1].isIngoing &&
 				noContacts < contacts.length) {
-			setLineEndContact(contacts[noContacts], intersections[intersections.length-1], vertsA, vertsB);
+			setLineEndContact(contacts[noContacts], intersections[noIntersections-1], vertsA, vertsB);
 			
 			if (contacts[noContacts].getSeparation() < -10 )
 				System.out.println(" last " +contacts[noContacts].getSeparation());
@@ -195,7 +220,9 @@ public class LinePolygonCollider  extends PolygonPolygonCollider {
 	 * @param vertsB The polygon's vertices
 	 */
 	public void setLineEndContact(Contact contact, Intersection intersection, Vector2f[] vertsA, Vector2f[] vertsB) {
-		Vector2f separation = new Vector2f(intersection.position);
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f separation = scratch.vectors[14];
+		separation.set(intersection.position);
 		if ( intersection.isIngoing )
 			separation.sub(vertsA[1]);
 		else
@@ -204,9 +231,9 @@ public class LinePolygonCollider  extends PolygonPolygonCollider {
 		float depthA = 0;//separation.length();
 		
 		contact.setSeparation(-depthA);
-		contact.setNormal(MathUtil.getNormal(vertsB[(intersection.edgeB + 1) % vertsB.length], vertsB[intersection.edgeB]));
+		contact.setNormal(MathUtil.getNormal(vertsB[(intersection.edgeB + 1) % vertsB.length], vertsB[intersection.edgeB], scratch.vectors[15]));
 		contact.setPosition(intersection.position);
-		contact.setFeature(new FeaturePair(0, 0, intersection.edgeA, intersection.edgeB));
+		contact.getFeature().set(0, 0, intersection.edgeA, intersection.edgeB);
 	}
 	
 }
@@ -111,6 +111,19 @@ public class PenetrationSweep {
 	/** The projection of the outgoing intersection onto the sweepDir, defines
 	 * a border of the intersecting area. */
 	private float endDist;
+	/** The walker following polygon A, reused between sweeps */
+	private ContourWalker walkerA;
+	/** The walker following polygon B, reused between sweeps */
+	private ContourWalker walkerB;
+	
+	/**
+	 * Constructs a Penetration Sweep object that can be reused for any number
+	 * of intersection pairs by calling 
+	 * {@link PenetrationSweep#sweep(Intersection, Intersection, Vector2f, Vector2f[], Vector2f[])}.
+	 */
+	PenetrationSweep() {
+		this.sweepDir = new Vector2f();
+	}
 	
  	/**
  	 * Constructs a Penetration Sweep object, with all its attributes set.
@@ -144,10 +157,28 @@ public class PenetrationSweep {
 	 * @return the maximum penetration depth along the given normal
 	 */
 	public static float getPenetrationDepth(Intersection in, Intersection out, Vector2f normal, Vector2f[] vertsA, Vector2f[] vertsB) {
-		Vector2f sweepdir = new Vector2f(out.position);
-		sweepdir.sub(in.position);
-		
-		PenetrationSweep ps = new PenetrationSweep(normal, sweepdir, in.position, out.position);
+		return new PenetrationSweep().sweep(in, out, normal, vertsA, vertsB);
+	}
+	
+	/**
+	 * Given two intersecting polygons, the intersection points and a collision
+	 * normal, get the maximum penetration distance along the normal. This
+	 * reuses the state of this object, so it doesn't create any new objects
+	 * once the contour walkers exist.
+	 * 
+	 * @param in The ingoing intersection
+	 * @param out The outgoing intersection
+	 * @param normal The collision normal
+	 * @param vertsA The vertices of polygon A
+	 * @param vertsB The vertices of polygon B
+	 * @return the maximum penetration depth along the given normal
+	 */
+	float sweep(Intersection in, Intersection out, Vector2f normal, Vector2f[] vertsA, Vector2f[] vertsB) {
+		this.normal = normal;
+		this.sweepDir.set(out.position);
+		this.sweepDir.sub(in.position);
+		this.startDist = in.position.dot(sweepDir);
+		this.endDist = out.position.dot(sweepDir);
 
 		//TODO: most penetrations are very simple, similar to:
 		// \               +       |        
@@ -157,8 +188,13 @@ public class PenetrationSweep {
 		// these should be handled separately
 		
 
-		ContourWalker walkerA = ps.new ContourWalker(vertsA, in.edgeA, out.edgeA, false);
-		ContourWalker walkerB = ps.new ContourWalker(vertsB, (out.edgeB+1) % vertsB.length, (in.edgeB+1) % vertsB.length, true);
+		if ( walkerA == null ) {
+			walkerA = new ContourWalker(vertsA, in.edgeA, out.edgeA, false);
+			walkerB = new ContourWalker(vertsB, (out.edgeB+1) % vertsB.length, (in.edgeB+1) % vertsB.length, true);
+		} else {
+			walkerA.reset(vertsA, in.edgeA, out.edgeA, false);
+			walkerB.reset(vertsB, (out.edgeB+1) % vertsB.length, (in.edgeB+1) % vertsB.length, true);
+		}
 
 		float penetration = 0;
 		float lowerBound = in.position.dot(normal);
@@ -171,14 +207,14 @@ public class PenetrationSweep {
 					(walkerA.getNextDistance() < walkerB.getNextDistance() ||
 							!walkerB.hasNext() ) ) {
 				walkerA.next();
-				if ( walkerA.getDistance() < ps.startDist || walkerA.getDistance() > ps.endDist )
+				if ( walkerA.getDistance() < startDist || walkerA.getDistance() > endDist )
 					continue; // we don't care for vertices outside of the intersecting borders
 				
 				upperBound = walkerA.getPenetration();
 				lowerBound = walkerB.getPenetration(walkerA.getDistance());
 			} else {
 				walkerB.next();
-				if ( walkerB.getDistance() < ps.startDist || walkerB.getDistance() > ps.endDist )
+				if ( walkerB.getDistance() < startDist || walkerB.getDistance() > endDist )
 					continue;
 				
 				upperBound = walkerA.getPenetration(walkerB.getDistance());
@@ -246,6 +282,20 @@ public class PenetrationSweep {
 		 * @param isBackwards True iff we're walking backwards over the contour
 		 */
 		public ContourWalker(Vector2f[] verts, int firstVert, int lastVert, boolean isBackwards) {
+			reset(verts, firstVert, lastVert, isBackwards);
+		}
+		
+		/**
+		 * Start walking another contour (subsection), discarding the current state.
+		 * 
+		 * @param verts The vertices of the polygon which's contour is being followed
+		 * @param firstVert The index of the vertex where the contour's subsection which we 
+		 * walk on starts
+		 * @param lastVert The index of the vertex where the contour's subsection which we 
+		 * walk on ends
+		 * @param isBackwards True iff we're walking backwards over the contour
+		 */
+		void reset(Vector2f[] verts, int firstVert, int lastVert, boolean isBackwards) {
 			if ( firstVert < 0 || lastVert < 0 )
 				throw new IllegalArgumentException("Vertex numbers cannot be negative.");
 			
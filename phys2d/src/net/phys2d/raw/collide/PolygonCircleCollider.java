@@ -61,31 +61,37 @@ public class PolygonCircleCollider extends PolygonPolygonCollider {
 		Circle circle = (Circle) bodyB.getShape();
 		
 		// TODO: this can be optimized using matrix multiplications and moving only the circle
-		Vector2f[] vertsA = polyA.getVertices(bodyA.getPosition(), bodyA.getRotation());
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f[] vertsA = bodyA.getWorldVertices();
 		
-		Vector2f centroidA = new Vector2f(polyA.getCentroid());
+		Vector2f centroidA = scratch.vectors[0];
+		centroidA.set(polyA.getCentroid());
 		centroidA.add(bodyA.getPosition());
 
 		
-		int[][] collPairs = getCollisionCandidates(vertsA, centroidA, circle.getRadius(), bodyB.getPosition());
+		EdgeSweep sweep = scratch.sweep;
+		addToSweep(sweep, scratch.vectors[1], vertsA, centroidA, circle.getRadius(), bodyB.getPosition());
+		int noPairs = sweep.findOverlappingEdges();
 
 		int noContacts = 0;
-		for ( int i = 0; i < collPairs.length; i++ ) {
+		for ( int i = 0; i < noPairs; i++ ) {
 			if ( noContacts >= contacts.length )
 				return contacts.length;
 			
-			Vector2f lineStartA = vertsA[collPairs[i][0]];
-			Vector2f lineEndA = vertsA[(collPairs[i][0]+1) % vertsA.length ];
-			Line line = new Line(lineStartA, lineEndA);
+			Vector2f lineStartA = vertsA[sweep.getEdgeA(i)];
+			Vector2f lineEndA = vertsA[(sweep.getEdgeA(i)+1) % vertsA.length ];
+			Line line = scratch.lines[0];
+			line.set(lineStartA, lineEndA);
 						
 			float dis2 = line.distanceSquared(bodyB.getPosition());
 			float r2 = circle.getRadius() * circle.getRadius();
 
 			if ( dis2 < r2 ) {
-				Vector2f pt = new Vector2f();
+				Vector2f pt = scratch.vectors[2];
 				
 				line.getClosestPoint(bodyB.getPosition(), pt);
-				Vector2f normal = new Vector2f(bodyB.getPosition());
+				Vector2f normal = scratch.vectors[3];
+				normal.set(bodyB.getPosition());
 				normal.sub(pt);
 				float sep = circle.getRadius() - normal.length();
 				normal.normalise();
@@ -93,7 +99,7 @@ public class PolygonCircleCollider extends PolygonPolygonCollider {
 				contacts[noContacts].setSeparation(-sep);
 				contacts[noContacts].setPosition(pt);
 				contacts[noContacts].setNormal(normal);
-				contacts[noContacts].setFeature(new FeaturePair());
+				contacts[noContacts].getFeature().set(0, 0, 0, 0);
 				noContacts++;
 			}
 		}
@@ -113,11 +119,29 @@ public class PolygonCircleCollider extends PolygonPolygonCollider {
 	 * @return The list of edges that can collide with the circle
 	 */
 	protected int[][] getCollisionCandidates(Vector2f[] vertsA, ROVector2f centroid, float radius, ROVector2f circlePos) {
-		Vector2f sweepDir = new Vector2f(centroid);
+		EdgeSweep sweep = new EdgeSweep(new Vector2f());
+		addToSweep(sweep, new Vector2f(), vertsA, centroid, radius, circlePos);
+		
+		return sweep.getOverlappingEdges();
+	}
+	
+	/**
+	 * Reset a sweep and add the edges of the polygon and the extent of the 
+	 * circle to it, ready for finding the collision candidates.
+	 * 
+	 * @param sweep The sweep to fill
+	 * @param sweepDir The vector to store the sweep direction in
+	 * @param vertsA The vertices of a polygon that is collided with a circle
+	 * @param centroid The center of the polygon
+	 * @param radius The radius of the circle
+	 * @param circlePos The position (center) of the circle
+	 */
+	private void addToSweep(EdgeSweep sweep, Vector2f sweepDir, Vector2f[] vertsA, ROVector2f centroid, float radius, ROVector2f circlePos) {
+		sweepDir.set(centroid);
 		sweepDir.sub(circlePos);
 		sweepDir.normalise(); //TODO: this normalization might not be necessary
 		
-		EdgeSweep sweep = new EdgeSweep(sweepDir);//vertsA[0], true, true, dist);
+		sweep.reset(sweepDir);
 		
 		sweep.addVerticesToSweep(true, vertsA);
 		
@@ -125,8 +149,6 @@ public class PolygonCircleCollider extends PolygonPolygonCollider {
 		
 		sweep.insert(0, false, -radius + circProj);
 		sweep.insert(0, false, radius + circProj);
-
-		return sweep.getOverlappingEdges();
 	}
 
 }
@@ -57,17 +57,82 @@ public class PolygonPolygonCollider implements Collider {
 		Polygon polyA = (Polygon) bodyA.getShape();
 		Polygon polyB = (Polygon) bodyB.getShape();
 
-		Vector2f[] vertsA = polyA.getVertices(bodyA.getPosition(), bodyA.getRotation());
-		Vector2f[] vertsB = polyB.getVertices(bodyB.getPosition(), bodyB.getRotation());
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f[] vertsA = bodyA.getWorldVertices();
+		Vector2f[] vertsB = bodyB.getWorldVertices();
 		
-		Vector2f centroidA = new Vector2f(polyA.getCentroid());
+		Vector2f centroidA = scratch.vectors[0];
+		centroidA.set(polyA.getCentroid());
 		centroidA.add(bodyA.getPosition());
-		Vector2f centroidB = new Vector2f(polyB.getCentroid());
+		Vector2f centroidB = scratch.vectors[1];
+		centroidB.set(polyB.getCentroid());
 		centroidB.add(bodyB.getPosition());
 		
-		int[][] collEdgeCands = getCollisionCandidates(vertsA, vertsB, centroidA, centroidB);
-		Intersection[][] intersections = getIntersectionPairs(vertsA, vertsB, collEdgeCands);		
-		return populateContacts(contacts, vertsA, vertsB, intersections);
+		Vector2f sweepDir = scratch.vectors[2];
+		sweepDir.set(centroidB);
+		sweepDir.sub(centroidA);
+		
+		EdgeSweep sweep = scratch.sweep;
+		sweep.reset(sweepDir);
+		sweep.addVerticesToSweep(true, vertsA);
+		sweep.addVerticesToSweep(false, vertsB);
+		
+		return populateContacts(contacts, vertsA, vertsB, sweep, scratch);
+	}
+	
+	/**
+	 * Intersect the collision candidates found by an edge sweep and set the
+	 * contacts for the resulting intersection pairs. This gives the same 
+	 * result as
+	 * {@link PolygonPolygonCollider#populateContacts(Contact[], Vector2f[], Vector2f[], Intersection[][])}
+	 * for the pairs from 
+	 * {@link PolygonPolygonCollider#getIntersectionPairs(Vector2f[], Vector2f[], int[][])},
+	 * but uses the storage of the collision context instead of creating new objects.
+	 * 
+	 * @param contacts The array of contacts to fill
+	 * @param vertsA The vertices of polygon A
+	 * @param vertsB The vertices of polygon B
+	 * @param sweep The sweep holding the vertices of both polygons
+	 * @param scratch The context providing the temporary storage
+	 * @return The number of contacts that have been determined and hence
+	 * populated in the array.
+	 */
+	int populateContacts(Contact[] contacts, Vector2f[] vertsA, Vector2f[] vertsB, EdgeSweep sweep, CollisionScratch scratch) {
+		int noCandidates = sweep.findOverlappingEdges();
+		if ( noCandidates == 0 )
+			return 0;
+		
+		IntersectionGatherer fpl = scratch.gatherer;
+		fpl.reset(vertsA, vertsB);
+		
+		for ( int i = 0; i < noCandidates; i++ ) {
+			fpl.intersect(sweep.getEdgeA(i), sweep.getEdgeB(i));
+		}
+		
+		int noPairs = fpl.findIntersectionPairs();
+		int noContacts = 0;
+		
+		for ( int i = 0; i < noPairs; i++ ) {
+			if ( noContacts >= contacts.length )
+				return contacts.length;
+			
+			Intersection out = fpl.getPairOut(i);
+			if ( out != null && noContacts < contacts.length-1 ) {
+				setContactPair(
+						contacts[noContacts],
+						contacts[noContacts+1],
+						fpl.getPairIn(i),
+						out,
+						vertsA, vertsB);
+				
+				noContacts += 2;
+			} else if ( out == null ) {
+				setContact(contacts[noContacts], fpl.getPairIn(i), vertsA, vertsB);
+				noContacts += 1;
+			}
+		}
+		
+		return noContacts;
 	}
 		
 	/**
@@ -153,13 +218,14 @@ public class PolygonPolygonCollider implements Collider {
 		Vector2f startB = vertsB[intersection.edgeB];
 		Vector2f endB = vertsB[(intersection.edgeB + 1) % vertsB.length];
 		
-		Vector2f normal = MathUtil.getNormal(startA, endA);
-		normal.sub(MathUtil.getNormal(startB, endB));
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f normal = MathUtil.getNormal(startA, endA, scratch.vectors[14]);
+		normal.sub(MathUtil.getNormal(startB, endB, scratch.vectors[15]));
 		normal.normalise();
 		
 		contact.setNormal(normal);
 		contact.setSeparation(0);
-		contact.setFeature(new FeaturePair(intersection.edgeA, intersection.edgeB, 0, 0));
+		contact.getFeature().set(intersection.edgeA, intersection.edgeB, 0, 0);
 		contact.setPosition(intersection.position);
 	}
 	
@@ -184,11 +250,10 @@ public class PolygonPolygonCollider implements Collider {
 		Vector2f entryPoint = in.position;
 		Vector2f exitPoint = out.position;
 		
-		Vector2f normal = MathUtil.getNormal(entryPoint, exitPoint);
-		
-		FeaturePair feature = new FeaturePair(in.edgeA, in.edgeB, out.edgeA, out.edgeB);
+		CollisionScratch scratch = CollisionScratch.get();
+		Vector2f normal = MathUtil.getNormal(entryPoint, exitPoint, scratch.vectors[14]);
 		
-		float separation = -PenetrationSweep.getPenetrationDepth(in, out, normal, vertsA, vertsB);
+		float separation = -scratch.penetration.sweep(in, out, normal, vertsA, vertsB);
 		// divided by 2 because there are two contact points
 		// divided by 2 (again) because both objects move (I think)
 		separation /= 4; 
@@ -196,12 +261,12 @@ public class PolygonPolygonCollider implements Collider {
 		contact1.setSeparation(separation);
 		contact1.setNormal(normal);
 		contact1.setPosition(entryPoint);
-		contact1.setFeature(feature);
+		contact1.getFeature().set(in.edgeA, in.edgeB, out.edgeA, out.edgeB);
 		
 		contact2.setSeparation(separation);
 		contact2.setNormal(normal);
 		contact2.setPosition(exitPoint);
-		contact2.setFeature(feature);
+		contact2.getFeature().set(in.edgeA, in.edgeB, out.edgeA, out.edgeB);
 	}
 	
 
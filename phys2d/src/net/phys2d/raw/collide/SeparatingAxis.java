@@ -0,0 +1,136 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.collide;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.Body;
+
+/**
+ * The edge that separated a pair of bodies the last time they were 
+ * collided. Bodies that are near each other but not touching tend to stay
+ * separated by the same edge from one step to the next, so testing that 
+ * edge first lets the full collision be skipped most of the time.
+ * 
+ * The edge is identified by its index into the world space vertices of
+ * one of the bodies, which is only meaningful to the collider that 
+ * recorded it.
+ */
+public class SeparatingAxis {
+	/** The index of the separating edge, negative if there is none */
+	private int edge = -1;
+	/** True if the edge belongs to the second body of the pair */
+	private boolean second;
+	/** True if the last collision was decided by testing the edge */
+	private boolean hit;
+	
+	/**
+	 * Check if an edge has been recorded
+	 * 
+	 * @return True if an edge separated the bodies last time
+	 */
+	public boolean isSet() {
+		return edge >= 0;
+	}
+	
+	/**
+	 * Check if the last collision was decided by the recorded edge alone
+	 * 
+	 * @return True if the recorded edge still separated the bodies
+	 */
+	public boolean wasHit() {
+		return hit;
+	}
+	
+	/**
+	 * Forget the recorded edge, the bodies are touching
+	 */
+	public void clear() {
+		edge = -1;
+		hit = false;
+	}
+	
+	/**
+	 * Record the edge that separates the bodies
+	 * 
+	 * @param edge The index of the edge in the world space vertices 
+	 * @param second True if the edge belongs to the second body
+	 */
+	void set(int edge, boolean second) {
+		this.edge = edge;
+		this.second = second;
+		hit = false;
+	}
+	
+	/**
+	 * Test whether the recorded edge still separates two bodies, which is 
+	 * remembered as the result of the collision
+	 * 
+	 * @param bodyA The first body of the pair
+	 * @param bodyB The second body of the pair
+	 * @return True if the bodies are still separated by the edge
+	 */
+	boolean separates(Body bodyA, Body bodyB) {
+		hit = false;
+		if (edge < 0) {
+			return false;
+		}
+		
+		Vector2f[] verts = second ? bodyB.getWorldVertices() : bodyA.getWorldVertices();
+		Vector2f[] otherVerts = second ? bodyA.getWorldVertices() : bodyB.getWorldVertices();
+		if (edge >= verts.length) {
+			// the shape has been changed since
+			return false;
+		}
+		
+		// only the sign matters so the normal needn't be unit length
+		Vector2f start = verts[edge];
+		Vector2f end = verts[(edge + 1) % verts.length];
+		float nx = end.y - start.y;
+		float ny = start.x - end.x;
+		float front = nx * start.x + ny * start.y;
+		
+		for (int i = 0; i < otherVerts.length; i++) {
+			if (nx * otherVerts[i].x + ny * otherVerts[i].y <= front) {
+				return false;
+			}
+		}
+		
+		hit = true;
+		return true;
+	}
+}
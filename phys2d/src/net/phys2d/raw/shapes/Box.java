@@ -37,8 +37,6 @@
  */
 package net.phys2d.raw.shapes;
 
-import net.phys2d.math.MathUtil;
-import net.phys2d.math.Matrix2f;
 import net.phys2d.math.ROVector2f;
 import net.phys2d.math.Vector2f;
 
@@ -73,6 +71,13 @@ public strictfp class Box extends AbstractShape implements DynamicShape {
 		return size;
 	}
 
+	/**
+	 * @see net.phys2d.raw.shapes.Shape#getTypeID()
+	 */
+	public int getTypeID() {
+		return BOX_TYPE;
+	}
+	
 	/**
 	 * @see net.phys2d.raw.shapes.Shape#getSurfaceFactor()
 	 */
@@ -91,19 +96,47 @@ public strictfp class Box extends AbstractShape implements DynamicShape {
 	 * @return The points building up a box at this position and rotation
 	 */
 	public Vector2f[] getPoints(ROVector2f pos, float rotation) {
-		Matrix2f R = new Matrix2f(rotation);
 		Vector2f[] pts = new Vector2f[4];
-		ROVector2f h = MathUtil.scale(getSize(),0.5f);
-
-		pts[0] = MathUtil.mul(R, new Vector2f(-h.getX(), -h.getY()));
-		pts[0].add(pos);
-		pts[1] = MathUtil.mul(R, new Vector2f(h.getX(), -h.getY()));
-		pts[1].add(pos);
-		pts[2] = MathUtil.mul(R, new Vector2f( h.getX(),  h.getY()));
-		pts[2].add(pos);
-		pts[3] = MathUtil.mul(R, new Vector2f(-h.getX(),  h.getY()));
-		pts[3].add(pos);
+		for (int i=0;i<4;i++) {
+			pts[i] = new Vector2f();
+		}
+		getPoints(pos, rotation, pts);
 
 		return pts;
 	}
+	
+	/**
+	 * Get the current positon of a set of points, writing them into 
+	 * existing vectors rather than creating new ones
+	 * 
+	 * @param pos The centre of the box
+	 * @param rotation The rotation of the box
+	 * @param pts The array of (at least) 4 vectors to store the points in
+	 */
+	public void getPoints(ROVector2f pos, float rotation, Vector2f[] pts) {
+		float cos = (float) Math.cos(rotation);
+		float sin = (float) Math.sin(rotation);
+		float hx = size.x * 0.5f;
+		float hy = size.y * 0.5f;
+		
+		transform(cos, sin, -hx, -hy, pos, pts[0]);
+		transform(cos, sin, hx, -hy, pos, pts[1]);
+		transform(cos, sin, hx, hy, pos, pts[2]);
+		transform(cos, sin, -hx, hy, pos, pts[3]);
+	}
+	
+	/**
+	 * Rotate and then translate a point relative to the centre of the box
+	 * 
+	 * @param cos The cosine of the rotation
+	 * @param sin The sine of the rotation
+	 * @param x The x coordinate of the point relative to the centre
+	 * @param y The y coordinate of the point relative to the centre
+	 * @param pos The centre of the box
+	 * @param result The vector to store the transformed point in
+	 */
+	private void transform(float cos, float sin, float x, float y, ROVector2f pos, Vector2f result) {
+		result.set(cos * x + -sin * y, sin * x + cos * y);
+		result.add(pos);
+	}
 }
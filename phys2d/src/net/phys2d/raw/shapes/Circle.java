@@ -67,6 +67,13 @@ public strictfp class Circle extends AbstractShape implements DynamicShape {
 		return radius;
 	}
 
+	/**
+	 * @see net.phys2d.raw.shapes.Shape#getTypeID()
+	 */
+	public int getTypeID() {
+		return CIRCLE_TYPE;
+	}
+	
 	/**
 	 * @see net.phys2d.raw.shapes.Shape#getSurfaceFactor()
 	 */
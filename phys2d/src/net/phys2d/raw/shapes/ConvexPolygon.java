@@ -88,6 +88,15 @@ public class ConvexPolygon extends Polygon implements DynamicShape {
 	public boolean isConvex() {
 		return true;
 	}
+	
+	/**
+	 * Convex polygons have their own type so that they can be collided
+	 * with a cheaper collider than general polygons.
+	 * @see net.phys2d.raw.shapes.Shape#getTypeID()
+	 */
+	public int getTypeID() {
+		return CONVEX_POLYGON_TYPE;
+	}
 
 	/**
 	 * Test whether or not the point p is in this polygon in O(n),
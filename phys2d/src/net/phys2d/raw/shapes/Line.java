@@ -227,7 +227,10 @@ public strictfp class Line extends AbstractShape implements DynamicShape {
 		this.start = start;
 		this.end = end;
 		
-		vec = new Vector2f(end);
+		if (vec == null) {
+			vec = new Vector2f();
+		}
+		vec.set(end);
 		vec.sub(start);
 		
 		lenSquared = vec.length();
@@ -346,6 +349,13 @@ public strictfp class Line extends AbstractShape implements DynamicShape {
 		return;
 	}
 
+	/**
+	 * @see net.phys2d.raw.shapes.Shape#getTypeID()
+	 */
+	public int getTypeID() {
+		return LINE_TYPE;
+	}
+	
 	/**
 	 * @see net.phys2d.raw.shapes.Shape#getSurfaceFactor()
 	 */
@@ -376,20 +386,34 @@ public strictfp class Line extends AbstractShape implements DynamicShape {
 	 * @return The two endpoints of this line
 	 */
 	public Vector2f[] getVertices(ROVector2f displacement, float rotation) {
+		Vector2f[] endPoints = new Vector2f[2];
+		endPoints[0] = new Vector2f();
+		endPoints[1] = new Vector2f();
+		getVertices(displacement, rotation, endPoints);
+		
+		return endPoints;
+	}
+	
+	/**
+	 * Translate and rotate this line into an existing pair of vectors.
+	 * 
+	 * @param displacement The displacement of the line
+	 * @param rotation The rotation of the line in radians
+	 * @param endPoints The array of (at least) two vectors to store 
+	 * the endpoints in
+	 */
+	public void getVertices(ROVector2f displacement, float rotation, Vector2f[] endPoints) {
 		float cos = (float) Math.cos(rotation);
 		float sin = (float) Math.sin(rotation);
 		
-		Vector2f[] endPoints = new Vector2f[2];
-		endPoints[0] = new Vector2f(//getX1(), getY1());
+		endPoints[0].set(//getX1(), getY1());
 				getX1() * cos - getY1() * sin,
 				getY1() * cos + getX1() * sin);
 		endPoints[0].add(displacement);
-		endPoints[1] = new Vector2f(//getX2(), getY2());
+		endPoints[1].set(//getX2(), getY2());
 				getX2() * cos - getY2() * sin,
 				getY2() * cos + getX2() * sin);
 		endPoints[1].add(displacement);
-		
-		return endPoints;
 	}
 	
 	/**
@@ -420,6 +444,23 @@ public strictfp class Line extends AbstractShape implements DynamicShape {
 	 * @return The intersection point or null if the lines are parallel
 	 */
 	public Vector2f intersect(Line other) {
+		Vector2f result = new Vector2f();
+		if (!intersect(other, result)) {
+			return null;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Intersect this line with another, storing the intersection point
+	 * in an existing vector
+	 * 
+	 * @param other The other line we should intersect with
+	 * @param result The vector to store the intersection point in
+	 * @return True if the lines intersect, false if they are parallel
+	 */
+	public boolean intersect(Line other, Vector2f result) {
 		float dx1 = end.getX() - start.getX();
 		float dx2 = other.end.getX() - other.start.getX();
 		float dy1 = end.getY() - start.getY();
@@ -427,7 +468,7 @@ public strictfp class Line extends AbstractShape implements DynamicShape {
 		float denom = (dy2 * dx1) - (dx2 * dy1);
 		
 		if (denom == 0) {
-			return null;
+			return false;
 		}
 		
 		float ua = (dx2 * (start.getY() - other.start.getY())) - (dy2 * (start.getX() - other.start.getX()));
@@ -440,7 +481,8 @@ public strictfp class Line extends AbstractShape implements DynamicShape {
 		float ix = start.getX() + (u * (end.getX() - start.getX()));
 		float iy = start.getY() + (u * (end.getY() - start.getY()));
 		
-		return new Vector2f(ix,iy);
+		result.set(ix,iy);
+		return true;
 	}
 	
 }
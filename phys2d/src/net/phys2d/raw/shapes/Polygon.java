@@ -231,6 +231,25 @@ public class Polygon extends AbstractShape implements DynamicShape {
 	public Vector2f[] getVertices(ROVector2f displacement, float rotation) {
 		Vector2f[] retVertices = new Vector2f[vertices.length];
 		
+		for ( int i = 0; i < vertices.length; i++ )
+			retVertices[i] = new Vector2f();
+		
+		getVertices(displacement, rotation, retVertices);
+		
+		return retVertices;
+	}
+	
+	/**
+	 * Translates and rotates this poly's vertices into an existing array
+	 * of vectors, in the same way as {@link #getVertices(ROVector2f, float)}
+	 * but without creating any new objects.
+	 * 
+	 * @param displacement The displacement with wich all the vertices are translated
+	 * @param rotation The rotation around the origin in radians
+	 * @param result The array of (at least) {@link #getVertexCount()} vectors
+	 * to store the vertices in
+	 */
+	public void getVertices(ROVector2f displacement, float rotation, Vector2f[] result) {
 		float cos = (float) Math.cos(rotation);
 		float sin = (float) Math.sin(rotation);
 		
@@ -240,10 +259,17 @@ public class Polygon extends AbstractShape implements DynamicShape {
 			x += displacement.getX();
 			y += displacement.getY();
 			
-			retVertices[i] = new Vector2f(x, y);
+			result[i].set(x, y);
 		}
-		
-		return retVertices;
+	}
+	
+	/**
+	 * Get the number of vertices of this polygon
+	 * 
+	 * @return The number of vertices
+	 */
+	public int getVertexCount() {
+		return vertices.length;
 	}
 	
 	/**
@@ -256,10 +282,24 @@ public class Polygon extends AbstractShape implements DynamicShape {
 	 * @return this polygon's vertices translated and rotated
 	 */
 	public Vector2f getCentroid(ROVector2f displacement, float rotation) {
+		Vector2f result = new Vector2f();
+		getCentroid(displacement, rotation, result);
+		
+		return result;
+	}
+	
+	/**
+	 * Translates and rotates this poly's centroid into an existing vector.
+	 * 
+	 * @param displacement The displacement with wich the centroid is translated
+	 * @param rotation The rotation around the origin in radians
+	 * @param result The vector to store the centroid in
+	 */
+	public void getCentroid(ROVector2f displacement, float rotation, Vector2f result) {
 		float cos = (float) Math.cos(rotation);
 		float sin = (float) Math.sin(rotation);
 		
-		return new Vector2f(
+		result.set(
 				centroid.x * cos - centroid.y * sin + displacement.getX(),
 				centroid.y * cos + centroid.x * sin + displacement.getY());
 	}
@@ -291,6 +331,13 @@ public class Polygon extends AbstractShape implements DynamicShape {
 		return null;
 	}
 
+	/**
+	 * @see net.phys2d.raw.shapes.Shape#getTypeID()
+	 */
+	public int getTypeID() {
+		return POLYGON_TYPE;
+	}
+	
 	/**
 	 * @see net.phys2d.raw.shapes.Shape#getSurfaceFactor()
 	 */
@@ -43,6 +43,18 @@ package net.phys2d.raw.shapes;
  * @author Kevin Glass
  */
 public interface Shape {
+	/** The type ID of circles */
+	public static final int CIRCLE_TYPE = 0;
+	/** The type ID of boxes */
+	public static final int BOX_TYPE = 1;
+	/** The type ID of lines */
+	public static final int LINE_TYPE = 2;
+	/** The type ID of polygons */
+	public static final int POLYGON_TYPE = 3;
+	/** The type ID of convex polygons */
+	public static final int CONVEX_POLYGON_TYPE = 4;
+	/** The first type ID available to custom shapes */
+	public static final int FIRST_CUSTOM_TYPE = 16;
 
 	/**
 	 * Get the box bounds of the shape
@@ -57,4 +69,13 @@ public interface Shape {
 	 * @return The factor result - from the original demo
 	 */
 	public float getSurfaceFactor();
+	
+	/**
+	 * Get the ID of the type of this shape. This is used to find the collider
+	 * between two shapes, custom shapes should use IDs from FIRST_CUSTOM_TYPE
+	 * upwards.
+	 * 
+	 * @return The ID of the type of this shape
+	 */
+	public int getTypeID();
 }
@@ -0,0 +1,822 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.strategies;
+
+import java.util.IdentityHashMap;
+
+import net.phys2d.math.MathUtil;
+import net.phys2d.math.ROVector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.BodyPairMap;
+import net.phys2d.raw.BroadQueryStrategy;
+import net.phys2d.raw.CollisionContext;
+import net.phys2d.raw.shapes.AABox;
+
+/**
+ * A strategy that keeps the bodies in a dynamic bounding volume tree which 
+ * persists between steps. Each body is held in a leaf with enlarged ("fat") 
+ * bounds so that the leaf only has to be moved in the tree once the body
+ * leaves its fat bounds. The tree is kept balanced using rotations as leaves
+ * are inserted and removed.
+ * 
+ * Only the leaves that moved in the tree are used to look for new pairs, 
+ * pairs are then kept until their fat bounds no longer overlap. This makes
+ * the cost of the broad phase proportional to the number of bodies moving 
+ * rather than the number of bodies in the world, which suits levels where 
+ * small moving bodies are mixed with large static geometry.
+ * 
+ * The tree is also used to answer region and ray queries for the space. 
+ * Queries read the tree as it was left by the last step and never change 
+ * it, so bodies added since the last step aren't found until the next one 
+ * and a body moved since then is found by its old fat bounds.
+ */
+public class DynamicTreeStrategy implements BroadQueryStrategy {
+	/** The default amount the bounds of each body are enlarged by */
+	public static final float DEFAULT_MARGIN = 5.0f;
+	/** The initial size of the working arrays */
+	private static final int INITIAL_CAPACITY = 32;
+	
+	/** The amount the bounds of each body are enlarged by */
+	private float margin;
+	/** The root node of the tree */
+	private Node root;
+	/** The leaves of the tree, keyed on their body */
+	private IdentityHashMap leaves = new IdentityHashMap();
+	/** The leaves of the tree in an indexable list */
+	private Node[] leafList = new Node[INITIAL_CAPACITY];
+	/** The number of leaves in the tree */
+	private int leafCount;
+	/** The internal nodes that have been released for reuse */
+	private Node freeNodes;
+	/** The leaves that have moved in the tree since the last step */
+	private Node[] moved = new Node[INITIAL_CAPACITY];
+	/** The number of leaves that have moved since the last step */
+	private int movedCount;
+	/** The stack used to traverse the tree */
+	private Node[] stack = new Node[INITIAL_CAPACITY];
+	/** The leaves found by the last traversal of the tree */
+	private Node[] found = new Node[INITIAL_CAPACITY];
+	/** The number of leaves found by the last traversal of the tree */
+	private int foundCount;
+	/** The pairs of bodies whose fat bounds overlap */
+	private BodyPairMap pairs = new BodyPairMap();
+	/** The list used to pass a pair of bodies to the context */
+	private BodyList pair = new BodyList();
+	/** The current update, used to spot bodies that have left the space */
+	private int stamp;
+	
+	/**
+	 * Create a new strategy using the default margin
+	 */
+	public DynamicTreeStrategy() {
+		this(DEFAULT_MARGIN);
+	}
+	
+	/**
+	 * Create a new strategy 
+	 * 
+	 * @param margin The amount the bounds of each body are enlarged by. Larger
+	 * margins mean leaves move in the tree less often but more pairs are
+	 * considered.
+	 */
+	public DynamicTreeStrategy(float margin) {
+		this.margin = margin;
+	}
+	
+	/**
+	 * Get the number of pairs of bodies whose fat bounds overlap
+	 * 
+	 * @return The number of pairs being tracked
+	 */
+	public int getPairCount() {
+		return pairs.size();
+	}
+	
+	/**
+	 * Get the height of the tree
+	 * 
+	 * @return The height of the tree, 0 if the tree is empty
+	 */
+	public int getHeight() {
+		if (root == null) {
+			return 0;
+		}
+		
+		return root.height + 1;
+	}
+	
+	/**
+	 * @see net.phys2d.raw.BroadCollisionStrategy#collideBodies(net.phys2d.raw.CollisionContext, net.phys2d.raw.BodyList, float)
+	 */
+	public void collideBodies(CollisionContext context, BodyList bodies, float dt) {
+		update(bodies);
+		
+		for (int i=0;i<movedCount;i++) {
+			Node leaf = moved[i];
+			moved[i] = null;
+			leaf.moved = false;
+			if (leaf.body == null) {
+				continue;
+			}
+			
+			query(leaf.minX, leaf.minY, leaf.maxX, leaf.maxY);
+			for (int j=0;j<foundCount;j++) {
+				Node other = found[j];
+				if (other == leaf) {
+					continue;
+				}
+				if (leaf.body.isStatic() && other.body.isStatic()) {
+					continue;
+				}
+				
+				long key = BodyPairMap.getKey(leaf.body, other.body);
+				Pair existing = (Pair) pairs.get(key);
+				if ((existing == null) || existing.isStale()) {
+					pairs.put(leaf.body, other.body, new Pair(leaf, other));
+				}
+			}
+		}
+		movedCount = 0;
+		
+		for (int i=0;i<pairs.size();i++) {
+			Pair p = (Pair) pairs.getValue(i);
+			if (p.isStale()) {
+				pairs.removeAt(i);
+				i--;
+				continue;
+			}
+			
+			if (p.leaf1.touches(p.leaf2)) {
+				resolve(context, p.leaf1.body, p.leaf2.body, dt);
+				p.touching = true;
+			} else if (p.touching) {
+				// give the context a chance to discard the contact
+				resolve(context, p.leaf1.body, p.leaf2.body, dt);
+				p.touching = false;
+			}
+			
+			if (!p.leaf1.overlaps(p.leaf2.minX, p.leaf2.minY, p.leaf2.maxX, p.leaf2.maxY)) {
+				pairs.removeAt(i);
+				i--;
+			}
+		}
+	}
+	
+	/**
+	 * @see net.phys2d.raw.BroadQueryStrategy#queryRegion(net.phys2d.raw.BodyList, float, float, float, float, net.phys2d.raw.BodyList)
+	 */
+	public void queryRegion(BodyList bodies, float minx, float miny, float maxx, float maxy, BodyList result) {
+		query(minx, miny, maxx, maxy);
+		
+		for (int i=0;i<foundCount;i++) {
+			// bodies removed since the last step are still in the tree
+			if (found[i].body.added()) {
+				result.add(found[i].body);
+			}
+			found[i] = null;
+		}
+	}
+	
+	/**
+	 * @see net.phys2d.raw.BroadQueryStrategy#queryRay(net.phys2d.raw.BodyList, float, float, float, float, net.phys2d.raw.BodyList)
+	 */
+	public void queryRay(BodyList bodies, float x1, float y1, float x2, float y2, BodyList result) {
+		if (root == null) {
+			return;
+		}
+		
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			Node node = stack[--top];
+			stack[top] = null;
+			
+			if (MathUtil.intersectBounds(x1, y1, x2, y2, node.minX, node.minY, node.maxX, node.maxY) < 0) {
+				continue;
+			}
+			if (node.isLeaf()) {
+				if (node.body.added()) {
+					result.add(node.body);
+				}
+			} else {
+				top = push(node, top);
+			}
+		}
+	}
+	
+	/**
+	 * Bring the tree up to date with the bodies in the space. Any body 
+	 * that has left its fat bounds is moved in the tree, new bodies are 
+	 * added and bodies no longer in the space are removed.
+	 * 
+	 * @param bodies The complete list of bodies in the space
+	 */
+	private void update(BodyList bodies) {
+		stamp++;
+		
+		for (int i=0;i<bodies.size();i++) {
+			Body body = bodies.get(i);
+			Node leaf = (Node) leaves.get(body);
+			
+			if (leaf == null) {
+				leaf = new Node();
+				leaf.body = body;
+				leaves.put(body, leaf);
+				if (leafCount == leafList.length) {
+					Node[] newList = new Node[leafCount * 2];
+					System.arraycopy(leafList, 0, newList, 0, leafCount);
+					leafList = newList;
+				}
+				leaf.index = leafCount;
+				leafList[leafCount++] = leaf;
+				
+				leaf.updateBounds();
+				leaf.enlarge(margin);
+				insertLeaf(leaf);
+				markMoved(leaf);
+			} else {
+				leaf.updateBounds();
+				if (!leaf.containsBounds()) {
+					removeLeaf(leaf);
+					leaf.enlarge(margin);
+					insertLeaf(leaf);
+					markMoved(leaf);
+				}
+			}
+			leaf.stamp = stamp;
+		}
+		
+		if (leafCount > bodies.size()) {
+			for (int i=0;i<leafCount;i++) {
+				Node leaf = leafList[i];
+				if (leaf.stamp == stamp) {
+					continue;
+				}
+				
+				removeLeaf(leaf);
+				leaves.remove(leaf.body);
+				leaf.body = null;
+				
+				leafCount--;
+				leafList[i] = leafList[leafCount];
+				leafList[i].index = i;
+				leafList[leafCount] = null;
+				i--;
+			}
+		}
+	}
+	
+	/**
+	 * Record that a leaf has moved in the tree since the last step
+	 * 
+	 * @param leaf The leaf that moved
+	 */
+	private void markMoved(Node leaf) {
+		if (leaf.moved) {
+			return;
+		}
+		
+		if (movedCount == moved.length) {
+			Node[] newMoved = new Node[movedCount * 2];
+			System.arraycopy(moved, 0, newMoved, 0, movedCount);
+			moved = newMoved;
+		}
+		leaf.moved = true;
+		moved[movedCount++] = leaf;
+	}
+	
+	/**
+	 * Find all the leaves whose fat bounds overlap a given region. The leaves
+	 * are placed in the found list.
+	 * 
+	 * @param minx The lowest x coordinate of the region
+	 * @param miny The lowest y coordinate of the region
+	 * @param maxx The highest x coordinate of the region
+	 * @param maxy The highest y coordinate of the region
+	 */
+	private void query(float minx, float miny, float maxx, float maxy) {
+		foundCount = 0;
+		if (root == null) {
+			return;
+		}
+		
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			Node node = stack[--top];
+			stack[top] = null;
+			
+			if (!node.overlaps(minx, miny, maxx, maxy)) {
+				continue;
+			}
+			if (node.isLeaf()) {
+				if (foundCount == found.length) {
+					Node[] newFound = new Node[foundCount * 2];
+					System.arraycopy(found, 0, newFound, 0, foundCount);
+					found = newFound;
+				}
+				found[foundCount++] = node;
+			} else {
+				top = push(node, top);
+			}
+		}
+	}
+	
+	/**
+	 * Push the children of a node onto the traversal stack
+	 * 
+	 * @param node The node whose children should be pushed
+	 * @param top The current top of the stack
+	 * @return The new top of the stack
+	 */
+	private int push(Node node, int top) {
+		if (top + 2 > stack.length) {
+			Node[] newStack = new Node[stack.length * 2];
+			System.arraycopy(stack, 0, newStack, 0, top);
+			stack = newStack;
+		}
+		stack[top++] = node.child1;
+		stack[top++] = node.child2;
+		
+		return top;
+	}
+	
+	/**
+	 * Get an internal node, reusing one that has been released if possible 
+	 * 
+	 * @return An internal node ready to be placed in the tree
+	 */
+	private Node allocateNode() {
+		if (freeNodes == null) {
+			return new Node();
+		}
+		
+		Node node = freeNodes;
+		freeNodes = node.parent;
+		node.parent = null;
+		
+		return node;
+	}
+	
+	/**
+	 * Release an internal node for reuse
+	 * 
+	 * @param node The node to be released
+	 */
+	private void freeNode(Node node) {
+		node.child1 = null;
+		node.child2 = null;
+		node.height = 0;
+		node.parent = freeNodes;
+		freeNodes = node;
+	}
+	
+	/**
+	 * Insert a leaf into the tree, choosing the sibling that causes the 
+	 * least growth in the perimeter of the nodes above it
+	 * 
+	 * @param leaf The leaf to insert
+	 */
+	private void insertLeaf(Node leaf) {
+		if (root == null) {
+			root = leaf;
+			leaf.parent = null;
+			return;
+		}
+		
+		Node index = root;
+		while (!index.isLeaf()) {
+			float perimeter = index.getPerimeter();
+			float combined = getUnionPerimeter(index, leaf);
+			
+			// the cost of creating a new parent for this node and the leaf
+			float cost = 2 * combined;
+			// the minimum cost of pushing the leaf further down the tree
+			float inheritance = 2 * (combined - perimeter);
+			
+			float cost1 = getDescentCost(index.child1, leaf) + inheritance;
+			float cost2 = getDescentCost(index.child2, leaf) + inheritance;
+			
+			if ((cost < cost1) && (cost < cost2)) {
+				break;
+			}
+			
+			index = cost1 < cost2 ? index.child1 : index.child2;
+		}
+		
+		Node sibling = index;
+		Node oldParent = sibling.parent;
+		Node newParent = allocateNode();
+		newParent.parent = oldParent;
+		newParent.setUnion(sibling, leaf);
+		newParent.height = sibling.height + 1;
+		newParent.child1 = sibling;
+		newParent.child2 = leaf;
+		sibling.parent = newParent;
+		leaf.parent = newParent;
+		
+		if (oldParent == null) {
+			root = newParent;
+		} else if (oldParent.child1 == sibling) {
+			oldParent.child1 = newParent;
+		} else {
+			oldParent.child2 = newParent;
+		}
+		
+		refit(leaf.parent);
+	}
+	
+	/**
+	 * Get the cost of descending into a child node when inserting a leaf
+	 * 
+	 * @param child The child node being considered
+	 * @param leaf The leaf being inserted
+	 * @return The growth in perimeter caused by descending into the child
+	 */
+	private float getDescentCost(Node child, Node leaf) {
+		if (child.isLeaf()) {
+			return getUnionPerimeter(child, leaf);
+		}
+		
+		return getUnionPerimeter(child, leaf) - child.getPerimeter();
+	}
+	
+	/**
+	 * Get the perimeter of the box containing two nodes
+	 * 
+	 * @param a The first node
+	 * @param b The second node
+	 * @return The perimeter of the box containing both nodes
+	 */
+	private float getUnionPerimeter(Node a, Node b) {
+		float width = Math.max(a.maxX, b.maxX) - Math.min(a.minX, b.minX);
+		float height = Math.max(a.maxY, b.maxY) - Math.min(a.minY, b.minY);
+		
+		return 2 * (width + height);
+	}
+	
+	/**
+	 * Remove a leaf from the tree
+	 * 
+	 * @param leaf The leaf to remove
+	 */
+	private void removeLeaf(Node leaf) {
+		if (leaf == root) {
+			root = null;
+			return;
+		}
+		
+		Node parent = leaf.parent;
+		Node grandParent = parent.parent;
+		Node sibling = parent.child1 == leaf ? parent.child2 : parent.child1;
+		
+		if (grandParent == null) {
+			root = sibling;
+			sibling.parent = null;
+			freeNode(parent);
+		} else {
+			if (grandParent.child1 == parent) {
+				grandParent.child1 = sibling;
+			} else {
+				grandParent.child2 = sibling;
+			}
+			sibling.parent = grandParent;
+			freeNode(parent);
+			
+			refit(grandParent);
+		}
+		leaf.parent = null;
+	}
+	
+	/**
+	 * Walk up the tree from a node rebalancing and recalculating the 
+	 * bounds of each node on the way
+	 * 
+	 * @param node The node to start at
+	 */
+	private void refit(Node node) {
+		while (node != null) {
+			node = balance(node);
+			
+			node.height = 1 + Math.max(node.child1.height, node.child2.height);
+			node.setUnion(node.child1, node.child2);
+			
+			node = node.parent;
+		}
+	}
+	
+	/**
+	 * Perform a rotation at a node if its children's heights differ by 
+	 * more than one
+	 * 
+	 * @param a The node to balance
+	 * @return The node that is now at the position in the tree a was in
+	 */
+	private Node balance(Node a) {
+		if (a.isLeaf() || (a.height < 2)) {
+			return a;
+		}
+		
+		Node b = a.child1;
+		Node c = a.child2;
+		int balance = c.height - b.height;
+		
+		if (balance > 1) {
+			// rotate c up
+			Node f = c.child1;
+			Node g = c.child2;
+			
+			c.child1 = a;
+			c.parent = a.parent;
+			a.parent = c;
+			replaceChild(c.parent, a, c);
+			
+			if (f.height > g.height) {
+				c.child2 = f;
+				a.child2 = g;
+				g.parent = a;
+				a.setUnion(b, g);
+				c.setUnion(a, f);
+				a.height = 1 + Math.max(b.height, g.height);
+				c.height = 1 + Math.max(a.height, f.height);
+			} else {
+				c.child2 = g;
+				a.child2 = f;
+				f.parent = a;
+				a.setUnion(b, f);
+				c.setUnion(a, g);
+				a.height = 1 + Math.max(b.height, f.height);
+				c.height = 1 + Math.max(a.height, g.height);
+			}
+			
+			return c;
+		}
+		
+		if (balance < -1) {
+			// rotate b up
+			Node d = b.child1;
+			Node e = b.child2;
+			
+			b.child1 = a;
+			b.parent = a.parent;
+			a.parent = b;
+			replaceChild(b.parent, a, b);
+			
+			if (d.height > e.height) {
+				b.child2 = d;
+				a.child1 = e;
+				e.parent = a;
+				a.setUnion(c, e);
+				b.setUnion(a, d);
+				a.height = 1 + Math.max(c.height, e.height);
+				b.height = 1 + Math.max(a.height, d.height);
+			} else {
+				b.child2 = e;
+				a.child1 = d;
+				d.parent = a;
+				a.setUnion(c, d);
+				b.setUnion(a, e);
+				a.height = 1 + Math.max(c.height, d.height);
+				b.height = 1 + Math.max(a.height, e.height);
+			}
+			
+			return b;
+		}
+		
+		return a;
+	}
+	
+	/**
+	 * Replace the child of a node, or the root if there is no parent 
+	 * 
+	 * @param parent The parent whose child should be replaced or null for the root 
+	 * @param oldChild The child being replaced
+	 * @param newChild The child to replace it with
+	 */
+	private void replaceChild(Node parent, Node oldChild, Node newChild) {
+		if (parent == null) {
+			root = newChild;
+		} else if (parent.child1 == oldChild) {
+			parent.child1 = newChild;
+		} else {
+			parent.child2 = newChild;
+		}
+	}
+	
+	/**
+	 * Pass a single pair of bodies on to the collision context
+	 * 
+	 * @param context The context to resolve the pair in
+	 * @param body1 The first body in the pair
+	 * @param body2 The second body in the pair
+	 * @param dt The amount of time passed since the last step
+	 */
+	private void resolve(CollisionContext context, Body body1, Body body2, float dt) {
+		pair.clear();
+		pair.add(body1);
+		pair.add(body2);
+		context.resolve(pair, dt);
+	}
+	
+	/**
+	 * A single node in the tree. Leaves hold a body, internal nodes always
+	 * have two children.
+	 */
+	private class Node {
+		/** The lowest x coordinate of the (fat) bounds */
+		private float minX;
+		/** The lowest y coordinate of the (fat) bounds */
+		private float minY;
+		/** The highest x coordinate of the (fat) bounds */
+		private float maxX;
+		/** The highest y coordinate of the (fat) bounds */
+		private float maxY;
+		/** The parent of this node, or the next free node if released */
+		private Node parent;
+		/** The first child of an internal node */
+		private Node child1;
+		/** The second child of an internal node */
+		private Node child2;
+		/** The height of the node above the leaves */
+		private int height;
+		/** The body held in a leaf */
+		private Body body;
+		/** The lowest x coordinate of the body's actual bounds */
+		private float boundsMinX;
+		/** The lowest y coordinate of the body's actual bounds */
+		private float boundsMinY;
+		/** The highest x coordinate of the body's actual bounds */
+		private float boundsMaxX;
+		/** The highest y coordinate of the body's actual bounds */
+		private float boundsMaxY;
+		/** True if the leaf is in the moved list */
+		private boolean moved;
+		/** The last update at which the leaf's body was seen */
+		private int stamp;
+		/** The index of the leaf in the list of leaves */
+		private int index;
+		
+		/**
+		 * Check if this node is a leaf
+		 * 
+		 * @return True if this node is a leaf
+		 */
+		public boolean isLeaf() {
+			return child1 == null;
+		}
+		
+		/**
+		 * Update the actual bounds of a leaf from its body
+		 */
+		public void updateBounds() {
+			AABox bounds = body.getShape().getBounds();
+			ROVector2f pos = body.getPosition();
+			float cx = pos.getX() + bounds.getOffsetX();
+			float cy = pos.getY() + bounds.getOffsetY();
+			float hw = bounds.getWidth() / 2;
+			float hh = bounds.getHeight() / 2;
+			
+			boundsMinX = cx - hw;
+			boundsMaxX = cx + hw;
+			boundsMinY = cy - hh;
+			boundsMaxY = cy + hh;
+		}
+		
+		/**
+		 * Set the fat bounds of a leaf to its actual bounds enlarged 
+		 * by a margin
+		 * 
+		 * @param margin The amount to enlarge the bounds by
+		 */
+		public void enlarge(float margin) {
+			minX = boundsMinX - margin;
+			minY = boundsMinY - margin;
+			maxX = boundsMaxX + margin;
+			maxY = boundsMaxY + margin;
+		}
+		
+		/**
+		 * Check if the actual bounds of a leaf are inside its fat bounds
+		 * 
+		 * @return True if the fat bounds contain the actual bounds
+		 */
+		public boolean containsBounds() {
+			return (minX <= boundsMinX) && (minY <= boundsMinY) &&
+				   (maxX >= boundsMaxX) && (maxY >= boundsMaxY);
+		}
+		
+		/**
+		 * Check if the actual bounds of this leaf overlap those of another
+		 * 
+		 * @param other The other leaf to check against
+		 * @return True if the actual bounds overlap
+		 */
+		public boolean touches(Node other) {
+			return (boundsMinX < other.boundsMaxX) && (other.boundsMinX < boundsMaxX) &&
+				   (boundsMinY < other.boundsMaxY) && (other.boundsMinY < boundsMaxY);
+		}
+		
+		/**
+		 * Check if the (fat) bounds of this node overlap a region
+		 * 
+		 * @param minx The lowest x coordinate of the region
+		 * @param miny The lowest y coordinate of the region
+		 * @param maxx The highest x coordinate of the region
+		 * @param maxy The highest y coordinate of the region
+		 * @return True if the bounds overlap the region
+		 */
+		public boolean overlaps(float minx, float miny, float maxx, float maxy) {
+			return (minX < maxx) && (minx < maxX) && (minY < maxy) && (miny < maxY);
+		}
+		
+		/**
+		 * Set the bounds of this node to contain two other nodes
+		 * 
+		 * @param a The first node to contain
+		 * @param b The second node to contain
+		 */
+		public void setUnion(Node a, Node b) {
+			minX = Math.min(a.minX, b.minX);
+			minY = Math.min(a.minY, b.minY);
+			maxX = Math.max(a.maxX, b.maxX);
+			maxY = Math.max(a.maxY, b.maxY);
+		}
+		
+		/**
+		 * Get the perimeter of the bounds of this node
+		 * 
+		 * @return The perimeter of the bounds
+		 */
+		public float getPerimeter() {
+			return 2 * ((maxX - minX) + (maxY - minY));
+		}
+	}
+	
+	/**
+	 * A pair of leaves whose fat bounds overlap
+	 */
+	private class Pair {
+		/** The first leaf in the pair */
+		private Node leaf1;
+		/** The second leaf in the pair */
+		private Node leaf2;
+		/** True if the actual bounds overlapped at the last step */
+		private boolean touching;
+		
+		/**
+		 * Create a new pair
+		 * 
+		 * @param leaf1 The first leaf in the pair
+		 * @param leaf2 The second leaf in the pair
+		 */
+		public Pair(Node leaf1, Node leaf2) {
+			this.leaf1 = leaf1;
+			this.leaf2 = leaf2;
+		}
+		
+		/**
+		 * Check if either body in the pair has left the space
+		 * 
+		 * @return True if the pair should be discarded
+		 */
+		public boolean isStale() {
+			return (leaf1.body == null) || (leaf2.body == null);
+		}
+	}
+}
@@ -38,9 +38,11 @@
 package net.phys2d.raw.strategies;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 
 import net.phys2d.raw.Body;
 import net.phys2d.raw.BodyList;
+import net.phys2d.raw.BodyPairMap;
 import net.phys2d.raw.BroadCollisionStrategy;
 import net.phys2d.raw.CollisionContext;
 import net.phys2d.raw.shapes.AABox;
@@ -59,6 +61,24 @@ public class QuadSpaceStrategy implements BroadCollisionStrategy {
 	private int maxLevels;
 	/** The maximum number of bodies in a given space acceptable */
 	private int maxInSpace;
+	/** The bodies placed in more than one space at this step */
+	private IdentityHashMap shared = new IdentityHashMap();
+	/** The pairs of shared bodies already collided this step */
+	private BodyPairMap collided = new BodyPairMap();
+	/** The bodies of the current space that can be resolved together */
+	private BodyList whole = new BodyList();
+	/** The shared bodies of the current space */
+	private BodyList sharedInSpace = new BodyList();
+	/** The number of repeated pairs each shared body of the current space is in */
+	private int[] repeats = new int[16];
+	/** The number of repeated pairs in the current space not yet left out */
+	private int repeatCount;
+	/** The shared bodies of the current space that must be resolved a pair at a time */
+	private BodyList remaining = new BodyList();
+	/** The list used to pass a single pair of bodies to the context */
+	private BodyList pair = new BodyList();
+	/** The number of pairs skipped at the last step because they'd already been collided */
+	private int duplicatesAvoided;
 	
 	/**
 	 * Create a new strategy
@@ -76,6 +96,7 @@ public class QuadSpaceStrategy implements BroadCollisionStrategy {
 	 */
 	public void collideBodies(CollisionContext context, BodyList bodies, float dt) {
 		spaces.clear();
+		shared.clear();
 		
 		Space space = new Space(0,0,0,0);
 		
@@ -90,9 +111,176 @@ public class QuadSpaceStrategy implements BroadCollisionStrategy {
 		
 		splitSpace(space, 0, maxInSpace, spaces);
 		
+		duplicatesAvoided = 0;
+		if (spaces.size() == 1) {
+			context.resolve((Space) spaces.get(0), dt);
+			return;
+		}
+		
+		// bodies that straddle the split lines appear in several spaces, only 
+		// pairs of two such bodies can meet twice so only they are tracked to 
+		// make sure each pair is only collided once
+		collided.clear();
 		for (int i=0;i<spaces.size();i++) {
-			context.resolve((Space) spaces.get(i), dt);
+			resolveSpace(context, (Space) spaces.get(i), dt);
+		}
+	}
+	
+	/**
+	 * Resolve the pairs of bodies in a single space that haven't already
+	 * been collided in another space. As many bodies as possible are passed 
+	 * to the context together. Shared bodies are left out, those in the most
+	 * repeated pairs first, until no repeated pair is left, and are then 
+	 * resolved a pair at a time.
+	 * 
+	 * @param context The context to resolve the pairs in
+	 * @param space The space whose pairs should be resolved
+	 * @param dt The amount of time passed since the last step
+	 */
+	private void resolveSpace(CollisionContext context, Space space, float dt) {
+		whole.clear();
+		sharedInSpace.clear();
+		remaining.clear();
+		
+		for (int i=0;i<space.size();i++) {
+			Body body = space.get(i);
+			if (shared.containsKey(body)) {
+				sharedInSpace.add(body);
+			} else {
+				whole.add(body);
+			}
+		}
+		
+		// find the pairs of shared bodies that were collided in an earlier space
+		int n = sharedInSpace.size();
+		if (repeats.length < n) {
+			repeats = new int[n * 2];
+		}
+		repeatCount = 0;
+		for (int a=0;a<n;a++) {
+			repeats[a] = 0;
+		}
+		for (int a=0;a<n;a++) {
+			Body bodyA = sharedInSpace.get(a);
+			for (int b=a+1;b<n;b++) {
+				Body bodyB = sharedInSpace.get(b);
+				if (bodyA.isStatic() && bodyB.isStatic()) {
+					continue;
+				}
+				if (collided.indexOf(BodyPairMap.getKey(bodyA, bodyB)) >= 0) {
+					repeats[a]++;
+					repeats[b]++;
+					repeatCount++;
+				}
+			}
+		}
+		
+		// leave out the bodies in the most repeated pairs until none are left, 
+		// marked with a count of -1
+		while (repeatCount > 0) {
+			int most = 0;
+			for (int a=1;a<n;a++) {
+				if (repeats[a] > repeats[most]) {
+					most = a;
+				}
+			}
+			
+			repeats[most] = -1;
+			Body bodyA = sharedInSpace.get(most);
+			for (int b=0;b<n;b++) {
+				Body bodyB = sharedInSpace.get(b);
+				if ((repeats[b] <= 0) || (bodyA.isStatic() && bodyB.isStatic())) {
+					continue;
+				}
+				if (collided.indexOf(BodyPairMap.getKey(bodyA, bodyB)) >= 0) {
+					repeats[b]--;
+					repeatCount--;
+				}
+			}
+		}
+		
+		for (int a=0;a<n;a++) {
+			Body bodyA = sharedInSpace.get(a);
+			if (repeats[a] < 0) {
+				remaining.add(bodyA);
+				continue;
+			}
+			
+			for (int b=a+1;b<n;b++) {
+				if (repeats[b] >= 0) {
+					markCollided(bodyA, sharedInSpace.get(b));
+				}
+			}
+			whole.add(bodyA);
+		}
+		context.resolve(whole, dt);
+		
+		for (int a=0;a<remaining.size();a++) {
+			Body bodyA = remaining.get(a);
+			for (int b=0;b<whole.size();b++) {
+				resolvePair(context, bodyA, whole.get(b), dt);
+			}
+			for (int b=a+1;b<remaining.size();b++) {
+				resolvePair(context, bodyA, remaining.get(b), dt);
+			}
+		}
+	}
+	
+	/**
+	 * Record that a pair of bodies has been collided at this step if
+	 * it could be met again in another space
+	 * 
+	 * @param bodyA The first body in the pair
+	 * @param bodyB The second body in the pair
+	 * @return True if the pair had already been collided at this step
+	 */
+	private boolean markCollided(Body bodyA, Body bodyB) {
+		if ((bodyA.isStatic() && bodyB.isStatic()) || !shared.containsKey(bodyA) || !shared.containsKey(bodyB)) {
+			return false;
+		}
+		
+		long key = BodyPairMap.getKey(bodyA, bodyB);
+		if (collided.indexOf(key) >= 0) {
+			return true;
+		}
+		collided.put(bodyA, bodyB, Boolean.TRUE);
+		
+		return false;
+	}
+	
+	/**
+	 * Resolve a single pair of bodies unless it has already been collided
+	 * at this step
+	 * 
+	 * @param context The context to resolve the pair in
+	 * @param bodyA The first body in the pair
+	 * @param bodyB The second body in the pair
+	 * @param dt The amount of time passed since the last step
+	 */
+	private void resolvePair(CollisionContext context, Body bodyA, Body bodyB, float dt) {
+		if (bodyA.isStatic() && bodyB.isStatic()) {
+			return;
+		}
+		if (markCollided(bodyA, bodyB)) {
+			duplicatesAvoided++;
+			return;
 		}
+		
+		pair.clear();
+		pair.add(bodyA);
+		pair.add(bodyB);
+		context.resolve(pair, dt);
+	}
+	
+	/**
+	 * Get the number of pairs that were skipped at the last step because 
+	 * both bodies shared more than one space and the pair had already been
+	 * collided
+	 * 
+	 * @return The number of duplicate pairs avoided at the last step
+	 */
+	public int getDuplicatesAvoided() {
+		return duplicatesAvoided;
 	}
 
 	/**
@@ -188,13 +376,20 @@ public class QuadSpaceStrategy implements BroadCollisionStrategy {
 			
 			for (int i=0;i<size();i++) {
 				Body body = get(i);
+				int count = 0;
 				for (int j=0;j<4;j++) {
 					if (spaces[j].touches(body.getShape().getBounds(),
 										  body.getPosition().getX(),
 										  body.getPosition().getY())) {
 						spaces[j].add(body);
+						count++;
 					}
 				}
+				
+				// the body will end up in more than one of the final spaces
+				if (count > 1) {
+					shared.put(body, body);
+				}
 			}
 
 			return spaces;
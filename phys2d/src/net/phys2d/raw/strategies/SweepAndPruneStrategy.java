@@ -0,0 +1,432 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw.strategies;
+
+import java.util.IdentityHashMap;
+
+import net.phys2d.math.ROVector2f;
+import net.phys2d.raw.Body;
+import net.phys2d.raw.BodyList;
+import net.phys2d.raw.BodyPairMap;
+import net.phys2d.raw.BroadCollisionStrategy;
+import net.phys2d.raw.CollisionContext;
+import net.phys2d.raw.shapes.AABox;
+
+/**
+ * A sweep and prune strategy. The end points of each body's bounds are kept
+ * in a sorted list for each axis which persists between steps. Since bodies
+ * only move a small amount between steps the lists are nearly sorted already 
+ * and an insertion sort restores the order in close to linear time. Only the
+ * axis being swept is brought up to date at each step, the other is left as
+ * it was until the bodies spread out along it and it's chosen instead.
+ * 
+ * Only pairs of bodies whose bounds overlap on both axes are passed on to
+ * the collision context. Pairs that stopped overlapping since the last step
+ * are passed on once more so the context can discard any contact it was 
+ * holding for them.
+ */
+public class SweepAndPruneStrategy implements BroadCollisionStrategy {
+	/** The initial number of end points allocated for each axis */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/** The proxies for each body being tracked, keyed on the body */
+	private IdentityHashMap proxies = new IdentityHashMap();
+	/** The values of the end points along each axis */
+	private float[][] values = new float[2][INITIAL_CAPACITY];
+	/** The proxy owning each end point along each axis */
+	private Proxy[][] owners = new Proxy[2][INITIAL_CAPACITY];
+	/** True for each end point that is the maximum of its proxy's interval */
+	private boolean[][] maxima = new boolean[2][INITIAL_CAPACITY];
+	/** The number of end points on each axis */
+	private int count;
+	/** The proxies that are currently open during a sweep */
+	private Proxy[] active = new Proxy[INITIAL_CAPACITY / 2];
+	/** The number of proxies currently open during a sweep */
+	private int activeCount;
+	/** The pairs that overlapped at the last step, mapped to the step they were last seen */
+	private BodyPairMap overlaps = new BodyPairMap();
+	/** The list used to pass a pair of bodies to the context */
+	private BodyList pair = new BodyList();
+	/** The current step, used to mark proxies and overlaps as seen */
+	private int stamp;
+	
+	/**
+	 * Create a new strategy
+	 */
+	public SweepAndPruneStrategy() {
+	}
+	
+	/**
+	 * Get the number of pairs of bodies whose bounds overlapped at
+	 * the last step
+	 * 
+	 * @return The number of overlapping pairs
+	 */
+	public int getOverlapCount() {
+		return overlaps.size();
+	}
+	
+	/**
+	 * @see net.phys2d.raw.BroadCollisionStrategy#collideBodies(net.phys2d.raw.CollisionContext, net.phys2d.raw.BodyList, float)
+	 */
+	public void collideBodies(CollisionContext context, BodyList bodies, float dt) {
+		stamp++;
+		
+		for (int i=0;i<bodies.size();i++) {
+			Body body = bodies.get(i);
+			Proxy proxy = (Proxy) proxies.get(body);
+			
+			if (proxy == null) {
+				proxy = new Proxy(body);
+				proxies.put(body, proxy);
+				proxy.update();
+				addEndPoints(proxy);
+			} else {
+				proxy.update();
+			}
+			proxy.stamp = stamp;
+		}
+		
+		if (count > bodies.size() * 2) {
+			removeStaleEndPoints();
+		}
+		
+		int axis = chooseAxis();
+		refresh(axis);
+		sort(axis);
+		sweep(context, axis, dt);
+		
+		for (int i=0;i<overlaps.size();i++) {
+			Overlap overlap = (Overlap) overlaps.getValue(i);
+			if (overlap.stamp == stamp) {
+				continue;
+			}
+			
+			Body body1 = overlaps.getBody1(i);
+			Body body2 = overlaps.getBody2(i);
+			if (proxies.containsKey(body1) && proxies.containsKey(body2)) {
+				resolve(context, body1, body2, dt);
+			}
+			overlaps.removeAt(i);
+			i--;
+		}
+	}
+	
+	/**
+	 * Append the end points of a new proxy to each axis. The sort will 
+	 * move them into place.
+	 * 
+	 * @param proxy The proxy whose end points should be added
+	 */
+	private void addEndPoints(Proxy proxy) {
+		if (count + 2 > values[0].length) {
+			int capacity = values[0].length * 2;
+			for (int axis=0;axis<2;axis++) {
+				float[] newValues = new float[capacity];
+				Proxy[] newOwners = new Proxy[capacity];
+				boolean[] newMaxima = new boolean[capacity];
+				System.arraycopy(values[axis], 0, newValues, 0, count);
+				System.arraycopy(owners[axis], 0, newOwners, 0, count);
+				System.arraycopy(maxima[axis], 0, newMaxima, 0, count);
+				values[axis] = newValues;
+				owners[axis] = newOwners;
+				maxima[axis] = newMaxima;
+			}
+		}
+		
+		for (int axis=0;axis<2;axis++) {
+			owners[axis][count] = proxy;
+			maxima[axis][count] = false;
+			owners[axis][count+1] = proxy;
+			maxima[axis][count+1] = true;
+		}
+		count += 2;
+	}
+	
+	/**
+	 * Remove the end points of any proxy whose body is no longer in the
+	 * list of bodies being collided
+	 */
+	private void removeStaleEndPoints() {
+		for (int i=0;i<count;i++) {
+			Proxy proxy = owners[0][i];
+			if (!maxima[0][i] && (proxy.stamp != stamp)) {
+				proxies.remove(proxy.body);
+			}
+		}
+		
+		int newCount = 0;
+		for (int axis=0;axis<2;axis++) {
+			newCount = 0;
+			for (int i=0;i<count;i++) {
+				Proxy proxy = owners[axis][i];
+				if (proxy.stamp != stamp) {
+					continue;
+				}
+				values[axis][newCount] = values[axis][i];
+				owners[axis][newCount] = proxy;
+				maxima[axis][newCount] = maxima[axis][i];
+				newCount++;
+			}
+			for (int i=newCount;i<count;i++) {
+				owners[axis][i] = null;
+			}
+		}
+		count = newCount;
+	}
+	
+	/**
+	 * Copy the latest bounds of each proxy into the end points of an axis
+	 * 
+	 * @param axis The axis to refresh, 0 for x and 1 for y
+	 */
+	private void refresh(int axis) {
+		float[] v = values[axis];
+		Proxy[] o = owners[axis];
+		boolean[] m = maxima[axis];
+		
+		for (int i=0;i<count;i++) {
+			Proxy proxy = o[i];
+			if (axis == 0) {
+				v[i] = m[i] ? proxy.maxX : proxy.minX;
+			} else {
+				v[i] = m[i] ? proxy.maxY : proxy.minY;
+			}
+		}
+	}
+	
+	/**
+	 * Insertion sort the end points of an axis. Equal values place minimums
+	 * before maximums so that touching intervals are swept as overlapping,
+	 * the exact test is left to the pair check.
+	 * 
+	 * @param axis The axis to sort, 0 for x and 1 for y
+	 */
+	private void sort(int axis) {
+		float[] v = values[axis];
+		Proxy[] o = owners[axis];
+		boolean[] m = maxima[axis];
+		
+		for (int i=1;i<count;i++) {
+			float value = v[i];
+			Proxy owner = o[i];
+			boolean max = m[i];
+			
+			int j = i - 1;
+			while ((j >= 0) && ((v[j] > value) || ((v[j] == value) && m[j] && !max))) {
+				v[j+1] = v[j];
+				o[j+1] = o[j];
+				m[j+1] = m[j];
+				j--;
+			}
+			v[j+1] = value;
+			o[j+1] = owner;
+			m[j+1] = max;
+		}
+	}
+	
+	/**
+	 * Choose the axis to sweep along, this is the axis along which the 
+	 * centres of the bodies are most spread out.
+	 * 
+	 * @return The axis to sweep along, 0 for x and 1 for y
+	 */
+	private int chooseAxis() {
+		int n = count / 2;
+		if (n == 0) {
+			return 0;
+		}
+		
+		float sumX = 0;
+		float sumY = 0;
+		float sumX2 = 0;
+		float sumY2 = 0;
+		
+		for (int i=0;i<count;i++) {
+			if (maxima[0][i]) {
+				Proxy proxy = owners[0][i];
+				float cx = (proxy.minX + proxy.maxX) * 0.5f;
+				float cy = (proxy.minY + proxy.maxY) * 0.5f;
+				sumX += cx;
+				sumY += cy;
+				sumX2 += cx * cx;
+				sumY2 += cy * cy;
+			}
+		}
+		
+		float varX = sumX2 - ((sumX * sumX) / n);
+		float varY = sumY2 - ((sumY * sumY) / n);
+		
+		return varY > varX ? 1 : 0;
+	}
+	
+	/**
+	 * Sweep along an axis reporting every pair of bodies whose bounds 
+	 * overlap on both axes
+	 * 
+	 * @param context The context to report pairs to
+	 * @param axis The axis to sweep along, 0 for x and 1 for y
+	 * @param dt The amount of time passed since the last step
+	 */
+	private void sweep(CollisionContext context, int axis, float dt) {
+		Proxy[] o = owners[axis];
+		boolean[] m = maxima[axis];
+		activeCount = 0;
+		
+		for (int i=0;i<count;i++) {
+			Proxy proxy = o[i];
+			
+			if (m[i]) {
+				// swap the last open proxy into the closed one's place
+				Proxy last = active[activeCount - 1];
+				active[proxy.activeIndex] = last;
+				last.activeIndex = proxy.activeIndex;
+				active[activeCount - 1] = null;
+				activeCount--;
+				continue;
+			}
+			
+			for (int j=0;j<activeCount;j++) {
+				Proxy other = active[j];
+				if (proxy.overlaps(other)) {
+					Body body1 = proxy.body;
+					Body body2 = other.body;
+					if (body1.isStatic() && body2.isStatic()) {
+						continue;
+					}
+					
+					Overlap overlap = (Overlap) overlaps.get(body1, body2);
+					if (overlap == null) {
+						overlap = new Overlap();
+						overlaps.put(body1, body2, overlap);
+					}
+					overlap.stamp = stamp;
+					resolve(context, body1, body2, dt);
+				}
+			}
+			
+			if (activeCount == active.length) {
+				Proxy[] newActive = new Proxy[active.length * 2];
+				System.arraycopy(active, 0, newActive, 0, activeCount);
+				active = newActive;
+			}
+			proxy.activeIndex = activeCount;
+			active[activeCount++] = proxy;
+		}
+	}
+	
+	/**
+	 * Pass a single pair of bodies on to the collision context
+	 * 
+	 * @param context The context to resolve the pair in
+	 * @param body1 The first body in the pair
+	 * @param body2 The second body in the pair
+	 * @param dt The amount of time passed since the last step
+	 */
+	private void resolve(CollisionContext context, Body body1, Body body2, float dt) {
+		pair.clear();
+		pair.add(body1);
+		pair.add(body2);
+		context.resolve(pair, dt);
+	}
+	
+	/**
+	 * The record of a body's bounds held by the strategy
+	 */
+	private class Proxy {
+		/** The body whose bounds are recorded */
+		private Body body;
+		/** The lowest x coordinate of the bounds */
+		private float minX;
+		/** The highest x coordinate of the bounds */
+		private float maxX;
+		/** The lowest y coordinate of the bounds */
+		private float minY;
+		/** The highest y coordinate of the bounds */
+		private float maxY;
+		/** The last step at which the body was seen */
+		private int stamp;
+		/** The index of this proxy in the list of open proxies during a sweep */
+		private int activeIndex;
+		
+		/**
+		 * Create a new proxy
+		 * 
+		 * @param body The body whose bounds should be recorded
+		 */
+		public Proxy(Body body) {
+			this.body = body;
+		}
+		
+		/**
+		 * Update the recorded bounds from the body's current position 
+		 */
+		public void update() {
+			AABox bounds = body.getShape().getBounds();
+			ROVector2f pos = body.getPosition();
+			float cx = pos.getX() + bounds.getOffsetX();
+			float cy = pos.getY() + bounds.getOffsetY();
+			float hw = bounds.getWidth() / 2;
+			float hh = bounds.getHeight() / 2;
+			
+			minX = cx - hw;
+			maxX = cx + hw;
+			minY = cy - hh;
+			maxY = cy + hh;
+		}
+		
+		/**
+		 * Check if the bounds of this proxy overlap another on both axes
+		 * 
+		 * @param other The other proxy to check against
+		 * @return True if the bounds overlap
+		 */
+		public boolean overlaps(Proxy other) {
+			return (minX < other.maxX) && (other.minX < maxX) &&
+				   (minY < other.maxY) && (other.minY < maxY);
+		}
+	}
+	
+	/**
+	 * The record of a pair of bodies overlapping
+	 */
+	private class Overlap {
+		/** The last step at which the pair overlapped */
+		private int stamp;
+	}
+}
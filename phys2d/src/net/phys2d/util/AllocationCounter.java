@@ -0,0 +1,136 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Counts the bytes allocated by the current thread, where the VM can 
+ * report them. The engine is still built for versions of Java without 
+ * the management API, so it's reached reflectively and a counter is only
+ * created where it's available.
+ */
+public class AllocationCounter {
+	/** The thread management bean */
+	private Object threadBean;
+	/** The method reporting the bytes allocated by a thread */
+	private Method allocatedBytes;
+	/** The method getting the identifier of a thread */
+	private Method threadId;
+	/** The thread last counted */
+	private Thread thread;
+	/** The argument identifying the thread last counted to the thread bean */
+	private Object[] threadArgs;
+	
+	/**
+	 * Create a new counter
+	 * 
+	 * @param threadBean The thread management bean
+	 * @param allocatedBytes The method reporting the bytes allocated by a thread
+	 * @param threadId The method getting the identifier of a thread
+	 */
+	private AllocationCounter(Object threadBean, Method allocatedBytes, Method threadId) {
+		this.threadBean = threadBean;
+		this.allocatedBytes = allocatedBytes;
+		this.threadId = threadId;
+	}
+	
+	/**
+	 * Create a counter for the allocations made by each thread
+	 * 
+	 * @return The new counter or null if allocations can't be counted on
+	 * this VM
+	 */
+	public static AllocationCounter create() {
+		try {
+			Class factory = Class.forName("java.lang.management.ManagementFactory");
+			Object threadBean = factory.getMethod("getThreadMXBean", new Class[0]).invoke(null, new Object[0]);
+			Method allocatedBytes = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", new Class[] {Long.TYPE});
+			Method threadId = Thread.class.getMethod("getId", new Class[0]);
+			
+			AllocationCounter counter = new AllocationCounter(threadBean, allocatedBytes, threadId);
+			if (counter.getAllocatedBytes() < 0) {
+				return null;
+			}
+			
+			return counter;
+		} catch (Exception e) {
+			// allocation counting isn't available on this VM
+			return null;
+		}
+	}
+	
+	/**
+	 * Get the number of bytes allocated by the current thread so far. Only
+	 * the difference between two counts is meaningful and it includes the
+	 * bytes allocated by counting, see measureOverhead().
+	 * 
+	 * @return The number of bytes allocated or -1 if the count couldn't be
+	 * read
+	 */
+	public long getAllocatedBytes() {
+		try {
+			if (thread != Thread.currentThread()) {
+				thread = Thread.currentThread();
+				threadArgs = new Object[] {threadId.invoke(thread, new Object[0])};
+			}
+			
+			return ((Long) allocatedBytes.invoke(threadBean, threadArgs)).longValue();
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Measure the bytes allocated by counting itself, which should be 
+	 * taken off the difference between two counts. The overhead drops as
+	 * the VM compiles the reflective calls, so it's best measured just 
+	 * before it's needed.
+	 * 
+	 * @return The bytes allocated between two counts with nothing in between
+	 */
+	public long measureOverhead() {
+		long overhead = Long.MAX_VALUE;
+		for (int i=0;i<100;i++) {
+			long start = getAllocatedBytes();
+			overhead = Math.min(overhead, getAllocatedBytes() - start);
+		}
+		
+		return overhead;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Phys2D - a 2D physics engine based on the work of Erin Catto.
+ * 
+ * This source is provided under the terms of the BSD License.
+ * 
+ * Copyright (c) 2006, Phys2D
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the following 
+ * conditions are met:
+ * 
+ *  * Redistributions of source code must retain the above 
+ *    copyright notice, this list of conditions and the 
+ *    following disclaimer.
+ *  * Redistributions in binary form must reproduce the above 
+ *    copyright notice, this list of conditions and the following 
+ *    disclaimer in the documentation and/or other materials provided 
+ *    with the distribution.
+ *  * Neither the name of the Phys2D/New Dawn Software nor the names of 
+ *    its contributors may be used to endorse or promote products 
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS 
+ * BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, 
+ * OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, 
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, 
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY 
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR 
+ * TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT 
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY 
+ * OF SUCH DAMAGE.
+ */
+package net.phys2d.raw;
+
+import net.phys2d.math.Vector2f;
+import net.phys2d.raw.shapes.Box;
+import net.phys2d.raw.strategies.SweepAndPruneStrategy;
+
+/**
+ * A benchmark comparing the classic solver against the coloured solver on
+ * a single pyramid of 2016 boxes, which forms one island and so can't be 
+ * helped by stepping islands in parallel. The number of threads given to
+ * the coloured solver can be given as an argument, by default there's one 
+ * for each processor.
+ */
+public class ColoredSolverBenchmark {
+	/** The number of rows in the pyramid, giving 2016 boxes */
+	private static final int ROWS = 63;
+	/** The number of steps run before timing starts so the pyramid can settle */
+	private static final int WARMUP_STEPS = 100;
+	/** The number of steps timed */
+	private static final int TIMED_STEPS = 200;
+	
+	/**
+	 * A solver that records how long another solver takes
+	 */
+	private static class TimedSolver implements ConstraintSolver {
+		/** The solver doing the work */
+		private ConstraintSolver solver;
+		/** The total time spent solving in milliseconds */
+		private long time;
+		
+		/**
+		 * Create a new timed solver
+		 * 
+		 * @param solver The solver doing the work
+		 */
+		public TimedSolver(ConstraintSolver solver) {
+			this.solver = solver;
+		}
+		
+		/**
+		 * @see net.phys2d.raw.ConstraintSolver#solve(net.phys2d.raw.ArbiterList, net.phys2d.raw.JointList, float, float, int, int, float, boolean, boolean, net.phys2d.raw.StepStats)
+		 */
+		public int solve(ArbiterList arbiters, JointList joints, float dt, float damping, int minIterations, int maxIterations, float tolerance, boolean biased, boolean restingBodyDetection, StepStats stats) {
+			long start = System.currentTimeMillis();
+			int result = solver.solve(arbiters, joints, dt, damping, minIterations, maxIterations, tolerance, biased, restingBodyDetection, stats);
+			time += System.currentTimeMillis() - start;
+			
+			return result;
+		}
+	}
+	
+	/**
+	 * Run the pyramid with a given solver and report how quickly it stepped
+	 * 
+	 * @param name The name to report the solver under
+	 * @param solver The solver to run the pyramid with
+	 */
+	private static void run(String name, ConstraintSolver solver) {
+		World world = new World(new Vector2f(0, 10), 10, new SweepAndPruneStrategy());
+		TimedSolver timed = new TimedSolver(solver);
+		world.setSolver(timed);
+		
+		Body ground = new StaticBody("Ground", new Box(2000, 20));
+		ground.setPosition(1000, 1400);
+		world.add(ground);
+		for (int y=0;y<ROWS;y++) {
+			for (int x=0;x<ROWS-y;x++) {
+				Body box = new Body("Box", new Box(20, 20), 1);
+				box.setPosition(1000 - (ROWS * 10.5f) + (x * 21) + (y * 10.5f), 1380 - (y * 21));
+				world.add(box);
+			}
+		}
+		
+		for (int i=0;i<WARMUP_STEPS;i++) {
+			world.step();
+		}
+		timed.time = 0;
+		
+		long start = System.currentTimeMillis();
+		for (int i=0;i<TIMED_STEPS;i++) {
+			world.step();
+		}
+		long total = System.currentTimeMillis() - start;
+		
+		System.out.println(name+": "+((TIMED_STEPS * 1000.0f) / total)+" steps/s, "
+						   +(timed.time / (float) TIMED_STEPS)+" ms solving per step");
+	}
+	
+	/**
+	 * Entry point to the benchmark
+	 * 
+	 * @param argv The arguments to the benchmark, optionally the number of
+	 * threads to give the coloured solver
+	 */
+	public static void main(String[] argv) {
+		WorkerPool workers;
+		if (argv.length > 0) {
+			workers = new WorkerPool(Integer.parseInt(argv[0]));
+		} else {
+			workers = new WorkerPool();
+		}
+		
+		System.out.println("Pyramid of "+((ROWS * (ROWS + 1)) / 2)+" boxes, "
+						   +workers.getThreadCount()+" threads for the coloured solver");
+		for (int i=0;i<2;i++) {
+			run("Classic", new ClassicSolver());
+			run("Coloured", new ColoredSolver(workers));
+		}
+		workers.shutdown();
+	}
+}